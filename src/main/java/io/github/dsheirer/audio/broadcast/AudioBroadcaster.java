@@ -22,22 +22,19 @@
 package io.github.dsheirer.audio.broadcast;
 
 import io.github.dsheirer.audio.convert.ISilenceGenerator;
+import io.github.dsheirer.audio.convert.MP3FrameInspector;
 import io.github.dsheirer.identifier.IdentifierCollection;
 import io.github.dsheirer.sample.Listener;
-import io.github.dsheirer.util.ThreadPool;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
-import org.apache.commons.math3.util.FastMath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.Queue;
 import java.util.concurrent.LinkedTransferQueue;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class AudioBroadcaster implements Listener<AudioRecording>
@@ -46,7 +43,6 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
 
     public static final int PROCESSOR_RUN_INTERVAL_MS = 1000;
 
-    private ScheduledFuture mRecordingQueueProcessorFuture;
 
     private RecordingQueueProcessor mRecordingQueueProcessor = new RecordingQueueProcessor();
     private Queue<AudioRecording> mAudioRecordingQueue = new LinkedTransferQueue<>();
@@ -109,6 +105,20 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
      */
     protected abstract void broadcastAudio(byte[] audio);
 
+    /**
+     * Broadcast binary audio data frames from a buffer.  Subclasses that can write the buffer directly to the
+     * streaming session should override this method to avoid copying the audio.  The default implementation copies
+     * the audio to a byte array for broadcast.
+     *
+     * @param audio buffer positioned at the first frame, with a limit at the end of the last frame
+     */
+    protected void broadcastAudio(ByteBuffer audio)
+    {
+        byte[] bytes = new byte[audio.remaining()];
+        audio.get(bytes);
+        broadcastAudio(bytes);
+    }
+
     /**
      * Protocol-specific metadata updater
      */
@@ -141,11 +151,7 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
     {
         if(mStreaming.compareAndSet(false, true))
         {
-            if(mRecordingQueueProcessorFuture == null)
-            {
-                mRecordingQueueProcessorFuture = ThreadPool.SCHEDULED.scheduleAtFixedRate(mRecordingQueueProcessor,
-                    0, PROCESSOR_RUN_INTERVAL_MS, TimeUnit.MILLISECONDS);
-            }
+            BroadcastReactor.getInstance().addPacedWriter(mRecordingQueueProcessor);
         }
     }
 
@@ -156,12 +162,7 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
     {
         if(mStreaming.compareAndSet(true, false))
         {
-            if(mRecordingQueueProcessorFuture != null)
-            {
-                mRecordingQueueProcessorFuture.cancel(true);
-                mRecordingQueueProcessorFuture = null;
-            }
-
+            BroadcastReactor.getInstance().removePacedWriter(mRecordingQueueProcessor);
             disconnect();
         }
     }
@@ -343,10 +344,10 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
     public class RecordingQueueProcessor implements Runnable
     {
         private AtomicBoolean mProcessing = new AtomicBoolean();
-        private ByteArrayInputStream mInputStream;
+        private ByteBuffer mAudio;
         private long mFinalSilencePadding = 0;
-        private int mBytesStreamedActual = 0;
-        private int mBytesStreamedRequired = 0;
+        private long mStreamedMicroseconds = 0;
+        private long mRequiredMicroseconds = 0;
 
         @Override
         public void run()
@@ -355,7 +356,7 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
             {
                 try
                 {
-                    if(mInputStream == null || mInputStream.available() <= 0)
+                    if(mAudio == null || !mAudio.hasRemaining())
                     {
                         if(mFinalSilencePadding > 0)
                         {
@@ -366,28 +367,15 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
                         nextRecording();
                     }
 
-                    if(mInputStream != null)
+                    if(mAudio != null)
                     {
-                        //We need to stream at 13.888 fps (144 byte frame) to achieve 2000 Bps or 16 kbps
-                        mBytesStreamedRequired += 2000;  //2000 bytes per second for 16 kbps data rate
-                        int bytesToStream = mBytesStreamedRequired - mBytesStreamedActual;
-
-                        //Trim length to whole-frame intervals (144 byte frame)
-                        bytesToStream -= (bytesToStream % 144);
+                        mRequiredMicroseconds += PROCESSOR_RUN_INTERVAL_MS * 1000l;
 
-                        int length = FastMath.min(bytesToStream, mInputStream.available());
+                        ByteBuffer frames = getNextFrames();
 
-                        byte[] audio = new byte[length];
-
-                        try
-                        {
-                            mBytesStreamedActual += mInputStream.read(audio);
-
-                            broadcastAudio(audio);
-                        }
-                        catch(IOException ioe)
+                        if(frames != null)
                         {
-                            mLog.error("Error reading from in-memory audio recording input stream", ioe);
+                            broadcastAudio(frames);
                         }
                     }
                     else
@@ -404,17 +392,79 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
             }
         }
 
+        /**
+         * Slices the whole MP3 frames that are due for streaming from the current recording, using the playback
+         * duration of each frame to pace the stream.  Unrecognized bytes between frames are skipped.
+         *
+         * @return frames to stream or null if no frames are due
+         */
+        private ByteBuffer getNextFrames()
+        {
+            int start = mAudio.position();
+            int end = start;
+            int limit = mAudio.limit();
+
+            while(end < limit)
+            {
+                int header = MP3FrameInspector.getHeader(mAudio, end);
+                int frameLength = MP3FrameInspector.getFrameLength(header);
+
+                if(frameLength <= 0)
+                {
+                    if(end > start)
+                    {
+                        //Stream the frames found so far and resync on the next run
+                        break;
+                    }
+
+                    start++;
+                    end++;
+                    continue;
+                }
+
+                if(end + frameLength > limit)
+                {
+                    //Discard a truncated final frame
+                    limit = end;
+                    break;
+                }
+
+                long frameDuration = MP3FrameInspector.getFrameDuration(header);
+
+                if(mStreamedMicroseconds + frameDuration > mRequiredMicroseconds)
+                {
+                    break;
+                }
+
+                mStreamedMicroseconds += frameDuration;
+                end += frameLength;
+            }
+
+            ByteBuffer frames = null;
+
+            if(end > start)
+            {
+                frames = mAudio.duplicate();
+                frames.position(start).limit(end);
+                frames = frames.slice();
+            }
+
+            mAudio.position(end < limit ? end : mAudio.limit());
+
+            return frames;
+        }
+
         /**
          * Loads the next recording for broadcast
          */
         private void nextRecording()
         {
-            mBytesStreamedActual = 0;
-            mBytesStreamedRequired = 0;
+            mStreamedMicroseconds = 0;
+            mRequiredMicroseconds = 0;
 
             boolean metadataUpdateRequired = false;
 
-            if(mInputStream != null)
+            if(mAudio != null)
             {
                 mStreamedAudioCount++;
                 broadcast(new BroadcastEvent(AudioBroadcaster.this,
@@ -422,7 +472,7 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
                 metadataUpdateRequired = true;
             }
 
-            mInputStream = null;
+            mAudio = null;
 
             //Peek at the next recording but don't remove it from the queue yet, so we can inspect the start time for
             //age limits and/or delay elapsed
@@ -448,11 +498,14 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
                 {
                     if(Files.exists(nextRecording.getPath()))
                     {
-                        byte[] audio = Files.readAllBytes(nextRecording.getPath());
+                        ByteBuffer audio = nextRecording.getAudio();
+
+                        //Skip the ID3 metadata tag, since metadata is sent to the server separately
+                        audio.position(audio.position() + MP3FrameInspector.getID3Length(audio, audio.position()));
 
-                        if(audio != null && audio.length > 0)
+                        if(audio.hasRemaining())
                         {
-                            mInputStream = new ByteArrayInputStream(audio);
+                            mAudio = audio;
 
                             mFinalSilencePadding = PROCESSOR_RUN_INTERVAL_MS -
                                 (nextRecording.getRecordingLength() % PROCESSOR_RUN_INTERVAL_MS);
@@ -476,7 +529,7 @@ public abstract class AudioBroadcaster implements Listener<AudioRecording>
                     mLog.error("Stream [" + getBroadcastConfiguration().getName() + "] error reading temporary audio " +
                         "stream recording [" + nextRecording.getPath().toString() + "] - skipping recording - ", ioe);
 
-                    mInputStream = null;
+                    mAudio = null;
                     metadataUpdateRequired = false;
                 }
 
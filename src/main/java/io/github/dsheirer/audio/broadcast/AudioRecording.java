@@ -23,7 +23,11 @@ import io.github.dsheirer.identifier.IdentifierCollection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -37,6 +41,7 @@ public class AudioRecording implements Comparable<AudioRecording>
     private AtomicInteger mPendingReplayCount = new AtomicInteger();
     private IdentifierCollection mIdentifierCollection;
     private Collection<BroadcastChannel> mBroadcastChannels;
+    private ByteBuffer mAudio;
 
     /**
      * Audio recording that is ready to be streamed
@@ -105,6 +110,34 @@ public class AudioRecording implements Comparable<AudioRecording>
     }
 
 
+    /**
+     * Audio content of the recording.  The recording file is read once into a direct buffer that is shared by each of
+     * the broadcasters that stream this recording, until all pending replays are removed.
+     *
+     * @return a read-only view of the audio content, positioned at the start of the recording
+     * @throws IOException if there is an error reading the recording file
+     */
+    public synchronized ByteBuffer getAudio() throws IOException
+    {
+        if(mAudio == null)
+        {
+            try(FileChannel channel = FileChannel.open(mPath, StandardOpenOption.READ))
+            {
+                ByteBuffer audio = ByteBuffer.allocateDirect((int)channel.size());
+
+                while(audio.hasRemaining() && channel.read(audio) >= 0)
+                {
+                    //Read until the buffer is full or end of file
+                }
+
+                audio.flip();
+                mAudio = audio.asReadOnlyBuffer();
+            }
+        }
+
+        return mAudio.duplicate();
+    }
+
     /**
      * Implements comparable for sorting recordings based on start time in ascending order
      */
@@ -127,7 +160,13 @@ public class AudioRecording implements Comparable<AudioRecording>
      */
     public void removePendingReplay()
     {
-        mPendingReplayCount.decrementAndGet();
+        if(mPendingReplayCount.decrementAndGet() <= 0)
+        {
+            synchronized(this)
+            {
+                mAudio = null;
+            }
+        }
     }
 
     /**
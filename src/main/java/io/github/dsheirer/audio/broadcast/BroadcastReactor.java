@@ -0,0 +1,154 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.audio.broadcast;
+
+import io.github.dsheirer.controller.NamingThreadFactory;
+import io.github.dsheirer.properties.SystemProperties;
+import io.github.dsheirer.util.ThreadPool;
+import org.apache.mina.core.service.IoProcessor;
+import org.apache.mina.core.service.SimpleIoProcessorPool;
+import org.apache.mina.transport.socket.nio.NioProcessor;
+import org.apache.mina.transport.socket.nio.NioSession;
+import org.apache.mina.transport.socket.nio.NioSocketConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application-wide non-blocking I/O reactor for audio streaming.
+ *
+ * Each Mina socket connector normally creates its own pool of I/O processors, so every configured stream and
+ * metadata updater owned a selector and I/O thread(s).  This reactor provides a single shared pool of I/O
+ * processors (selector threads) that all broadcaster and metadata updater socket connectors register their sessions
+ * with.
+ *
+ * The reactor also paces the audio writes of each broadcaster.  Each paced writer has its own scheduled task, so a
+ * writer that is slow to produce its audio only delays its own stream and not the other broadcasters.
+ *
+ * The number of selector threads can be configured with the broadcast.reactor.threads system property.
+ */
+public class BroadcastReactor
+{
+    private final static Logger mLog = LoggerFactory.getLogger(BroadcastReactor.class);
+    public static final String PROPERTY_SELECTOR_THREADS = "broadcast.reactor.threads";
+    private static final int DEFAULT_SELECTOR_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private static BroadcastReactor sInstance;
+
+    private ExecutorService mExecutor;
+    private IoProcessor<NioSession> mIoProcessor;
+    private Map<Runnable,ScheduledFuture<?>> mPacedWriters = new HashMap<>();
+
+    /**
+     * Use getInstance() to access the singleton instance
+     */
+    private BroadcastReactor()
+    {
+        int threads = SystemProperties.getInstance().get(PROPERTY_SELECTOR_THREADS, DEFAULT_SELECTOR_THREADS);
+        threads = Math.max(threads, 1);
+
+        //Selector and connect threads are created on demand and terminate when there are no sessions
+        mExecutor = Executors.newCachedThreadPool(new NamingThreadFactory("sdrtrunk broadcast io"));
+        mIoProcessor = new SimpleIoProcessorPool<>(NioProcessor.class, mExecutor, threads);
+
+        mLog.info("Audio streaming I/O reactor created with [" + threads + "] selector threads");
+    }
+
+    /**
+     * Singleton instance of the broadcast reactor
+     */
+    public static synchronized BroadcastReactor getInstance()
+    {
+        if(sInstance == null)
+        {
+            sInstance = new BroadcastReactor();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Creates a socket connector that uses the shared I/O processors of this reactor.  Disposing the connector
+     * does not dispose the shared I/O processors.
+     */
+    public NioSocketConnector createSocketConnector()
+    {
+        return new NioSocketConnector(mExecutor, mIoProcessor);
+    }
+
+    /**
+     * Registers the paced writer to be invoked once per pacing interval
+     * (AudioBroadcaster.PROCESSOR_RUN_INTERVAL_MS) on its own scheduled task.
+     */
+    public synchronized void addPacedWriter(Runnable writer)
+    {
+        if(!mPacedWriters.containsKey(writer))
+        {
+            mPacedWriters.put(writer, ThreadPool.SCHEDULED.scheduleAtFixedRate(new PacedWriter(writer), 0,
+                AudioBroadcaster.PROCESSOR_RUN_INTERVAL_MS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Removes the paced writer and cancels its scheduled task
+     */
+    public synchronized void removePacedWriter(Runnable writer)
+    {
+        ScheduledFuture<?> future = mPacedWriters.remove(writer);
+
+        if(future != null)
+        {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Scheduled task for a paced writer.  Writes are queued to the non-blocking sessions, so the task doesn't block
+     * while its data is sent.
+     */
+    private class PacedWriter implements Runnable
+    {
+        private Runnable mWriter;
+
+        private PacedWriter(Runnable writer)
+        {
+            mWriter = writer;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                mWriter.run();
+            }
+            catch(Throwable t)
+            {
+                //Don't rethrow - an exception would cancel this writer's scheduled task
+                mLog.error("Error while processing paced audio stream writer", t);
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@
 package io.github.dsheirer.audio.broadcast.icecast;
 
 import io.github.dsheirer.alias.AliasModel;
+import io.github.dsheirer.audio.broadcast.BroadcastReactor;
 import io.github.dsheirer.audio.broadcast.BroadcastState;
 import io.github.dsheirer.audio.convert.MP3AudioConverter;
 import io.github.dsheirer.properties.SystemProperties;
@@ -43,6 +44,7 @@ import org.slf4j.LoggerFactory;
 
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -93,6 +95,19 @@ public class IcecastHTTPAudioBroadcaster extends IcecastAudioBroadcaster
         }
     }
 
+    /**
+     * Writes the audio buffer directly to the streaming session without copying
+     */
+    @Override
+    protected void broadcastAudio(ByteBuffer audio)
+    {
+        if(audio != null && audio.hasRemaining() && connect() && mStreamingSession != null &&
+            mStreamingSession.isConnected())
+        {
+            mStreamingSession.write(IoBuffer.wrap(audio));
+        }
+    }
+
     /**
      * (Re)Connects the broadcaster to the remote server if it currently is disconnected and indicates if the broadcaster
      * is currently connected to the remote server following any connection attempts.
@@ -111,7 +126,7 @@ public class IcecastHTTPAudioBroadcaster extends IcecastAudioBroadcaster
 
             if(mSocketConnector == null)
             {
-                mSocketConnector = new NioSocketConnector();
+                mSocketConnector = BroadcastReactor.getInstance().createSocketConnector();
                 mSocketConnector.setConnectTimeoutCheckInterval(10000);
 
 //                mSocketConnector.getFilterChain().addLast("logger",
@@ -19,12 +19,14 @@
 package io.github.dsheirer.audio.broadcast.icecast;
 
 import io.github.dsheirer.alias.AliasModel;
+import io.github.dsheirer.audio.broadcast.BroadcastReactor;
 import io.github.dsheirer.audio.broadcast.BroadcastState;
 import io.github.dsheirer.audio.broadcast.icecast.codec.IcecastCodecFactory;
 import io.github.dsheirer.audio.convert.MP3AudioConverter;
 import io.github.dsheirer.properties.SystemProperties;
 import io.github.dsheirer.util.ThreadPool;
 import org.apache.mina.core.RuntimeIoException;
+import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.service.IoHandlerAdapter;
 import org.apache.mina.core.session.IoSession;
@@ -36,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
 import java.nio.channels.UnresolvedAddressException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -83,6 +86,19 @@ public class IcecastTCPAudioBroadcaster extends IcecastAudioBroadcaster
         }
     }
 
+    /**
+     * Writes the audio buffer directly to the streaming session without copying
+     */
+    @Override
+    protected void broadcastAudio(ByteBuffer audio)
+    {
+        if(audio != null && audio.hasRemaining() && connect() && mStreamingSession != null &&
+            mStreamingSession.isConnected())
+        {
+            mStreamingSession.write(IoBuffer.wrap(audio));
+        }
+    }
+
     /**
      * (Re)Connects the broadcaster to the remote server if it currently is disconnected and indicates if the broadcaster
      * is currently connected to the remote server following any connection attempts.
@@ -101,7 +117,7 @@ public class IcecastTCPAudioBroadcaster extends IcecastAudioBroadcaster
 
             if(mSocketConnector == null)
             {
-                mSocketConnector = new NioSocketConnector();
+                mSocketConnector = BroadcastReactor.getInstance().createSocketConnector();
                 mSocketConnector.getSessionConfig().setWriteTimeout(WRITE_TIMEOUT_SECONDS);
 
 //                LoggingFilter loggingFilter = new LoggingFilter(IcecastTCPAudioBroadcaster.class);
@@ -20,6 +20,7 @@ package io.github.dsheirer.audio.broadcast.shoutcast.v1;
 
 import io.github.dsheirer.alias.AliasModel;
 import io.github.dsheirer.audio.broadcast.AudioBroadcaster;
+import io.github.dsheirer.audio.broadcast.BroadcastReactor;
 import io.github.dsheirer.audio.broadcast.BroadcastState;
 import io.github.dsheirer.audio.broadcast.IBroadcastMetadataUpdater;
 import io.github.dsheirer.util.ThreadPool;
@@ -37,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -102,6 +104,19 @@ public class ShoutcastV1AudioBroadcaster extends AudioBroadcaster
         }
     }
 
+    /**
+     * Writes the audio buffer directly to the streaming session without copying
+     */
+    @Override
+    protected void broadcastAudio(ByteBuffer audio)
+    {
+        if(audio != null && audio.hasRemaining() && connect() && mStreamingSession != null &&
+            mStreamingSession.isConnected())
+        {
+            mStreamingSession.write(IoBuffer.wrap(audio));
+        }
+    }
+
     /**
      * (Re)Connects the broadcaster to the remote server if it currently is disconnected and indicates if the broadcaster
      * is currently connected to the remote server following any connection attempts.
@@ -120,7 +135,7 @@ public class ShoutcastV1AudioBroadcaster extends AudioBroadcaster
 
             if(mSocketConnector == null)
             {
-                mSocketConnector = new NioSocketConnector();
+                mSocketConnector = BroadcastReactor.getInstance().createSocketConnector();
                 mSocketConnector.setConnectTimeoutCheckInterval(10000);
 
 //                mSocketConnector.getFilterChain().addLast("logger",
@@ -25,6 +25,7 @@ import com.google.common.base.Joiner;
 import io.github.dsheirer.alias.Alias;
 import io.github.dsheirer.alias.AliasList;
 import io.github.dsheirer.alias.AliasModel;
+import io.github.dsheirer.audio.broadcast.BroadcastReactor;
 import io.github.dsheirer.audio.broadcast.IBroadcastMetadataUpdater;
 import io.github.dsheirer.identifier.Form;
 import io.github.dsheirer.identifier.Identifier;
@@ -87,7 +88,7 @@ public class ShoutcastV1BroadcastMetadataUpdater implements IBroadcastMetadataUp
     {
         if(mSocketConnector == null)
         {
-            mSocketConnector = new NioSocketConnector();
+            mSocketConnector = BroadcastReactor.getInstance().createSocketConnector();
 
 //            mSocketConnector.getFilterChain().addLast("logger",
 //                new LoggingFilter(ShoutcastV1BroadcastMetadataUpdater.class));
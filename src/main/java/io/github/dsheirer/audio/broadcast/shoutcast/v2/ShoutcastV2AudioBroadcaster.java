@@ -26,6 +26,7 @@ import io.github.dsheirer.alias.Alias;
 import io.github.dsheirer.alias.AliasList;
 import io.github.dsheirer.alias.AliasModel;
 import io.github.dsheirer.audio.broadcast.AudioBroadcaster;
+import io.github.dsheirer.audio.broadcast.BroadcastReactor;
 import io.github.dsheirer.audio.broadcast.BroadcastState;
 import io.github.dsheirer.audio.broadcast.IBroadcastMetadataUpdater;
 import io.github.dsheirer.audio.broadcast.shoutcast.v2.ultravox.AuthenticateBroadcast;
@@ -166,7 +167,7 @@ public class ShoutcastV2AudioBroadcaster extends AudioBroadcaster implements IBr
 
             if(mSocketConnector == null)
             {
-                mSocketConnector = new NioSocketConnector();
+                mSocketConnector = BroadcastReactor.getInstance().createSocketConnector();
                 mSocketConnector.setConnectTimeoutCheckInterval(10000);
 
 //                mSocketConnector.getFilterChain().addLast("logger",
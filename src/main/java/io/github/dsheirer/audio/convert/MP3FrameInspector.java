@@ -21,10 +21,156 @@ package io.github.dsheirer.audio.convert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+
 public class MP3FrameInspector
 {
     private final static Logger mLog = LoggerFactory.getLogger(MP3FrameInspector.class);
 
+    private static final int FRAME_SYNC_MASK = 0xFFE00000;
+    private static final int MPEG_1 = 3;
+    private static final int MPEG_2 = 2;
+    private static final int MPEG_2_5 = 0;
+    private static final int LAYER_3 = 1;
+
+    //Layer III bit rates in kbps, indexed by the header bit rate index
+    private static final int[] MPEG_1_BIT_RATES = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+    private static final int[] MPEG_2_BIT_RATES = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+
+    //Sample rates in Hertz, indexed by the header sample rate index
+    private static final int[] MPEG_1_SAMPLE_RATES = {44100, 48000, 32000};
+    private static final int[] MPEG_2_SAMPLE_RATES = {22050, 24000, 16000};
+    private static final int[] MPEG_2_5_SAMPLE_RATES = {11025, 12000, 8000};
+
+    /**
+     * Reads the 4-byte frame header at the absolute offset in the buffer without changing the buffer position.
+     *
+     * @return header or 0 if there are fewer than 4 bytes available at the offset
+     */
+    public static int getHeader(ByteBuffer buffer, int offset)
+    {
+        if(offset < 0 || offset + 4 > buffer.limit())
+        {
+            return 0;
+        }
+
+        return ((buffer.get(offset) & 0xFF) << 24) | ((buffer.get(offset + 1) & 0xFF) << 16) |
+            ((buffer.get(offset + 2) & 0xFF) << 8) | (buffer.get(offset + 3) & 0xFF);
+    }
+
+    /**
+     * Length of the ID3v2 tag that starts at the absolute offset in the buffer, including the tag header and any
+     * footer.
+     *
+     * @return tag length or 0 if there is no ID3v2 tag at the offset
+     */
+    public static int getID3Length(ByteBuffer buffer, int offset)
+    {
+        if(offset < 0 || offset + 10 > buffer.limit() ||
+            buffer.get(offset) != 'I' || buffer.get(offset + 1) != 'D' || buffer.get(offset + 2) != '3')
+        {
+            return 0;
+        }
+
+        //Tag size is a 28-bit sync-safe integer that excludes the 10-byte header and optional footer
+        int size = ((buffer.get(offset + 6) & 0x7F) << 21) | ((buffer.get(offset + 7) & 0x7F) << 14) |
+            ((buffer.get(offset + 8) & 0x7F) << 7) | (buffer.get(offset + 9) & 0x7F);
+
+        boolean footer = (buffer.get(offset + 5) & 0x10) == 0x10;
+
+        return Math.min(10 + size + (footer ? 10 : 0), buffer.limit() - offset);
+    }
+
+    /**
+     * Indicates if the header is a valid MPEG layer III (MP3) frame header with a fixed bit rate
+     */
+    public static boolean isValidHeader(int header)
+    {
+        return (header & FRAME_SYNC_MASK) == FRAME_SYNC_MASK &&
+            getVersion(header) != 1 &&
+            ((header >> 17) & 0x3) == LAYER_3 &&
+            getBitRateIndex(header) != 0 && getBitRateIndex(header) != 15 &&
+            getSampleRateIndex(header) != 3;
+    }
+
+    /**
+     * Frame length in bytes, including the header, for the MP3 frame header.
+     *
+     * @return frame length or -1 if the header is not valid
+     */
+    public static int getFrameLength(int header)
+    {
+        if(!isValidHeader(header))
+        {
+            return -1;
+        }
+
+        int bitRate = getBitRate(header);
+        int sampleRate = getSampleRate(header);
+        int padding = (header >> 9) & 0x1;
+        int coefficient = getVersion(header) == MPEG_1 ? 144 : 72;
+
+        return (coefficient * bitRate / sampleRate) + padding;
+    }
+
+    /**
+     * Playback duration of the MP3 frame in microseconds
+     *
+     * @return duration or -1 if the header is not valid
+     */
+    public static long getFrameDuration(int header)
+    {
+        if(!isValidHeader(header))
+        {
+            return -1;
+        }
+
+        int samplesPerFrame = getVersion(header) == MPEG_1 ? 1152 : 576;
+
+        return samplesPerFrame * 1000000l / getSampleRate(header);
+    }
+
+    /**
+     * Bit rate in bits per second
+     */
+    private static int getBitRate(int header)
+    {
+        int[] bitRates = getVersion(header) == MPEG_1 ? MPEG_1_BIT_RATES : MPEG_2_BIT_RATES;
+        return bitRates[getBitRateIndex(header)] * 1000;
+    }
+
+    /**
+     * Sample rate in Hertz
+     */
+    private static int getSampleRate(int header)
+    {
+        switch(getVersion(header))
+        {
+            case MPEG_1:
+                return MPEG_1_SAMPLE_RATES[getSampleRateIndex(header)];
+            case MPEG_2:
+                return MPEG_2_SAMPLE_RATES[getSampleRateIndex(header)];
+            case MPEG_2_5:
+            default:
+                return MPEG_2_5_SAMPLE_RATES[getSampleRateIndex(header)];
+        }
+    }
+
+    private static int getVersion(int header)
+    {
+        return (header >> 19) & 0x3;
+    }
+
+    private static int getBitRateIndex(int header)
+    {
+        return (header >> 12) & 0xF;
+    }
+
+    private static int getSampleRateIndex(int header)
+    {
+        return (header >> 10) & 0x3;
+    }
+
     public static void inspect(byte[] frames)
     {
         if(frames == null || frames.length == 0)
@@ -0,0 +1,328 @@
+/*
+ * ******************************************************************************
+ * sdrtrunk
+ * Copyright (C) 2014-2018 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * *****************************************************************************
+ */
+package io.github.dsheirer.bits;
+
+import io.github.dsheirer.dsp.symbol.ISyncDetectListener;
+import io.github.dsheirer.dsp.symbol.SyncDetectProvider;
+import io.github.dsheirer.sample.Broadcaster;
+import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.sample.buffer.ReusableByteBuffer;
+
+import java.util.BitSet;
+
+/**
+ * Packed message framer - word-parallel replacement for the MessageFramer.  Processes a bit stream looking for a
+ * sync pattern and then extracts the message, including the sync pattern, for a total bit length of message length.
+ *
+ * Instead of spawning a message assembler per sync match that receives each subsequent bit, this framer retains the
+ * recent bit stream in a packed ring of 64-bit words and records the stream position where each framed message will
+ * be complete.  Sync detection is a 64-bit shift register comparison with a popcount bit error tolerance and the
+ * completed message is extracted from the ring with 64-bit word copies.
+ *
+ * Bits can be supplied one at a time via the process(boolean) method, or packed (MSB first) in bytes or reusable byte
+ * buffers (e.g. from a BinaryToByteBufferAssembler), where sync is checked at each of the 8 bit offsets of the byte
+ * against the shift register.
+ *
+ * Like the MessageFramer, multiple overlapping messages can be framed simultaneously.
+ */
+public class PackedMessageFramer implements IBinarySymbolProcessor, IPackedBinaryProcessor, Listener<ReusableByteBuffer>,
+    SyncDetectProvider
+{
+    public static final int MAXIMUM_SYNC_LENGTH = 56;
+
+    private Broadcaster<CorrectedBinaryMessage> mBroadcaster = new Broadcaster<>();
+    private ISyncDetectListener mSyncDetectListener;
+    private long mSync;
+    private long mSyncMask;
+    private int mSyncLength;
+    private int mSyncErrorThreshold;
+    private int mMessageLength;
+
+    private long mBits;
+    private long mBitCount;
+    private long[] mHistory;
+    private int mHistoryMask;
+    private int mHistoryWordMask;
+
+    private long[] mPendingMessageEnds;
+    private int mPendingHead;
+    private int mPendingCount;
+
+    /**
+     * Constructs an instance that requires an exact sync pattern match.
+     *
+     * @param syncPattern to detect, up to 56 bits long
+     * @param messageLength in bits, including the sync pattern
+     */
+    public PackedMessageFramer(boolean[] syncPattern, int messageLength)
+    {
+        this(syncPattern, messageLength, 0);
+    }
+
+    /**
+     * Constructs an instance.
+     *
+     * @param syncPattern to detect, up to 56 bits long
+     * @param messageLength in bits, including the sync pattern
+     * @param syncErrorThreshold maximum number of bit errors allowed when matching the sync pattern
+     */
+    public PackedMessageFramer(boolean[] syncPattern, int messageLength, int syncErrorThreshold)
+    {
+        if(syncPattern.length == 0 || syncPattern.length > MAXIMUM_SYNC_LENGTH)
+        {
+            throw new IllegalArgumentException("Sync pattern length must be 1 - " + MAXIMUM_SYNC_LENGTH + " bits");
+        }
+
+        if(messageLength < syncPattern.length)
+        {
+            throw new IllegalArgumentException("Message length must be at least as long as the sync pattern");
+        }
+
+        for(boolean bit : syncPattern)
+        {
+            mSync = (mSync << 1) | (bit ? 1 : 0);
+        }
+
+        mSyncLength = syncPattern.length;
+        mSyncMask = (1l << mSyncLength) - 1;
+        mSyncErrorThreshold = syncErrorThreshold;
+        mMessageLength = messageLength;
+
+        //Bit history holds the longest message plus a full byte, rounded up to a power of two number of bits
+        int historyLength = Integer.highestOneBit(messageLength + 8) * 2;
+        historyLength = Math.max(historyLength, 128);
+        mHistory = new long[historyLength / 64];
+        mHistoryMask = historyLength - 1;
+        mHistoryWordMask = mHistory.length - 1;
+
+        //A sync match can occur at each bit position while earlier messages are still pending
+        mPendingMessageEnds = new long[messageLength - mSyncLength + 1];
+    }
+
+    /**
+     * Sets the maximum number of bit errors allowed when matching the sync pattern
+     */
+    public void setSyncErrorThreshold(int threshold)
+    {
+        mSyncErrorThreshold = threshold;
+    }
+
+    /**
+     * Clears the bit history and any partially framed messages
+     */
+    public void reset()
+    {
+        mBits = 0;
+        mBitCount = 0;
+        mPendingHead = 0;
+        mPendingCount = 0;
+    }
+
+    public void dispose()
+    {
+        mBroadcaster.dispose();
+    }
+
+    /**
+     * Processes a single bit
+     */
+    @Override
+    public void process(boolean bit)
+    {
+        mBits = (mBits << 1) | (bit ? 1 : 0);
+
+        int position = (int)(mBitCount & mHistoryMask);
+        int index = position >>> 6;
+
+        if(bit)
+        {
+            mHistory[index] |= 1l << position;
+        }
+        else
+        {
+            mHistory[index] &= ~(1l << position);
+        }
+
+        mBitCount++;
+
+        checkSync(mBits, mBitCount);
+        checkPending(mBitCount);
+    }
+
+    /**
+     * Processes 8 bits packed MSB first in the byte value
+     */
+    @Override
+    public void process(byte value)
+    {
+        int bits = value & 0xFF;
+        long register = (mBits << 8) | bits;
+
+        //Bit history is stored in stream order from the least significant bit of each word
+        long reversed = Integer.reverse(bits) >>> 24;
+        int position = (int)(mBitCount & mHistoryMask);
+        int index = position >>> 6;
+        int offset = position & 0x3F;
+
+        mHistory[index] = (mHistory[index] & ~(0xFFl << offset)) | (reversed << offset);
+
+        if(offset > 56)
+        {
+            int next = (index + 1) & mHistoryWordMask;
+            int shift = 64 - offset;
+            mHistory[next] = (mHistory[next] & ~(0xFFl >>> shift)) | (reversed >>> shift);
+        }
+
+        //Check each of the 8 sync alignments in the shift register, in stream order
+        for(int shift = 7; shift >= 0; shift--)
+        {
+            long bitCount = mBitCount + 8 - shift;
+            checkSync(register >>> shift, bitCount);
+            checkPending(bitCount);
+        }
+
+        mBits = register;
+        mBitCount += 8;
+    }
+
+    /**
+     * Processes bytes with bits packed MSB first
+     *
+     * @param bytes to process
+     * @param offset to the first byte
+     * @param length number of bytes
+     */
+    public void process(byte[] bytes, int offset, int length)
+    {
+        for(int x = offset; x < offset + length; x++)
+        {
+            process(bytes[x]);
+        }
+    }
+
+    /**
+     * Processes a reusable buffer of bytes with bits packed MSB first
+     */
+    @Override
+    public void receive(ReusableByteBuffer buffer)
+    {
+        byte[] bytes = buffer.getBytes();
+        process(bytes, 0, bytes.length);
+        buffer.decrementUserCount();
+    }
+
+    /**
+     * Checks the most recent bits for a sync match and schedules a message when detected
+     *
+     * @param bits shift register with the most recent bit in the LSB
+     * @param bitCount stream position after the most recent bit
+     */
+    private void checkSync(long bits, long bitCount)
+    {
+        if(bitCount < mSyncLength)
+        {
+            return;
+        }
+
+        int bitErrors = Long.bitCount((bits & mSyncMask) ^ mSync);
+
+        if(bitErrors <= mSyncErrorThreshold)
+        {
+            if(mPendingCount < mPendingMessageEnds.length)
+            {
+                int tail = (mPendingHead + mPendingCount) % mPendingMessageEnds.length;
+                mPendingMessageEnds[tail] = bitCount - mSyncLength + mMessageLength;
+                mPendingCount++;
+            }
+
+            if(mSyncDetectListener != null)
+            {
+                mSyncDetectListener.syncDetected(bitErrors);
+            }
+        }
+    }
+
+    /**
+     * Extracts and broadcasts any pending messages that are complete at the stream position
+     */
+    private void checkPending(long bitCount)
+    {
+        while(mPendingCount > 0 && mPendingMessageEnds[mPendingHead] <= bitCount)
+        {
+            broadcast(mPendingMessageEnds[mPendingHead] - mMessageLength);
+            mPendingHead = (mPendingHead + 1) % mPendingMessageEnds.length;
+            mPendingCount--;
+        }
+    }
+
+    /**
+     * Copies the message that starts at the stream position from the bit history and broadcasts it
+     */
+    private void broadcast(long start)
+    {
+        long[] words = new long[(mMessageLength + 63) / 64];
+
+        for(int x = 0; x < words.length; x++)
+        {
+            int position = (int)((start + (x * 64)) & mHistoryMask);
+            int index = position >>> 6;
+            int offset = position & 0x3F;
+
+            long word = mHistory[index] >>> offset;
+
+            if(offset != 0)
+            {
+                word |= mHistory[(index + 1) & mHistoryWordMask] << (64 - offset);
+            }
+
+            int remaining = mMessageLength - (x * 64);
+
+            if(remaining < 64)
+            {
+                word &= (1l << remaining) - 1;
+            }
+
+            words[x] = word;
+        }
+
+        CorrectedBinaryMessage message = new CorrectedBinaryMessage(BitSet.valueOf(words), mMessageLength);
+        message.setPointer(mMessageLength);
+        mBroadcaster.receive(message);
+    }
+
+    @Override
+    public void setSyncDetectListener(ISyncDetectListener listener)
+    {
+        mSyncDetectListener = listener;
+    }
+
+    /**
+     * Allow a message listener to register with this framer to receive all framed messages
+     */
+    public void addMessageListener(Listener<CorrectedBinaryMessage> listener)
+    {
+        mBroadcaster.addListener(listener);
+    }
+
+    public void removeMessageListener(Listener<CorrectedBinaryMessage> listener)
+    {
+        mBroadcaster.removeListener(listener);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.bits;
+
+import io.github.dsheirer.dsp.symbol.BinaryToByteBufferAssembler;
+import io.github.dsheirer.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark for the message framers.  Compares the legacy message framer against the packed message framer, fed one
+ * bit at a time and fed bytes from a binary to byte buffer assembler, and verifies that all three produce identical
+ * framed messages from a random bit stream with embedded sync patterns, including overlapping messages.
+ *
+ * Run from the command line without arguments.
+ */
+public class PackedMessageFramerBenchmark
+{
+    private final static Logger mLog = LoggerFactory.getLogger(PackedMessageFramerBenchmark.class);
+
+    private static final SyncPattern SYNC_PATTERN = SyncPattern.MPT1327_CONTROL;
+    private static final int MESSAGE_LENGTH = 350;
+    private static final int BIT_COUNT = 2000000;
+    private static final int ITERATIONS = 10;
+
+    /**
+     * Generates random bits with the sync pattern embedded at random intervals, some closer together than the
+     * message length so that framed messages overlap.
+     */
+    private static boolean[] generate(Random random)
+    {
+        boolean[] bits = new boolean[BIT_COUNT];
+        boolean[] sync = SYNC_PATTERN.getPattern();
+
+        for(int x = 0; x < bits.length; x++)
+        {
+            bits[x] = random.nextBoolean();
+        }
+
+        int position = random.nextInt(100);
+
+        while(position + sync.length < bits.length)
+        {
+            System.arraycopy(sync, 0, bits, position, sync.length);
+            position += sync.length + random.nextInt(MESSAGE_LENGTH * 2);
+        }
+
+        return bits;
+    }
+
+    /**
+     * Frames messages with the legacy message framer
+     */
+    private static List<CorrectedBinaryMessage> legacy(boolean[] bits)
+    {
+        List<CorrectedBinaryMessage> messages = new ArrayList<>();
+        MessageFramer framer = new MessageFramer(SYNC_PATTERN.getPattern(), MESSAGE_LENGTH);
+        framer.addMessageListener(messages::add);
+
+        for(boolean bit : bits)
+        {
+            framer.process(bit);
+        }
+
+        return messages;
+    }
+
+    /**
+     * Frames messages with the packed message framer fed one bit at a time
+     */
+    private static List<CorrectedBinaryMessage> packedBits(boolean[] bits)
+    {
+        List<CorrectedBinaryMessage> messages = new ArrayList<>();
+        PackedMessageFramer framer = new PackedMessageFramer(SYNC_PATTERN.getPattern(), MESSAGE_LENGTH);
+        framer.addMessageListener(messages::add);
+
+        for(boolean bit : bits)
+        {
+            framer.process(bit);
+        }
+
+        return messages;
+    }
+
+    /**
+     * Frames messages with the packed message framer fed bytes from a binary to byte buffer assembler, the same as
+     * the decoders
+     */
+    private static List<CorrectedBinaryMessage> packedBytes(boolean[] bits)
+    {
+        List<CorrectedBinaryMessage> messages = new ArrayList<>();
+        PackedMessageFramer framer = new PackedMessageFramer(SYNC_PATTERN.getPattern(), MESSAGE_LENGTH);
+        framer.addMessageListener(messages::add);
+        BinaryToByteBufferAssembler assembler = new BinaryToByteBufferAssembler(512);
+        assembler.addPackedBinaryProcessor(framer);
+
+        for(boolean bit : bits)
+        {
+            assembler.process(bit);
+        }
+
+        return messages;
+    }
+
+    /**
+     * Counts the messages that differ from the expected messages, including any difference in message count
+     */
+    private static int getMismatches(List<CorrectedBinaryMessage> expected, List<CorrectedBinaryMessage> actual)
+    {
+        int mismatches = Math.abs(expected.size() - actual.size());
+
+        for(int x = 0; x < Math.min(expected.size(), actual.size()); x++)
+        {
+            if(expected.get(x).size() != actual.get(x).size() || !expected.get(x).equals(actual.get(x)))
+            {
+                mismatches++;
+            }
+        }
+
+        return mismatches;
+    }
+
+    public static void main(String[] args)
+    {
+        boolean[] bits = generate(new Random(1200));
+
+        //Verify that the packed framer produces the same messages as the legacy framer for bit and byte input
+        List<CorrectedBinaryMessage> legacyMessages = legacy(bits);
+        List<CorrectedBinaryMessage> packedBitMessages = packedBits(bits);
+        List<CorrectedBinaryMessage> packedByteMessages = packedBytes(bits);
+
+        mLog.info("Framed messages legacy [" + legacyMessages.size() + "] packed bits [" + packedBitMessages.size() +
+            "] packed bytes [" + packedByteMessages.size() + "]");
+        mLog.info("Mismatches packed bits [" + getMismatches(legacyMessages, packedBitMessages) +
+            "] packed bytes [" + getMismatches(legacyMessages, packedByteMessages) + "]");
+
+        int result = 0;
+
+        for(int iteration = 0; iteration < ITERATIONS; iteration++)
+        {
+            long start = System.nanoTime();
+            result += legacy(bits).size();
+            long legacyElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            result += packedBits(bits).size();
+            long packedBitsElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            result += packedBytes(bits).size();
+            long packedBytesElapsed = System.nanoTime() - start;
+
+            mLog.info("Iteration " + iteration + " framer legacy [" + (legacyElapsed / 1000000) +
+                " ms] packed bits [" + (packedBitsElapsed / 1000000) + " ms] packed bytes [" +
+                (packedBytesElapsed / 1000000) + " ms]");
+        }
+
+        mLog.info("Finished (" + result + ")");
+
+        //The byte buffer queue schedules buffer trimming on the shared thread pool
+        ThreadPool.SCHEDULED.shutdownNow();
+    }
+}
@@ -125,6 +125,8 @@ public class ChannelEvent
         REQUEST_DISABLE,
         //Request to enable a channel - response will be a PROCESSING_START_NOTIFICATION
         REQUEST_ENABLE,
+        //Request to pre-build a processing chain for an idle traffic channel so that it can be started quickly
+        REQUEST_PREPARE,
         //Request to select the channel
         REQUEST_SELECT;
     }
@@ -26,6 +26,7 @@ import io.github.dsheirer.audio.AudioSegment;
 import io.github.dsheirer.channel.IChannelDescriptor;
 import io.github.dsheirer.channel.metadata.ChannelMetadata;
 import io.github.dsheirer.channel.metadata.ChannelMetadataModel;
+import io.github.dsheirer.channel.state.State;
 import io.github.dsheirer.controller.channel.map.ChannelMapModel;
 import io.github.dsheirer.filter.FilterSet;
 import io.github.dsheirer.identifier.Form;
@@ -38,10 +39,12 @@ import io.github.dsheirer.message.IMessage;
 import io.github.dsheirer.module.Module;
 import io.github.dsheirer.module.ProcessingChain;
 import io.github.dsheirer.module.decode.DecoderFactory;
+import io.github.dsheirer.module.decode.DecoderType;
 import io.github.dsheirer.module.decode.event.IDecodeEvent;
 import io.github.dsheirer.module.decode.event.MessageActivityModel;
 import io.github.dsheirer.module.log.EventLogManager;
 import io.github.dsheirer.preference.UserPreferences;
+import io.github.dsheirer.properties.SystemProperties;
 import io.github.dsheirer.record.RecorderFactory;
 import io.github.dsheirer.sample.Broadcaster;
 import io.github.dsheirer.sample.Listener;
@@ -49,26 +52,50 @@ import io.github.dsheirer.source.Source;
 import io.github.dsheirer.source.SourceEvent;
 import io.github.dsheirer.source.SourceException;
 import io.github.dsheirer.source.SourceManager;
+import io.github.dsheirer.source.tuner.channel.ChannelPriority;
+import io.github.dsheirer.source.tuner.channel.TunerChannelSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Channel processing manager handles all starting and stopping of channel decoding.  A processing chain is created
  * for each channel that is enabled.  The processing chain contains all of the components needed to decode a specific
  * channel and protocol along with all logging and baseband or bitstream recording.  Audio recording is handled outside
  * of this class by the RecorderManager.
+ *
+ * Channel lifecycle requests are serialized per channel using a channel lock so that requests for independent
+ * channels can be processed concurrently while requests for the same channel are processed in order.  Source
+ * allocation is serialized across all channels since selecting a tuner is check-then-act across the tuner source
+ * managers.  Sources are released while holding only the channel lock, so each tuner channel source manager
+ * synchronizes its own source allocation and release.
+ *
+ * Lock ordering: a parent (control) channel lock may be held while acquiring a traffic channel lock, since disposing
+ * a traffic channel manager disables its traffic channels, but never the reverse.
  */
 public class ChannelProcessingManager implements Listener<ChannelEvent>
 {
     private final static Logger mLog = LoggerFactory.getLogger(ChannelProcessingManager.class);
     private static final String TUNER_UNAVAILABLE_DESCRIPTION = "TUNER UNAVAILABLE";
-    private Map<Channel,ProcessingChain> mProcessingChains = new HashMap<>();
+    public static final String PROPERTY_BATCH_PROCESSING_ENABLED = "channel.processing.batch.enabled";
+
+    //Decoders that are only used for trunking control channels.  Standard channels for other decoders are promoted
+    //to control channel priority when the decoder reports control channel activity.
+    private static final EnumSet<DecoderType> CONTROL_CHANNEL_DECODERS = EnumSet.of(DecoderType.LTR_NET,
+        DecoderType.MPT1327, DecoderType.PASSPORT);
+
+    private Map<Channel,ProcessingChain> mProcessingChains = new ConcurrentHashMap<>();
+    private Map<ProcessingChain,Channel> mProcessingChainChannels = new ConcurrentHashMap<>();
+    private Map<Source,Channel> mSourceChannels = new ConcurrentHashMap<>();
+    private Map<Channel,ChannelLock> mChannelLocks = new ConcurrentHashMap<>();
+    private ReentrantLock mSourceAllocationLock = new ReentrantLock();
 
     private List<Listener<AudioSegment>> mAudioSegmentListeners = new CopyOnWriteArrayList<>();
     private List<Listener<IDecodeEvent>> mDecodeEventListeners = new CopyOnWriteArrayList<>();
@@ -80,6 +107,8 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
     private SourceManager mSourceManager;
     private AliasModel mAliasModel;
     private UserPreferences mUserPreferences;
+    private ProcessingChainPool mProcessingChainPool;
+    private boolean mBatchProcessingEnabled;
 
     /**
      * Constructs the channel processing manager
@@ -99,6 +128,9 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
         mAliasModel = aliasModel;
         mUserPreferences = userPreferences;
         mChannelMetadataModel = new ChannelMetadataModel();
+        mProcessingChainPool = new ProcessingChainPool(this);
+        mProcessingChainPool.start();
+        mBatchProcessingEnabled = SystemProperties.getInstance().get(PROPERTY_BATCH_PROCESSING_ENABLED, false);
     }
 
     /**
@@ -115,7 +147,35 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
      */
     private boolean isProcessing(Channel channel)
     {
-        return mProcessingChains.containsKey(channel) && mProcessingChains.get(channel).isProcessing();
+        ProcessingChain processingChain = mProcessingChains.get(channel);
+        return processingChain != null && processingChain.isProcessing();
+    }
+
+    /**
+     * Acquires the lock used to serialize lifecycle operations (start, stop, prepare, release) for the channel.  The
+     * lock is created on demand and is removed once no thread holds or waits for it, so that locks aren't retained
+     * for deleted channels or released traffic channels.  Each call must be paired with unlockChannel().
+     */
+    private void lockChannel(Channel channel)
+    {
+        ChannelLock channelLock = mChannelLocks.compute(channel, (key, existing) -> {
+            ChannelLock lock = existing != null ? existing : new ChannelLock();
+            lock.mUsers++;
+            return lock;
+        });
+
+        channelLock.lock();
+    }
+
+    /**
+     * Releases the lifecycle lock for the channel and removes the lock when it is no longer in use.
+     */
+    private void unlockChannel(Channel channel)
+    {
+        mChannelLocks.computeIfPresent(channel, (key, lock) -> {
+            lock.unlock();
+            return --lock.mUsers == 0 ? null : lock;
+        });
     }
 
     /**
@@ -146,13 +206,7 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
     {
         if(processingChain != null)
         {
-            for(Map.Entry<Channel,ProcessingChain> entry : mProcessingChains.entrySet())
-            {
-                if(entry.getValue() == processingChain)
-                {
-                    return entry.getKey();
-                }
-            }
+            return mProcessingChainChannels.get(processingChain);
         }
 
         return null;
@@ -164,7 +218,36 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
      * @param event that requests either enable/start or disable/stop a channel.
      */
     @Override
-    public synchronized void receive(ChannelEvent event)
+    public void receive(ChannelEvent event)
+    {
+        Channel channel = event.getChannel();
+
+        switch(event.getEvent())
+        {
+            case REQUEST_ENABLE:
+            case REQUEST_PREPARE:
+            case REQUEST_DISABLE:
+            case NOTIFICATION_DELETE:
+                lockChannel(channel);
+
+                try
+                {
+                    process(event);
+                }
+                finally
+                {
+                    unlockChannel(channel);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Processes a channel lifecycle request.  Caller must hold the channel lock.
+     */
+    private void process(ChannelEvent event)
     {
         Channel channel = event.getChannel();
 
@@ -183,8 +266,20 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
                     }
                 }
                 break;
+            case REQUEST_PREPARE:
+                if(channel.isTrafficChannel())
+                {
+                    mProcessingChainPool.addCandidate(channel);
+                }
+                break;
             case REQUEST_DISABLE:
-                if(channel.isProcessing())
+                if(!channel.isProcessing() && channel.isTrafficChannel())
+                {
+                    //Idle traffic channel is being released by its traffic channel manager
+                    mProcessingChainPool.removeCandidate(channel);
+                    releaseProcessingChain(channel);
+                }
+                else if(channel.isProcessing())
                 {
                     try
                     {
@@ -233,8 +328,16 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
      */
     public void start(Channel channel) throws ChannelException
     {
-        startProcessing(new ChannelEvent(channel, ChannelEvent.Event.REQUEST_ENABLE));
+        lockChannel(channel);
 
+        try
+        {
+            startProcessing(new ChannelEvent(channel, ChannelEvent.Event.REQUEST_ENABLE));
+        }
+        finally
+        {
+            unlockChannel(channel);
+        }
     }
 
     /**
@@ -243,11 +346,20 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
      */
     public void stop(Channel channel) throws ChannelException
     {
-        stopProcessing(channel, !channel.isTrafficChannel());
+        lockChannel(channel);
+
+        try
+        {
+            stopProcessing(channel, !channel.isTrafficChannel());
+        }
+        finally
+        {
+            unlockChannel(channel);
+        }
     }
 
     /**
-     * Starts a channel/processing chain
+     * Starts a channel/processing chain.  Caller must hold the channel lock.
      *
      * @param event that requested the channel start
      */
@@ -266,6 +378,8 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
         //Ensure that we can get a source before we construct a new processing chain
         Source source = null;
 
+        mSourceAllocationLock.lock();
+
         try
         {
             source = mSourceManager.getSource(channel.getSourceConfiguration(),
@@ -275,6 +389,10 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
         {
             mLog.debug("Error obtaining source for channel [" + channel.getName() + "]", se);
         }
+        finally
+        {
+            mSourceAllocationLock.unlock();
+        }
 
         if(source == null)
         {
@@ -286,71 +404,34 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
             throw new ChannelException("No Tuner Available");
         }
 
-        if(processingChain == null)
+        if(source instanceof TunerChannelSource)
         {
-            processingChain = new ProcessingChain(channel, mAliasModel);
-            mChannelEventBroadcaster.addListener(processingChain);
+            DecoderType decoderType = channel.getDecodeConfiguration().getDecoderType();
 
-            /* Register global listeners */
-            for(Listener<AudioSegment> listener : mAudioSegmentListeners)
+            //Process the channel in the same scheduled pass as other channels on the tuner using the same decoder type
+            if(mBatchProcessingEnabled)
             {
-                processingChain.addAudioSegmentListener(listener);
+                ((TunerChannelSource)source).setBatchGroup(decoderType);
             }
 
-            for(Listener<IDecodeEvent> listener : mDecodeEventListeners)
+            //Assign the priority used by the DSP load scheduler when shedding load
+            if(channel.isTrafficChannel())
             {
-                processingChain.addDecodeEventListener(listener);
+                ((TunerChannelSource)source).setPriority(ChannelPriority.TRAFFIC);
             }
-
-            //Add a listener to detect source error state that indicates the channel should be shutdown
-            processingChain.addSourceEventListener(sourceEvent ->
+            else if(CONTROL_CHANNEL_DECODERS.contains(decoderType))
             {
-                if(sourceEvent.getEvent() == SourceEvent.Event.NOTIFICATION_ERROR_STATE && sourceEvent.getSource() != null)
-                {
-                    Channel toShutdown = null;
-
-                    for(Map.Entry<Channel,ProcessingChain> entry: mProcessingChains.entrySet())
-                    {
-                        if(entry.getValue().hasSource(sourceEvent.getSource()))
-                        {
-                            toShutdown = entry.getKey();
-                            break;
-                        }
-                    }
-
-                    if(toShutdown != null)
-                    {
-                        mLog.warn("Channel source error detected - stopping channel [" + toShutdown.getName() + "]");
-
-                        try
-                        {
-                            stopProcessing(toShutdown, true);
-                        }
-                        catch(ChannelException ce)
-                        {
-                            mLog.error("Error stopping channel [" + channel.getName() + "] with source error - " +
-                                ce.getMessage());
-                        }
-                    }
-                }
-            });
-
-            //Register this manager to receive channel events from traffic channel manager modules within
-            //the processing chain
-            processingChain.addChannelEventListener(this);
-
-            //Register channel to receive frequency correction events to show in the spectral display (hack!)
-            processingChain.addFrequencyChangeListener(channel);
-
-            /* Processing Modules */
-            List<Module> modules = DecoderFactory.getModules(mChannelMapModel, channel, mAliasModel, mUserPreferences);
-            processingChain.addModules(modules);
-
-            /* Setup message activity model with filtering */
-            FilterSet<IMessage> messageFilter = DecoderFactory.getMessageFilters(modules);
-            MessageActivityModel messageModel = new MessageActivityModel(messageFilter);
-            processingChain.setMessageActivityModel(messageModel);
+                ((TunerChannelSource)source).setPriority(ChannelPriority.CONTROL);
+            }
+            else
+            {
+                ((TunerChannelSource)source).setPriority(ChannelPriority.CONVENTIONAL);
+            }
+        }
 
+        if(processingChain == null)
+        {
+            processingChain = createProcessingChain(channel);
         }
 
         /* Setup event logging */
@@ -364,8 +445,26 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
         //Add recorders
         processingChain.addModules(RecorderFactory.getRecorders(mUserPreferences, channel));
 
+        //Register channel to receive frequency correction events to show in the spectral display (hack!)
+        processingChain.addFrequencyChangeListener(channel);
+
         //Set the samples source
         processingChain.setSource(source);
+        mSourceChannels.put(source, channel);
+
+        //Promote a standard channel to control channel priority once the decoder reports control channel activity
+        if(source instanceof TunerChannelSource && !channel.isTrafficChannel())
+        {
+            TunerChannelSource tunerChannelSource = (TunerChannelSource)source;
+
+            processingChain.addDecoderStateEventListener(decoderStateEvent -> {
+                if(decoderStateEvent.getState() == State.CONTROL &&
+                    tunerChannelSource.getPriority() != ChannelPriority.CONTROL)
+                {
+                    tunerChannelSource.setPriority(ChannelPriority.CONTROL);
+                }
+            });
+        }
 
         //Inject the channel identifier for traffic channels and preload user identifiers
         if(channel.isTrafficChannel() && event instanceof ChannelGrantEvent)
@@ -422,12 +521,166 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
         getChannelMetadataModel().add(processingChain.getChannelState().getChannelMetadata(), channel);
 
         mProcessingChains.put(channel, processingChain);
+        mProcessingChainChannels.put(processingChain, channel);
+
+        if(channel.isTrafficChannel())
+        {
+            mProcessingChainPool.channelStarted(channel);
+        }
 
         mChannelEventBroadcaster.broadcast(new ChannelEvent(channel, ChannelEvent.Event.NOTIFICATION_PROCESSING_START));
     }
 
     /**
-     * Stops the channel/processing chain.
+     * Creates a processing chain for the channel with all of the decoder modules, but without a source, event
+     * loggers or recorders.
+     */
+    private ProcessingChain createProcessingChain(Channel channel)
+    {
+        ProcessingChain processingChain = new ProcessingChain(channel, mAliasModel);
+        mChannelEventBroadcaster.addListener(processingChain);
+
+        /* Register global listeners */
+        for(Listener<AudioSegment> listener : mAudioSegmentListeners)
+        {
+            processingChain.addAudioSegmentListener(listener);
+        }
+
+        for(Listener<IDecodeEvent> listener : mDecodeEventListeners)
+        {
+            processingChain.addDecodeEventListener(listener);
+        }
+
+        //Add a listener to detect source error state that indicates the channel should be shutdown
+        processingChain.addSourceEventListener(sourceEvent ->
+        {
+            if(sourceEvent.getEvent() == SourceEvent.Event.NOTIFICATION_ERROR_STATE && sourceEvent.getSource() != null)
+            {
+                Channel toShutdown = mSourceChannels.get(sourceEvent.getSource());
+
+                if(toShutdown != null)
+                {
+                    lockChannel(toShutdown);
+
+                    try
+                    {
+                        ProcessingChain toStop = mProcessingChains.get(toShutdown);
+
+                        //Ensure the channel wasn't restarted with a new source while we were waiting for the lock
+                        if(toStop != null && toStop.hasSource(sourceEvent.getSource()))
+                        {
+                            mLog.warn("Channel source error detected - stopping channel [" + toShutdown.getName() + "]");
+                            stopProcessing(toShutdown, true);
+                        }
+                    }
+                    catch(ChannelException ce)
+                    {
+                        mLog.error("Error stopping channel [" + toShutdown.getName() + "] with source error - " +
+                            ce.getMessage());
+                    }
+                    finally
+                    {
+                        unlockChannel(toShutdown);
+                    }
+                }
+            }
+        });
+
+        //Register this manager to receive channel events from traffic channel manager modules within
+        //the processing chain
+        processingChain.addChannelEventListener(this);
+
+        /* Processing Modules */
+        List<Module> modules = DecoderFactory.getModules(mChannelMapModel, channel, mAliasModel, mUserPreferences);
+        processingChain.addModules(modules);
+
+        /* Setup message activity model with filtering */
+        FilterSet<IMessage> messageFilter = DecoderFactory.getMessageFilters(modules);
+        MessageActivityModel messageModel = new MessageActivityModel(messageFilter);
+        messageModel.setChannelName(channel.getName());
+        processingChain.setMessageActivityModel(messageModel);
+
+        return processingChain;
+    }
+
+    /**
+     * Pre-builds the processing chain for an idle traffic channel so that a subsequent channel start only needs to
+     * obtain a source.  The chain is constructed without holding the channel lock.
+     *
+     * @param channel to prepare
+     * @return true if a new processing chain was prepared
+     */
+    boolean prepareProcessingChain(Channel channel)
+    {
+        if(channel.isProcessing() || hasProcessingChain(channel))
+        {
+            return false;
+        }
+
+        ProcessingChain processingChain = createProcessingChain(channel);
+
+        lockChannel(channel);
+
+        try
+        {
+            if(!channel.isProcessing() && mProcessingChains.putIfAbsent(channel, processingChain) == null)
+            {
+                mProcessingChainChannels.put(processingChain, channel);
+                return true;
+            }
+        }
+        finally
+        {
+            unlockChannel(channel);
+        }
+
+        //Channel was started or prepared while we were building the chain
+        mChannelEventBroadcaster.removeListener(processingChain);
+        processingChain.dispose();
+        return false;
+    }
+
+    /**
+     * Indicates if a processing chain is constructed for the channel, whether processing or idle.
+     */
+    boolean hasProcessingChain(Channel channel)
+    {
+        return mProcessingChains.containsKey(channel);
+    }
+
+    /**
+     * Disposes the idle processing chain for the channel.
+     *
+     * @param channel that is not processing
+     * @return true if an idle chain was released
+     */
+    boolean releaseProcessingChain(Channel channel)
+    {
+        lockChannel(channel);
+
+        try
+        {
+            ProcessingChain processingChain = mProcessingChains.get(channel);
+
+            if(processingChain != null && !processingChain.isProcessing() && !channel.isProcessing())
+            {
+                mProcessingChains.remove(channel);
+                mProcessingChainChannels.remove(processingChain);
+                mChannelEventBroadcaster.removeListener(processingChain);
+                processingChain.dispose();
+                return true;
+            }
+        }
+        finally
+        {
+            unlockChannel(channel);
+        }
+
+        return false;
+    }
+
+    /**
+     * Stops the channel/processing chain.  Caller must hold the channel lock.
      *
      * @param channel to stop
      * @param remove set to true to remove the associated processing chain.
@@ -436,9 +689,16 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
     {
         channel.setProcessing(false);
 
-        if(mProcessingChains.containsKey(channel))
+        ProcessingChain processingChain = mProcessingChains.get(channel);
+
+        if(processingChain != null)
         {
-            ProcessingChain processingChain = mProcessingChains.get(channel);
+            Source source = processingChain.getSource();
+
+            if(source != null)
+            {
+                mSourceChannels.remove(source);
+            }
 
             for(ChannelMetadata channelMetadata: processingChain.getChannelState().getChannelMetadata())
             {
@@ -455,12 +715,18 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
             processingChain.removeFrequencyChangeListener(channel);
             channel.resetFrequencyCorrection();
 
+            if(channel.isTrafficChannel())
+            {
+                mProcessingChainPool.channelStopped(channel);
+            }
+
             mChannelEventBroadcaster.broadcast(new ChannelEvent(channel, ChannelEvent.Event.NOTIFICATION_PROCESSING_STOP));
 
             if(remove)
             {
                 mChannelEventBroadcaster.removeListener(processingChain);
                 mProcessingChains.remove(channel);
+                mProcessingChainChannels.remove(processingChain);
                 processingChain.dispose();
             }
         }
@@ -475,18 +741,29 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
      */
     public void shutdown()
     {
+        mProcessingChainPool.stop();
+
         List<Channel> channelsToStop = new ArrayList<>(mProcessingChains.keySet());
 
         for(Channel channel : channelsToStop)
         {
+            lockChannel(channel);
+
             try
             {
-                stopProcessing(channel, true);
+                if(mProcessingChains.containsKey(channel))
+                {
+                    stopProcessing(channel, true);
+                }
             }
             catch(ChannelException ce)
             {
                 mLog.error("Error stopping channel [" + channel.getName() + "] - " + ce.getMessage());
             }
+            finally
+            {
+                unlockChannel(channel);
+            }
         }
     }
 
@@ -539,4 +816,13 @@ public class ChannelProcessingManager implements Listener<ChannelEvent>
     {
         mChannelEventBroadcaster.removeListener(listener);
     }
+
+    /**
+     * Channel lifecycle lock with a count of the threads that hold or are waiting for the lock.  The count is only
+     * updated within the lock map compute methods.
+     */
+    private static class ChannelLock extends ReentrantLock
+    {
+        private int mUsers;
+    }
 }
@@ -0,0 +1,271 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.controller.channel;
+
+import io.github.dsheirer.module.decode.DecoderType;
+import io.github.dsheirer.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains a pool of pre-built, idle processing chains for trunked system traffic channels so that a channel grant
+ * only has to obtain a tuner source and start the chain, instead of constructing the processing chain, decoder and
+ * audio modules while the call is already in progress.
+ *
+ * Traffic channel managers register their (idle) traffic channels as candidates via a REQUEST_PREPARE channel event.
+ * The managers allocate idle traffic channels in first-in, first-out order and send a new REQUEST_PREPARE each time a
+ * channel is returned to the tail of their available queue, which moves the candidate to the tail of the pool's
+ * candidate list.  The candidate list therefore follows the allocation order: chains are prepared for the channels
+ * that will be granted next, and chains for the channels that will be granted last are the first to be released.
+ * For each decoder type, the pool tracks the channel grant rate and periodically builds processing chains in the
+ * background until the number of idle, prepared chains meets the target, which is the number of grants observed in
+ * a typical burst interval, bounded by a minimum and by the number of candidate channels.  When grant activity
+ * subsides, prepared chains that have been idle for an extended period and that exceed the target are disposed to
+ * release memory.
+ */
+public class ProcessingChainPool
+{
+    private final static Logger mLog = LoggerFactory.getLogger(ProcessingChainPool.class);
+
+    private static final long UPDATE_INTERVAL_SECONDS = 5;
+    private static final long GRANT_RATE_WINDOW_MS = 60000;
+    private static final long BURST_INTERVAL_MS = 10000;
+    private static final long IDLE_DISPOSE_THRESHOLD_MS = 10 * 60000;
+    private static final int MINIMUM_PREPARED_CHAINS = 2;
+
+    private ChannelProcessingManager mChannelProcessingManager;
+    private Map<DecoderType,DecoderPool> mDecoderPools = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> mUpdateTask;
+
+    /**
+     * Constructs an instance
+     *
+     * @param channelProcessingManager to prepare and release processing chains
+     */
+    public ProcessingChainPool(ChannelProcessingManager channelProcessingManager)
+    {
+        mChannelProcessingManager = channelProcessingManager;
+    }
+
+    /**
+     * Starts the periodic pool maintenance task
+     */
+    public void start()
+    {
+        if(mUpdateTask == null)
+        {
+            mUpdateTask = ThreadPool.SCHEDULED.scheduleAtFixedRate(this::update, UPDATE_INTERVAL_SECONDS,
+                UPDATE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic pool maintenance task
+     */
+    public void stop()
+    {
+        if(mUpdateTask != null)
+        {
+            mUpdateTask.cancel(false);
+            mUpdateTask = null;
+        }
+    }
+
+    /**
+     * Registers an idle traffic channel as a candidate for a pre-built processing chain, or moves an existing
+     * candidate to the tail of the candidate list when it is returned to the traffic channel manager's queue.
+     */
+    public void addCandidate(Channel channel)
+    {
+        DecoderPool pool = getDecoderPool(channel);
+
+        if(pool != null)
+        {
+            synchronized(pool)
+            {
+                pool.mCandidates.remove(channel);
+                pool.mCandidates.add(channel);
+            }
+
+            pool.mIdleSince.put(channel, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Removes the channel as a candidate for a pre-built processing chain
+     */
+    public void removeCandidate(Channel channel)
+    {
+        DecoderPool pool = getDecoderPool(channel);
+
+        if(pool != null)
+        {
+            pool.mCandidates.remove(channel);
+            pool.mIdleSince.remove(channel);
+        }
+    }
+
+    /**
+     * Records a traffic channel start for grant rate tracking
+     */
+    public void channelStarted(Channel channel)
+    {
+        DecoderPool pool = getDecoderPool(channel);
+
+        if(pool != null)
+        {
+            pool.mGrantTimestamps.add(System.currentTimeMillis());
+            pool.mIdleSince.remove(channel);
+        }
+    }
+
+    /**
+     * Records a traffic channel stop.  The channel's processing chain is retained and returns to the idle pool.
+     */
+    public void channelStopped(Channel channel)
+    {
+        DecoderPool pool = getDecoderPool(channel);
+
+        if(pool != null && pool.mCandidates.contains(channel))
+        {
+            pool.mIdleSince.put(channel, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Decoder pool for the channel's decoder type or null if the channel has no decode configuration
+     */
+    private DecoderPool getDecoderPool(Channel channel)
+    {
+        if(channel.getDecodeConfiguration() == null)
+        {
+            return null;
+        }
+
+        return mDecoderPools.computeIfAbsent(channel.getDecodeConfiguration().getDecoderType(),
+            decoderType -> new DecoderPool(decoderType));
+    }
+
+    /**
+     * Adjusts each decoder pool to meet the current target number of prepared chains
+     */
+    private void update()
+    {
+        try
+        {
+            for(DecoderPool pool : mDecoderPools.values())
+            {
+                pool.update();
+            }
+        }
+        catch(Throwable t)
+        {
+            mLog.error("Error while updating traffic channel processing chain pool", t);
+        }
+    }
+
+    /**
+     * Pool of candidate traffic channels and grant rate tracking for a single decoder type
+     */
+    private class DecoderPool
+    {
+        private DecoderType mDecoderType;
+        private List<Channel> mCandidates = new CopyOnWriteArrayList<>();
+        private Map<Channel,Long> mIdleSince = new ConcurrentHashMap<>();
+        private ConcurrentLinkedDeque<Long> mGrantTimestamps = new ConcurrentLinkedDeque<>();
+        private int mLastTarget;
+
+        DecoderPool(DecoderType decoderType)
+        {
+            mDecoderType = decoderType;
+        }
+
+        /**
+         * Target number of idle prepared chains: the number of grants expected in a burst interval at the average
+         * grant rate over the rate window, with a fixed minimum.
+         */
+        private int getTarget(long now)
+        {
+            while(!mGrantTimestamps.isEmpty() && mGrantTimestamps.peekFirst() < now - GRANT_RATE_WINDOW_MS)
+            {
+                mGrantTimestamps.pollFirst();
+            }
+
+            int burst = (int)Math.ceil((double)mGrantTimestamps.size() * BURST_INTERVAL_MS / GRANT_RATE_WINDOW_MS);
+
+            return Math.min(Math.max(MINIMUM_PREPARED_CHAINS, burst), mCandidates.size());
+        }
+
+        private void update()
+        {
+            long now = System.currentTimeMillis();
+            int target = getTarget(now);
+
+            //Idle candidates in the order that the traffic channel manager will allocate them
+            List<Channel> idle = new ArrayList<>();
+
+            for(Channel candidate : mCandidates)
+            {
+                if(!candidate.isProcessing())
+                {
+                    idle.add(candidate);
+                }
+            }
+
+            if(target != mLastTarget)
+            {
+                mLog.debug(mDecoderType + " traffic channel pool target changed to [" + target + "] prepared chains");
+                mLastTarget = target;
+            }
+
+            //Grow the pool with chains for the channels that will be allocated next
+            for(int x = 0; x < idle.size() && x < target; x++)
+            {
+                Channel channel = idle.get(x);
+
+                if(!mChannelProcessingManager.hasProcessingChain(channel))
+                {
+                    mChannelProcessingManager.prepareProcessingChain(channel);
+                }
+            }
+
+            //Shrink the pool, releasing chains beyond the target that have been idle for an extended period
+            for(int x = target; x < idle.size(); x++)
+            {
+                Channel channel = idle.get(x);
+                Long idleSince = mIdleSince.get(channel);
+
+                if(idleSince != null && now - idleSince > IDLE_DISPOSE_THRESHOLD_MS &&
+                    mChannelProcessingManager.hasProcessingChain(channel))
+                {
+                    mChannelProcessingManager.releaseProcessingChain(channel);
+                }
+            }
+        }
+    }
+}
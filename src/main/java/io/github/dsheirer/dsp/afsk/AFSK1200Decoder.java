@@ -21,9 +21,12 @@ package io.github.dsheirer.dsp.afsk;
 
 import io.github.dsheirer.bits.IBinarySymbolProcessor;
 import io.github.dsheirer.buffer.FloatAveragingBuffer;
+import io.github.dsheirer.dsp.filter.design.FilterDesignException;
+import io.github.dsheirer.dsp.filter.resample.PolyphaseRealResampler;
 import io.github.dsheirer.dsp.filter.resample.RealResampler;
 import io.github.dsheirer.dsp.mixer.IOscillator;
 import io.github.dsheirer.dsp.mixer.Oscillator;
+import io.github.dsheirer.properties.SystemProperties;
 import io.github.dsheirer.sample.Listener;
 import io.github.dsheirer.sample.buffer.ReusableFloatBuffer;
 import org.apache.commons.math3.util.FastMath;
@@ -37,6 +40,10 @@ import org.slf4j.LoggerFactory;
  * which equates to six samples per symbol.  Each symbol is correlated over an eight sample period with correlation
  * values averaged over a seven correlation value period.
  *
+ * Mark and space correlation is performed in a single pass by a fused correlator over reused arrays.  The 8 kHz to
+ * 7200 Hz resampling is performed by the libresample4j resampler by default, or by an allocation-free polyphase
+ * resampler when enabled via the afsk.polyphase.resampler.enabled system property.
+ *
  * Provides normal or inverted decoded output.
  */
 public class AFSK1200Decoder implements Listener<ReusableFloatBuffer>
@@ -57,21 +64,22 @@ public class AFSK1200Decoder implements Listener<ReusableFloatBuffer>
     public static final double MARK = 1200.0;
     public static final double SPACE = 1800.0;
     public static final float TIMING_ERROR_GAIN = 1.0f / 3.0f; //Timing error adjustments over 3 symbol periods
+    public static final String PROPERTY_POLYPHASE_RESAMPLER_ENABLED = "afsk.polyphase.resampler.enabled";
+    private static final int INPUT_SAMPLE_RATE = 8000;
 
-    private Correlator mCorrelatorMark = new Correlator(SAMPLE_RATE, MARK, AVERAGING_PERIOD, CORRELATION_PERIOD);
-    private Correlator mCorrelatorSpace = new Correlator(SAMPLE_RATE, SPACE, AVERAGING_PERIOD, CORRELATION_PERIOD);
-    private float[] mCorrelationValuesMark;
-    private float[] mCorrelationValuesSpace;
+    private AFSKCorrelator mCorrelator = new AFSKCorrelator(SAMPLE_RATE, MARK, SPACE, AVERAGING_PERIOD,
+        CORRELATION_PERIOD);
 
     protected boolean mNormalOutput;
     protected float mSymbolTimingGain = TIMING_ERROR_GAIN;
     protected AFSKSampleBuffer mSampleBuffer;
     protected AFSKTimingErrorDetector mTimingErrorDetector = new AFSKTimingErrorDetector(SAMPLES_PER_SYMBOL);
     protected IBinarySymbolProcessor mBinarySymbolProcessor;
-    private boolean mSampleDecision;
 
     //Resample to an integral of the baud rate 1200 baud * 6 samples per symbol = 7200.0 Hertz
-    private RealResampler mResampler = new RealResampler(8000.0, SAMPLE_RATE, 2000, 1);
+    private RealResampler mResampler;
+    private PolyphaseRealResampler mPolyphaseResampler;
+    private float[] mResampledSamples = new float[0];
 
     /**
      * Constructs a decoder using the provided arguments.
@@ -85,7 +93,25 @@ public class AFSK1200Decoder implements Listener<ReusableFloatBuffer>
         mTimingErrorDetector = detector;
         mSampleBuffer = sampleBuffer;
         mSampleBuffer.setTimingGain(mSymbolTimingGain);
-        mResampler.setListener(new Decoder());
+
+        if(SystemProperties.getInstance().get(PROPERTY_POLYPHASE_RESAMPLER_ENABLED, false))
+        {
+            try
+            {
+                mPolyphaseResampler = new PolyphaseRealResampler(INPUT_SAMPLE_RATE, (int)SAMPLE_RATE);
+            }
+            catch(FilterDesignException fde)
+            {
+                mLog.error("Unable to design AFSK polyphase resampler - using default resampler", fde);
+            }
+        }
+
+        if(mPolyphaseResampler == null)
+        {
+            mResampler = new RealResampler(INPUT_SAMPLE_RATE, SAMPLE_RATE, 2000, 1);
+            mResampler.setListener(new Decoder());
+        }
+
         mNormalOutput = (output == Output.NORMAL);
     }
 
@@ -117,7 +143,48 @@ public class AFSK1200Decoder implements Listener<ReusableFloatBuffer>
     @Override
     public void receive(ReusableFloatBuffer buffer)
     {
-        mResampler.resample(buffer);
+        if(mPolyphaseResampler != null)
+        {
+            int length = mPolyphaseResampler.getMaximumOutputLength(buffer.getSampleCount());
+
+            if(mResampledSamples.length < length)
+            {
+                mResampledSamples = new float[length];
+            }
+
+            length = mPolyphaseResampler.resample(buffer.getSamples(), buffer.getSampleCount(), mResampledSamples);
+            buffer.decrementUserCount();
+            decode(mResampledSamples, length);
+        }
+        else
+        {
+            mResampler.resample(buffer);
+        }
+    }
+
+    /**
+     * Correlates the 7200 Hz samples against the mark and space reference signals and decodes symbols from the
+     * per-sample decisions.
+     *
+     * @param samples at 7200 Hz
+     * @param length number of samples to decode from the array
+     */
+    private void decode(float[] samples, int length)
+    {
+        boolean[] decisions = mCorrelator.process(samples, length);
+
+        for(int x = 0; x < length; x++)
+        {
+            //1200 = Mark (1) and 1800 = Space (0)
+            mSampleBuffer.receive(decisions[x]);
+            mTimingErrorDetector.receive(decisions[x]);
+
+            if(mSampleBuffer.hasSymbol())
+            {
+                dispatch(mSampleBuffer.getSymbol());
+                mSampleBuffer.resetAndAdjust(mTimingErrorDetector.getError());
+            }
+        }
     }
 
     protected void dispatch(boolean symbol)
@@ -152,25 +219,8 @@ public class AFSK1200Decoder implements Listener<ReusableFloatBuffer>
         @Override
         public void receive(ReusableFloatBuffer buffer)
         {
-            //Calculate correlation values against each 1200/1800 reference signal
-            mCorrelationValuesMark = mCorrelatorMark.process(buffer);
-            mCorrelationValuesSpace = mCorrelatorSpace.process(buffer);
-
+            decode(buffer.getSamples(), buffer.getSampleCount());
             buffer.decrementUserCount();
-
-            for(int x = 0; x < mCorrelationValuesMark.length; x++)
-            {
-                //1200 = Mark (1) and 1800 = Space (0)
-                mSampleDecision = mCorrelationValuesMark[x] > mCorrelationValuesSpace[x];
-                mSampleBuffer.receive(mSampleDecision);
-                mTimingErrorDetector.receive(mSampleDecision);
-
-                if(mSampleBuffer.hasSymbol())
-                {
-                    dispatch(mSampleBuffer.getSymbol());
-                    mSampleBuffer.resetAndAdjust(mTimingErrorDetector.getError());
-                }
-            }
         }
     }
 
@@ -186,6 +236,9 @@ public class AFSK1200Decoder implements Listener<ReusableFloatBuffer>
      *
      * Averaging period defines the number of correlation values to average before producing the final correlation
      * value for each sample.
+     *
+     * Note: the decoder uses the fused AFSKCorrelator.  This correlator is retained as the reference implementation
+     * for the AFSKCorrelatorBenchmark.
      */
     public class Correlator
     {
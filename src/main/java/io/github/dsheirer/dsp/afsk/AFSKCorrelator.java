@@ -0,0 +1,145 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.dsp.afsk;
+
+import io.github.dsheirer.dsp.mixer.Oscillator;
+
+/**
+ * Fused mark/space correlator for AFSK demodulation.  Correlates each sample against both the mark and space
+ * reference signals in a single pass, averages the absolute correlation values and produces a mark (true) or space
+ * (false) decision for each sample.
+ *
+ * Produces the same decisions as a pair of AFSK1200Decoder.Correlator instances, but without shifting the sample
+ * history for each sample and without intermediate correlation value arrays.  Sample history is stored twice in a
+ * double-length buffer so that the correlation window is always contiguous and runs oldest-to-newest, and the
+ * decision array is reused across calls so that the kernel does not allocate once it reaches the steady-state
+ * buffer size.  This correlator is not thread safe.
+ */
+public class AFSKCorrelator
+{
+    private float[] mMarkReference;
+    private float[] mSpaceReference;
+    private float[] mHistory;
+    private int mHistoryPointer;
+    private int mCorrelationPeriod;
+
+    private float[] mMarkValues;
+    private float[] mSpaceValues;
+    private float mMarkAverage;
+    private float mSpaceAverage;
+    private int mAveragingPointer;
+    private int mAveragingPeriod;
+
+    private boolean[] mDecisions = new boolean[0];
+
+    /**
+     * Constructs an instance
+     *
+     * @param sampleRate of the incoming sample stream.  Note: this should be an integral of the symbol rate.
+     * @param mark frequency
+     * @param space frequency
+     * @param averagingPeriod is the number of correlation values to average each period
+     * @param correlationPeriod is the number of samples to correlate each period
+     */
+    public AFSKCorrelator(double sampleRate, double mark, double space, int averagingPeriod, int correlationPeriod)
+    {
+        mCorrelationPeriod = correlationPeriod;
+        mAveragingPeriod = averagingPeriod;
+        mMarkReference = new Oscillator(mark, sampleRate).generateReal(correlationPeriod);
+        mSpaceReference = new Oscillator(space, sampleRate).generateReal(correlationPeriod);
+        mHistory = new float[correlationPeriod * 2];
+        mMarkValues = new float[averagingPeriod];
+        mSpaceValues = new float[averagingPeriod];
+    }
+
+    /**
+     * Correlates the samples against the mark and space reference signals.
+     *
+     * @param samples to correlate
+     * @param length number of samples to process from the array
+     * @return a reusable array of decisions (true: mark, false: space) where the first length elements are valid.
+     * The array is overwritten on the next invocation.
+     */
+    public boolean[] process(float[] samples, int length)
+    {
+        if(mDecisions.length < length)
+        {
+            mDecisions = new boolean[length];
+        }
+
+        float mark;
+        float space;
+        float sample;
+        int y;
+
+        for(int x = 0; x < length; x++)
+        {
+            mHistory[mHistoryPointer] = samples[x];
+            mHistory[mHistoryPointer + mCorrelationPeriod] = samples[x];
+            mHistoryPointer++;
+
+            if(mHistoryPointer >= mCorrelationPeriod)
+            {
+                mHistoryPointer = 0;
+            }
+
+            mark = 0.0f;
+            space = 0.0f;
+
+            for(y = 0; y < mCorrelationPeriod; y++)
+            {
+                sample = mHistory[mHistoryPointer + y];
+                mark += sample * mMarkReference[y];
+                space += sample * mSpaceReference[y];
+            }
+
+            //We use absolute value because we don't care if the signal is out of phase with the reference samples
+            mark = Math.abs(mark);
+            space = Math.abs(space);
+
+            //Running averages use the same arithmetic as FloatAveragingBuffer, so that decisions are identical
+            if(Float.isInfinite(mark) || Float.isNaN(mark))
+            {
+                mark = 0.0f;
+            }
+
+            if(Float.isInfinite(space) || Float.isNaN(space))
+            {
+                space = 0.0f;
+            }
+
+            mMarkAverage = mMarkAverage - (mMarkValues[mAveragingPointer] / mAveragingPeriod) +
+                (mark / mAveragingPeriod);
+            mSpaceAverage = mSpaceAverage - (mSpaceValues[mAveragingPointer] / mAveragingPeriod) +
+                (space / mAveragingPeriod);
+            mMarkValues[mAveragingPointer] = mark;
+            mSpaceValues[mAveragingPointer] = space;
+            mAveragingPointer++;
+
+            if(mAveragingPointer >= mAveragingPeriod)
+            {
+                mAveragingPointer = 0;
+            }
+
+            mDecisions[x] = mMarkAverage > mSpaceAverage;
+        }
+
+        return mDecisions;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.dsp.afsk;
+
+import io.github.dsheirer.dsp.filter.design.FilterDesignException;
+import io.github.dsheirer.dsp.filter.resample.PolyphaseRealResampler;
+import io.github.dsheirer.dsp.filter.resample.RealResampler;
+import io.github.dsheirer.dsp.mixer.Oscillator;
+import io.github.dsheirer.sample.buffer.ReusableBufferQueue;
+import io.github.dsheirer.sample.buffer.ReusableFloatBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+/**
+ * Benchmark for the AFSK 1200 demodulation kernels.  Compares the legacy per-frequency correlators against the fused
+ * mark/space correlator and the libresample4j resampler against the polyphase resampler, and verifies that the
+ * fused correlator produces identical decisions and that AFSK symbols survive the polyphase resampler.
+ *
+ * Run from the command line without arguments.
+ */
+public class AFSKCorrelatorBenchmark
+{
+    private final static Logger mLog = LoggerFactory.getLogger(AFSKCorrelatorBenchmark.class);
+
+    private static final int SYMBOL_COUNT = 120000;
+    private static final int BUFFER_SIZE = 2000;
+    private static final int ITERATIONS = 10;
+
+    /**
+     * Generates AFSK 1200 samples at an arbitrary sample rate with phase-continuous transitions between mark and
+     * space tones.
+     */
+    private static float[] generate(boolean[] symbols, double sampleRate)
+    {
+        float[] samples = new float[(int)(symbols.length * sampleRate / 1200.0)];
+        Oscillator oscillator = new Oscillator(AFSK1200Decoder.MARK, sampleRate);
+
+        for(int x = 0; x < samples.length; x++)
+        {
+            oscillator.setFrequency(symbols[(int)(x * 1200.0 / sampleRate)] ? AFSK1200Decoder.MARK :
+                AFSK1200Decoder.SPACE);
+            samples[x] = oscillator.inphase() * 0.5f;
+            oscillator.rotate();
+        }
+
+        return samples;
+    }
+
+    /**
+     * Legacy correlation using a pair of correlators over reusable buffers
+     *
+     * @return count of mark decisions to prevent dead code elimination
+     */
+    private static int legacy(float[] samples, ReusableBufferQueue queue)
+    {
+        AFSK1200Decoder decoder = new AFSK1200Decoder(AFSK1200Decoder.Output.NORMAL);
+        AFSK1200Decoder.Correlator mark = decoder.new Correlator(AFSK1200Decoder.SAMPLE_RATE, AFSK1200Decoder.MARK,
+            AFSK1200Decoder.AVERAGING_PERIOD, AFSK1200Decoder.CORRELATION_PERIOD);
+        AFSK1200Decoder.Correlator space = decoder.new Correlator(AFSK1200Decoder.SAMPLE_RATE, AFSK1200Decoder.SPACE,
+            AFSK1200Decoder.AVERAGING_PERIOD, AFSK1200Decoder.CORRELATION_PERIOD);
+
+        int marks = 0;
+
+        for(int offset = 0; offset + BUFFER_SIZE <= samples.length; offset += BUFFER_SIZE)
+        {
+            ReusableFloatBuffer buffer = queue.getBuffer(BUFFER_SIZE);
+            System.arraycopy(samples, offset, buffer.getSamples(), 0, BUFFER_SIZE);
+            float[] markValues = mark.process(buffer);
+            float[] spaceValues = space.process(buffer);
+            buffer.decrementUserCount();
+
+            for(int x = 0; x < BUFFER_SIZE; x++)
+            {
+                if(markValues[x] > spaceValues[x])
+                {
+                    marks++;
+                }
+            }
+        }
+
+        return marks;
+    }
+
+    /**
+     * Fused correlation
+     *
+     * @return count of mark decisions to prevent dead code elimination
+     */
+    private static int fused(float[] samples)
+    {
+        AFSKCorrelator correlator = new AFSKCorrelator(AFSK1200Decoder.SAMPLE_RATE, AFSK1200Decoder.MARK,
+            AFSK1200Decoder.SPACE, AFSK1200Decoder.AVERAGING_PERIOD, AFSK1200Decoder.CORRELATION_PERIOD);
+        float[] buffer = new float[BUFFER_SIZE];
+        int marks = 0;
+
+        for(int offset = 0; offset + BUFFER_SIZE <= samples.length; offset += BUFFER_SIZE)
+        {
+            System.arraycopy(samples, offset, buffer, 0, BUFFER_SIZE);
+            boolean[] decisions = correlator.process(buffer, BUFFER_SIZE);
+
+            for(int x = 0; x < BUFFER_SIZE; x++)
+            {
+                if(decisions[x])
+                {
+                    marks++;
+                }
+            }
+        }
+
+        return marks;
+    }
+
+    /**
+     * Resamples using libresample4j with the single-sample output buffers used by the AFSK decoder
+     *
+     * @return count of resampled samples
+     */
+    private static int libresample(float[] samples, ReusableBufferQueue queue)
+    {
+        RealResampler resampler = new RealResampler(8000.0, AFSK1200Decoder.SAMPLE_RATE, BUFFER_SIZE, 1);
+        int[] count = new int[1];
+
+        resampler.setListener(buffer -> {
+            count[0] += buffer.getSampleCount();
+            buffer.decrementUserCount();
+        });
+
+        for(int offset = 0; offset + BUFFER_SIZE <= samples.length; offset += BUFFER_SIZE)
+        {
+            ReusableFloatBuffer buffer = queue.getBuffer(BUFFER_SIZE);
+            System.arraycopy(samples, offset, buffer.getSamples(), 0, BUFFER_SIZE);
+            resampler.resample(buffer);
+        }
+
+        return count[0];
+    }
+
+    /**
+     * Resamples using the polyphase resampler
+     *
+     * @return count of resampled samples
+     */
+    private static int polyphase(float[] samples) throws FilterDesignException
+    {
+        PolyphaseRealResampler resampler = new PolyphaseRealResampler(8000, (int)AFSK1200Decoder.SAMPLE_RATE);
+        float[] buffer = new float[BUFFER_SIZE];
+        float[] output = new float[resampler.getMaximumOutputLength(BUFFER_SIZE)];
+        int count = 0;
+
+        for(int offset = 0; offset + BUFFER_SIZE <= samples.length; offset += BUFFER_SIZE)
+        {
+            System.arraycopy(samples, offset, buffer, 0, BUFFER_SIZE);
+            count += resampler.resample(buffer, BUFFER_SIZE, output);
+        }
+
+        return count;
+    }
+
+    /**
+     * Decodes symbols from 7200 Hz samples using the fused correlator and the decoder's symbol timing recovery
+     */
+    private static boolean[] decode(float[] samples)
+    {
+        AFSKCorrelator correlator = new AFSKCorrelator(AFSK1200Decoder.SAMPLE_RATE, AFSK1200Decoder.MARK,
+            AFSK1200Decoder.SPACE, AFSK1200Decoder.AVERAGING_PERIOD, AFSK1200Decoder.CORRELATION_PERIOD);
+        AFSKSampleBuffer sampleBuffer = new AFSKSampleBuffer(AFSK1200Decoder.SAMPLES_PER_SYMBOL,
+            AFSK1200Decoder.TIMING_ERROR_GAIN);
+        AFSKTimingErrorDetector detector = new AFSKTimingErrorDetector(AFSK1200Decoder.SAMPLES_PER_SYMBOL);
+
+        boolean[] decisions = correlator.process(samples, samples.length);
+        boolean[] symbols = new boolean[samples.length / AFSK1200Decoder.SAMPLES_PER_SYMBOL + 1];
+        int count = 0;
+
+        for(int x = 0; x < samples.length; x++)
+        {
+            sampleBuffer.receive(decisions[x]);
+            detector.receive(decisions[x]);
+
+            if(sampleBuffer.hasSymbol() && count < symbols.length)
+            {
+                symbols[count++] = sampleBuffer.getSymbol();
+                sampleBuffer.resetAndAdjust(detector.getError());
+            }
+        }
+
+        boolean[] decoded = new boolean[count];
+        System.arraycopy(symbols, 0, decoded, 0, count);
+        return decoded;
+    }
+
+    /**
+     * Lowest bit error count between the expected and decoded symbols across small alignment offsets
+     */
+    private static int getBitErrors(boolean[] expected, boolean[] decoded)
+    {
+        int best = Integer.MAX_VALUE;
+
+        for(int offset = -3; offset <= 3; offset++)
+        {
+            int errors = 0;
+
+            //Skip the first and last symbols while the correlator and symbol timing settle
+            for(int x = 10; x < expected.length - 10; x++)
+            {
+                int index = x + offset;
+
+                if(index >= 0 && index < decoded.length && expected[x] != decoded[index])
+                {
+                    errors++;
+                }
+            }
+
+            best = Math.min(best, errors);
+        }
+
+        return best;
+    }
+
+    public static void main(String[] args) throws FilterDesignException
+    {
+        Random random = new Random(1200);
+        boolean[] symbols = new boolean[SYMBOL_COUNT];
+
+        for(int x = 0; x < symbols.length; x++)
+        {
+            symbols[x] = random.nextBoolean();
+        }
+
+        float[] samples7200 = AFSKTest.generateAFSK1200(symbols, AFSK1200Decoder.SAMPLES_PER_SYMBOL, 0.5f);
+        float[] samples8000 = generate(symbols, 8000.0);
+        ReusableBufferQueue queue = new ReusableBufferQueue("AFSKCorrelatorBenchmark");
+
+        //Verify that the fused correlator produces identical decisions
+        AFSK1200Decoder decoder = new AFSK1200Decoder(AFSK1200Decoder.Output.NORMAL);
+        AFSK1200Decoder.Correlator mark = decoder.new Correlator(AFSK1200Decoder.SAMPLE_RATE, AFSK1200Decoder.MARK,
+            AFSK1200Decoder.AVERAGING_PERIOD, AFSK1200Decoder.CORRELATION_PERIOD);
+        AFSK1200Decoder.Correlator space = decoder.new Correlator(AFSK1200Decoder.SAMPLE_RATE, AFSK1200Decoder.SPACE,
+            AFSK1200Decoder.AVERAGING_PERIOD, AFSK1200Decoder.CORRELATION_PERIOD);
+        AFSKCorrelator correlator = new AFSKCorrelator(AFSK1200Decoder.SAMPLE_RATE, AFSK1200Decoder.MARK,
+            AFSK1200Decoder.SPACE, AFSK1200Decoder.AVERAGING_PERIOD, AFSK1200Decoder.CORRELATION_PERIOD);
+        ReusableFloatBuffer verifyBuffer = queue.getBuffer(samples7200.length);
+        System.arraycopy(samples7200, 0, verifyBuffer.getSamples(), 0, samples7200.length);
+        float[] markValues = mark.process(verifyBuffer);
+        float[] spaceValues = space.process(verifyBuffer);
+        verifyBuffer.decrementUserCount();
+        boolean[] decisions = correlator.process(samples7200, samples7200.length);
+        int mismatches = 0;
+
+        for(int x = 0; x < samples7200.length; x++)
+        {
+            if((markValues[x] > spaceValues[x]) != decisions[x])
+            {
+                mismatches++;
+            }
+        }
+
+        mLog.info("Fused correlator decision mismatches: " + mismatches + " of " + samples7200.length);
+
+        //Verify symbol recovery through the polyphase resampler
+        PolyphaseRealResampler resampler = new PolyphaseRealResampler(8000, (int)AFSK1200Decoder.SAMPLE_RATE);
+        float[] resampled = new float[resampler.getMaximumOutputLength(samples8000.length)];
+        int resampledCount = resampler.resample(samples8000, samples8000.length, resampled);
+        float[] trimmed = new float[resampledCount];
+        System.arraycopy(resampled, 0, trimmed, 0, resampledCount);
+        mLog.info("Polyphase resampler symbol errors: " + getBitErrors(symbols, decode(trimmed)) + " of " +
+            SYMBOL_COUNT + " symbols");
+
+        int result = 0;
+
+        for(int iteration = 0; iteration < ITERATIONS; iteration++)
+        {
+            long start = System.nanoTime();
+            result += legacy(samples7200, queue);
+            long legacyElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            result += fused(samples7200);
+            long fusedElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            result += libresample(samples8000, queue);
+            long libresampleElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            result += polyphase(samples8000);
+            long polyphaseElapsed = System.nanoTime() - start;
+
+            mLog.info("Iteration " + iteration + " correlator legacy [" + (legacyElapsed / 1000000) + " ms] fused [" +
+                (fusedElapsed / 1000000) + " ms]  resampler libresample4j [" + (libresampleElapsed / 1000000) +
+                " ms] polyphase [" + (polyphaseElapsed / 1000000) + " ms]");
+        }
+
+        mLog.info("Finished (" + result + ")");
+    }
+}
@@ -22,6 +22,7 @@
  ******************************************************************************/
 package io.github.dsheirer.dsp.filter;
 
+import io.github.dsheirer.dsp.filter.design.FilterDesignCache;
 import io.github.dsheirer.dsp.filter.design.FilterDesignException;
 import io.github.dsheirer.dsp.filter.fir.FIRFilterSpecification;
 import io.github.dsheirer.dsp.filter.fir.remez.RemezFIRFilterDesigner;
@@ -673,6 +674,15 @@ public class FilterFactory
      * @throws FilterDesignException if the filter cannot be designed
      */
     public static float[] getTaps(FIRFilterSpecification specification) throws FilterDesignException
+    {
+        return FilterDesignCache.getInstance().getTaps("remez:" + specification.getDesignKey(),
+            () -> designTaps(specification));
+    }
+
+    /**
+     * Designs the filter from the specification using the remez exchange algorithm, bypassing the design cache
+     */
+    private static float[] designTaps(FIRFilterSpecification specification) throws FilterDesignException
     {
         RemezFIRFilterDesigner designer = new RemezFIRFilterDesigner(specification);
 
@@ -811,6 +821,18 @@ public class FilterFactory
      */
     public static float[] getSincM2Channelizer(double channelBandwidth, int channels, int tapsPerChannel,
                                                boolean logResults) throws FilterDesignException
+    {
+        String key = "sincM2Channelizer:" + channelBandwidth + ":" + channels + ":" + tapsPerChannel;
+
+        return FilterDesignCache.getInstance().getTaps(key,
+            () -> designSincM2Channelizer(channelBandwidth, channels, tapsPerChannel, logResults));
+    }
+
+    /**
+     * Designs the polyphase M2 channelizer filter, bypassing the design cache
+     */
+    private static float[] designSincM2Channelizer(double channelBandwidth, int channels, int tapsPerChannel,
+                                                   boolean logResults) throws FilterDesignException
     {
         int currentTapsPerChannel = tapsPerChannel;
         int filterLength = (channels * currentTapsPerChannel) - 1;
@@ -24,6 +24,8 @@ import io.github.dsheirer.sample.IOverflowListener;
 import io.github.dsheirer.sample.Listener;
 import io.github.dsheirer.sample.buffer.ReusableChannelResultsBuffer;
 import io.github.dsheirer.sample.buffer.ReusableComplexBuffer;
+import io.github.dsheirer.source.tuner.BufferProfile;
+import io.github.dsheirer.source.tuner.BufferProfileManager;
 import org.apache.commons.math3.util.FastMath;
 import org.jtransforms.fft.FloatFFT_1D;
 import org.slf4j.Logger;
@@ -67,8 +69,8 @@ public class ComplexPolyphaseChannelizerM2 extends AbstractComplexPolyphaseChann
     private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("0.0");
     private static final int DEFAULT_MINIMUM_CHANNEL_BANDWIDTH = 25000;
 
-    //Sized at 152 buffers a second where max = 5 seconds and reset = 2 seconds worth of buffers
-    private IFFTProcessor mIFFTProcessor = new IFFTProcessor((5 * 152), (2 * 152));
+    //Queue depth and processing interval are sized from the current tuner buffer profile
+    private IFFTProcessor mIFFTProcessor = new IFFTProcessor(BufferProfileManager.getInstance().getBufferProfile());
     private FloatFFT_1D mFFT;
     private float[] mInlineSamples;
     private float[] mInlineFilter;
@@ -406,9 +408,10 @@ public class ComplexPolyphaseChannelizerM2 extends AbstractComplexPolyphaseChann
      */
     public class IFFTProcessor extends ContinuousBufferProcessor<ReusableChannelResultsBuffer>
     {
-        public IFFTProcessor(int maximumSize, int resetThreshold)
+        public IFFTProcessor(BufferProfile bufferProfile)
         {
-            super(maximumSize, resetThreshold);
+            super(bufferProfile.getChannelizerQueueSize(), bufferProfile.getChannelizerQueueResetThreshold());
+            setProcessingPeriod(bufferProfile.getChannelizerProcessingPeriod());
 
             //We create a listener interface to receive the buffers from the scheduled thread pool
             //dispatcher thread that is part of this continuous buffer processor.  We perform an IFFT on each
@@ -29,12 +29,13 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-public class ContinuousBufferProcessor<E> implements Listener<E>
+public class ContinuousBufferProcessor<E> implements Listener<E>, IOverflowListener
 {
     private final static Logger mLog = LoggerFactory.getLogger(ContinuousBufferProcessor.class);
 
     protected OverflowableTransferQueue<E> mQueue;
     private Listener<List<E>> mListener;
+    private IOverflowListener mOverflowListener;
     private ScheduledFuture<?> mScheduledFuture;
     private AtomicBoolean mRunning = new AtomicBoolean();
     private long mProcessingPeriod = 5; //milliseconds
@@ -102,9 +103,25 @@ public class ContinuousBufferProcessor<E> implements Listener<E>
      */
     public void setOverflowListener(IOverflowListener listener)
     {
+        mOverflowListener = listener;
         mQueue.setOverflowListener(listener);
     }
 
+    /**
+     * Relays the overflow state of the upstream producer (ie when this processor is lapped by a ring broadcaster)
+     * to the registered overflow listener.
+     */
+    @Override
+    public void sourceOverflow(boolean overflow)
+    {
+        IOverflowListener listener = mOverflowListener;
+
+        if(listener != null)
+        {
+            listener.sourceOverflow(overflow);
+        }
+    }
+
     /**
      * Sets or changes the listener to receive buffers from this processor.
      * @param listener to receive buffers
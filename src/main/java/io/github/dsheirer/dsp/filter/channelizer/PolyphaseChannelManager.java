@@ -115,6 +115,7 @@ public class PolyphaseChannelManager implements ISourceEventProcessor
 
         mBufferProcessor = new ContinuousBufferProcessor(200, 50);
         mBufferProcessor.setListener(mBufferSourceEventMonitor);
+        mBufferProcessor.setOverflowListener(this::broadcastOverflowState);
     }
 
     /**
@@ -291,6 +292,17 @@ public class PolyphaseChannelManager implements ISourceEventProcessor
         }
     }
 
+    /**
+     * Broadcasts the overflow state of the incoming baseband sample buffer stream to each of the channel sources
+     */
+    private void broadcastOverflowState(boolean overflow)
+    {
+        for(PolyphaseChannelSource channelSource: mChannelSources)
+        {
+            channelSource.broadcastOverflowState(overflow);
+        }
+    }
+
     /**
      * Process source events received from the source (ie tuner controller) for frequency and sample rate change
      * notifications.
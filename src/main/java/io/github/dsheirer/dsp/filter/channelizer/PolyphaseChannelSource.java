@@ -248,6 +248,12 @@ public class PolyphaseChannelSource extends TunerChannelSource
         mPolyphaseChannelOutputProcessor.processChannelResults(mReusableComplexBufferAssembler);
     }
 
+    @Override
+    protected void discardSamples()
+    {
+        mPolyphaseChannelOutputProcessor.discardChannelResults();
+    }
+
     /**
      * Calculates the frequency offset required to mix the incoming signal to center the desired frequency
      * within the channel
@@ -132,6 +132,15 @@ public abstract class ChannelOutputProcessor implements IPolyphaseChannelOutputP
         mChannelResultsToProcess.clear();
     }
 
+    /**
+     * Discards all enqueued polyphase channelizer results without processing them
+     */
+    @Override
+    public void discardChannelResults()
+    {
+        mChannelResultsQueue.clear();
+    }
+
     /**
      * Sub-class implementation to process one polyphase channelizer result array.
      * @param channelResults to process
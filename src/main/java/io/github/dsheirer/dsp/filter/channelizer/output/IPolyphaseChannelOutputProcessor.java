@@ -39,6 +39,11 @@ public interface IPolyphaseChannelOutputProcessor
      */
     void processChannelResults(ReusableComplexBufferAssembler reusableComplexBufferAssembler);
 
+    /**
+     * Discards all enqueued channel results without processing them.
+     */
+    void discardChannelResults();
+
     /**
      * Sets the desired frequency offset from center.  The samples will be mixed with an oscillator set to this offset
      * frequency to produce an output where the desired signal is centered in the passband.
@@ -168,6 +168,8 @@ public class ComplexPrimeCICDecimate implements Listener<ReusableComplexBuffer>
     {
         if(mFirstDecimatingStage != null)
         {
+            mOutput.updateTimestamp(buffer.getTimestamp());
+
             float[] samples = buffer.getSamples();
 
             for(int x = 0; x < samples.length; x += 2)
@@ -382,6 +384,16 @@ public class ComplexPrimeCICDecimate implements Listener<ReusableComplexBuffer>
             mLowPassFilter.dispose();
         }
 
+        /**
+         * Updates the reference timestamp for the decimated output buffers from the incoming sample buffer
+         *
+         * @param timestamp of the incoming sample buffer
+         */
+        public void updateTimestamp(long timestamp)
+        {
+            mBufferAssembler.updateTimestamp(timestamp);
+        }
+
         /**
          * Interface for receiving CIC decimated output samples
          */
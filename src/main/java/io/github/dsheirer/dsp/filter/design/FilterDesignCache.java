@@ -0,0 +1,322 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.dsp.filter.design;
+
+import io.github.dsheirer.properties.SystemProperties;
+import io.github.dsheirer.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Application-wide cache of designed filter coefficients.  Filter designs (e.g. remez exchange or iterative
+ * channelizer designs) can take tens of milliseconds each, and the same designs are requested each time a decoder,
+ * demodulator or channelizer is created or changes sample rate.  Designs are cached by a key that fully describes
+ * the design parameters and are persisted to the application settings folder so that designs are reused across
+ * application restarts.
+ *
+ * When several threads request the same design concurrently, only one thread performs the design and the others wait
+ * for the result.  Cached coefficients are copied on each request so that callers are free to modify them.
+ */
+public class FilterDesignCache
+{
+    private final static Logger mLog = LoggerFactory.getLogger(FilterDesignCache.class);
+
+    private static final String CACHE_FOLDER = "settings";
+    private static final String CACHE_FILENAME = "filter_design_cache.dat";
+    private static final int CACHE_FILE_IDENTIFIER = 0x46444331; //FDC1
+
+    /**
+     * Increment this version when any cached filter design algorithm changes so that previously persisted designs
+     * are discarded.
+     */
+    private static final int CACHE_VERSION = 1;
+
+    private static FilterDesignCache INSTANCE;
+
+    private Map<String,FutureTask<float[]>> mDesigns = new ConcurrentHashMap<>();
+    private AtomicBoolean mSavePending = new AtomicBoolean();
+    private Path mCachePath;
+
+    /**
+     * Filter design function
+     */
+    public interface Designer
+    {
+        /**
+         * Designs the filter
+         * @return filter coefficients or null if the filter can't be designed
+         * @throws FilterDesignException if the filter can't be designed
+         */
+        float[] design() throws FilterDesignException;
+    }
+
+    private FilterDesignCache(Path cachePath)
+    {
+        mCachePath = cachePath;
+        load();
+    }
+
+    /**
+     * Returns a SINGLETON instance of the filter design cache, loading any persisted designs on first access.
+     */
+    public static synchronized FilterDesignCache getInstance()
+    {
+        if(INSTANCE == null)
+        {
+            Path cachePath = null;
+
+            try
+            {
+                cachePath = SystemProperties.getInstance().getApplicationFolder(CACHE_FOLDER).resolve(CACHE_FILENAME);
+            }
+            catch(Exception e)
+            {
+                mLog.error("Unable to resolve filter design cache file - designs will not be persisted", e);
+            }
+
+            INSTANCE = new FilterDesignCache(cachePath);
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached filter coefficients for the design key, or invokes the designer to create the filter and
+     * caches the result.
+     *
+     * @param key that uniquely identifies all of the design parameters
+     * @param designer to create the filter when it is not cached
+     * @return copy of the filter coefficients or null if the designer could not design the filter
+     * @throws FilterDesignException if the designer throws an exception
+     */
+    public float[] getTaps(String key, Designer designer) throws FilterDesignException
+    {
+        FutureTask<float[]> design = mDesigns.get(key);
+
+        if(design == null)
+        {
+            FutureTask<float[]> task = new FutureTask<>(designer::design);
+            design = mDesigns.putIfAbsent(key, task);
+
+            if(design == null)
+            {
+                design = task;
+                task.run();
+
+                try
+                {
+                    if(task.get() != null)
+                    {
+                        save();
+                    }
+                    else
+                    {
+                        //Don't cache designs that the designer couldn't create so that a later request can retry
+                        mDesigns.remove(key, task);
+                    }
+                }
+                catch(Exception e)
+                {
+                    //Don't cache failed designs so that a later request can retry the design
+                    mDesigns.remove(key, task);
+                }
+            }
+        }
+
+        try
+        {
+            float[] taps = design.get();
+            return taps != null ? taps.clone() : null;
+        }
+        catch(InterruptedException ie)
+        {
+            Thread.currentThread().interrupt();
+            throw new FilterDesignException("Interrupted while waiting for filter design", ie);
+        }
+        catch(ExecutionException ee)
+        {
+            if(ee.getCause() instanceof FilterDesignException)
+            {
+                throw (FilterDesignException)ee.getCause();
+            }
+
+            throw new FilterDesignException("Error designing filter", ee.getCause());
+        }
+    }
+
+    /**
+     * Number of cached designs
+     */
+    public int size()
+    {
+        return mDesigns.size();
+    }
+
+    /**
+     * Removes all cached designs from memory and from the persisted cache file
+     */
+    public void clear()
+    {
+        mDesigns.clear();
+        save();
+    }
+
+    /**
+     * Schedules a save of the cached designs.  Saves are deferred so that a burst of new designs (e.g. at startup)
+     * results in a single write.
+     */
+    private void save()
+    {
+        if(mCachePath != null && mSavePending.compareAndSet(false, true))
+        {
+            ThreadPool.SCHEDULED.schedule(new SaveCacheTask(), 5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Loads persisted designs from the cache file
+     */
+    private void load()
+    {
+        if(mCachePath == null || !Files.exists(mCachePath))
+        {
+            return;
+        }
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(mCachePath))))
+        {
+            if(in.readInt() != CACHE_FILE_IDENTIFIER || in.readInt() != CACHE_VERSION)
+            {
+                mLog.info("Discarding filter design cache from a previous version");
+                return;
+            }
+
+            int count = in.readInt();
+
+            for(int x = 0; x < count; x++)
+            {
+                String key = in.readUTF();
+                float[] taps = new float[in.readInt()];
+
+                for(int y = 0; y < taps.length; y++)
+                {
+                    taps[y] = in.readFloat();
+                }
+
+                FutureTask<float[]> task = new FutureTask<>(() -> taps);
+                task.run();
+                mDesigns.put(key, task);
+            }
+
+            mLog.info("Loaded [" + count + "] filter designs from cache");
+        }
+        catch(IOException ioe)
+        {
+            mLog.error("Error reading filter design cache [" + mCachePath + "] - cache will be rebuilt", ioe);
+            mDesigns.clear();
+        }
+    }
+
+    public class SaveCacheTask implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            if(mSavePending.compareAndSet(true, false))
+            {
+                //Write to a temporary file and then replace the cache file so a partial write is never loaded
+                Path temporary = mCachePath.resolveSibling(CACHE_FILENAME + ".tmp");
+
+                try
+                {
+                    int count = 0;
+
+                    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(temporary))))
+                    {
+                        Map<String,float[]> designs = new TreeMap<>();
+
+                        for(Map.Entry<String,FutureTask<float[]>> entry : mDesigns.entrySet())
+                        {
+                            FutureTask<float[]> task = entry.getValue();
+
+                            if(task.isDone())
+                            {
+                                try
+                                {
+                                    float[] taps = task.get();
+
+                                    if(taps != null)
+                                    {
+                                        designs.put(entry.getKey(), taps);
+                                    }
+                                }
+                                catch(ExecutionException ee)
+                                {
+                                    //Failed designs are not persisted
+                                }
+                            }
+                        }
+
+                        out.writeInt(CACHE_FILE_IDENTIFIER);
+                        out.writeInt(CACHE_VERSION);
+                        out.writeInt(designs.size());
+
+                        for(Map.Entry<String,float[]> entry : designs.entrySet())
+                        {
+                            out.writeUTF(entry.getKey());
+                            out.writeInt(entry.getValue().length);
+
+                            for(float tap : entry.getValue())
+                            {
+                                out.writeFloat(tap);
+                            }
+                        }
+
+                        count = designs.size();
+                    }
+
+                    Files.move(temporary, mCachePath, StandardCopyOption.REPLACE_EXISTING);
+
+                    mLog.debug("Saved [" + count + "] filter designs to cache");
+                }
+                catch(Exception e)
+                {
+                    mLog.error("Error saving filter design cache [" + mCachePath + "]", e);
+                }
+            }
+        }
+    }
+}
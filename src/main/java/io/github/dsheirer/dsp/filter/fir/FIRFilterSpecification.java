@@ -61,6 +61,24 @@ public class FIRFilterSpecification
         return sb.toString();
     }
 
+    /**
+     * Key that uniquely identifies the design parameters of this specification for caching designed filters.
+     */
+    public String getDesignKey()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(mRemezFilterType.name());
+        sb.append(":").append(mOrder);
+        sb.append(":").append(mGridDensity);
+
+        for(FrequencyBand band : mFrequencyBands)
+        {
+            sb.append(":").append(band.getDesignKey());
+        }
+
+        return sb.toString();
+    }
+
     public void addFrequencyBand(FrequencyBand band)
     {
         mFrequencyBands.add(band);
@@ -1039,6 +1057,15 @@ public class FIRFilterSpecification
             return mGridSize;
         }
 
+        /**
+         * Key that uniquely identifies the design parameters of this band
+         */
+        public String getDesignKey()
+        {
+            return "[" + mStart + "," + mEnd + "," + mAmplitude + "," + mRippleDB + "," +
+                (mWeight != null ? mWeight : "-") + "]";
+        }
+
         public void setGridSize(int totalGridSize, double totalBandwidth)
         {
             mGridSize = FastMath.max(1, (int)FastMath.ceil((double)totalGridSize * (getBandWidth() / totalBandwidth)));
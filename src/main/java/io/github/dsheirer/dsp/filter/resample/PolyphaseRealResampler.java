@@ -0,0 +1,212 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.dsp.filter.resample;
+
+import io.github.dsheirer.dsp.filter.FilterFactory;
+import io.github.dsheirer.dsp.filter.design.FilterDesignException;
+
+import java.util.Arrays;
+
+/**
+ * Rational (L/M) polyphase resampler for real samples with integral input and output sample rates.
+ *
+ * The input is conceptually upsampled by L, low-pass filtered at the lower of the two Nyquist rates and then
+ * downsampled by M.  Only the polyphase filter branch that produces each output sample is evaluated, so each output
+ * sample costs a single dot product of taps-per-phase length.  Sample history is stored twice in a double-length
+ * buffer so that each dot product runs across a contiguous region of the history without wrapping.
+ *
+ * Resampling is performed directly between caller-supplied arrays and does not allocate once constructed, which
+ * makes it suitable for narrow-band decoders that process many small buffers.  This resampler is not thread safe.
+ */
+public class PolyphaseRealResampler
+{
+    public static final int DEFAULT_TAPS_PER_PHASE = 16;
+    private static final double PASS_BAND_RATIO = 0.45;
+    private static final double STOP_BAND_ATTENUATION = 60.0;
+
+    private int mInterpolation;
+    private int mDecimation;
+    private int mTapsPerPhase;
+    private float[][] mPhaseCoefficients;
+    private float[] mHistory;
+    private int mHistoryPointer;
+    private int mPhase;
+
+    /**
+     * Constructs an instance using the default number of taps per polyphase filter branch.
+     *
+     * @param inputRate of the incoming samples in Hertz
+     * @param outputRate of the resampled output in Hertz
+     * @throws FilterDesignException if the anti-aliasing filter cannot be designed
+     */
+    public PolyphaseRealResampler(int inputRate, int outputRate) throws FilterDesignException
+    {
+        this(inputRate, outputRate, DEFAULT_TAPS_PER_PHASE);
+    }
+
+    /**
+     * Constructs an instance.
+     *
+     * @param inputRate of the incoming samples in Hertz
+     * @param outputRate of the resampled output in Hertz
+     * @param tapsPerPhase number of filter taps in each polyphase filter branch
+     * @throws FilterDesignException if the anti-aliasing filter cannot be designed
+     */
+    public PolyphaseRealResampler(int inputRate, int outputRate, int tapsPerPhase) throws FilterDesignException
+    {
+        if(inputRate <= 0 || outputRate <= 0 || tapsPerPhase < 2)
+        {
+            throw new IllegalArgumentException("Input and output rates must be positive with at least 2 taps per phase");
+        }
+
+        int gcd = gcd(inputRate, outputRate);
+        mInterpolation = outputRate / gcd;
+        mDecimation = inputRate / gcd;
+        mTapsPerPhase = tapsPerPhase;
+
+        //Prototype filter runs at the upsampled rate and must be odd-length
+        int length = mInterpolation * mTapsPerPhase - 1;
+
+        if(length % 2 == 0)
+        {
+            length--;
+        }
+
+        double upsampledRate = (double)inputRate * mInterpolation;
+        double cutoff = PASS_BAND_RATIO * Math.min(inputRate, outputRate) / upsampledRate;
+        float[] prototype = FilterFactory.getKaiserSinc(length, cutoff, STOP_BAND_ATTENUATION);
+
+        //Decompose the prototype into polyphase branches, scaled by the interpolation factor to compensate for the
+        //zero-stuffing, and reversed so that each branch runs oldest-to-newest across the sample history
+        mPhaseCoefficients = new float[mInterpolation][mTapsPerPhase];
+
+        for(int phase = 0; phase < mInterpolation; phase++)
+        {
+            for(int tap = 0; tap < mTapsPerPhase; tap++)
+            {
+                int index = phase + (tap * mInterpolation);
+
+                if(index < prototype.length)
+                {
+                    mPhaseCoefficients[phase][mTapsPerPhase - 1 - tap] = prototype[index] * mInterpolation;
+                }
+            }
+        }
+
+        mHistory = new float[mTapsPerPhase * 2];
+    }
+
+    /**
+     * Interpolation (L) factor
+     */
+    public int getInterpolation()
+    {
+        return mInterpolation;
+    }
+
+    /**
+     * Decimation (M) factor
+     */
+    public int getDecimation()
+    {
+        return mDecimation;
+    }
+
+    /**
+     * Maximum number of output samples that can be produced from the specified number of input samples.  Use this
+     * to size the output array passed to the resample method.
+     */
+    public int getMaximumOutputLength(int inputLength)
+    {
+        return (int)(((long)(inputLength + 1) * mInterpolation) / mDecimation) + 1;
+    }
+
+    /**
+     * Resamples the input samples into the output array.
+     *
+     * @param input samples
+     * @param length number of input samples to process
+     * @param output array to receive resampled samples, sized according to getMaximumOutputLength(length)
+     * @return number of resampled samples placed in the output array
+     */
+    public int resample(float[] input, int length, float[] output)
+    {
+        int outputPointer = 0;
+        float accumulator;
+        float[] coefficients;
+        int tap;
+
+        for(int x = 0; x < length; x++)
+        {
+            //Store each sample twice so that the history window is always contiguous
+            mHistory[mHistoryPointer] = input[x];
+            mHistory[mHistoryPointer + mTapsPerPhase] = input[x];
+            mHistoryPointer++;
+
+            if(mHistoryPointer >= mTapsPerPhase)
+            {
+                mHistoryPointer = 0;
+            }
+
+            //Produce each output sample that falls between this input sample and the next
+            while(mPhase < mInterpolation)
+            {
+                coefficients = mPhaseCoefficients[mPhase];
+                accumulator = 0.0f;
+
+                for(tap = 0; tap < mTapsPerPhase; tap++)
+                {
+                    accumulator += mHistory[mHistoryPointer + tap] * coefficients[tap];
+                }
+
+                output[outputPointer++] = accumulator;
+                mPhase += mDecimation;
+            }
+
+            mPhase -= mInterpolation;
+        }
+
+        return outputPointer;
+    }
+
+    /**
+     * Greatest common divisor
+     */
+    private static int gcd(int a, int b)
+    {
+        while(b != 0)
+        {
+            int remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+
+        return a;
+    }
+
+    /**
+     * Clears the sample history and resets the filter phase
+     */
+    public void reset()
+    {
+        Arrays.fill(mHistory, 0.0f);
+        mHistoryPointer = 0;
+        mPhase = 0;
+    }
+}
@@ -21,7 +21,7 @@
  */
 package io.github.dsheirer.dsp.fsk;
 
-import io.github.dsheirer.bits.MessageFramer;
+import io.github.dsheirer.bits.PackedMessageFramer;
 import io.github.dsheirer.dsp.filter.dc.IIRSinglePoleDCRemovalFilter;
 import io.github.dsheirer.dsp.filter.design.FilterDesignException;
 import io.github.dsheirer.dsp.filter.fir.FIRFilterSpecification;
@@ -96,7 +96,7 @@ public class LTRDecoder implements Listener<ReusableFloatBuffer>, ISyncDetectLis
     protected SynchronizationMonitor mSynchronizationMonitor;
     private IIRSinglePoleDCRemovalFilter mDCFilter = new IIRSinglePoleDCRemovalFilter(0.99999f);
     private RealFIRFilter2 mLowPassFilter = new RealFIRFilter2(sLowPassFilterCoefficients);
-    private MessageFramer mMessageFramer;
+    private PackedMessageFramer mMessageFramer;
 
     private boolean mSampleDecision;
 
@@ -187,7 +187,7 @@ public class LTRDecoder implements Listener<ReusableFloatBuffer>, ISyncDetectLis
      *
      * @param messageFramer to receive symbols.
      */
-    public void setMessageFramer(MessageFramer messageFramer)
+    public void setMessageFramer(PackedMessageFramer messageFramer)
     {
         mMessageFramer = messageFramer;
     }
@@ -0,0 +1,152 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.dsp.psk;
+
+import io.github.dsheirer.dsp.psk.pll.CostasLoop;
+import io.github.dsheirer.dsp.symbol.Dibit;
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Buffer-oriented Differential QPSK demodulator using a Costas Loop (PLL) and a decision-directed symbol timing and
+ * phase error detector.
+ *
+ * Functionally equivalent to the DQPSKDecisionDirectedDemodulator with a DQPSKDecisionDirectedSymbolEvaluator, but
+ * with all sample and symbol state held in primitive fields.
+ *
+ * This demodulator is optimized for constant amplitude DQPSK symbols like P25 Phase 1 C4FM.
+ */
+public class DQPSKDecisionDirectedBufferDemodulator extends PSKBufferDemodulator<Dibit>
+{
+    private static final float MAXIMUM_ERROR = 0.3f;
+    private static final float MAXIMUM_PHASE_ERROR = 0.5f;
+    private static final float ROTATION_45 = (float)FastMath.cos(FastMath.PI / 4.0);
+
+    private float mPreviousPrecedingSampleInphase;
+    private float mPreviousPrecedingSampleQuadrature;
+    private float mPreviousCurrentSampleInphase;
+    private float mPreviousCurrentSampleQuadrature;
+
+    /**
+     * Constructs an instance
+     *
+     * @param costasLoop for tracking carrier frequency error
+     * @param samplesPerSymbol nominal samples per symbol
+     * @param sampleCounterGain for the symbol timing error adjustments
+     */
+    public DQPSKDecisionDirectedBufferDemodulator(CostasLoop costasLoop, float samplesPerSymbol,
+                                                  float sampleCounterGain)
+    {
+        super(costasLoop, samplesPerSymbol, sampleCounterGain);
+    }
+
+    /**
+     * Calculates a symbol from the delay line and updates symbol timing and the costas loop.
+     *
+     * @return symbol decision
+     */
+    @Override
+    protected Dibit calculateSymbol()
+    {
+        //Un-interpolated preceding sample and interpolated current sample
+        float precedingInphase = getPrecedingInphase();
+        float precedingQuadrature = getPrecedingQuadrature();
+        float currentInphase = getInphase(getSamplingPoint());
+        float currentQuadrature = getQuadrature(getSamplingPoint());
+
+        //Differential decode preceding and current symbols (sample x complex conjugate of previous sample).  The
+        //preceding symbol is only used as a reference to determine the vector rotation direction of the current symbol.
+        float precedingSymbolInphase = (precedingInphase * mPreviousPrecedingSampleInphase) +
+            (precedingQuadrature * mPreviousPrecedingSampleQuadrature);
+        float precedingSymbolQuadrature = (precedingQuadrature * mPreviousPrecedingSampleInphase) -
+            (precedingInphase * mPreviousPrecedingSampleQuadrature);
+        float currentSymbolInphase = (currentInphase * mPreviousCurrentSampleInphase) +
+            (currentQuadrature * mPreviousCurrentSampleQuadrature);
+        float currentSymbolQuadrature = (currentQuadrature * mPreviousCurrentSampleInphase) -
+            (currentInphase * mPreviousCurrentSampleQuadrature);
+
+        //Set gain to unity before we calculate the error values
+        float precedingMagnitude = (float)FastMath.sqrt((precedingSymbolInphase * precedingSymbolInphase) +
+            (precedingSymbolQuadrature * precedingSymbolQuadrature));
+
+        if(precedingMagnitude != 0)
+        {
+            precedingSymbolQuadrature /= precedingMagnitude;
+        }
+
+        float currentMagnitude = (float)FastMath.sqrt((currentSymbolInphase * currentSymbolInphase) +
+            (currentSymbolQuadrature * currentSymbolQuadrature));
+
+        if(currentMagnitude != 0)
+        {
+            currentSymbolInphase /= currentMagnitude;
+            currentSymbolQuadrature /= currentMagnitude;
+        }
+
+        //Symbol decision, timing error polarity from the direction of vector rotation, and the quadrature of the symbol
+        //after rotating it back to 0 radians from the reference symbol, which approximates the arctan of the error
+        Dibit symbol;
+        float timingErrorPolarity;
+        float errorQuadrature;
+
+        if(currentSymbolQuadrature > 0.0f)
+        {
+            if(currentSymbolInphase > 0.0f)
+            {
+                symbol = Dibit.D00_PLUS_1;
+                timingErrorPolarity = precedingSymbolQuadrature > currentSymbolQuadrature ? 1.0f : -1.0f;
+                errorQuadrature = ROTATION_45 * (currentSymbolQuadrature - currentSymbolInphase);
+            }
+            else
+            {
+                symbol = Dibit.D01_PLUS_3;
+                timingErrorPolarity = precedingSymbolQuadrature < currentSymbolQuadrature ? 1.0f : -1.0f;
+                errorQuadrature = -ROTATION_45 * (currentSymbolInphase + currentSymbolQuadrature);
+            }
+        }
+        else
+        {
+            if(currentSymbolInphase > 0.0f)
+            {
+                symbol = Dibit.D10_MINUS_1;
+                timingErrorPolarity = precedingSymbolQuadrature > currentSymbolQuadrature ? 1.0f : -1.0f;
+                errorQuadrature = ROTATION_45 * (currentSymbolInphase + currentSymbolQuadrature);
+            }
+            else
+            {
+                symbol = Dibit.D11_MINUS_3;
+                timingErrorPolarity = precedingSymbolQuadrature < currentSymbolQuadrature ? 1.0f : -1.0f;
+                errorQuadrature = ROTATION_45 * (currentSymbolInphase - currentSymbolQuadrature);
+            }
+        }
+
+        float errorNormalized = normalize(errorQuadrature, MAXIMUM_ERROR);
+
+        //Timing error is the phase error with the sign corrected according to the vector's angular rotation
+        resetAndAdjust(errorNormalized * timingErrorPolarity);
+
+        getCostasLoop().adjust(PSKDemodulator.clip(-errorNormalized, MAXIMUM_PHASE_ERROR));
+
+        mPreviousPrecedingSampleInphase = precedingInphase;
+        mPreviousPrecedingSampleQuadrature = precedingQuadrature;
+        mPreviousCurrentSampleInphase = currentInphase;
+        mPreviousCurrentSampleQuadrature = currentQuadrature;
+
+        return symbol;
+    }
+}
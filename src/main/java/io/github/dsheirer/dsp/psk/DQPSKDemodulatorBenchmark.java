@@ -0,0 +1,236 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.dsp.psk;
+
+import io.github.dsheirer.dsp.psk.pll.CostasLoop;
+import io.github.dsheirer.dsp.psk.pll.PLLBandwidth;
+import io.github.dsheirer.dsp.symbol.Dibit;
+import io.github.dsheirer.sample.buffer.ReusableComplexBuffer;
+import io.github.dsheirer.sample.buffer.ReusableComplexBufferQueue;
+import io.github.dsheirer.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+/**
+ * Benchmark for the P25 Phase 1 C4FM demodulator.  Compares the per-sample decision-directed DQPSK demodulator
+ * (interpolating sample buffer and symbol evaluator with per-symbol listener callbacks) against the buffer-oriented
+ * decision-directed demodulator that demodulates each sample buffer into a dibit array, and verifies that both
+ * demodulators produce identical dibits and that the transmitted dibits are recovered.
+ *
+ * Run from the command line without arguments.
+ */
+public class DQPSKDemodulatorBenchmark
+{
+    private final static Logger mLog = LoggerFactory.getLogger(DQPSKDemodulatorBenchmark.class);
+
+    private static final double SAMPLE_RATE = 25000.0;
+    private static final double SYMBOL_RATE = 4800.0;
+    private static final float SAMPLE_COUNTER_GAIN = 0.3f;
+    private static final double CARRIER_OFFSET = 150.0;
+    private static final int SYMBOL_COUNT = 200000;
+    private static final int BUFFER_SIZE = 2048;
+    private static final int ITERATIONS = 10;
+
+    /**
+     * Generates interleaved complex C4FM samples with phase-continuous frequency deviation for each dibit and a small
+     * carrier frequency offset for the costas loop to track.
+     */
+    private static float[] generate(Dibit[] dibits)
+    {
+        int sampleCount = (int)(dibits.length * SAMPLE_RATE / SYMBOL_RATE);
+        float[] samples = new float[sampleCount * 2];
+        double phase = 0.0;
+
+        for(int x = 0; x < sampleCount; x++)
+        {
+            double deviation;
+
+            switch(dibits[(int)(x * SYMBOL_RATE / SAMPLE_RATE)])
+            {
+                case D01_PLUS_3:
+                    deviation = 1800.0;
+                    break;
+                case D00_PLUS_1:
+                    deviation = 600.0;
+                    break;
+                case D10_MINUS_1:
+                    deviation = -600.0;
+                    break;
+                default:
+                    deviation = -1800.0;
+                    break;
+            }
+
+            phase += 2.0 * Math.PI * (deviation + CARRIER_OFFSET) / SAMPLE_RATE;
+            samples[2 * x] = (float)Math.cos(phase) * 0.5f;
+            samples[2 * x + 1] = (float)Math.sin(phase) * 0.5f;
+        }
+
+        return samples;
+    }
+
+    /**
+     * Costas loop configured as the P25 C4FM decoder configures it
+     */
+    private static CostasLoop getCostasLoop()
+    {
+        CostasLoop costasLoop = new CostasLoop(SAMPLE_RATE, SYMBOL_RATE);
+        costasLoop.setPLLBandwidth(PLLBandwidth.BW_300);
+        return costasLoop;
+    }
+
+    /**
+     * Demodulates using the per-sample demodulator, collecting the broadcast dibits into the array
+     *
+     * @return number of dibits demodulated
+     */
+    private static int legacy(float[] samples, ReusableComplexBufferQueue queue, Dibit[] dibits)
+    {
+        DQPSKDecisionDirectedDemodulator demodulator = new DQPSKDecisionDirectedDemodulator(getCostasLoop(),
+            new InterpolatingSampleBuffer((float)(SAMPLE_RATE / SYMBOL_RATE), SAMPLE_COUNTER_GAIN));
+        int[] count = new int[1];
+
+        demodulator.setSymbolListener(dibit -> {
+            if(count[0] < dibits.length)
+            {
+                dibits[count[0]++] = dibit;
+            }
+        });
+
+        for(int offset = 0; offset + BUFFER_SIZE <= samples.length; offset += BUFFER_SIZE)
+        {
+            ReusableComplexBuffer buffer = queue.getBuffer(BUFFER_SIZE);
+            System.arraycopy(samples, offset, buffer.getSamples(), 0, BUFFER_SIZE);
+            demodulator.receive(buffer);
+        }
+
+        return count[0];
+    }
+
+    /**
+     * Demodulates using the buffer demodulator into per-buffer dibit arrays, copied into the array
+     *
+     * @return number of dibits demodulated
+     */
+    private static int buffered(float[] samples, ReusableComplexBufferQueue queue, Dibit[] dibits)
+    {
+        DQPSKDecisionDirectedBufferDemodulator demodulator = new DQPSKDecisionDirectedBufferDemodulator(
+            getCostasLoop(), (float)(SAMPLE_RATE / SYMBOL_RATE), SAMPLE_COUNTER_GAIN);
+        Dibit[] block = new Dibit[demodulator.getMaximumSymbolCount(BUFFER_SIZE)];
+        int count = 0;
+
+        for(int offset = 0; offset + BUFFER_SIZE <= samples.length; offset += BUFFER_SIZE)
+        {
+            ReusableComplexBuffer buffer = queue.getBuffer(BUFFER_SIZE);
+            System.arraycopy(samples, offset, buffer.getSamples(), 0, BUFFER_SIZE);
+            int demodulated = demodulator.demodulate(buffer, block);
+            int copy = Math.min(demodulated, dibits.length - count);
+            System.arraycopy(block, 0, dibits, count, copy);
+            count += copy;
+        }
+
+        return count;
+    }
+
+    /**
+     * Lowest dibit error count between the transmitted and demodulated dibits across small alignment offsets
+     */
+    private static int getDibitErrors(Dibit[] expected, Dibit[] decoded, int decodedCount)
+    {
+        int best = Integer.MAX_VALUE;
+
+        for(int offset = -3; offset <= 3; offset++)
+        {
+            int errors = 0;
+
+            //Skip the first symbols while the costas loop and symbol timing settle
+            for(int x = 100; x < expected.length - 10; x++)
+            {
+                int index = x + offset;
+
+                if(index >= 0 && index < decodedCount && expected[x] != decoded[index])
+                {
+                    errors++;
+                }
+            }
+
+            best = Math.min(best, errors);
+        }
+
+        return best;
+    }
+
+    public static void main(String[] args)
+    {
+        Random random = new Random(4800);
+        Dibit[] transmitted = new Dibit[SYMBOL_COUNT];
+        Dibit[] values = Dibit.values();
+
+        for(int x = 0; x < transmitted.length; x++)
+        {
+            transmitted[x] = values[random.nextInt(values.length)];
+        }
+
+        float[] samples = generate(transmitted);
+        ReusableComplexBufferQueue queue = new ReusableComplexBufferQueue("DQPSKDemodulatorBenchmark");
+
+        //Verify that both demodulators produce identical dibits and recover the transmitted dibits
+        Dibit[] legacyDibits = new Dibit[SYMBOL_COUNT + 100];
+        Dibit[] bufferedDibits = new Dibit[SYMBOL_COUNT + 100];
+        int legacyCount = legacy(samples, queue, legacyDibits);
+        int bufferedCount = buffered(samples, queue, bufferedDibits);
+        int mismatches = Math.abs(legacyCount - bufferedCount);
+
+        for(int x = 0; x < Math.min(legacyCount, bufferedCount); x++)
+        {
+            if(legacyDibits[x] != bufferedDibits[x])
+            {
+                mismatches++;
+            }
+        }
+
+        mLog.info("Demodulated dibits legacy [" + legacyCount + "] buffered [" + bufferedCount + "] mismatches [" +
+            mismatches + "]");
+        mLog.info("Dibit errors legacy [" + getDibitErrors(transmitted, legacyDibits, legacyCount) + "] buffered [" +
+            getDibitErrors(transmitted, bufferedDibits, bufferedCount) + "] of " + SYMBOL_COUNT + " dibits");
+
+        int result = 0;
+
+        for(int iteration = 0; iteration < ITERATIONS; iteration++)
+        {
+            long start = System.nanoTime();
+            result += legacy(samples, queue, legacyDibits);
+            long legacyElapsed = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            result += buffered(samples, queue, bufferedDibits);
+            long bufferedElapsed = System.nanoTime() - start;
+
+            mLog.info("Iteration " + iteration + " demodulator legacy [" + (legacyElapsed / 1000000) +
+                " ms] buffered [" + (bufferedElapsed / 1000000) + " ms]");
+        }
+
+        mLog.info("Finished (" + result + ")");
+
+        //The sample memory manager schedules buffer trimming on the shared thread pool
+        ThreadPool.SCHEDULED.shutdownNow();
+    }
+}
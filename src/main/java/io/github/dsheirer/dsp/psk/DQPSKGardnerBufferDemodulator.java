@@ -0,0 +1,154 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.dsp.psk;
+
+import io.github.dsheirer.dsp.psk.pll.CostasLoop;
+import io.github.dsheirer.dsp.symbol.Dibit;
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Buffer-oriented Differential QPSK demodulator using a Costas Loop (PLL) and a Gardner timing error detector.
+ *
+ * Functionally equivalent to the DQPSKGardnerDemodulator with a DQPSKGardnerSymbolEvaluator, but with all sample and
+ * symbol state held in primitive fields.
+ *
+ * This demodulator is optimized for P25 Linear Simulcast Modulation (LSM) and P25 Phase 2 H-DQPSK.
+ */
+public class DQPSKGardnerBufferDemodulator extends PSKBufferDemodulator<Dibit>
+{
+    private static final float MAXIMUM_ERROR = 0.3f;
+    private static final float ROTATION_45 = (float)FastMath.cos(FastMath.PI / 4.0);
+
+    private float mPreviousMiddleSampleInphase;
+    private float mPreviousMiddleSampleQuadrature;
+    private float mPreviousCurrentSampleInphase;
+    private float mPreviousCurrentSampleQuadrature;
+    private float mPreviousSymbolInphase;
+    private float mPreviousSymbolQuadrature;
+
+    /**
+     * Constructs an instance
+     *
+     * @param costasLoop for tracking carrier frequency error
+     * @param samplesPerSymbol nominal samples per symbol
+     * @param sampleCounterGain for the symbol timing error adjustments
+     */
+    public DQPSKGardnerBufferDemodulator(CostasLoop costasLoop, float samplesPerSymbol, float sampleCounterGain)
+    {
+        super(costasLoop, samplesPerSymbol, sampleCounterGain);
+    }
+
+    /**
+     * Calculates a symbol from the delay line and updates symbol timing and the costas loop.
+     *
+     * @return symbol decision
+     */
+    @Override
+    protected Dibit calculateSymbol()
+    {
+        //As with the DQPSKGardnerDemodulator, the interpolated sample at the sampling point is used as the gardner
+        //mid-point and the interpolated sample half a symbol later is used as the current symbol sample
+        float middleInphase = getInphase(getSamplingPoint());
+        float middleQuadrature = getQuadrature(getSamplingPoint());
+        float halfSamplesPerSymbol = getDetectedSamplesPerSymbol() / 2.0f;
+        float currentInphase = getInphase(halfSamplesPerSymbol);
+        float currentQuadrature = getQuadrature(halfSamplesPerSymbol);
+
+        //Differential decode middle and current symbols (sample x complex conjugate of previous sample)
+        float middleSymbolInphase = (middleInphase * mPreviousMiddleSampleInphase) +
+            (middleQuadrature * mPreviousMiddleSampleQuadrature);
+        float middleSymbolQuadrature = (middleQuadrature * mPreviousMiddleSampleInphase) -
+            (middleInphase * mPreviousMiddleSampleQuadrature);
+        float currentSymbolInphase = (currentInphase * mPreviousCurrentSampleInphase) +
+            (currentQuadrature * mPreviousCurrentSampleQuadrature);
+        float currentSymbolQuadrature = (currentQuadrature * mPreviousCurrentSampleInphase) -
+            (currentInphase * mPreviousCurrentSampleQuadrature);
+
+        //Set gain to unity before we calculate the error values
+        float middleMagnitude = (float)FastMath.sqrt((middleSymbolInphase * middleSymbolInphase) +
+            (middleSymbolQuadrature * middleSymbolQuadrature));
+
+        if(middleMagnitude != 0)
+        {
+            middleSymbolInphase /= middleMagnitude;
+            middleSymbolQuadrature /= middleMagnitude;
+        }
+
+        float currentMagnitude = (float)FastMath.sqrt((currentSymbolInphase * currentSymbolInphase) +
+            (currentSymbolQuadrature * currentSymbolQuadrature));
+
+        if(currentMagnitude != 0)
+        {
+            currentSymbolInphase /= currentMagnitude;
+            currentSymbolQuadrature /= currentMagnitude;
+        }
+
+        //Gardner timing error
+        float timingError = normalize(((mPreviousSymbolInphase - currentSymbolInphase) * middleSymbolInphase) +
+            ((mPreviousSymbolQuadrature - currentSymbolQuadrature) * middleSymbolQuadrature), MAXIMUM_ERROR);
+
+        mPreviousSymbolInphase = currentSymbolInphase;
+        mPreviousSymbolQuadrature = currentSymbolQuadrature;
+
+        //Symbol decision and the quadrature of the symbol after rotating it back to 0 radians from the reference
+        //symbol, which closely approximates the arctan of the phase error
+        Dibit symbol;
+        float errorQuadrature;
+
+        if(currentSymbolQuadrature > 0.0f)
+        {
+            if(currentSymbolInphase > 0.0f)
+            {
+                symbol = Dibit.D00_PLUS_1;
+                errorQuadrature = ROTATION_45 * (currentSymbolQuadrature - currentSymbolInphase);
+            }
+            else
+            {
+                symbol = Dibit.D01_PLUS_3;
+                errorQuadrature = -ROTATION_45 * (currentSymbolInphase + currentSymbolQuadrature);
+            }
+        }
+        else
+        {
+            if(currentSymbolInphase > 0.0f)
+            {
+                symbol = Dibit.D10_MINUS_1;
+                errorQuadrature = ROTATION_45 * (currentSymbolInphase + currentSymbolQuadrature);
+            }
+            else
+            {
+                symbol = Dibit.D11_MINUS_3;
+                errorQuadrature = ROTATION_45 * (currentSymbolInphase - currentSymbolQuadrature);
+            }
+        }
+
+        float phaseError = normalize(-errorQuadrature, MAXIMUM_ERROR);
+
+        resetAndAdjust(timingError);
+
+        getCostasLoop().adjust(phaseError);
+
+        mPreviousMiddleSampleInphase = middleInphase;
+        mPreviousMiddleSampleQuadrature = middleQuadrature;
+        mPreviousCurrentSampleInphase = currentInphase;
+        mPreviousCurrentSampleQuadrature = currentQuadrature;
+
+        return symbol;
+    }
+}
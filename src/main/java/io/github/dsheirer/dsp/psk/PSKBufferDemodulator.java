@@ -0,0 +1,302 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.dsp.psk;
+
+import io.github.dsheirer.dsp.filter.interpolator.RealInterpolator;
+import io.github.dsheirer.dsp.psk.pll.CostasLoop;
+import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.sample.buffer.ReusableComplexBuffer;
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Abstract buffer-oriented Phase Shift Keyed (PSK) demodulator.
+ *
+ * Provides the same carrier mixing and interpolating sample buffer behavior as the PSKDemodulator with an
+ * InterpolatingSampleBuffer, but processes an entire interleaved complex sample buffer per call and holds all sample
+ * and symbol timing state in primitive fields and arrays so that no Complex objects are created or mutated per sample.
+ * Sub-classes implement the symbol calculation using the primitive sample accessors.
+ */
+public abstract class PSKBufferDemodulator<T>
+{
+    private static final float MAXIMUM_DEVIATION_SAMPLES_PER_SYMBOL = 0.02f; // +/- 2% deviation
+
+    private CostasLoop mCostasLoop;
+    private RealInterpolator mInterpolator = new RealInterpolator(1.0f);
+    private Listener<T> mSymbolListener;
+
+    //Each sample is stored twice in the delay line, separated by two symbols worth of samples, so that the interpolator
+    //always has a contiguous run of samples without wrapping
+    private float[] mDelayLineInphase;
+    private float[] mDelayLineQuadrature;
+    private int mDelayLinePointer = 0;
+    private int mTwiceSamplesPerSymbol;
+
+    private float mSamplingPoint;
+    private float mSampleCounterGain;
+    private float mDetectedSamplesPerSymbol;
+    private float mDetectedSamplesPerSymbolGain;
+    private float mMaximumSamplesPerSymbol;
+    private float mMinimumSamplesPerSymbol;
+
+    /**
+     * Constructs an instance
+     *
+     * @param costasLoop for tracking carrier frequency error
+     * @param samplesPerSymbol nominal samples per symbol
+     * @param sampleCounterGain for the symbol timing error adjustments
+     */
+    public PSKBufferDemodulator(CostasLoop costasLoop, float samplesPerSymbol, float sampleCounterGain)
+    {
+        mCostasLoop = costasLoop;
+        mSamplingPoint = samplesPerSymbol;
+        mDetectedSamplesPerSymbol = samplesPerSymbol;
+        mMaximumSamplesPerSymbol = samplesPerSymbol * (1.0f + MAXIMUM_DEVIATION_SAMPLES_PER_SYMBOL);
+        mMinimumSamplesPerSymbol = samplesPerSymbol * (1.0f - MAXIMUM_DEVIATION_SAMPLES_PER_SYMBOL);
+        mTwiceSamplesPerSymbol = (int)FastMath.floor(2.0 * samplesPerSymbol);
+        mDelayLineInphase = new float[2 * mTwiceSamplesPerSymbol];
+        mDelayLineQuadrature = new float[2 * mTwiceSamplesPerSymbol];
+        mSampleCounterGain = sampleCounterGain;
+        mDetectedSamplesPerSymbolGain = 0.1f * mSampleCounterGain * mSampleCounterGain;
+    }
+
+    /**
+     * Registers the listener to receive symbol decisions from this demodulator
+     */
+    public void setSymbolListener(Listener<T> listener)
+    {
+        mSymbolListener = listener;
+    }
+
+    /**
+     * Broadcasts the symbol decision to the registered symbol listener
+     */
+    protected void broadcast(T symbol)
+    {
+        if(mSymbolListener != null)
+        {
+            mSymbolListener.receive(symbol);
+        }
+    }
+
+    /**
+     * Costas Loop (PLL)
+     */
+    protected CostasLoop getCostasLoop()
+    {
+        return mCostasLoop;
+    }
+
+    /**
+     * Processes a (filtered) buffer containing complex samples for decoding and broadcasts each symbol to the
+     * registered symbol listener.  Decrements the user count on the buffer when finished.
+     *
+     * @param reusableComplexBuffer with interleaved complex samples
+     */
+    public void receive(ReusableComplexBuffer reusableComplexBuffer)
+    {
+        process(reusableComplexBuffer.getSamples(), null);
+        reusableComplexBuffer.decrementUserCount();
+    }
+
+    /**
+     * Demodulates a (filtered) buffer containing complex samples into the symbol array.  Decrements the user count
+     * on the buffer when finished.
+     *
+     * @param reusableComplexBuffer with interleaved complex samples
+     * @param symbols array to receive the demodulated symbols, sized to at least getMaximumSymbolCount() for the
+     * buffer sample array length
+     * @return number of symbols demodulated into the symbol array
+     */
+    public int demodulate(ReusableComplexBuffer reusableComplexBuffer, T[] symbols)
+    {
+        int count = process(reusableComplexBuffer.getSamples(), symbols);
+        reusableComplexBuffer.decrementUserCount();
+        return count;
+    }
+
+    /**
+     * Maximum number of symbols that can be demodulated from a sample array of the specified length.  The sampling
+     * point advances by at least the minimum samples per symbol, less one sample of timing error correction, per
+     * symbol.
+     *
+     * @param sampleArrayLength length of an interleaved complex sample array
+     */
+    public int getMaximumSymbolCount(int sampleArrayLength)
+    {
+        return (int)((sampleArrayLength / 2) / FastMath.max(1.0f, mMinimumSamplesPerSymbol - 1.0f)) + 2;
+    }
+
+    /**
+     * Mixes and demodulates the interleaved complex samples
+     *
+     * @param samples to demodulate
+     * @param symbols to receive the symbols, or null to broadcast each symbol to the symbol listener
+     * @return number of symbols demodulated into the symbol array
+     */
+    private int process(float[] samples, T[] symbols)
+    {
+        int count = 0;
+
+        for(int x = 0; x < samples.length; x += 2)
+        {
+            //Mix the sample with the costas loop to remove any rotation from a mis-tuned carrier frequency
+            mCostasLoop.increment();
+            double loopPhase = mCostasLoop.getLoopPhase();
+            float loopInphase = (float)FastMath.cos(loopPhase);
+            float loopQuadrature = (float)FastMath.sin(loopPhase);
+
+            float inphase = (samples[x] * loopInphase) - (samples[x + 1] * loopQuadrature);
+            float quadrature = (samples[x + 1] * loopInphase) + (samples[x] * loopQuadrature);
+
+            mSamplingPoint--;
+
+            mDelayLineInphase[mDelayLinePointer] = inphase;
+            mDelayLineInphase[mDelayLinePointer + mTwiceSamplesPerSymbol] = inphase;
+            mDelayLineQuadrature[mDelayLinePointer] = quadrature;
+            mDelayLineQuadrature[mDelayLinePointer + mTwiceSamplesPerSymbol] = quadrature;
+
+            mDelayLinePointer++;
+
+            if(mDelayLinePointer >= mTwiceSamplesPerSymbol)
+            {
+                mDelayLinePointer = 0;
+            }
+
+            if(mSamplingPoint < 1.0f)
+            {
+                T symbol = calculateSymbol();
+
+                if(symbols != null)
+                {
+                    symbols[count++] = symbol;
+                }
+                else
+                {
+                    broadcast(symbol);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Calculates a symbol once the sampling point has been reached.  Implementations must invoke resetAndAdjust() with
+     * the measured timing error to advance the sampling point to the next symbol.
+     *
+     * @return symbol decision
+     */
+    protected abstract T calculateSymbol();
+
+    /**
+     * Adjusts samples per symbol and the sampling point from the symbol timing error and advances the sampling point
+     * to collect another symbol.
+     */
+    protected void resetAndAdjust(float symbolTimingError)
+    {
+        mDetectedSamplesPerSymbol += symbolTimingError * mDetectedSamplesPerSymbolGain;
+
+        if(mDetectedSamplesPerSymbol > mMaximumSamplesPerSymbol)
+        {
+            mDetectedSamplesPerSymbol = mMaximumSamplesPerSymbol;
+        }
+
+        if(mDetectedSamplesPerSymbol < mMinimumSamplesPerSymbol)
+        {
+            mDetectedSamplesPerSymbol = mMinimumSamplesPerSymbol;
+        }
+
+        mSamplingPoint += mDetectedSamplesPerSymbol + (symbolTimingError * mSampleCounterGain);
+    }
+
+    /**
+     * Current sampling point (interpolation offset) for the symbol
+     */
+    protected float getSamplingPoint()
+    {
+        return mSamplingPoint;
+    }
+
+    /**
+     * Current value of the detected samples per symbol
+     */
+    protected float getDetectedSamplesPerSymbol()
+    {
+        return mDetectedSamplesPerSymbol;
+    }
+
+    /**
+     * Inphase value of the un-interpolated sample that precedes the current interpolated sampling point.
+     */
+    protected float getPrecedingInphase()
+    {
+        return mDelayLineInphase[mDelayLinePointer + 3];
+    }
+
+    /**
+     * Quadrature value of the un-interpolated sample that precedes the current interpolated sampling point.
+     */
+    protected float getPrecedingQuadrature()
+    {
+        return mDelayLineQuadrature[mDelayLinePointer + 3];
+    }
+
+    /**
+     * Interpolated inphase value at the specified offset into the delay line
+     */
+    protected float getInphase(float interpolation)
+    {
+        return interpolate(mDelayLineInphase, interpolation);
+    }
+
+    /**
+     * Interpolated quadrature value at the specified offset into the delay line
+     */
+    protected float getQuadrature(float interpolation)
+    {
+        return interpolate(mDelayLineQuadrature, interpolation);
+    }
+
+    /**
+     * Interpolated value from the delay line at the specified offset from the delay line pointer
+     */
+    private float interpolate(float[] delayLine, float interpolation)
+    {
+        if(interpolation < 1.0f)
+        {
+            return mInterpolator.filter(delayLine, mDelayLinePointer, interpolation);
+        }
+
+        int offset = (int)FastMath.floor(interpolation);
+        return mInterpolator.filter(delayLine, mDelayLinePointer + offset, interpolation - offset);
+    }
+
+    /**
+     * Constrains the error value to +/- the maximum value and corrects any floating point invalid numbers
+     */
+    protected static float normalize(float error, float maximum)
+    {
+        if(Float.isNaN(error))
+        {
+            return 0.0f;
+        }
+
+        return PSKDemodulator.clip(error, maximum);
+    }
+}
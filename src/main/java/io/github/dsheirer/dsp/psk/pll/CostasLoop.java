@@ -165,6 +165,15 @@ public class CostasLoop implements IPhaseLockedLoop
         return getCurrentVector();
     }
 
+    /**
+     * Current phase of the loop in radians.  Allows buffer-oriented demodulators to mix samples with the loop without
+     * using the current vector.
+     */
+    public double getLoopPhase()
+    {
+        return mLoopPhase;
+    }
+
     public double getLoopFrequency()
     {
         return mLoopFrequency;
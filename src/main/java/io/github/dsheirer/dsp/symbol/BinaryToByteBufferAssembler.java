@@ -20,6 +20,7 @@
 package io.github.dsheirer.dsp.symbol;
 
 import io.github.dsheirer.bits.IBinarySymbolProcessor;
+import io.github.dsheirer.bits.IPackedBinaryProcessor;
 import io.github.dsheirer.sample.Listener;
 import io.github.dsheirer.sample.buffer.IReusableByteBufferProvider;
 import io.github.dsheirer.sample.buffer.ReusableByteBuffer;
@@ -27,8 +28,11 @@ import io.github.dsheirer.sample.buffer.ReusableByteBufferQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+
 /**
- * Assembles reusable byte buffers from an incoming stream of boolean values.
+ * Assembles reusable byte buffers from an incoming stream of boolean values.  Each assembled byte can also be
+ * dispatched to packed binary processors (e.g. message framers) as soon as it is complete.
  */
 public class BinaryToByteBufferAssembler implements IBinarySymbolProcessor, IReusableByteBufferProvider
 {
@@ -41,6 +45,7 @@ public class BinaryToByteBufferAssembler implements IBinarySymbolProcessor, IReu
     private byte mCurrentByte;
     private int mBitCount;
     private Listener<ReusableByteBuffer> mBufferListener;
+    private IPackedBinaryProcessor[] mPackedBinaryProcessors = new IPackedBinaryProcessor[0];
 
     /**
      * Constructs an assembler to produce reusable byte buffers of the specified size
@@ -55,19 +60,36 @@ public class BinaryToByteBufferAssembler implements IBinarySymbolProcessor, IReu
 
     /**
      * Broadcasts the current buffer to the registered listener and creates a new buffer, resetting
-     * the buffer pointer to zero so that new dibits can be loaded.
+     * the buffer pointer to zero so that new dibits can be loaded.  The current buffer is reused when
+     * there is no registered listener.
      */
     private void getNextBuffer()
     {
         if(mCurrentBuffer != null && mBufferListener != null)
         {
             mBufferListener.receive(mCurrentBuffer);
+            mCurrentBuffer = null;
+        }
+
+        if(mCurrentBuffer == null)
+        {
+            mCurrentBuffer = mBufferQueue.getBuffer(mBufferSize);
         }
 
-        mCurrentBuffer = mBufferQueue.getBuffer(mBufferSize);
         mBufferPointer = 0;
     }
 
+    /**
+     * Adds the processor to receive each assembled byte as soon as it is complete
+     */
+    public void addPackedBinaryProcessor(IPackedBinaryProcessor processor)
+    {
+        IPackedBinaryProcessor[] processors = Arrays.copyOf(mPackedBinaryProcessors,
+            mPackedBinaryProcessors.length + 1);
+        processors[processors.length - 1] = processor;
+        mPackedBinaryProcessors = processors;
+    }
+
     @Override
     public void process(boolean symbol)
     {
@@ -83,6 +105,12 @@ public class BinaryToByteBufferAssembler implements IBinarySymbolProcessor, IReu
         if(mBitCount >= 8)
         {
             mCurrentBuffer.getBytes()[mBufferPointer++] = mCurrentByte;
+
+            for(IPackedBinaryProcessor processor : mPackedBinaryProcessors)
+            {
+                processor.process(mCurrentByte);
+            }
+
             mCurrentByte = 0;
             mBitCount = 0;
 
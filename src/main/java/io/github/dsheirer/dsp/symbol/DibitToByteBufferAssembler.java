@@ -99,6 +99,20 @@ public class DibitToByteBufferAssembler implements Listener<Dibit>, IReusableByt
         }
     }
 
+    /**
+     * Assembles a block of dibits
+     *
+     * @param dibits to assemble
+     * @param length number of dibits from the start of the array to assemble
+     */
+    public void receive(Dibit[] dibits, int length)
+    {
+        for(int x = 0; x < length; x++)
+        {
+            receive(dibits[x]);
+        }
+    }
+
     /**
      * Registers the listener to receive fully assembled byte buffers from this assembler.
      */
@@ -35,18 +35,21 @@ import io.github.dsheirer.gui.preference.UserPreferenceEditorViewRequest;
 import io.github.dsheirer.icon.IconManager;
 import io.github.dsheirer.log.ApplicationLog;
 import io.github.dsheirer.map.MapService;
+import io.github.dsheirer.module.decode.event.store.DecodeEventStore;
 import io.github.dsheirer.module.log.EventLogManager;
 import io.github.dsheirer.playlist.PlaylistManager;
 import io.github.dsheirer.preference.UserPreferences;
 import io.github.dsheirer.properties.SystemProperties;
 import io.github.dsheirer.record.AudioRecordingManager;
 import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.sample.buffer.SampleMemoryManager;
 import io.github.dsheirer.settings.SettingsManager;
 import io.github.dsheirer.source.SourceManager;
 import io.github.dsheirer.source.tuner.Tuner;
 import io.github.dsheirer.source.tuner.TunerEvent;
 import io.github.dsheirer.source.tuner.TunerModel;
 import io.github.dsheirer.source.tuner.TunerSpectralDisplayManager;
+import io.github.dsheirer.source.tuner.channel.DSPLoadScheduler;
 import io.github.dsheirer.source.tuner.configuration.TunerConfigurationModel;
 import io.github.dsheirer.spectrum.ClearTunerMenuItem;
 import io.github.dsheirer.spectrum.ShowTunerMenuItem;
@@ -66,7 +69,9 @@ import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
 import javax.swing.JSeparator;
+import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
 import javax.swing.UIManager;
 import javax.swing.event.MenuEvent;
@@ -76,6 +81,7 @@ import java.awt.AWTException;
 import java.awt.Desktop;
 import java.awt.Dimension;
 import java.awt.EventQueue;
+import java.awt.Font;
 import java.awt.Point;
 import java.awt.Robot;
 import java.awt.event.ActionEvent;
@@ -106,6 +112,7 @@ public class SDRTrunk implements Listener<TunerEvent>
     private AudioStreamingManager mAudioStreamingManager;
     private BroadcastStatusPanel mBroadcastStatusPanel;
     private ControllerPanel mControllerPanel;
+    private DecodeEventStore mDecodeEventStore;
     private IconManager mIconManager = new IconManager();
     private PlaylistManager mPlaylistManager;
     private SourceManager mSourceManager;
@@ -186,6 +193,12 @@ public class SDRTrunk implements Listener<TunerEvent>
         MapService mapService = new MapService(mIconManager);
         mPlaylistManager.getChannelProcessingManager().addDecodeEventListener(mapService);
 
+        if(DecodeEventStore.isEnabled())
+        {
+            mDecodeEventStore = new DecodeEventStore();
+            mPlaylistManager.getChannelProcessingManager().addDecodeEventListener(mDecodeEventStore);
+        }
+
         mControllerPanel = new ControllerPanel(mPlaylistManager, audioPlaybackManager, mIconManager, mapService,
             mSettingsManager, mSourceManager, mUserPreferences);
 
@@ -362,6 +375,26 @@ public class SDRTrunk implements Listener<TunerEvent>
         });
         viewMenu.add(logFilesMenu);
 
+        JMenuItem sampleMemoryItem = new JMenuItem("Sample Buffer Memory");
+        sampleMemoryItem.addActionListener(e -> {
+            JTextArea summary = new JTextArea(SampleMemoryManager.getInstance().getSummary());
+            summary.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            summary.setEditable(false);
+            JOptionPane.showMessageDialog(mMainGui, new JScrollPane(summary), "Sample Buffer Memory",
+                JOptionPane.INFORMATION_MESSAGE);
+        });
+        viewMenu.add(sampleMemoryItem);
+
+        JMenuItem dspLoadItem = new JMenuItem("DSP Load");
+        dspLoadItem.addActionListener(e -> {
+            JTextArea summary = new JTextArea(DSPLoadScheduler.getInstance().getSummary());
+            summary.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            summary.setEditable(false);
+            JOptionPane.showMessageDialog(mMainGui, new JScrollPane(summary), "DSP Load",
+                JOptionPane.INFORMATION_MESSAGE);
+        });
+        viewMenu.add(dspLoadItem);
+
         viewMenu.add(new JSeparator());
         viewMenu.add(new TunersMenu());
         viewMenu.add(new JSeparator());
@@ -427,6 +460,12 @@ public class SDRTrunk implements Listener<TunerEvent>
         mPlaylistManager.getChannelProcessingManager().shutdown();
         mAudioRecordingManager.stop();
 
+        if(mDecodeEventStore != null)
+        {
+            mLog.info("Closing decode event store ...");
+            mDecodeEventStore.dispose();
+        }
+
         mLog.info("Stopping spectral display ...");
         mSpectralPanel.clearTuner();
         mSourceManager.shutdown();
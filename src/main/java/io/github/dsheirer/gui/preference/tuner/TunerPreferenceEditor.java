@@ -24,6 +24,7 @@ package io.github.dsheirer.gui.preference.tuner;
 
 import io.github.dsheirer.preference.UserPreferences;
 import io.github.dsheirer.preference.source.ChannelizerType;
+import io.github.dsheirer.preference.source.LatencyMode;
 import io.github.dsheirer.preference.source.TunerPreference;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
@@ -46,6 +47,9 @@ public class TunerPreferenceEditor extends HBox
         "channelizer is more efficient when decoding 3 or more channels.";
     private static final String HELP_TEXT_HETERODYNE = "Processes each channel on-demand.  This " +
         "channelizer may work better for computers with constrained resources when processing a small number of channels.";
+    private static final String HELP_TEXT_LATENCY_MODE = "Low Latency uses smaller sample buffers and queues for " +
+        "live monitoring.  High Throughput uses larger buffers for recording-only systems.  Auto-Tune selects the " +
+        "buffer sizes from the measured CPU load.";
 
     private TunerPreference mTunerPreference;
     private GridPane mEditorPane;
@@ -55,6 +59,9 @@ public class TunerPreferenceEditor extends HBox
     private Label mHelpTextPolyphaseLabel;
     private Label mHeterodyneLabel;
     private Label mHelpTextHeterodyneLabel;
+    private ChoiceBox<LatencyMode> mLatencyModeChoiceBox;
+    private Label mLatencyModeLabel;
+    private Label mHelpTextLatencyModeLabel;
 
     public TunerPreferenceEditor(UserPreferences userPreferences)
     {
@@ -79,6 +86,11 @@ public class TunerPreferenceEditor extends HBox
             mEditorPane.add(new Label(" "), 0, 6);
             mEditorPane.add(getHeterodyneLabel(), 0, 7, 2, 1);
             mEditorPane.add(getHelpTextHeterodyneLabel(), 0, 8, 2, 3);
+            mEditorPane.add(new Separator(Orientation.HORIZONTAL), 0, 11, 2, 1);
+            GridPane.setHalignment(getLatencyModeLabel(), HPos.LEFT);
+            mEditorPane.add(getLatencyModeLabel(), 0, 12);
+            mEditorPane.add(getLatencyModeChoiceBox(), 1, 12);
+            mEditorPane.add(getHelpTextLatencyModeLabel(), 0, 13, 2, 3);
         }
 
         return mEditorPane;
@@ -120,6 +132,43 @@ public class TunerPreferenceEditor extends HBox
         return mChannelizerTypeChoiceBox;
     }
 
+    private Label getLatencyModeLabel()
+    {
+        if(mLatencyModeLabel == null)
+        {
+            mLatencyModeLabel = new Label("Latency Mode");
+        }
+
+        return mLatencyModeLabel;
+    }
+
+    private ChoiceBox<LatencyMode> getLatencyModeChoiceBox()
+    {
+        if(mLatencyModeChoiceBox == null)
+        {
+            mLatencyModeChoiceBox = new ChoiceBox<>();
+            mLatencyModeChoiceBox.getItems().addAll(LatencyMode.values());
+            mLatencyModeChoiceBox.getSelectionModel().select(mTunerPreference.getLatencyMode());
+            mLatencyModeChoiceBox.setOnAction(event -> {
+                LatencyMode selected = mLatencyModeChoiceBox.getSelectionModel().getSelectedItem();
+                mTunerPreference.setLatencyMode(selected);
+            });
+        }
+
+        return mLatencyModeChoiceBox;
+    }
+
+    private Label getHelpTextLatencyModeLabel()
+    {
+        if(mHelpTextLatencyModeLabel == null)
+        {
+            mHelpTextLatencyModeLabel = new Label(HELP_TEXT_LATENCY_MODE);
+            mHelpTextLatencyModeLabel.setWrapText(true);
+        }
+
+        return mHelpTextLatencyModeLabel;
+    }
+
     private Label getPolyphaseLabel()
     {
         if(mPolyphaseLabel == null)
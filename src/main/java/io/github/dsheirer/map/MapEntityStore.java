@@ -0,0 +1,165 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.map;
+
+import io.github.dsheirer.identifier.Identifier;
+import io.github.dsheirer.module.decode.event.PlottableDecodeEvent;
+import io.github.dsheirer.properties.SystemProperties;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded store of plottable entity histories with configurable retention.
+ *
+ * Entities are held in access order, so that each update moves the entity to the tail of the store.  This orders
+ * the store by last update time and doubles as the least-recently-updated (LRU) eviction order: stale entities
+ * and entities beyond the maximum entity count are always found at the head of the store without scanning.
+ *
+ * Retention is configurable via system properties:
+ *
+ * map.history.max.age.minutes - entities not updated and locations recorded within this age are removed
+ * map.history.max.points - maximum locations retained per entity
+ * map.history.max.entities - maximum entities retained
+ */
+public class MapEntityStore
+{
+    public static final String PROPERTY_MAX_AGE_MINUTES = "map.history.max.age.minutes";
+    public static final String PROPERTY_MAX_POINTS = "map.history.max.points";
+    public static final String PROPERTY_MAX_ENTITIES = "map.history.max.entities";
+    private static final int DEFAULT_MAX_AGE_MINUTES = 240;
+    private static final int DEFAULT_MAX_ENTITIES = 2000;
+    private static final long LOCATION_TRIM_INTERVAL_MILLISECONDS = 60000;
+
+    private Map<Identifier,PlottableEntityHistory> mEntities = new LinkedHashMap<>(16, 0.75f, true);
+    private long mMaxAge;
+    private int mMaxPoints;
+    private int mMaxEntities;
+    private long mLastLocationTrim;
+
+    /**
+     * Constructs an instance with retention settings from the system properties
+     */
+    public MapEntityStore()
+    {
+        this(SystemProperties.getInstance().get(PROPERTY_MAX_AGE_MINUTES, DEFAULT_MAX_AGE_MINUTES) * 60000l,
+            SystemProperties.getInstance().get(PROPERTY_MAX_POINTS, PlottableEntityHistory.DEFAULT_MAX_POINTS),
+            SystemProperties.getInstance().get(PROPERTY_MAX_ENTITIES, DEFAULT_MAX_ENTITIES));
+    }
+
+    /**
+     * Constructs an instance
+     *
+     * @param maxAge in milliseconds for entities and locations
+     * @param maxPoints per entity
+     * @param maxEntities to retain
+     */
+    public MapEntityStore(long maxAge, int maxPoints, int maxEntities)
+    {
+        mMaxAge = maxAge;
+        mMaxPoints = maxPoints;
+        mMaxEntities = maxEntities;
+    }
+
+    /**
+     * Updates the entity history for the identifier with the location from the event, creating the entity history
+     * when it doesn't exist.
+     *
+     * @param identifier of the entity
+     * @param event with location
+     * @return the newly created entity history, or null if an existing entity history was updated
+     */
+    public synchronized PlottableEntityHistory update(Identifier identifier, PlottableDecodeEvent event)
+    {
+        //Access-ordered get moves an existing entity to the tail of the store
+        PlottableEntityHistory entityHistory = mEntities.get(identifier);
+
+        if(entityHistory == null)
+        {
+            entityHistory = new PlottableEntityHistory(identifier, event, mMaxPoints);
+            mEntities.put(identifier, entityHistory);
+            return entityHistory;
+        }
+
+        entityHistory.add(event);
+        return null;
+    }
+
+    /**
+     * Removes entities that were not updated within the max age and least-recently updated entities beyond the
+     * maximum entity count.  Periodically trims locations older than the max age from the remaining entities.
+     *
+     * @param timestamp current time in milliseconds
+     * @return list of removed entities
+     */
+    public synchronized List<PlottableEntityHistory> evict(long timestamp)
+    {
+        List<PlottableEntityHistory> removed = new ArrayList<>();
+        long oldest = timestamp - mMaxAge;
+
+        Iterator<PlottableEntityHistory> it = mEntities.values().iterator();
+
+        while(it.hasNext())
+        {
+            PlottableEntityHistory entityHistory = it.next();
+
+            if(mEntities.size() > mMaxEntities || entityHistory.getLastUpdated() < oldest)
+            {
+                it.remove();
+                removed.add(entityHistory);
+            }
+            else
+            {
+                //Remaining entities were all updated more recently
+                break;
+            }
+        }
+
+        if(timestamp - mLastLocationTrim > LOCATION_TRIM_INTERVAL_MILLISECONDS)
+        {
+            mLastLocationTrim = timestamp;
+
+            for(PlottableEntityHistory entityHistory : mEntities.values())
+            {
+                entityHistory.trim(oldest);
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Snapshot of the entity histories, ordered least to most recently updated
+     */
+    public synchronized List<PlottableEntityHistory> getEntities()
+    {
+        return new ArrayList<>(mEntities.values());
+    }
+
+    /**
+     * Number of entities in the store
+     */
+    public synchronized int size()
+    {
+        return mEntities.size();
+    }
+}
@@ -119,17 +119,22 @@ public class MapPanel extends JPanel implements IPlottableUpdateListener
         EventQueue.invokeLater(() -> mMapViewer.repaint());
     }
 
+    /**
+     * Adds the entity to the map.  The map service follows each batch of entity changes with an entities updated
+     * notification, so the map is repainted once per batch.
+     */
     @Override
     public void addPlottableEntity(PlottableEntityHistory entity)
     {
         mMapPainter.addEntity(entity);
-        entitiesUpdated();
     }
 
+    /**
+     * Removes the entity from the map.  Repainting is deferred until the entities updated notification.
+     */
     @Override
     public void removePlottableEntity(PlottableEntityHistory entity)
     {
         mMapPainter.removeEntity(entity);
-        entitiesUpdated();
     }
 }
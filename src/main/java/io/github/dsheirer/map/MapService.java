@@ -24,26 +24,50 @@ import io.github.dsheirer.identifier.Identifier;
 import io.github.dsheirer.module.decode.event.IDecodeEvent;
 import io.github.dsheirer.module.decode.event.PlottableDecodeEvent;
 import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.util.ThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Map service.  Tracks the location history of each plottable entity from decode events in a bounded entity store
+ * and notifies listeners of entity changes.
+ *
+ * Notifications are batched: added, removed and updated entities are accumulated and dispatched to the listeners
+ * on a fixed interval, followed by a single entities updated notification, so that a busy location reporting
+ * system produces at most one map repaint per interval.  Stale entities are evicted from the store on the same
+ * interval.
+ */
 public class MapService implements Listener<IDecodeEvent>
 {
     private final static Logger mLog = LoggerFactory.getLogger(MapService.class);
+    private static final long NOTIFICATION_INTERVAL_MILLISECONDS = 500;
 
-    private int mMaxHistory = 2;
-    private List<IPlottableUpdateListener> mListeners = new ArrayList<IPlottableUpdateListener>();
-    private Map<Identifier,PlottableEntityHistory> mEntityHistories = new HashMap<>();
+    private List<IPlottableUpdateListener> mListeners = new CopyOnWriteArrayList<>();
+    private MapEntityStore mEntityStore = new MapEntityStore();
+    private Set<PlottableEntityHistory> mAddedEntities = new LinkedHashSet<>();
+    private boolean mEntitiesUpdated;
     private IconManager mIconManager;
 
     public MapService(IconManager resourceManager)
     {
         mIconManager = resourceManager;
+        ThreadPool.SCHEDULED.scheduleAtFixedRate(this::dispatch, NOTIFICATION_INTERVAL_MILLISECONDS,
+            NOTIFICATION_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Entity store for plottable entity histories
+     */
+    public MapEntityStore getEntityStore()
+    {
+        return mEntityStore;
     }
 
     @Override
@@ -56,21 +80,16 @@ public class MapService implements Listener<IDecodeEvent>
 
             if(from != null)
             {
-                PlottableEntityHistory entityHistory = mEntityHistories.get(from);
+                PlottableEntityHistory added = mEntityStore.update(from, plottableDecodeEvent);
 
-                if(entityHistory == null)
+                synchronized(this)
                 {
-                    entityHistory = new PlottableEntityHistory(from, plottableDecodeEvent);
-                    mEntityHistories.put(from, entityHistory);
-                }
-                else
-                {
-                    entityHistory.add(plottableDecodeEvent);
-                }
+                    if(added != null)
+                    {
+                        mAddedEntities.add(added);
+                    }
 
-                for(IPlottableUpdateListener listener : mListeners)
-                {
-                    listener.addPlottableEntity(entityHistory);
+                    mEntitiesUpdated = true;
                 }
             }
             else
@@ -80,9 +99,70 @@ public class MapService implements Listener<IDecodeEvent>
         }
     }
 
+    /**
+     * Evicts stale entities and dispatches the accumulated entity changes to the listeners
+     */
+    private void dispatch()
+    {
+        try
+        {
+            List<PlottableEntityHistory> removed = mEntityStore.evict(System.currentTimeMillis());
+            List<PlottableEntityHistory> added;
+            boolean updated;
+
+            synchronized(this)
+            {
+                added = new ArrayList<>(mAddedEntities);
+                mAddedEntities.clear();
+                updated = mEntitiesUpdated;
+                mEntitiesUpdated = false;
+            }
+
+            //Entities that were both added and evicted within this interval are never dispatched
+            if(!removed.isEmpty() && !added.isEmpty())
+            {
+                Set<PlottableEntityHistory> evicted = new LinkedHashSet<>(removed);
+                added.removeIf(evicted::remove);
+                removed = new ArrayList<>(evicted);
+            }
+
+            if(added.isEmpty() && removed.isEmpty() && !updated)
+            {
+                return;
+            }
+
+            for(IPlottableUpdateListener listener : mListeners)
+            {
+                for(PlottableEntityHistory entity : removed)
+                {
+                    listener.removePlottableEntity(entity);
+                }
+
+                for(PlottableEntityHistory entity : added)
+                {
+                    listener.addPlottableEntity(entity);
+                }
+
+                listener.entitiesUpdated();
+            }
+        }
+        catch(Throwable t)
+        {
+            mLog.error("Error while dispatching map entity updates", t);
+        }
+    }
+
+    /**
+     * Registers the listener and adds each of the current entities to the listener
+     */
     public void addListener(IPlottableUpdateListener listener)
     {
         mListeners.add(listener);
+
+        for(PlottableEntityHistory entity : mEntityStore.getEntities())
+        {
+            listener.addPlottableEntity(entity);
+        }
     }
 
     public void removeListener(IPlottableUpdateListener listener)
@@ -31,28 +31,84 @@ import java.util.List;
 
 /**
  * Plottable entity history with location history.
+ *
+ * Location history is bounded to a maximum number of points, with the oldest points overwritten first.  Each point
+ * is timestamped so that points older than the retention age can be trimmed.  The geographic bounds of the location
+ * history are tracked so that entities outside of the visible map area can be skipped when painting.
+ *
+ * Entity histories are updated by the map service on decoder threads and read on the Swing event thread, so access
+ * to the location history is synchronized.
  */
 public class PlottableEntityHistory
 {
-    private List<GeoPosition> mLocationHistory = new ArrayList<>();
+    public static final int DEFAULT_MAX_POINTS = 500;
+
+    private GeoPosition[] mLocations;
+    private long[] mTimestamps;
+    private int mOldest;
+    private int mCount;
+    private long mLastUpdated;
+    private boolean mBoundsDirty;
+    private double mMinimumLatitude;
+    private double mMaximumLatitude;
+    private double mMinimumLongitude;
+    private double mMaximumLongitude;
     private PlottableDecodeEvent mCurrentEvent;
     private Identifier mIdentifier;
 
     /**
-     * Constructs a plottable entity history
+     * Constructs a plottable entity history with the default maximum location history size
      */
     public PlottableEntityHistory(Identifier identifier, PlottableDecodeEvent event)
+    {
+        this(identifier, event, DEFAULT_MAX_POINTS);
+    }
+
+    /**
+     * Constructs a plottable entity history
+     *
+     * @param identifier for the entity
+     * @param event containing the first location for the entity
+     * @param maxPoints maximum number of locations to retain
+     */
+    public PlottableEntityHistory(Identifier identifier, PlottableDecodeEvent event, int maxPoints)
     {
         mIdentifier = identifier;
+        mLocations = new GeoPosition[Math.max(1, maxPoints)];
+        mTimestamps = new long[mLocations.length];
         add(event);
     }
 
     /**
-     * Location history for this entity
+     * Location history for this entity, ordered oldest to latest.  This is a snapshot of the history at the time of
+     * the method call.
+     */
+    public synchronized List<GeoPosition> getLocationHistory()
+    {
+        List<GeoPosition> locations = new ArrayList<>(mCount);
+
+        for(int x = 0; x < mCount; x++)
+        {
+            locations.add(mLocations[(mOldest + x) % mLocations.length]);
+        }
+
+        return Collections.unmodifiableList(locations);
+    }
+
+    /**
+     * Number of locations in the location history
+     */
+    public synchronized int getLocationCount()
+    {
+        return mCount;
+    }
+
+    /**
+     * Time in milliseconds that this entity was last updated
      */
-    public List<GeoPosition> getLocationHistory()
+    public synchronized long getLastUpdated()
     {
-        return Collections.unmodifiableList(mLocationHistory);
+        return mLastUpdated;
     }
 
     /**
@@ -66,7 +122,7 @@ public class PlottableEntityHistory
     /**
      * Identifier collection from the latest event for this plottable
      */
-    public IdentifierCollection getIdentifierCollection()
+    public synchronized IdentifierCollection getIdentifierCollection()
     {
         return mCurrentEvent.getIdentifierCollection();
     }
@@ -75,8 +131,138 @@ public class PlottableEntityHistory
      * Updates the entity history with a location from the latest decode event
      */
     public void add(PlottableDecodeEvent event)
+    {
+        add(event, System.currentTimeMillis());
+    }
+
+    /**
+     * Updates the entity history with a location from the latest decode event
+     *
+     * @param event with location
+     * @param timestamp for the location
+     */
+    public synchronized void add(PlottableDecodeEvent event, long timestamp)
     {
         mCurrentEvent = event;
-        mLocationHistory.add(event.getLocation());
+        mLastUpdated = timestamp;
+
+        GeoPosition location = event.getLocation();
+
+        if(mCount == mLocations.length)
+        {
+            //Overwrite the oldest location
+            mLocations[mOldest] = location;
+            mTimestamps[mOldest] = timestamp;
+            mOldest = (mOldest + 1) % mLocations.length;
+            mBoundsDirty = true;
+        }
+        else
+        {
+            int index = (mOldest + mCount) % mLocations.length;
+            mLocations[index] = location;
+            mTimestamps[index] = timestamp;
+            mCount++;
+
+            if(!mBoundsDirty)
+            {
+                expandBounds(location, mCount == 1);
+            }
+        }
+
+        if(mBoundsDirty)
+        {
+            updateBounds();
+        }
+    }
+
+    /**
+     * Removes locations older than the specified timestamp, always retaining the latest location.
+     *
+     * @param oldest timestamp of locations to retain
+     * @return number of locations removed
+     */
+    public synchronized int trim(long oldest)
+    {
+        int removed = 0;
+
+        while(mCount > 1 && mTimestamps[mOldest] < oldest)
+        {
+            mLocations[mOldest] = null;
+            mOldest = (mOldest + 1) % mLocations.length;
+            mCount--;
+            removed++;
+        }
+
+        if(removed > 0)
+        {
+            updateBounds();
+        }
+
+        return removed;
+    }
+
+    /**
+     * Indicates if any of the locations in this history fall within the specified geographic area
+     */
+    public synchronized boolean intersects(double minimumLatitude, double maximumLatitude, double minimumLongitude,
+                                           double maximumLongitude)
+    {
+        return mMinimumLatitude <= maximumLatitude && mMaximumLatitude >= minimumLatitude &&
+            mMinimumLongitude <= maximumLongitude && mMaximumLongitude >= minimumLongitude;
+    }
+
+    /**
+     * Recalculates the geographic bounds across all locations
+     */
+    private void updateBounds()
+    {
+        mBoundsDirty = false;
+        boolean first = true;
+
+        for(int x = 0; x < mCount; x++)
+        {
+            GeoPosition location = mLocations[(mOldest + x) % mLocations.length];
+
+            if(location != null && location.isValid())
+            {
+                expandBounds(location, first);
+                first = false;
+            }
+        }
+
+        if(first)
+        {
+            //No valid locations - use an empty bounds that doesn't intersect any area
+            mMinimumLatitude = Double.MAX_VALUE;
+            mMaximumLatitude = -Double.MAX_VALUE;
+            mMinimumLongitude = Double.MAX_VALUE;
+            mMaximumLongitude = -Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Expands the geographic bounds to include the location
+     *
+     * @param location to include
+     * @param reset to set the bounds to the location
+     */
+    private void expandBounds(GeoPosition location, boolean reset)
+    {
+        if(reset)
+        {
+            //Start from an empty bounds, so that an invalid first location doesn't set the bounds
+            mMinimumLatitude = Double.MAX_VALUE;
+            mMaximumLatitude = -Double.MAX_VALUE;
+            mMinimumLongitude = Double.MAX_VALUE;
+            mMaximumLongitude = -Double.MAX_VALUE;
+        }
+
+        if(location != null && location.isValid())
+        {
+            mMinimumLatitude = Math.min(mMinimumLatitude, location.getLatitude());
+            mMaximumLatitude = Math.max(mMaximumLatitude, location.getLatitude());
+            mMinimumLongitude = Math.min(mMinimumLongitude, location.getLongitude());
+            mMaximumLongitude = Math.max(mMaximumLongitude, location.getLongitude());
+        }
     }
 }
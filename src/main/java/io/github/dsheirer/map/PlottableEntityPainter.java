@@ -23,18 +23,23 @@ package io.github.dsheirer.map;
 import io.github.dsheirer.alias.AliasModel;
 import io.github.dsheirer.icon.IconManager;
 import org.jdesktop.swingx.JXMapViewer;
+import org.jdesktop.swingx.mapviewer.GeoPosition;
 import org.jdesktop.swingx.painter.AbstractPainter;
 
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.geom.Point2D;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PlottableEntityPainter extends AbstractPainter<JXMapViewer>
 {
+    //Margin around the viewport, in pixels, for icons and labels of entities located just outside of the viewport
+    private static final int VIEWPORT_MARGIN = 100;
+
     private PlottableEntityRenderer mRenderer;
-    private Set<PlottableEntityHistory> mEntities = new HashSet<>();
+    private Set<PlottableEntityHistory> mEntities = ConcurrentHashMap.newKeySet();
 
     public PlottableEntityPainter(AliasModel aliasModel, IconManager iconManager)
     {
@@ -70,11 +75,24 @@ public class PlottableEntityPainter extends AbstractPainter<JXMapViewer>
 
         g.translate(-viewportBounds.getX(), -viewportBounds.getY());
 
+        //Geographic area of the viewport, used to skip entities whose location history is not visible
+        GeoPosition topLeft = map.getTileFactory().pixelToGeo(new Point2D.Double(
+            viewportBounds.getMinX() - VIEWPORT_MARGIN, viewportBounds.getMinY() - VIEWPORT_MARGIN), map.getZoom());
+        GeoPosition bottomRight = map.getTileFactory().pixelToGeo(new Point2D.Double(
+            viewportBounds.getMaxX() + VIEWPORT_MARGIN, viewportBounds.getMaxY() + VIEWPORT_MARGIN), map.getZoom());
+
+        //Don't cull when the viewport wraps around the antimeridian
+        boolean cull = topLeft.getLongitude() < bottomRight.getLongitude();
+
         Set<PlottableEntityHistory> entities = getEntities();
 
         for(PlottableEntityHistory entity : entities)
         {
-            mRenderer.paintPlottableEntity(g, map, entity, true);
+            if(!cull || entity.intersects(bottomRight.getLatitude(), topLeft.getLatitude(), topLeft.getLongitude(),
+                bottomRight.getLongitude()))
+            {
+                mRenderer.paintPlottableEntity(g, map, entity, true);
+            }
         }
 
         g.translate(viewportBounds.getX(), viewportBounds.getY());
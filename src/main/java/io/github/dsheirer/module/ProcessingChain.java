@@ -50,10 +50,12 @@ import io.github.dsheirer.module.decode.event.IDecodeEventListener;
 import io.github.dsheirer.module.decode.event.IDecodeEventProvider;
 import io.github.dsheirer.module.decode.event.MessageActivityModel;
 import io.github.dsheirer.module.log.EventLogger;
+import io.github.dsheirer.properties.SystemProperties;
 import io.github.dsheirer.record.binary.BinaryRecorder;
 import io.github.dsheirer.record.wave.ComplexBufferWaveRecorder;
 import io.github.dsheirer.sample.Broadcaster;
 import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.sample.RingBroadcaster;
 import io.github.dsheirer.sample.buffer.IReusableBufferListener;
 import io.github.dsheirer.sample.buffer.IReusableBufferProvider;
 import io.github.dsheirer.sample.buffer.IReusableByteBufferListener;
@@ -100,6 +102,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class ProcessingChain implements Listener<ChannelEvent>
 {
     private final static Logger mLog = LoggerFactory.getLogger(ProcessingChain.class);
+    public static final String PROPERTY_MESSAGE_RING_ENABLED = "processing.chain.message.ring.enabled";
+    private static final int MESSAGE_RING_CAPACITY = 1024;
+    private static final long MESSAGE_RING_DRAIN_PERIOD_MILLISECONDS = 20;
 
     private ReusableBufferBroadcaster<ReusableFloatBuffer> mDemodulatedAudioBufferBroadcaster = new ReusableBufferBroadcaster();
     private ReusableBufferBroadcaster<ReusableComplexBuffer> mBasebandComplexBufferBroadcaster = new ReusableBufferBroadcaster();
@@ -111,7 +116,7 @@ public class ProcessingChain implements Listener<ChannelEvent>
     private Broadcaster<Heartbeat> mHeartbeatBroadcaster = new Broadcaster<>();
     private Broadcaster<IdentifierUpdateNotification> mIdentifierUpdateNotificationBroadcaster = new Broadcaster<>();
     private Broadcaster<SourceEvent> mSourceEventBroadcaster = new Broadcaster<>();
-    private Broadcaster<IMessage> mMessageBroadcaster = new Broadcaster<>();
+    private Broadcaster<IMessage> mMessageBroadcaster;
     private Broadcaster<SquelchStateEvent> mSquelchStateEventBroadcaster = new Broadcaster<>();
     private AtomicBoolean mRunning = new AtomicBoolean();
     private List<Module> mModules = new ArrayList<>();
@@ -127,6 +132,16 @@ public class ProcessingChain implements Listener<ChannelEvent>
      */
     public ProcessingChain(Channel channel, AliasModel aliasModel)
     {
+        //Optionally distribute decoded messages through a ring so that slow message listeners can't stall the decoder
+        if(SystemProperties.getInstance().get(PROPERTY_MESSAGE_RING_ENABLED, false))
+        {
+            mMessageBroadcaster = new RingBroadcaster<>(MESSAGE_RING_CAPACITY, MESSAGE_RING_DRAIN_PERIOD_MILLISECONDS);
+        }
+        else
+        {
+            mMessageBroadcaster = new Broadcaster<>();
+        }
+
         if(channel.getDecodeConfiguration().getTimeslotCount() == 1)
         {
             mChannelState = new SingleChannelState(channel, aliasModel);
@@ -138,6 +153,7 @@ public class ProcessingChain implements Listener<ChannelEvent>
 
         addModule(mChannelState);
         mDecodeEventModel = new DecodeEventModel();
+        mDecodeEventModel.setChannelName(channel.getName());
         addDecodeEventListener(mDecodeEventModel);
     }
 
@@ -204,6 +220,14 @@ public class ProcessingChain implements Listener<ChannelEvent>
         return mSource != null && mSource.equals(source);
     }
 
+    /**
+     * Current sample source for this processing chain or null if a source has not been applied
+     */
+    public Source getSource()
+    {
+        return mSource;
+    }
+
     /**
      * Applies a sample source to this processing chain.  Processing won't
      * start until the start() method is invoked.
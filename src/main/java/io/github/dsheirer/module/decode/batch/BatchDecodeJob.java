@@ -0,0 +1,289 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.module.decode.batch;
+
+import io.github.dsheirer.controller.channel.Channel;
+import io.github.dsheirer.controller.channel.map.ChannelMapModel;
+import io.github.dsheirer.message.IMessage;
+import io.github.dsheirer.message.MessageProviderModule;
+import io.github.dsheirer.message.StuffBitsMessage;
+import io.github.dsheirer.module.Module;
+import io.github.dsheirer.module.ProcessingChain;
+import io.github.dsheirer.module.decode.DecoderFactory;
+import io.github.dsheirer.module.decode.DecoderType;
+import io.github.dsheirer.module.decode.am.DecodeConfigAM;
+import io.github.dsheirer.module.decode.nbfm.DecodeConfigNBFM;
+import io.github.dsheirer.module.decode.p25.phase1.P25P1MessageFramer;
+import io.github.dsheirer.module.decode.p25.phase1.P25P1MessageProcessor;
+import io.github.dsheirer.module.decode.p25.phase2.DecodeConfigP25Phase2;
+import io.github.dsheirer.module.decode.p25.phase2.P25P2MessageFramer;
+import io.github.dsheirer.module.decode.p25.phase2.P25P2MessageProcessor;
+import io.github.dsheirer.module.log.DecodeEventLogger;
+import io.github.dsheirer.module.log.EventLogType;
+import io.github.dsheirer.module.log.MessageEventLogger;
+import io.github.dsheirer.protocol.Protocol;
+import io.github.dsheirer.record.binary.BinaryReader;
+import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.sample.buffer.ReusableByteBuffer;
+import io.github.dsheirer.source.wave.ComplexWaveSource;
+import io.github.dsheirer.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes a single recording using a dedicated processing chain constructed by the decoder factory.
+ *
+ * Complex baseband (.wav) recordings are replayed through the full demodulation and decode pipeline as fast as the
+ * calling thread can process them.  Demodulated bitstream (.bits) recordings bypass the demodulator and are fed
+ * directly to the message framer, which is only supported for the P25 protocols.  Decoded messages and decode events
+ * are written to per-recording log files in the output directory and audio segments are sent to the shared audio
+ * recording manager.
+ *
+ * The job runs entirely on the calling thread so that each recording in a batch can be processed in parallel.
+ */
+public class BatchDecodeJob implements Callable<BatchDecodeResult>
+{
+    private final static Logger mLog = LoggerFactory.getLogger(BatchDecodeJob.class);
+
+    private static final int BITSTREAM_BUFFER_SIZE = 200;
+
+    private BatchDecoder mBatchDecoder;
+    private Path mRecording;
+    private AtomicLong mMessageCount = new AtomicLong();
+    private AtomicLong mEventCount = new AtomicLong();
+
+    /**
+     * Constructs an instance
+     *
+     * @param batchDecoder providing the batch configuration and shared resources
+     * @param recording to decode
+     */
+    public BatchDecodeJob(BatchDecoder batchDecoder, Path recording)
+    {
+        mBatchDecoder = batchDecoder;
+        mRecording = recording;
+    }
+
+    @Override
+    public BatchDecodeResult call()
+    {
+        long start = System.currentTimeMillis();
+        String error = null;
+
+        try
+        {
+            if(BatchDecoder.isBitstreamRecording(mRecording))
+            {
+                decodeBitstream();
+            }
+            else
+            {
+                decodeBaseband();
+            }
+        }
+        catch(Exception e)
+        {
+            mLog.error("Error decoding recording [" + mRecording + "]", e);
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+
+        return new BatchDecodeResult(mRecording, mMessageCount.get(), mEventCount.get(),
+            System.currentTimeMillis() - start, error);
+    }
+
+    /**
+     * Decodes a complex baseband recording through the full processing chain
+     */
+    private void decodeBaseband() throws Exception
+    {
+        DecoderType decoderType = mBatchDecoder.getDecoderType();
+        ComplexWaveSource source = new ComplexWaveSource(mRecording.toFile(), false);
+        source.setReplaySpeed(ComplexWaveSource.REPLAY_SPEED_MAXIMUM);
+        source.open();
+
+        ProcessingChain processingChain = createProcessingChain(decoderType);
+
+        try
+        {
+            processingChain.setSource(source);
+            processingChain.start();
+            source.replay();
+        }
+        finally
+        {
+            processingChain.dispose();
+            source.close();
+        }
+    }
+
+    /**
+     * Decodes a demodulated bitstream recording by feeding the recorded bits directly to the protocol message framer
+     */
+    private void decodeBitstream() throws Exception
+    {
+        DecoderType decoderType = getBitstreamDecoderType();
+        ProcessingChain processingChain = createProcessingChain(decoderType);
+        MessageProviderModule messageProviderModule = new MessageProviderModule();
+        processingChain.addModule(messageProviderModule);
+
+        Listener<IMessage> messageListener = message -> {
+            if(!(message instanceof StuffBitsMessage))
+            {
+                messageProviderModule.receive(message);
+            }
+        };
+
+        Listener<ReusableByteBuffer> framer;
+
+        switch(decoderType)
+        {
+            case P25_PHASE1:
+                P25P1MessageFramer p1Framer = new P25P1MessageFramer(null,
+                    DecoderType.P25_PHASE1.getProtocol().getBitRate());
+                P25P1MessageProcessor p1Processor = new P25P1MessageProcessor();
+                p1Framer.setListener(p1Processor);
+                p1Processor.setMessageListener(messageListener);
+                framer = p1Framer::receive;
+                break;
+            case P25_PHASE2:
+                P25P2MessageFramer p2Framer = new P25P2MessageFramer(null,
+                    DecoderType.P25_PHASE2.getProtocol().getBitRate());
+                p2Framer.setScrambleParameters(mBatchDecoder.getScrambleParameters());
+                P25P2MessageProcessor p2Processor = new P25P2MessageProcessor();
+                p2Framer.setListener(p2Processor);
+                p2Processor.setMessageListener(messageListener);
+                framer = p2Framer::receive;
+                break;
+            default:
+                throw new IllegalArgumentException("Bitstream decoding is not supported for decoder type [" +
+                    decoderType + "]");
+        }
+
+        //There is no sample source for a bitstream recording, so the modules are started and stopped directly
+        //instead of through the processing chain
+        for(Module module : processingChain.getModules())
+        {
+            module.start();
+        }
+
+        try(BinaryReader reader = new BinaryReader(mRecording, BITSTREAM_BUFFER_SIZE))
+        {
+            while(reader.hasNext())
+            {
+                framer.receive(reader.next());
+            }
+        }
+        finally
+        {
+            for(Module module : processingChain.getModules())
+            {
+                module.stop();
+            }
+
+            processingChain.dispose();
+        }
+    }
+
+    /**
+     * Determines the decoder type for a bitstream recording from the protocol label in the file name, otherwise uses
+     * the batch decoder type.
+     */
+    private DecoderType getBitstreamDecoderType()
+    {
+        String fileName = mRecording.getFileName().toString();
+
+        if(fileName.contains("_" + Protocol.APCO25.getFileNameLabel() + "_"))
+        {
+            return DecoderType.P25_PHASE1;
+        }
+        else if(fileName.contains("_" + Protocol.APCO25_PHASE2.getFileNameLabel() + "_"))
+        {
+            return DecoderType.P25_PHASE2;
+        }
+
+        return mBatchDecoder.getDecoderType();
+    }
+
+    /**
+     * Creates a processing chain with the decoder modules for the decoder type and message and event loggers that
+     * write to the batch output directory.
+     */
+    private ProcessingChain createProcessingChain(DecoderType decoderType)
+    {
+        Channel channel = new Channel(getRecordingName(), mBatchDecoder.getChannelType());
+        channel.setDecodeConfiguration(DecoderFactory.getDecodeConfiguration(decoderType));
+        channel.setAliasListName(BatchDecoder.ALIAS_LIST_NAME);
+
+        if(decoderType == DecoderType.P25_PHASE2 && mBatchDecoder.getScrambleParameters() != null)
+        {
+            DecodeConfigP25Phase2 config = (DecodeConfigP25Phase2)channel.getDecodeConfiguration();
+            config.setScrambleParameters(mBatchDecoder.getScrambleParameters());
+        }
+
+        //Analog decoders record all audio when enabled in the configuration rather than by talkgroup alias
+        if(mBatchDecoder.getAudioRecordingManager() != null)
+        {
+            if(channel.getDecodeConfiguration() instanceof DecodeConfigNBFM)
+            {
+                ((DecodeConfigNBFM)channel.getDecodeConfiguration()).setRecordAudio(true);
+            }
+            else if(channel.getDecodeConfiguration() instanceof DecodeConfigAM)
+            {
+                ((DecodeConfigAM)channel.getDecodeConfiguration()).setRecordAudio(true);
+            }
+        }
+
+        ProcessingChain processingChain = new ProcessingChain(channel, mBatchDecoder.getAliasModel());
+        processingChain.addModules(DecoderFactory.getModules(new ChannelMapModel(), channel,
+            mBatchDecoder.getAliasModel(), mBatchDecoder.getUserPreferences()));
+
+        Path outputDirectory = mBatchDecoder.getOutputDirectory();
+        String prefix = StringUtils.replaceIllegalCharacters(getRecordingName());
+
+        processingChain.addModule(new MessageEventLogger(outputDirectory,
+            prefix + EventLogType.DECODED_MESSAGE.getFileSuffix() + ".log", MessageEventLogger.Type.DECODED, 0));
+        processingChain.addModule(new DecodeEventLogger(mBatchDecoder.getAliasModel(), outputDirectory,
+            prefix + EventLogType.CALL_EVENT.getFileSuffix() + ".log", 0));
+
+        processingChain.addMessageListener(message -> mMessageCount.incrementAndGet());
+        processingChain.addDecodeEventListener(decodeEvent -> mEventCount.incrementAndGet());
+
+        if(mBatchDecoder.getAudioRecordingManager() != null)
+        {
+            processingChain.addAudioSegmentListener(mBatchDecoder.getAudioRecordingManager());
+        }
+
+        return processingChain;
+    }
+
+    /**
+     * Recording file name without the extension
+     */
+    private String getRecordingName()
+    {
+        String fileName = mRecording.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return extension > 0 ? fileName.substring(0, extension) : fileName;
+    }
+}
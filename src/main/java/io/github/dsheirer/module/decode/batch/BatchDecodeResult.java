@@ -0,0 +1,120 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.module.decode.batch;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of decoding a single recording in a batch decode.
+ */
+public class BatchDecodeResult
+{
+    private Path mRecording;
+    private long mMessageCount;
+    private long mEventCount;
+    private long mElapsedMilliseconds;
+    private String mError;
+
+    /**
+     * Constructs an instance
+     *
+     * @param recording that was decoded
+     * @param messageCount number of decoded messages
+     * @param eventCount number of decode events
+     * @param elapsedMilliseconds processing time
+     * @param error description or null if the recording was successfully decoded
+     */
+    public BatchDecodeResult(Path recording, long messageCount, long eventCount, long elapsedMilliseconds,
+                             String error)
+    {
+        mRecording = recording;
+        mMessageCount = messageCount;
+        mEventCount = eventCount;
+        mElapsedMilliseconds = elapsedMilliseconds;
+        mError = error;
+    }
+
+    /**
+     * Recording that was decoded
+     */
+    public Path getRecording()
+    {
+        return mRecording;
+    }
+
+    /**
+     * Number of messages decoded from the recording
+     */
+    public long getMessageCount()
+    {
+        return mMessageCount;
+    }
+
+    /**
+     * Number of decode events produced from the recording
+     */
+    public long getEventCount()
+    {
+        return mEventCount;
+    }
+
+    /**
+     * Time spent decoding the recording
+     */
+    public long getElapsedMilliseconds()
+    {
+        return mElapsedMilliseconds;
+    }
+
+    /**
+     * Indicates if the recording was decoded without error
+     */
+    public boolean isSuccess()
+    {
+        return mError == null;
+    }
+
+    /**
+     * Error description or null
+     */
+    public String getError()
+    {
+        return mError;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(mRecording.getFileName());
+
+        if(isSuccess())
+        {
+            sb.append(" - messages [").append(mMessageCount).append("]");
+            sb.append(" events [").append(mEventCount).append("]");
+            sb.append(" elapsed [").append(String.format("%.1f", mElapsedMilliseconds / 1000.0)).append(" secs]");
+        }
+        else
+        {
+            sb.append(" - FAILED: ").append(mError);
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,465 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.module.decode.batch;
+
+import io.github.dsheirer.alias.Alias;
+import io.github.dsheirer.alias.AliasModel;
+import io.github.dsheirer.alias.id.record.Record;
+import io.github.dsheirer.alias.id.talkgroup.TalkgroupFormat;
+import io.github.dsheirer.alias.id.talkgroup.TalkgroupRange;
+import io.github.dsheirer.controller.NamingThreadFactory;
+import io.github.dsheirer.controller.channel.Channel;
+import io.github.dsheirer.module.decode.DecoderType;
+import io.github.dsheirer.module.decode.p25.phase2.enumeration.ScrambleParameters;
+import io.github.dsheirer.preference.UserPreferences;
+import io.github.dsheirer.protocol.Protocol;
+import io.github.dsheirer.record.AudioRecordingManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless batch decoder for baseband (.wav) and demodulated bitstream (.bits) recordings.
+ *
+ * Each recording is decoded by an independent processing chain on a dedicated worker thread, so recordings are
+ * decoded in parallel up to the number of worker threads, which defaults to the number of available processors.
+ * Pipelines share no per-sample state, so throughput scales with the number of cores until the disk becomes the
+ * limiting factor.
+ *
+ * Decoded messages and call events are written to per-recording log files in the output directory.  Audio is
+ * optionally recorded for all talkgroups to the recording directory specified in the user preferences.
+ *
+ * Usage: BatchDecoder -d DECODER_TYPE [-o output_directory] [-t threads] [--traffic] [--audio]
+ *        [--scramble WACN,SYSTEM,NAC] recording|directory ...
+ */
+public class BatchDecoder
+{
+    private final static Logger mLog = LoggerFactory.getLogger(BatchDecoder.class);
+
+    public static final String ALIAS_LIST_NAME = "Batch Decode";
+
+    private UserPreferences mUserPreferences;
+    private AliasModel mAliasModel = new AliasModel();
+    private AudioRecordingManager mAudioRecordingManager;
+    private DecoderType mDecoderType;
+    private Path mOutputDirectory;
+    private Channel.ChannelType mChannelType = Channel.ChannelType.STANDARD;
+    private ScrambleParameters mScrambleParameters;
+    private int mThreadCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructs an instance
+     *
+     * @param userPreferences for decoder and audio recording settings
+     * @param decoderType for baseband recordings and for bitstream recordings that don't identify the protocol
+     * @param outputDirectory for message and event log files
+     */
+    public BatchDecoder(UserPreferences userPreferences, DecoderType decoderType, Path outputDirectory)
+    {
+        mUserPreferences = userPreferences;
+        mDecoderType = decoderType;
+        mOutputDirectory = outputDirectory;
+    }
+
+    public UserPreferences getUserPreferences()
+    {
+        return mUserPreferences;
+    }
+
+    public AliasModel getAliasModel()
+    {
+        return mAliasModel;
+    }
+
+    public DecoderType getDecoderType()
+    {
+        return mDecoderType;
+    }
+
+    public Path getOutputDirectory()
+    {
+        return mOutputDirectory;
+    }
+
+    /**
+     * Channel type for the decoders.  Use STANDARD for control channel recordings and TRAFFIC for traffic channel
+     * recordings.
+     */
+    public Channel.ChannelType getChannelType()
+    {
+        return mChannelType;
+    }
+
+    public void setChannelType(Channel.ChannelType channelType)
+    {
+        mChannelType = channelType;
+    }
+
+    /**
+     * Optional P25 Phase 2 scramble parameters or null
+     */
+    public ScrambleParameters getScrambleParameters()
+    {
+        return mScrambleParameters;
+    }
+
+    public void setScrambleParameters(ScrambleParameters scrambleParameters)
+    {
+        mScrambleParameters = scrambleParameters;
+    }
+
+    /**
+     * Number of recordings to decode in parallel
+     */
+    public int getThreadCount()
+    {
+        return mThreadCount;
+    }
+
+    public void setThreadCount(int threadCount)
+    {
+        if(threadCount < 1)
+        {
+            throw new IllegalArgumentException("Thread count must be 1 or more");
+        }
+
+        mThreadCount = threadCount;
+    }
+
+    /**
+     * Shared audio recording manager or null if audio recording is disabled
+     */
+    public AudioRecordingManager getAudioRecordingManager()
+    {
+        return mAudioRecordingManager;
+    }
+
+    /**
+     * Enables audio recording for all talkgroups of the decoder protocol
+     */
+    public void setRecordAudio(boolean recordAudio)
+    {
+        if(recordAudio && mAudioRecordingManager == null)
+        {
+            mAudioRecordingManager = new AudioRecordingManager(mUserPreferences);
+
+            Protocol protocol = mDecoderType.getProtocol();
+
+            //P25 Phase 2 talkgroups use the common APCO25 identifier protocol
+            if(protocol == Protocol.APCO25_PHASE2)
+            {
+                protocol = Protocol.APCO25;
+            }
+
+            Alias alias = new Alias("Record All Talkgroups");
+            alias.setAliasListName(ALIAS_LIST_NAME);
+            alias.addAliasID(new Record());
+
+            if(protocol != Protocol.UNKNOWN)
+            {
+                TalkgroupFormat format = TalkgroupFormat.get(protocol);
+                alias.addAliasID(new TalkgroupRange(protocol, format.getMinimumValidValue(),
+                    format.getMaximumValidValue()));
+            }
+
+            mAliasModel.addAlias(alias);
+        }
+        else if(!recordAudio)
+        {
+            mAudioRecordingManager = null;
+        }
+    }
+
+    /**
+     * Decodes the recordings in parallel and returns the results in the same order as the recordings.
+     *
+     * @param recordings to decode
+     * @return decode results
+     * @throws IOException if the output directory can't be created
+     * @throws InterruptedException if interrupted while waiting for the decode jobs to complete
+     */
+    public List<BatchDecodeResult> decode(List<Path> recordings) throws IOException, InterruptedException
+    {
+        Files.createDirectories(mOutputDirectory);
+
+        int threads = Math.min(mThreadCount, Math.max(recordings.size(), 1));
+        ExecutorService executorService = Executors.newFixedThreadPool(threads,
+            new NamingThreadFactory("sdrtrunk batch decoder"));
+
+        if(mAudioRecordingManager != null)
+        {
+            mAudioRecordingManager.start();
+        }
+
+        mLog.info("Batch decoding [" + recordings.size() + "] recordings using [" + threads + "] threads");
+
+        long start = System.currentTimeMillis();
+        List<Future<BatchDecodeResult>> futures = new ArrayList<>();
+        List<BatchDecodeResult> results = new ArrayList<>();
+
+        try
+        {
+            for(Path recording : recordings)
+            {
+                futures.add(executorService.submit(new BatchDecodeJob(this, recording)));
+            }
+
+            for(int x = 0; x < futures.size(); x++)
+            {
+                try
+                {
+                    BatchDecodeResult result = futures.get(x).get();
+                    mLog.info("Decoded " + result);
+                    results.add(result);
+                }
+                catch(ExecutionException ee)
+                {
+                    mLog.error("Error decoding recording [" + recordings.get(x) + "]", ee.getCause());
+                    results.add(new BatchDecodeResult(recordings.get(x), 0, 0, 0,
+                        String.valueOf(ee.getCause())));
+                }
+            }
+        }
+        finally
+        {
+            executorService.shutdownNow();
+
+            if(mAudioRecordingManager != null)
+            {
+                mAudioRecordingManager.stop();
+            }
+        }
+
+        int failed = 0;
+
+        for(BatchDecodeResult result : results)
+        {
+            if(!result.isSuccess())
+            {
+                failed++;
+            }
+        }
+
+        mLog.info("Batch decode complete - [" + (results.size() - failed) + "] succeeded [" + failed +
+            "] failed in [" + String.format("%.1f", (System.currentTimeMillis() - start) / 1000.0) + "] seconds");
+
+        return results;
+    }
+
+    /**
+     * Indicates if the path is a demodulated bitstream recording
+     */
+    public static boolean isBitstreamRecording(Path path)
+    {
+        return path.getFileName().toString().toLowerCase().endsWith(".bits");
+    }
+
+    /**
+     * Indicates if the path is a supported recording (.wav or .bits)
+     */
+    public static boolean isRecording(Path path)
+    {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".wav") || name.endsWith(".bits");
+    }
+
+    /**
+     * Expands the list of files and directories into a sorted list of supported recordings.  Directories are not
+     * searched recursively.
+     */
+    public static List<Path> getRecordings(List<Path> paths) throws IOException
+    {
+        List<Path> recordings = new ArrayList<>();
+
+        for(Path path : paths)
+        {
+            if(Files.isDirectory(path))
+            {
+                try(DirectoryStream<Path> stream = Files.newDirectoryStream(path))
+                {
+                    for(Path child : stream)
+                    {
+                        if(Files.isRegularFile(child) && isRecording(child))
+                        {
+                            recordings.add(child);
+                        }
+                    }
+                }
+            }
+            else if(Files.isRegularFile(path) && isRecording(path))
+            {
+                recordings.add(path);
+            }
+            else
+            {
+                mLog.warn("Ignoring unsupported or missing recording [" + path + "]");
+            }
+        }
+
+        Collections.sort(recordings);
+
+        return recordings;
+    }
+
+    /**
+     * Parses the P25 Phase 2 scramble parameters from a WACN,SYSTEM,NAC argument
+     */
+    private static ScrambleParameters parseScrambleParameters(String value)
+    {
+        String[] parts = value.split(",");
+
+        if(parts.length != 3)
+        {
+            throw new IllegalArgumentException("Scramble parameters must be formatted as WACN,SYSTEM,NAC");
+        }
+
+        return new ScrambleParameters(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+            Integer.parseInt(parts[2].trim()));
+    }
+
+    private static void usage()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Usage: BatchDecoder -d DECODER_TYPE [options] recording|directory ...\n");
+        sb.append("  -d, --decoder TYPE       decoder type for baseband recordings (");
+
+        for(DecoderType decoderType : DecoderType.PRIMARY_DECODERS)
+        {
+            sb.append(" ").append(decoderType.name());
+        }
+
+        sb.append(" )\n");
+        sb.append("  -o, --output DIRECTORY   output directory for message and event logs (default: event log directory)\n");
+        sb.append("  -t, --threads COUNT      number of recordings to decode in parallel (default: processor count)\n");
+        sb.append("  --traffic                recordings are traffic channels\n");
+        sb.append("  --audio                  record audio for all talkgroups to the recording directory\n");
+        sb.append("  --scramble WACN,SYS,NAC  P25 Phase 2 scramble parameters\n");
+        System.out.println(sb.toString());
+    }
+
+    public static void main(String[] args)
+    {
+        DecoderType decoderType = null;
+        Path outputDirectory = null;
+        Integer threads = null;
+        boolean traffic = false;
+        boolean audio = false;
+        ScrambleParameters scrambleParameters = null;
+        List<Path> paths = new ArrayList<>();
+
+        try
+        {
+            for(int x = 0; x < args.length; x++)
+            {
+                switch(args[x])
+                {
+                    case "-d":
+                    case "--decoder":
+                        decoderType = DecoderType.valueOf(args[++x].toUpperCase());
+                        break;
+                    case "-o":
+                    case "--output":
+                        outputDirectory = Paths.get(args[++x]);
+                        break;
+                    case "-t":
+                    case "--threads":
+                        threads = Integer.parseInt(args[++x]);
+                        break;
+                    case "--traffic":
+                        traffic = true;
+                        break;
+                    case "--audio":
+                        audio = true;
+                        break;
+                    case "--scramble":
+                        scrambleParameters = parseScrambleParameters(args[++x]);
+                        break;
+                    case "-h":
+                    case "--help":
+                        usage();
+                        return;
+                    default:
+                        paths.add(Paths.get(args[x]));
+                        break;
+                }
+            }
+        }
+        catch(ArrayIndexOutOfBoundsException | IllegalArgumentException e)
+        {
+            System.out.println("Invalid argument: " + e.getMessage());
+            usage();
+            System.exit(1);
+        }
+
+        if(decoderType == null || paths.isEmpty())
+        {
+            usage();
+            System.exit(1);
+        }
+
+        UserPreferences userPreferences = new UserPreferences();
+
+        if(outputDirectory == null)
+        {
+            outputDirectory = userPreferences.getDirectoryPreference().getDirectoryEventLog();
+        }
+
+        BatchDecoder batchDecoder = new BatchDecoder(userPreferences, decoderType, outputDirectory);
+        batchDecoder.setChannelType(traffic ? Channel.ChannelType.TRAFFIC : Channel.ChannelType.STANDARD);
+        batchDecoder.setScrambleParameters(scrambleParameters);
+        batchDecoder.setRecordAudio(audio);
+
+        if(threads != null)
+        {
+            batchDecoder.setThreadCount(threads);
+        }
+
+        try
+        {
+            List<BatchDecodeResult> results = batchDecoder.decode(getRecordings(paths));
+
+            for(BatchDecodeResult result : results)
+            {
+                if(!result.isSuccess())
+                {
+                    System.exit(2);
+                }
+            }
+
+            System.exit(0);
+        }
+        catch(Exception e)
+        {
+            mLog.error("Batch decode failed", e);
+            System.exit(1);
+        }
+    }
+}
@@ -31,10 +31,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.table.AbstractTableModel;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Decode event table model.  Events are retained newest-first in a fixed-capacity ring history so that adding an
+ * event and evicting the oldest event are O(1) and so that updated events are located without scanning the rows.
+ * Evicted events are optionally written to the event history spill file.
+ */
 public class DecodeEventModel extends AbstractTableModel implements Listener<IDecodeEvent>
 {
     private static final long serialVersionUID = 1L;
@@ -53,7 +56,8 @@ public class DecodeEventModel extends AbstractTableModel implements Listener<IDe
 
     protected int mMaxMessages = 500;
 
-    protected List<IDecodeEvent> mEvents = new ArrayList<>();
+    protected RingHistory<IDecodeEvent> mEvents = new RingHistory<>(mMaxMessages);
+    private String mChannelName;
 
     protected String[] mHeaders = new String[]{"Time", "Duration", "Event", "From", "Alias", "To", "Alias", "Channel", "Frequency", "Details"};
 
@@ -87,14 +91,21 @@ public class DecodeEventModel extends AbstractTableModel implements Listener<IDe
     }
 
 
+    /**
+     * Sets the channel name that is recorded with events spilled to the event history spill file
+     */
+    public void setChannelName(String channelName)
+    {
+        mChannelName = channelName;
+    }
+
     public void dispose()
     {
         MyEventBus.getEventBus().unregister(this);
-        Iterator<IDecodeEvent> it = mEvents.iterator();
 
-        while(it.hasNext())
+        synchronized(mEvents)
         {
-            it.remove();
+            spill(mEvents.clear());
         }
     }
 
@@ -112,6 +123,21 @@ public class DecodeEventModel extends AbstractTableModel implements Listener<IDe
     public void setMaxMessageCount(int count)
     {
         mMaxMessages = count;
+
+        List<IDecodeEvent> evicted;
+        int rowCount;
+
+        synchronized(mEvents)
+        {
+            rowCount = mEvents.size();
+            evicted = mEvents.setCapacity(count);
+        }
+
+        if(!evicted.isEmpty())
+        {
+            spill(evicted);
+            fireTableRowsDeleted(rowCount - evicted.size(), rowCount - 1);
+        }
     }
 
     /**
@@ -122,26 +148,65 @@ public class DecodeEventModel extends AbstractTableModel implements Listener<IDe
      */
     public void receive(final IDecodeEvent event)
     {
-        if(!mEvents.contains(event))
+        int row;
+        IDecodeEvent evicted = null;
+
+        synchronized(mEvents)
+        {
+            row = mEvents.indexOf(event);
+
+            if(row < 0)
+            {
+                evicted = mEvents.add(event);
+            }
+        }
+
+        if(row < 0)
         {
-            mEvents.add(0, event);
+            if(evicted != null)
+            {
+                //The evicted event occupied the last row before the new event was inserted
+                int index = mEvents.size() - 1;
+                fireTableRowsDeleted(index, index);
+                spill(evicted);
+            }
+
             fireTableRowsInserted(0, 0);
-            prune();
         }
         else
         {
-            int row = mEvents.indexOf(event);
             fireTableRowsUpdated(row, row);
         }
     }
 
-    private void prune()
+    /**
+     * Writes evicted events to the event history spill file, when enabled
+     */
+    private void spill(List<IDecodeEvent> events)
     {
-        while(mEvents.size() > mMaxMessages)
+        if(EventHistorySpill.isEnabled())
         {
-            int index = mEvents.size() - 1;
-            mEvents.remove(index);
-            fireTableRowsDeleted(index, index);
+            for(IDecodeEvent event : events)
+            {
+                spill(event);
+            }
+        }
+    }
+
+    /**
+     * Writes an evicted event to the event history spill file, when enabled
+     */
+    private void spill(IDecodeEvent event)
+    {
+        if(EventHistorySpill.isEnabled())
+        {
+            IdentifierCollection identifiers = event.getIdentifierCollection();
+
+            EventHistorySpill.getInstance().spill(event.getTimeStart(), EventHistorySpill.TYPE_EVENT, mChannelName,
+                String.valueOf(event.getDuration()), event.getEventDescription(),
+                identifiers != null ? String.valueOf(identifiers.getFromIdentifier()) : null,
+                identifiers != null ? String.valueOf(identifiers.getToIdentifier()) : null,
+                String.valueOf(getValueAt(event, COLUMN_CHANNEL)), event.getDetails());
         }
     }
 
@@ -165,58 +230,73 @@ public class DecodeEventModel extends AbstractTableModel implements Listener<IDe
     @Override
     public Object getValueAt(int rowIndex, int columnIndex)
     {
+        IDecodeEvent event;
+
         synchronized(mEvents)
         {
-            IDecodeEvent event = mEvents.get(rowIndex);
+            if(rowIndex < 0 || rowIndex >= mEvents.size())
+            {
+                return null;
+            }
 
-            if(event != null)
+            event = mEvents.get(rowIndex);
+        }
+
+        return getValueAt(event, columnIndex);
+    }
+
+    /**
+     * Column value for the event
+     */
+    private Object getValueAt(IDecodeEvent event, int columnIndex)
+    {
+        if(event != null)
+        {
+            switch(columnIndex)
             {
-                switch(columnIndex)
-                {
-                    case COLUMN_TIME:
-                        return event.getTimeStart();
-                    case COLUMN_DURATION:
-                        return event.getDuration();
-                    case COLUMN_EVENT:
-                        return event.getEventDescription();
-                    case COLUMN_FROM_ID:
-                        return event.getIdentifierCollection();
-                    case COLUMN_FROM_ALIAS:
-                        return event.getIdentifierCollection();
-                    case COLUMN_TO_ID:
-                        return event.getIdentifierCollection();
-                    case COLUMN_TO_ALIAS:
-                        return event.getIdentifierCollection();
-                    case COLUMN_CHANNEL:
-                        IChannelDescriptor channelDescriptor = event.getChannelDescriptor();
-
-                        if(channelDescriptor != null)
+                case COLUMN_TIME:
+                    return event.getTimeStart();
+                case COLUMN_DURATION:
+                    return event.getDuration();
+                case COLUMN_EVENT:
+                    return event.getEventDescription();
+                case COLUMN_FROM_ID:
+                    return event.getIdentifierCollection();
+                case COLUMN_FROM_ALIAS:
+                    return event.getIdentifierCollection();
+                case COLUMN_TO_ID:
+                    return event.getIdentifierCollection();
+                case COLUMN_TO_ALIAS:
+                    return event.getIdentifierCollection();
+                case COLUMN_CHANNEL:
+                    IChannelDescriptor channelDescriptor = event.getChannelDescriptor();
+
+                    if(channelDescriptor != null)
+                    {
+                        if(event.hasTimeslot())
+                        {
+                            return channelDescriptor.toString() + " TS:" + event.getTimeslot();
+                        }
+                        else
+                        {
+                            return channelDescriptor.toString();
+                        }
+                    }
+                    else
+                    {
+                        if(event.hasTimeslot())
                         {
-                            if(event.hasTimeslot())
-                            {
-                                return channelDescriptor.toString() + " TS:" + event.getTimeslot();
-                            }
-                            else
-                            {
-                                return channelDescriptor.toString();
-                            }
+                            return "TS:" + event.getTimeslot();
                         }
                         else
                         {
-                            if(event.hasTimeslot())
-                            {
-                                return "TS:" + event.getTimeslot();
-                            }
-                            else
-                            {
-                                return null;
-                            }
+                            return null;
                         }
-                    case COLUMN_FREQUENCY:
-                        return event.getChannelDescriptor();
-                    case COLUMN_DETAILS:
-                        return event.getDetails();
-                }
+                    }
+                case COLUMN_FREQUENCY:
+                    return event.getChannelDescriptor();
+                case COLUMN_DETAILS:
+                    return event.getDetails();
             }
         }
 
@@ -0,0 +1,337 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.module.decode.event;
+
+import io.github.dsheirer.properties.SystemProperties;
+import io.github.dsheirer.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Spill file for decode event and message history rows that are evicted from the bounded history table models.
+ *
+ * Evicted rows are queued and appended by a scheduled task, so that table models never write to disk on the Swing
+ * event thread.  Rows are written to one file per day, according to the row timestamp, in the event_history
+ * application folder, as one line per row with tab-separated fields:
+ *
+ * timestamp (milliseconds) | type (EVENT or MESSAGE) | channel | row fields ...
+ *
+ * The line-oriented format is compact and can be searched with the search() method, from the command line via the
+ * main() method, or with standard text tools.  Spilling is disabled by default and is enabled via the
+ * event.history.spill.enabled system property.
+ */
+public class EventHistorySpill
+{
+    private final static Logger mLog = LoggerFactory.getLogger(EventHistorySpill.class);
+    public static final String PROPERTY_SPILL_ENABLED = "event.history.spill.enabled";
+    public static final String SPILL_DIRECTORY = "event_history";
+    public static final String TYPE_EVENT = "EVENT";
+    public static final String TYPE_MESSAGE = "MESSAGE";
+    private static final String FILE_PREFIX = "history_";
+    private static final String FILE_SUFFIX = ".log";
+    private static final long FLUSH_INTERVAL_SECONDS = 1;
+
+    private static EventHistorySpill sInstance;
+    private static Boolean sEnabled;
+
+    private Queue<String[]> mPendingRows = new ConcurrentLinkedQueue<>();
+    private SimpleDateFormat mFileDateFormat = new SimpleDateFormat("yyyyMMdd");
+    private Path mDirectory;
+    private Path mCurrentFile;
+    private BufferedWriter mWriter;
+
+    /**
+     * Use getInstance() to access the singleton instance
+     */
+    private EventHistorySpill()
+    {
+        this(SystemProperties.getInstance().getApplicationFolder(SPILL_DIRECTORY));
+        ThreadPool.SCHEDULED.scheduleAtFixedRate(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS,
+            TimeUnit.SECONDS);
+    }
+
+    /**
+     * Constructs a read-only instance for searching the spill files in the directory
+     *
+     * @param directory containing spill files
+     */
+    private EventHistorySpill(Path directory)
+    {
+        mDirectory = directory;
+    }
+
+    /**
+     * Indicates if spilling evicted history rows to disk is enabled
+     */
+    public static synchronized boolean isEnabled()
+    {
+        if(sEnabled == null)
+        {
+            sEnabled = SystemProperties.getInstance().get(PROPERTY_SPILL_ENABLED, false);
+        }
+
+        return sEnabled;
+    }
+
+    /**
+     * Singleton instance of the spill file
+     */
+    public static synchronized EventHistorySpill getInstance()
+    {
+        if(sInstance == null)
+        {
+            sInstance = new EventHistorySpill();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Queues an evicted row to be written to the spill file
+     *
+     * @param timestamp of the row
+     * @param type of row
+     * @param channel name or null
+     * @param fields of the row
+     */
+    public void spill(long timestamp, String type, String channel, String... fields)
+    {
+        String[] row = new String[fields.length + 3];
+        row[0] = String.valueOf(timestamp);
+        row[1] = type;
+        row[2] = channel;
+        System.arraycopy(fields, 0, row, 3, fields.length);
+        mPendingRows.add(row);
+    }
+
+    /**
+     * Writes each of the queued rows to the spill file for the day of the row timestamp, so that search() finds the
+     * row in the file for its own day.
+     */
+    private synchronized void flush()
+    {
+        if(mPendingRows.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            String[] row;
+
+            while((row = mPendingRows.poll()) != null)
+            {
+                Path file = getFile(Long.parseLong(row[0]));
+
+                if(!file.equals(mCurrentFile))
+                {
+                    closeWriter();
+                    mWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+                    mCurrentFile = file;
+                }
+
+                for(int x = 0; x < row.length; x++)
+                {
+                    if(x > 0)
+                    {
+                        mWriter.write('\t');
+                    }
+
+                    mWriter.write(clean(row[x]));
+                }
+
+                mWriter.newLine();
+            }
+
+            if(mWriter != null)
+            {
+                mWriter.flush();
+            }
+        }
+        catch(IOException ioe)
+        {
+            mLog.error("Error writing event history spill file - discarding pending rows", ioe);
+            mPendingRows.clear();
+            closeWriter();
+        }
+    }
+
+    /**
+     * Spill file for the day of the timestamp
+     */
+    private Path getFile(long timestamp)
+    {
+        return mDirectory.resolve(FILE_PREFIX + mFileDateFormat.format(new Date(timestamp)) + FILE_SUFFIX);
+    }
+
+    /**
+     * Closes the current spill file writer
+     */
+    private void closeWriter()
+    {
+        if(mWriter != null)
+        {
+            try
+            {
+                mWriter.close();
+            }
+            catch(IOException ioe)
+            {
+                mLog.error("Error closing event history spill file", ioe);
+            }
+
+            mWriter = null;
+            mCurrentFile = null;
+        }
+    }
+
+    /**
+     * Replaces field separators and line breaks within a field value
+     */
+    private static String clean(String value)
+    {
+        if(value == null)
+        {
+            return "";
+        }
+
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Searches the spill files for rows that contain the text (case-insensitive) within the time range.  Only the
+     * spill files for the days within the time range are read.
+     *
+     * @param text to find
+     * @param start timestamp (inclusive)
+     * @param end timestamp (inclusive)
+     * @param maxResults maximum number of rows to return
+     * @return matching rows as split fields, ordered by spill file and then by row
+     * @throws IOException if there is an error reading a spill file
+     */
+    public synchronized List<String[]> search(String text, long start, long end, int maxResults) throws IOException
+    {
+        flush();
+
+        String query = text != null ? text.toLowerCase() : "";
+        List<String[]> results = new ArrayList<>();
+        String firstFile = getFile(start).getFileName().toString();
+        String lastFile = getFile(end).getFileName().toString();
+        List<Path> files = new ArrayList<>();
+
+        try(Stream<Path> stream = Files.list(mDirectory))
+        {
+            stream.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX) && name.compareTo(firstFile) >= 0 &&
+                    name.compareTo(lastFile) <= 0;
+            }).sorted().forEach(files::add);
+        }
+
+        for(Path file : files)
+        {
+            try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+            {
+                String line;
+
+                while((line = reader.readLine()) != null)
+                {
+                    if(!query.isEmpty() && !line.toLowerCase().contains(query))
+                    {
+                        continue;
+                    }
+
+                    String[] fields = line.split("\t", -1);
+
+                    try
+                    {
+                        long timestamp = Long.parseLong(fields[0]);
+
+                        if(timestamp < start || timestamp > end)
+                        {
+                            continue;
+                        }
+                    }
+                    catch(NumberFormatException nfe)
+                    {
+                        continue;
+                    }
+
+                    results.add(fields);
+
+                    if(results.size() >= maxResults)
+                    {
+                        return results;
+                    }
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Command line search of the spill files.
+     *
+     * Arguments: spill_directory text|* start(yyyyMMddHHmm) end(yyyyMMddHHmm)
+     */
+    public static void main(String[] args) throws IOException, ParseException
+    {
+        if(args.length != 4)
+        {
+            System.out.println("Usage: EventHistorySpill spill_directory text|* start(yyyyMMddHHmm) " +
+                "end(yyyyMMddHHmm)");
+            return;
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmm");
+        long start = format.parse(args[2]).getTime();
+        long end = format.parse(args[3]).getTime();
+        String text = args[1].equals("*") ? null : args[1];
+
+        EventHistorySpill spill = new EventHistorySpill(Paths.get(args[0]));
+        List<String[]> rows = spill.search(text, start, end, Integer.MAX_VALUE);
+
+        for(String[] row : rows)
+        {
+            System.out.println(String.join("\t", row));
+        }
+
+        System.out.println("Found [" + rows.size() + "] rows");
+    }
+}
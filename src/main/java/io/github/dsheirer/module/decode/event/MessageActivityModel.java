@@ -29,8 +29,23 @@ import io.github.dsheirer.sample.Listener;
 import javax.swing.table.AbstractTableModel;
 import java.awt.EventQueue;
 import java.text.SimpleDateFormat;
-import java.util.LinkedList;
+import java.util.List;
 
+/**
+ * Message activity table model.
+ *
+ * All messages are retained in a fixed-capacity ring history, whether or not they pass the message filter, so that
+ * adding a message and evicting the oldest message are O(1) and the memory used is bounded by the maximum message
+ * count.  Since filtered-out messages also occupy the history, a restrictive filter shows fewer rows than the maximum
+ * message count.
+ *
+ * The table rows are provided by a filtered index of the sequence numbers of the retained messages that pass the
+ * filter.  When the filter is changed, all of the retained messages are tested against the new filter and the index
+ * is rebuilt, so a filter change can both hide and reveal retained messages.  Evicted messages are optionally written
+ * to the event history spill file.
+ *
+ * All access to the history and the index occurs on the Swing event thread.
+ */
 public class MessageActivityModel extends AbstractTableModel implements Listener<IMessage>
 {
     private static final long serialVersionUID = 1L;
@@ -40,13 +55,15 @@ public class MessageActivityModel extends AbstractTableModel implements Listener
     private static final int MESSAGE = 3;
 
     protected int mMaxMessages = 500;
-    protected LinkedList<MessageItem> mMessageItems = new LinkedList<>();
+    protected RingHistory<MessageItem> mMessageItems = new RingHistory<>(mMaxMessages);
+    protected FilteredIndex mFilteredIndex = new FilteredIndex(mMaxMessages);
     protected int[] mColumnWidths = {20, 20, 500};
     protected String[] mHeaders = new String[]{"Time", "Protocol", "Timeslot", "Message"};
 
     private SimpleDateFormat mSDFTime = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss");
 
     private FilterSet<IMessage> mMessageFilter;
+    private String mChannelName;
 
     public MessageActivityModel(FilterSet<IMessage> messageFilter)
     {
@@ -57,6 +74,14 @@ public class MessageActivityModel extends AbstractTableModel implements Listener
     {
     }
 
+    /**
+     * Sets the channel name that is recorded with messages spilled to the event history spill file
+     */
+    public void setChannelName(String channelName)
+    {
+        mChannelName = channelName;
+    }
+
     /**
      * Clears all messages from history
      */
@@ -67,11 +92,15 @@ public class MessageActivityModel extends AbstractTableModel implements Listener
             @Override
             public void run()
             {
-                int messageCount = mMessageItems.size();
+                int messageCount = mFilteredIndex.size();
 
-                mMessageItems.clear();
+                spill(mMessageItems.clear());
+                mFilteredIndex.clear();
 
-                fireTableRowsDeleted(0, messageCount - 1);
+                if(messageCount > 0)
+                {
+                    fireTableRowsDeleted(0, messageCount - 1);
+                }
             }
         });
     }
@@ -81,9 +110,40 @@ public class MessageActivityModel extends AbstractTableModel implements Listener
         return mMessageFilter;
     }
 
+    /**
+     * Rebuilds the filtered index from the retained messages after the message filter is changed
+     */
+    public void refilter()
+    {
+        EventQueue.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                mFilteredIndex.clear();
+
+                for(long sequence = mMessageItems.getOldestSequence(); sequence < mMessageItems.getNextSequence();
+                    sequence++)
+                {
+                    MessageItem messageItem = mMessageItems.getBySequence(sequence);
+
+                    if(passes(messageItem.getMessage()))
+                    {
+                        mFilteredIndex.add(sequence);
+                    }
+                }
+
+                fireTableDataChanged();
+            }
+        });
+    }
+
+    /**
+     * Clears all messages from history on the Swing event thread
+     */
     public void dispose()
     {
-        mMessageItems.clear();
+        clear();
     }
 
     public int[] getColumnWidths()
@@ -111,6 +171,33 @@ public class MessageActivityModel extends AbstractTableModel implements Listener
     public void setMaxMessageCount(int count)
     {
         mMaxMessages = count;
+
+        EventQueue.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                List<MessageItem> evicted = mMessageItems.setCapacity(count);
+                int rowCount = mFilteredIndex.size();
+                int removed = mFilteredIndex.evictBefore(mMessageItems.getOldestSequence());
+                mFilteredIndex.setCapacity(count);
+
+                if(removed > 0)
+                {
+                    fireTableRowsDeleted(rowCount - removed, rowCount - 1);
+                }
+
+                spill(evicted);
+            }
+        });
+    }
+
+    /**
+     * Indicates if the message passes the message filter
+     */
+    private boolean passes(IMessage message)
+    {
+        return mMessageFilter == null || mMessageFilter.passes(message);
     }
 
     public void receive(final IMessage message)
@@ -121,39 +208,67 @@ public class MessageActivityModel extends AbstractTableModel implements Listener
             return;
         }
 
-        if(mMessageFilter.passes(message))
-        {
-            final MessageItem messageItem = new MessageItem(message);
+        final MessageItem messageItem = new MessageItem(message);
 
-            EventQueue.invokeLater(new Runnable()
+        EventQueue.invokeLater(new Runnable()
+        {
+            @Override
+            public void run()
             {
-                @Override
-                public void run()
+                MessageItem evicted = mMessageItems.add(messageItem);
+
+                if(evicted != null)
                 {
-                    mMessageItems.addFirst(messageItem);
+                    int rowCount = mFilteredIndex.size();
 
-                    MessageActivityModel.this.fireTableRowsInserted(0, 0);
+                    if(mFilteredIndex.evictBefore(mMessageItems.getOldestSequence()) > 0)
+                    {
+                        fireTableRowsDeleted(rowCount - 1, rowCount - 1);
+                    }
 
-                    prune();
+                    spill(evicted);
                 }
-            });
+
+                //Retain all messages, but only show the messages that pass the current filter
+                if(passes(message))
+                {
+                    mFilteredIndex.add(mMessageItems.getNextSequence() - 1);
+                    fireTableRowsInserted(0, 0);
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes evicted messages to the event history spill file, when enabled, and disposes of the messages
+     */
+    private void spill(List<MessageItem> messageItems)
+    {
+        for(MessageItem messageItem : messageItems)
+        {
+            spill(messageItem);
         }
     }
 
-    private void prune()
+    /**
+     * Writes an evicted message to the event history spill file, when enabled, and disposes of the message
+     */
+    private void spill(MessageItem messageItem)
     {
-        while(mMessageItems.size() > mMaxMessages)
+        if(EventHistorySpill.isEnabled())
         {
-            MessageItem removed = mMessageItems.removeLast();
-            removed.dispose();
-            super.fireTableRowsDeleted(mMessageItems.size() - 1, mMessageItems.size() - 1);
+            EventHistorySpill.getInstance().spill(messageItem.getMessage().getTimestamp(),
+                EventHistorySpill.TYPE_MESSAGE, mChannelName, messageItem.getProtocol(),
+                String.valueOf(messageItem.getTimeslot()), messageItem.getText());
         }
+
+        messageItem.dispose();
     }
 
     @Override
     public int getRowCount()
     {
-        return mMessageItems.size();
+        return mFilteredIndex.size();
     }
 
     @Override
@@ -170,25 +285,117 @@ public class MessageActivityModel extends AbstractTableModel implements Listener
     @Override
     public Object getValueAt(int rowIndex, int columnIndex)
     {
-        if(0 <= rowIndex && rowIndex < mMessageItems.size())
+        if(0 <= rowIndex && rowIndex < mFilteredIndex.size())
         {
-            MessageItem messageItem = mMessageItems.get(rowIndex);
+            MessageItem messageItem = mMessageItems.getBySequence(mFilteredIndex.get(rowIndex));
 
-            switch(columnIndex)
+            if(messageItem != null)
             {
-                case TIME:
-                    return messageItem.getTimestamp(mSDFTime);
-                case PROTOCOL:
-                    return messageItem.getProtocol();
-                case TIMESLOT:
-                    return messageItem.getTimeslot();
-                case MESSAGE:
-                    return messageItem.getText();
-                default:
-                    break;
+                switch(columnIndex)
+                {
+                    case TIME:
+                        return messageItem.getTimestamp(mSDFTime);
+                    case PROTOCOL:
+                        return messageItem.getProtocol();
+                    case TIMESLOT:
+                        return messageItem.getTimeslot();
+                    case MESSAGE:
+                        return messageItem.getText();
+                    default:
+                        break;
+                }
             }
         }
 
         return null;
     }
-}
\ No newline at end of file
+
+    /**
+     * Ring buffer of the sequence numbers of the retained messages that pass the message filter, ordered by sequence
+     * number and indexed newest-first.  Since messages are evicted in sequence order, evicted messages are always
+     * removed from the oldest end of the index.
+     */
+    public static class FilteredIndex
+    {
+        private long[] mSequences;
+        private int mOldest;
+        private int mSize;
+
+        public FilteredIndex(int capacity)
+        {
+            mSequences = new long[Math.max(1, capacity)];
+        }
+
+        public int size()
+        {
+            return mSize;
+        }
+
+        /**
+         * Adds the sequence number as the newest entry.  Sequence numbers must be added in increasing order.
+         */
+        public void add(long sequence)
+        {
+            if(mSize == mSequences.length)
+            {
+                mOldest = (mOldest + 1) % mSequences.length;
+                mSize--;
+            }
+
+            mSequences[(mOldest + mSize) % mSequences.length] = sequence;
+            mSize++;
+        }
+
+        /**
+         * Sequence number at the index, where index 0 is the newest entry
+         */
+        public long get(int index)
+        {
+            return mSequences[(mOldest + mSize - 1 - index) % mSequences.length];
+        }
+
+        /**
+         * Removes entries with a sequence number lower than the specified oldest sequence number
+         *
+         * @return number of entries removed
+         */
+        public int evictBefore(long oldestSequence)
+        {
+            int removed = 0;
+
+            while(mSize > 0 && mSequences[mOldest] < oldestSequence)
+            {
+                mOldest = (mOldest + 1) % mSequences.length;
+                mSize--;
+                removed++;
+            }
+
+            return removed;
+        }
+
+        /**
+         * Changes the capacity, retaining the newest entries
+         */
+        public void setCapacity(int capacity)
+        {
+            capacity = Math.max(1, capacity);
+            long[] sequences = new long[capacity];
+            int size = Math.min(mSize, capacity);
+
+            for(int x = 0; x < size; x++)
+            {
+                sequences[x] = mSequences[(mOldest + mSize - size + x) % mSequences.length];
+            }
+
+            mSequences = sequences;
+            mOldest = 0;
+            mSize = size;
+        }
+
+        public void clear()
+        {
+            mOldest = 0;
+            mSize = 0;
+        }
+    }
+}
@@ -47,6 +47,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class MessageActivityPanel extends JPanel implements Listener<ProcessingChain>
 {
@@ -225,9 +227,20 @@ public class MessageActivityPanel extends JPanel implements Listener<ProcessingC
                     editor.setLayout(new MigLayout("", "[grow,fill]",
                             "[grow,fill][][]"));
 
+                    final MessageActivityModel model = (MessageActivityModel) mTable.getModel();
+
                     @SuppressWarnings("unchecked")
-                    FilterSet<IMessage> filter = (FilterSet<IMessage>) ((MessageActivityModel) mTable.getModel())
-                            .getMessageFilter();
+                    FilterSet<IMessage> filter = (FilterSet<IMessage>) model.getMessageFilter();
+
+                    //Apply the edited filter to the retained messages when the editor is closed
+                    editor.addWindowListener(new WindowAdapter()
+                    {
+                        @Override
+                        public void windowClosed(WindowEvent e)
+                        {
+                            model.refilter();
+                        }
+                    });
 
                     FilterEditorPanel<IMessage> panel = new FilterEditorPanel<>(filter);
 
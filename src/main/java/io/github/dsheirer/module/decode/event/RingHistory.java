@@ -0,0 +1,217 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.module.decode.event;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed-capacity history of items backed by a ring buffer, indexed newest-first for table models.
+ *
+ * Appending an item is O(1) and evicts the oldest item once the history is at capacity, without shifting the
+ * remaining items.  Each item is assigned an increasing sequence number when added, which gives each item a stable
+ * identity that secondary indexes (e.g. filtered views) can refer to across appends and evictions.  Items are also
+ * indexed by identity so that locating an item's row is O(1).
+ *
+ * This class is not thread safe.
+ */
+public class RingHistory<T>
+{
+    private Object[] mItems;
+    private Map<T,Long> mSequences = new IdentityHashMap<>();
+    private long mNextSequence;
+    private int mSize;
+
+    /**
+     * Constructs an instance
+     *
+     * @param capacity maximum number of items to retain
+     */
+    public RingHistory(int capacity)
+    {
+        mItems = new Object[Math.max(1, capacity)];
+    }
+
+    /**
+     * Maximum number of items retained
+     */
+    public int getCapacity()
+    {
+        return mItems.length;
+    }
+
+    /**
+     * Number of items in the history
+     */
+    public int size()
+    {
+        return mSize;
+    }
+
+    /**
+     * Sequence number of the oldest item in the history
+     */
+    public long getOldestSequence()
+    {
+        return mNextSequence - mSize;
+    }
+
+    /**
+     * Sequence number that will be assigned to the next item added to the history
+     */
+    public long getNextSequence()
+    {
+        return mNextSequence;
+    }
+
+    /**
+     * Adds the item as the newest item in the history
+     *
+     * @param item to add
+     * @return the oldest item that was evicted to make room for the item, or null
+     */
+    public T add(T item)
+    {
+        T evicted = null;
+
+        if(mSize == mItems.length)
+        {
+            evicted = getBySequence(getOldestSequence());
+            mSequences.remove(evicted);
+            mSize--;
+        }
+
+        mItems[(int)(mNextSequence % mItems.length)] = item;
+        mSequences.put(item, mNextSequence);
+        mNextSequence++;
+        mSize++;
+
+        return evicted;
+    }
+
+    /**
+     * Item at the index, where index 0 is the newest item
+     */
+    public T get(int index)
+    {
+        if(index < 0 || index >= mSize)
+        {
+            throw new IndexOutOfBoundsException("Index [" + index + "] size [" + mSize + "]");
+        }
+
+        return getBySequence(mNextSequence - 1 - index);
+    }
+
+    /**
+     * Item with the sequence number
+     *
+     * @param sequence number assigned when the item was added
+     * @return item or null if the item has been evicted
+     */
+    @SuppressWarnings("unchecked")
+    public T getBySequence(long sequence)
+    {
+        if(sequence < getOldestSequence() || sequence >= mNextSequence)
+        {
+            return null;
+        }
+
+        return (T)mItems[(int)(sequence % mItems.length)];
+    }
+
+    /**
+     * Sequence number of the item or -1 if the item is not in the history
+     */
+    public long getSequence(T item)
+    {
+        Long sequence = mSequences.get(item);
+        return sequence != null ? sequence : -1;
+    }
+
+    /**
+     * Index of the item, where index 0 is the newest item, or -1 if the item is not in the history
+     */
+    public int indexOf(T item)
+    {
+        long sequence = getSequence(item);
+        return sequence >= 0 ? (int)(mNextSequence - 1 - sequence) : -1;
+    }
+
+    /**
+     * Indicates if the item is in the history
+     */
+    public boolean contains(T item)
+    {
+        return mSequences.containsKey(item);
+    }
+
+    /**
+     * Changes the capacity of the history, retaining the newest items.
+     *
+     * @param capacity maximum number of items to retain
+     * @return items that were evicted, ordered oldest first
+     */
+    public List<T> setCapacity(int capacity)
+    {
+        capacity = Math.max(1, capacity);
+        List<T> evicted = new ArrayList<>();
+
+        while(mSize > capacity)
+        {
+            T item = getBySequence(getOldestSequence());
+            mSequences.remove(item);
+            mItems[(int)(getOldestSequence() % mItems.length)] = null;
+            mSize--;
+            evicted.add(item);
+        }
+
+        Object[] items = new Object[capacity];
+
+        for(long sequence = getOldestSequence(); sequence < mNextSequence; sequence++)
+        {
+            items[(int)(sequence % capacity)] = mItems[(int)(sequence % mItems.length)];
+        }
+
+        mItems = items;
+        return evicted;
+    }
+
+    /**
+     * Removes all items from the history.  Sequence numbers continue from the last assigned sequence number.
+     *
+     * @return items that were removed, ordered oldest first
+     */
+    public List<T> clear()
+    {
+        List<T> removed = new ArrayList<>(mSize);
+
+        for(long sequence = getOldestSequence(); sequence < mNextSequence; sequence++)
+        {
+            int index = (int)(sequence % mItems.length);
+            removed.add(getBySequence(sequence));
+            mItems[index] = null;
+        }
+
+        mSequences.clear();
+        mSize = 0;
+        return removed;
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.module.decode.event.store;
+
+import io.github.dsheirer.module.decode.event.IDecodeEvent;
+import io.github.dsheirer.properties.SystemProperties;
+import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.util.ThreadPool;
+import io.github.dsheirer.util.store.DailySegments;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded, append-only decode event store.  Every decode event is written to the store asynchronously and can be
+ * queried by FROM/TO identifier (e.g. talkgroup or radio ID) and time range.
+ *
+ * Events are written to one segment per day in the event_store application folder.  Each segment has an index of
+ * the time range of its events and an identifier index of the record offsets for each identifier value, so a query
+ * only reads the indexes of the segments that overlap the time range and then only the matching records.
+ *
+ * Decode events are updated by the decoders as a call progresses.  Received events are held until they have been
+ * quiet (not updated) for a short period, or periodically for long running events, and then written.  Each decode
+ * event is assigned a unique id and each update of an event is written with the same id, so that queries return the
+ * latest version of each event.
+ *
+ * The store is disabled by default and is enabled by setting the decode.event.store.enabled system property to true.
+ * Segments are deleted after the number of days in the decode.event.store.retention.days system property.
+ */
+public class DecodeEventStore implements Listener<IDecodeEvent>
+{
+    private final static Logger mLog = LoggerFactory.getLogger(DecodeEventStore.class);
+    public static final String PROPERTY_ENABLED = "decode.event.store.enabled";
+    public static final String PROPERTY_RETENTION_DAYS = "decode.event.store.retention.days";
+    public static final String STORE_DIRECTORY = "event_store";
+    private static final String SEGMENT_PREFIX = "events_";
+    private static final int DEFAULT_RETENTION_DAYS = 365;
+    private static final long QUIET_PERIOD_MILLISECONDS = 5000;
+    private static final long MAXIMUM_PENDING_MILLISECONDS = 60000;
+    private static final long FLUSH_INTERVAL_MILLISECONDS = 1000;
+    private static final long MILLISECONDS_PER_DAY = 24l * 60l * 60l * 1000l;
+
+    private long mRetention;
+    private Map<IDecodeEvent,PendingEvent> mPendingEvents = new IdentityHashMap<>();
+    private Map<IDecodeEvent,Long> mEventIds = new WeakHashMap<>();
+    private AtomicLong mNextId = new AtomicLong(System.currentTimeMillis() * 1000);
+    private DailySegments<EventStoreSegment> mSegments;
+    private ScheduledFuture<?> mFlushFuture;
+    private boolean mReadOnly;
+
+    /**
+     * Constructs an event store in the application event store folder with the retention from system properties
+     */
+    public DecodeEventStore()
+    {
+        this(SystemProperties.getInstance().getApplicationFolder(STORE_DIRECTORY),
+            SystemProperties.getInstance().get(PROPERTY_RETENTION_DAYS, DEFAULT_RETENTION_DAYS));
+    }
+
+    /**
+     * Constructs an event store
+     *
+     * @param directory for the store segment files
+     * @param retentionDays number of days to retain segments, or zero to retain segments indefinitely
+     */
+    public DecodeEventStore(Path directory, int retentionDays)
+    {
+        this(directory, retentionDays, false);
+    }
+
+    /**
+     * Constructs an event store
+     *
+     * @param directory for the store segment files
+     * @param retentionDays number of days to retain segments, or zero to retain segments indefinitely
+     * @param readOnly to open the store for queries only, without the flush timer or expired segment deletion
+     */
+    private DecodeEventStore(Path directory, int retentionDays, boolean readOnly)
+    {
+        mRetention = retentionDays > 0 ? retentionDays * MILLISECONDS_PER_DAY : 0;
+        mReadOnly = readOnly;
+        mSegments = new DailySegments<>(directory, SEGMENT_PREFIX, EventStoreSegment.DATA_SUFFIX,
+            readOnly ? EventStoreSegment::openReadOnly : EventStoreSegment::openForRead,
+            EventStoreSegment::openForWrite);
+
+        loadSegments();
+
+        if(!mReadOnly)
+        {
+            deleteExpiredSegments(System.currentTimeMillis());
+
+            mFlushFuture = ThreadPool.SCHEDULED.scheduleAtFixedRate(() -> flush(false), FLUSH_INTERVAL_MILLISECONDS,
+                FLUSH_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens an existing event store for queries only.  Received events are ignored and segments are never written
+     * or deleted, and missing or stale segment indexes are rebuilt in memory without writing the index files.
+     *
+     * @param directory for the store segment files
+     * @return read-only store
+     */
+    public static DecodeEventStore openReadOnly(Path directory)
+    {
+        return new DecodeEventStore(directory, 0, true);
+    }
+
+    /**
+     * Indicates if the decode event store is enabled
+     */
+    public static boolean isEnabled()
+    {
+        return SystemProperties.getInstance().get(PROPERTY_ENABLED, false);
+    }
+
+    /**
+     * Opens the existing segments in the store directory
+     */
+    private synchronized void loadSegments()
+    {
+        mLog.info("Decode event store opened with [" + mSegments.load() + "] segments");
+    }
+
+    /**
+     * Receives decode events and queues them for writing to the store
+     */
+    @Override
+    public void receive(IDecodeEvent event)
+    {
+        if(mReadOnly)
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        synchronized(mPendingEvents)
+        {
+            PendingEvent pendingEvent = mPendingEvents.get(event);
+
+            if(pendingEvent == null)
+            {
+                mPendingEvents.put(event, new PendingEvent(now));
+            }
+            else
+            {
+                pendingEvent.mLastUpdate = now;
+            }
+        }
+    }
+
+    /**
+     * Writes pending events that have been quiet for the quiet period, or that have been pending longer than the
+     * maximum pending period.
+     *
+     * @param all to write all pending events
+     */
+    private void flush(boolean all)
+    {
+        try
+        {
+            long now = System.currentTimeMillis();
+            List<IDecodeEvent> events = new ArrayList<>();
+
+            synchronized(mPendingEvents)
+            {
+                Iterator<Map.Entry<IDecodeEvent,PendingEvent>> it = mPendingEvents.entrySet().iterator();
+
+                while(it.hasNext())
+                {
+                    Map.Entry<IDecodeEvent,PendingEvent> entry = it.next();
+                    PendingEvent pendingEvent = entry.getValue();
+
+                    if(all || now - pendingEvent.mLastUpdate >= QUIET_PERIOD_MILLISECONDS)
+                    {
+                        events.add(entry.getKey());
+                        it.remove();
+                    }
+                    else if(now - pendingEvent.mLastWrite >= MAXIMUM_PENDING_MILLISECONDS)
+                    {
+                        //Write a snapshot of long running events, but keep them pending for later updates
+                        events.add(entry.getKey());
+                        pendingEvent.mLastWrite = now;
+                    }
+                }
+            }
+
+            if(!events.isEmpty())
+            {
+                write(events, now);
+            }
+        }
+        catch(Throwable t)
+        {
+            mLog.error("Error while writing decode events to the event store", t);
+        }
+    }
+
+    /**
+     * Writes the events to the current segment
+     */
+    private synchronized void write(List<IDecodeEvent> events, long now) throws IOException
+    {
+        EventStoreSegment current = mSegments.getWriteSegment();
+        EventStoreSegment segment = mSegments.getWriteSegment(now);
+
+        if(segment != current)
+        {
+            deleteExpiredSegments(now);
+        }
+
+        for(IDecodeEvent event : events)
+        {
+            Long id = mEventIds.get(event);
+
+            if(id == null)
+            {
+                id = mNextId.incrementAndGet();
+                mEventIds.put(event, id);
+            }
+
+            segment.append(new StoredDecodeEvent(id, event));
+        }
+    }
+
+    /**
+     * Deletes segments with events that are all older than the retention period
+     */
+    private synchronized void deleteExpiredSegments(long now)
+    {
+        if(mRetention > 0)
+        {
+            mSegments.deleteSegmentsBefore(now - mRetention);
+        }
+    }
+
+    /**
+     * Finds the events that started within the time range.  Events are written to the store after a short quiet
+     * period, so events from the last few seconds may not be included.
+     *
+     * @param identifier value of the FROM or TO identifier (e.g. talkgroup or radio ID) or null for all events
+     * @param start time in milliseconds (inclusive)
+     * @param end time in milliseconds (inclusive)
+     * @param maxResults maximum number of events to return
+     * @return the latest version of each matching event, ordered by event start time
+     * @throws IOException if there is an error reading from the store
+     */
+    public synchronized List<StoredDecodeEvent> query(String identifier, long start, long end, int maxResults)
+        throws IOException
+    {
+        List<EventStoreSegment> segments = mSegments.getSegments();
+
+        //Later records for the same event id replace earlier records
+        Map<Long,StoredDecodeEvent> events = new HashMap<>();
+        Map<Long,Integer> hitSegments = new HashMap<>();
+
+        for(int x = 0; x < segments.size(); x++)
+        {
+            EventStoreSegment segment = segments.get(x);
+
+            if(segment.overlaps(start, end))
+            {
+                int index = x;
+
+                segment.find(identifier, start, end, event -> {
+                    events.put(event.getId(), event);
+                    hitSegments.put(event.getId(), index);
+                });
+
+                if(identifier != null)
+                {
+                    mSegments.trackLoadedIndex(segment);
+                }
+            }
+        }
+
+        if(identifier != null)
+        {
+            resolveLatest(identifier, segments, events, hitSegments);
+        }
+
+        List<StoredDecodeEvent> results = new ArrayList<>(events.values());
+        results.sort(Comparator.comparingLong(StoredDecodeEvent::getTimeStart));
+
+        if(results.size() > maxResults)
+        {
+            return new ArrayList<>(results.subList(0, maxResults));
+        }
+
+        return results;
+    }
+
+    /**
+     * Replaces each identifier query hit with the latest record for the event.  The identifier index only holds the
+     * records that contain the identifier, so a later record for the same event may have changed the FROM or TO
+     * identifier.  Events whose latest record no longer contains the identifier are removed.
+     *
+     * A later record for an event can only be in the hit segment or in a later segment that has events starting at
+     * or before the event start time.
+     */
+    private void resolveLatest(String identifier, List<EventStoreSegment> segments,
+                               Map<Long,StoredDecodeEvent> events, Map<Long,Integer> hitSegments) throws IOException
+    {
+        Iterator<Map.Entry<Long,StoredDecodeEvent>> it = events.entrySet().iterator();
+
+        while(it.hasNext())
+        {
+            Map.Entry<Long,StoredDecodeEvent> entry = it.next();
+            StoredDecodeEvent latest = entry.getValue();
+
+            for(int x = hitSegments.get(entry.getKey()); x < segments.size(); x++)
+            {
+                EventStoreSegment segment = segments.get(x);
+
+                if(segment.getRecordCount() > 0 && segment.getMinimumTime() <= latest.getTimeStart())
+                {
+                    StoredDecodeEvent candidate = segment.getLatest(entry.getKey());
+
+                    if(candidate != null)
+                    {
+                        latest = candidate;
+                        mSegments.trackLoadedIndex(segment);
+                    }
+                }
+            }
+
+            if(identifier.equals(latest.getFrom()) || identifier.equals(latest.getTo()))
+            {
+                entry.setValue(latest);
+            }
+            else
+            {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Segments in the store, ordered oldest to newest
+     */
+    public synchronized Collection<EventStoreSegment> getSegments()
+    {
+        return mSegments.getSegments();
+    }
+
+    /**
+     * Writes all pending events and closes the store
+     */
+    public void dispose()
+    {
+        if(mFlushFuture != null)
+        {
+            mFlushFuture.cancel(false);
+            mFlushFuture = null;
+        }
+
+        if(mReadOnly)
+        {
+            return;
+        }
+
+        flush(true);
+
+        synchronized(this)
+        {
+            mSegments.closeWriteSegment();
+        }
+    }
+
+    /**
+     * Tracks the update times of an event that is waiting to be written
+     */
+    private static class PendingEvent
+    {
+        private long mLastUpdate;
+        private long mLastWrite;
+
+        public PendingEvent(long timestamp)
+        {
+            mLastUpdate = timestamp;
+            mLastWrite = timestamp;
+        }
+    }
+
+    /**
+     * Command line query of a decode event store.
+     *
+     * Arguments: store_directory identifier|* start(yyyyMMddHHmm) end(yyyyMMddHHmm)
+     */
+    public static void main(String[] args) throws IOException, ParseException
+    {
+        if(args.length != 4)
+        {
+            System.out.println("Usage: DecodeEventStore store_directory identifier|* start(yyyyMMddHHmm) " +
+                "end(yyyyMMddHHmm)");
+            return;
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmm");
+        long start = format.parse(args[2]).getTime();
+        long end = format.parse(args[3]).getTime();
+        String identifier = args[1].equals("*") ? null : args[1];
+
+        DecodeEventStore store = DecodeEventStore.openReadOnly(Paths.get(args[0]));
+
+        long queryStart = System.nanoTime();
+        List<StoredDecodeEvent> events = store.query(identifier, start, end, Integer.MAX_VALUE);
+        long elapsed = (System.nanoTime() - queryStart) / 1000000;
+
+        for(StoredDecodeEvent event : events)
+        {
+            System.out.println(event);
+        }
+
+        System.out.println("Found [" + events.size() + "] events in [" + elapsed + "] ms");
+        store.dispose();
+    }
+}
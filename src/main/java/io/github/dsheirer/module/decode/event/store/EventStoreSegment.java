@@ -0,0 +1,262 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.module.decode.event.store;
+
+import io.github.dsheirer.util.store.AppendOnlySegment;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only segment of the decode event store.  Each segment is a data file of length-prefixed event records and
+ * an index file that holds the time range of the events in the segment, an identifier index that maps each FROM
+ * and TO identifier value to the file offsets of the records that contain the identifier, and an event index that
+ * maps each event id to the file offset of the latest record for the event.
+ */
+public class EventStoreSegment extends AppendOnlySegment<StoredDecodeEvent>
+{
+    public static final String DATA_SUFFIX = ".events";
+    private static final int INDEX_VERSION = 2;
+
+    private ByteBuffer mLengthBuffer = ByteBuffer.allocate(4);
+    private Map<Long,Long> mEventIndex;
+
+    /**
+     * Constructs a segment
+     *
+     * @param dataPath of the segment data file
+     */
+    private EventStoreSegment(Path dataPath)
+    {
+        super(dataPath, DATA_SUFFIX, INDEX_VERSION);
+    }
+
+    /**
+     * Opens an existing segment for reading.  Loads the segment time range from the index file, or re-indexes the
+     * data file when the index is missing or stale.  The identifier index is loaded on demand.
+     *
+     * @param dataPath of the segment data file
+     * @return segment
+     * @throws IOException if the segment cannot be read
+     */
+    public static EventStoreSegment openForRead(Path dataPath) throws IOException
+    {
+        EventStoreSegment segment = new EventStoreSegment(dataPath);
+        segment.openForRead();
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment for reading without writing the index file
+     *
+     * @param dataPath of the segment data file
+     * @return segment
+     * @throws IOException if the segment cannot be read
+     */
+    public static EventStoreSegment openReadOnly(Path dataPath) throws IOException
+    {
+        EventStoreSegment segment = new EventStoreSegment(dataPath);
+        segment.openReadOnly();
+        return segment;
+    }
+
+    /**
+     * Opens a segment for appending, creating the data file if it doesn't exist
+     *
+     * @param dataPath of the segment data file
+     * @return segment
+     * @throws IOException if the segment cannot be opened
+     */
+    public static EventStoreSegment openForWrite(Path dataPath) throws IOException
+    {
+        EventStoreSegment segment = new EventStoreSegment(dataPath);
+        segment.openForWrite();
+        return segment;
+    }
+
+    /**
+     * Finds the latest record for the event in this segment
+     *
+     * @param id of the event
+     * @return latest record for the event or null if this segment doesn't contain the event
+     * @throws IOException if the segment can't be read
+     */
+    public synchronized StoredDecodeEvent getLatest(long id) throws IOException
+    {
+        if(getRecordCount() == 0)
+        {
+            return null;
+        }
+
+        loadKeyIndex();
+
+        Long offset = mEventIndex.get(id);
+
+        return offset != null ? readAt(offset) : null;
+    }
+
+    @Override
+    protected ByteBuffer encode(StoredDecodeEvent event) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(0);
+        event.write(output);
+        output.flush();
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(0, buffer.capacity() - 4);
+        return buffer;
+    }
+
+    @Override
+    protected StoredDecodeEvent read(FileChannel channel, long offset) throws IOException
+    {
+        mLengthBuffer.clear();
+        readFully(channel, mLengthBuffer, offset);
+        ByteBuffer record = ByteBuffer.allocate(mLengthBuffer.getInt(0));
+        readFully(channel, record, offset + 4);
+        return StoredDecodeEvent.read(new DataInputStream(new ByteArrayInputStream(record.array())));
+    }
+
+    /**
+     * Reads from the channel until the buffer is full
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+    {
+        while(buffer.hasRemaining())
+        {
+            if(channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new EOFException("Unexpected end of event store segment");
+            }
+        }
+    }
+
+    @Override
+    protected long scan(long length, RecordConsumer<StoredDecodeEvent> consumer) throws IOException
+    {
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(getDataPath()),
+            65536)))
+        {
+            long offset = 0;
+
+            while(offset + 4 <= length)
+            {
+                int recordLength = input.readInt();
+
+                if(recordLength <= 0 || offset + 4 + recordLength > length)
+                {
+                    //Partial record from an unclean shutdown
+                    break;
+                }
+
+                byte[] record = new byte[recordLength];
+                input.readFully(record);
+                consumer.accept(StoredDecodeEvent.read(new DataInputStream(new ByteArrayInputStream(record))), offset);
+                offset += 4 + recordLength;
+            }
+
+            return offset;
+        }
+    }
+
+    @Override
+    protected long getTime(StoredDecodeEvent event)
+    {
+        return event.getTimeStart();
+    }
+
+    @Override
+    protected Collection<String> getKeys(StoredDecodeEvent event)
+    {
+        List<String> keys = new ArrayList<>(2);
+
+        if(event.getFrom() != null)
+        {
+            keys.add(event.getFrom());
+        }
+
+        if(event.getTo() != null && !event.getTo().equals(event.getFrom()))
+        {
+            keys.add(event.getTo());
+        }
+
+        return keys;
+    }
+
+    @Override
+    protected void indexExtended(StoredDecodeEvent event, long offset)
+    {
+        //Later records for the same event replace earlier records
+        mEventIndex.put(event.getId(), offset);
+    }
+
+    @Override
+    protected void resetExtendedIndex()
+    {
+        mEventIndex = new HashMap<>();
+    }
+
+    @Override
+    protected void releaseExtendedIndex()
+    {
+        mEventIndex = null;
+    }
+
+    @Override
+    protected void readExtendedIndex(DataInputStream input) throws IOException
+    {
+        int events = input.readInt();
+        Map<Long,Long> eventIndex = new HashMap<>(events * 2);
+
+        for(int x = 0; x < events; x++)
+        {
+            eventIndex.put(input.readLong(), input.readLong());
+        }
+
+        mEventIndex = eventIndex;
+    }
+
+    @Override
+    protected void writeExtendedIndex(DataOutputStream output) throws IOException
+    {
+        output.writeInt(mEventIndex.size());
+
+        for(Map.Entry<Long,Long> entry : mEventIndex.entrySet())
+        {
+            output.writeLong(entry.getKey());
+            output.writeLong(entry.getValue());
+        }
+    }
+}
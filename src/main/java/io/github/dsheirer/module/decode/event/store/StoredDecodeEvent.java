@@ -0,0 +1,264 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.module.decode.event.store;
+
+import io.github.dsheirer.channel.IChannelDescriptor;
+import io.github.dsheirer.identifier.Form;
+import io.github.dsheirer.identifier.Identifier;
+import io.github.dsheirer.identifier.IdentifierClass;
+import io.github.dsheirer.identifier.IdentifierCollection;
+import io.github.dsheirer.identifier.Role;
+import io.github.dsheirer.identifier.configuration.FrequencyConfigurationIdentifier;
+import io.github.dsheirer.module.decode.event.IDecodeEvent;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Decode event record persisted in the decode event store.  Captures a snapshot of the decode event fields, with
+ * the FROM and TO identifiers stored as their identifier values so that they can be indexed and queried.
+ */
+public class StoredDecodeEvent
+{
+    private static final int MAX_FIELD_LENGTH = 8192;
+
+    private long mId;
+    private long mTimeStart;
+    private long mDuration;
+    private String mProtocol;
+    private String mEventDescription;
+    private String mFrom;
+    private String mTo;
+    private String mChannel;
+    private long mFrequency;
+    private int mTimeslot;
+    private String mDetails;
+
+    private StoredDecodeEvent()
+    {
+    }
+
+    /**
+     * Creates a stored event from a snapshot of the decode event
+     *
+     * @param id that is unique to the decode event.  Updates to the same decode event reuse the same id.
+     * @param event to store
+     */
+    public StoredDecodeEvent(long id, IDecodeEvent event)
+    {
+        mId = id;
+        mTimeStart = event.getTimeStart();
+        mDuration = event.getDuration();
+        mProtocol = event.getProtocol() != null ? event.getProtocol().name() : null;
+        mEventDescription = event.getEventDescription();
+        mTimeslot = event.hasTimeslot() ? event.getTimeslot() : 0;
+        mDetails = event.getDetails();
+
+        IChannelDescriptor channelDescriptor = event.getChannelDescriptor();
+        mChannel = channelDescriptor != null ? channelDescriptor.toString() : null;
+
+        IdentifierCollection identifiers = event.getIdentifierCollection();
+
+        if(identifiers != null)
+        {
+            mFrom = getValue(identifiers.getIdentifiers(Role.FROM));
+            mTo = getValue(identifiers.getIdentifiers(Role.TO));
+
+            Identifier frequency = identifiers.getIdentifier(IdentifierClass.CONFIGURATION, Form.CHANNEL_FREQUENCY,
+                Role.ANY);
+
+            if(frequency instanceof FrequencyConfigurationIdentifier)
+            {
+                mFrequency = ((FrequencyConfigurationIdentifier)frequency).getValue();
+            }
+        }
+    }
+
+    /**
+     * Value of the first identifier in the list, or null
+     */
+    private static String getValue(List<Identifier> identifiers)
+    {
+        if(identifiers != null && !identifiers.isEmpty() && identifiers.get(0).getValue() != null)
+        {
+            return String.valueOf(identifiers.get(0).getValue());
+        }
+
+        return null;
+    }
+
+    /**
+     * Unique id of the decode event.  Multiple records with the same id are successive updates of the same event.
+     */
+    public long getId()
+    {
+        return mId;
+    }
+
+    public long getTimeStart()
+    {
+        return mTimeStart;
+    }
+
+    public long getDuration()
+    {
+        return mDuration;
+    }
+
+    public String getProtocol()
+    {
+        return mProtocol;
+    }
+
+    public String getEventDescription()
+    {
+        return mEventDescription;
+    }
+
+    /**
+     * Value of the FROM identifier (e.g. radio ID) or null
+     */
+    public String getFrom()
+    {
+        return mFrom;
+    }
+
+    /**
+     * Value of the TO identifier (e.g. talkgroup) or null
+     */
+    public String getTo()
+    {
+        return mTo;
+    }
+
+    public String getChannel()
+    {
+        return mChannel;
+    }
+
+    /**
+     * Channel frequency in Hertz or 0 if unknown
+     */
+    public long getFrequency()
+    {
+        return mFrequency;
+    }
+
+    public int getTimeslot()
+    {
+        return mTimeslot;
+    }
+
+    public String getDetails()
+    {
+        return mDetails;
+    }
+
+    /**
+     * Writes this record to the output
+     */
+    void write(DataOutput output) throws IOException
+    {
+        output.writeLong(mId);
+        output.writeLong(mTimeStart);
+        output.writeLong(mDuration);
+        writeString(output, mProtocol);
+        writeString(output, mEventDescription);
+        writeString(output, mFrom);
+        writeString(output, mTo);
+        writeString(output, mChannel);
+        output.writeLong(mFrequency);
+        output.writeInt(mTimeslot);
+        writeString(output, mDetails);
+    }
+
+    /**
+     * Reads a record from the input
+     */
+    static StoredDecodeEvent read(DataInput input) throws IOException
+    {
+        StoredDecodeEvent event = new StoredDecodeEvent();
+        event.mId = input.readLong();
+        event.mTimeStart = input.readLong();
+        event.mDuration = input.readLong();
+        event.mProtocol = readString(input);
+        event.mEventDescription = readString(input);
+        event.mFrom = readString(input);
+        event.mTo = readString(input);
+        event.mChannel = readString(input);
+        event.mFrequency = input.readLong();
+        event.mTimeslot = input.readInt();
+        event.mDetails = readString(input);
+        return event;
+    }
+
+    /**
+     * Writes a nullable string, truncated to the maximum field length
+     */
+    private static void writeString(DataOutput output, String value) throws IOException
+    {
+        output.writeBoolean(value != null);
+
+        if(value != null)
+        {
+            output.writeUTF(value.length() > MAX_FIELD_LENGTH ? value.substring(0, MAX_FIELD_LENGTH) : value);
+        }
+    }
+
+    /**
+     * Reads a nullable string
+     */
+    private static String readString(DataInput input) throws IOException
+    {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(new Date(mTimeStart));
+        sb.append(" DURATION:").append(mDuration);
+        sb.append(" PROTOCOL:").append(mProtocol);
+        sb.append(" EVENT:").append(mEventDescription);
+        sb.append(" FROM:").append(mFrom);
+        sb.append(" TO:").append(mTo);
+        sb.append(" CHANNEL:").append(mChannel);
+
+        if(mFrequency > 0)
+        {
+            sb.append(" FREQUENCY:").append(mFrequency);
+        }
+
+        if(mTimeslot > 0)
+        {
+            sb.append(" TS:").append(mTimeslot);
+        }
+
+        if(mDetails != null)
+        {
+            sb.append(" DETAILS:").append(mDetails);
+        }
+
+        return sb.toString();
+    }
+}
@@ -19,9 +19,10 @@
  */
 package io.github.dsheirer.module.decode.fleetsync2;
 
-import io.github.dsheirer.bits.MessageFramer;
+import io.github.dsheirer.bits.PackedMessageFramer;
 import io.github.dsheirer.bits.SyncPattern;
 import io.github.dsheirer.dsp.afsk.AFSK1200Decoder;
+import io.github.dsheirer.dsp.symbol.BinaryToByteBufferAssembler;
 import io.github.dsheirer.module.decode.DecoderType;
 import io.github.dsheirer.module.decode.afsk.AbstractAFSKDecoder;
 
@@ -32,7 +33,8 @@ public class Fleetsync2Decoder extends AbstractAFSKDecoder
 {
     //Message length - 5 x REVS + 16 x SYNC + 8 x 64Bit Blocks
     private static final int MESSAGE_LENGTH = 537;
-    private MessageFramer mMessageFramer;
+    private PackedMessageFramer mMessageFramer;
+    private BinaryToByteBufferAssembler mBinaryToByteBufferAssembler = new BinaryToByteBufferAssembler(512);
     private Fleetsync2MessageProcessor mMessageProcessor;
 
     /**
@@ -60,8 +62,11 @@ public class Fleetsync2Decoder extends AbstractAFSKDecoder
      */
     private void init()
     {
-        mMessageFramer = new MessageFramer(SyncPattern.FLEETSYNC2.getPattern(), MESSAGE_LENGTH);
-        getDecoder().setSymbolProcessor(mMessageFramer);
+        mMessageFramer = new PackedMessageFramer(SyncPattern.FLEETSYNC2.getPattern(), MESSAGE_LENGTH);
+
+        //Message framer processes each byte assembled from the symbol stream
+        mBinaryToByteBufferAssembler.addPackedBinaryProcessor(mMessageFramer);
+        getDecoder().setSymbolProcessor(mBinaryToByteBufferAssembler);
         mMessageProcessor = new Fleetsync2MessageProcessor();
         mMessageFramer.addMessageListener(mMessageProcessor);
         mMessageProcessor.setMessageListener(getMessageListener());
@@ -20,9 +20,10 @@
 package io.github.dsheirer.module.decode.lj1200;
 
 import io.github.dsheirer.bits.IBinarySymbolProcessor;
-import io.github.dsheirer.bits.MessageFramer;
+import io.github.dsheirer.bits.PackedMessageFramer;
 import io.github.dsheirer.bits.SyncPattern;
 import io.github.dsheirer.dsp.afsk.AFSK1200Decoder;
+import io.github.dsheirer.dsp.symbol.BinaryToByteBufferAssembler;
 import io.github.dsheirer.module.decode.DecoderType;
 import io.github.dsheirer.module.decode.afsk.AbstractAFSKDecoder;
 
@@ -34,8 +35,9 @@ public class LJ1200Decoder extends AbstractAFSKDecoder implements IBinarySymbolP
     /* Message length - 16-bit sync plus 64 bit message */
     private static final int MESSAGE_LENGTH = 80;
 
-    private MessageFramer mTowerMessageFramer;
-    private MessageFramer mTransponderMessageFramer;
+    private PackedMessageFramer mTowerMessageFramer;
+    private PackedMessageFramer mTransponderMessageFramer;
+    private BinaryToByteBufferAssembler mBinaryToByteBufferAssembler = new BinaryToByteBufferAssembler(512);
     private LJ1200MessageProcessor mMessageProcessor;
 
     protected LJ1200Decoder(AFSK1200Decoder decoder)
@@ -55,12 +57,16 @@ public class LJ1200Decoder extends AbstractAFSKDecoder implements IBinarySymbolP
     {
         getDecoder().setSymbolProcessor(this);
 
-        mTowerMessageFramer = new MessageFramer(SyncPattern.LJ1200.getPattern(), MESSAGE_LENGTH);
-        mTransponderMessageFramer = new MessageFramer(SyncPattern.LJ1200_TRANSPONDER.getPattern(), MESSAGE_LENGTH);
+        mTowerMessageFramer = new PackedMessageFramer(SyncPattern.LJ1200.getPattern(), MESSAGE_LENGTH);
+        mTransponderMessageFramer = new PackedMessageFramer(SyncPattern.LJ1200_TRANSPONDER.getPattern(), MESSAGE_LENGTH);
         mMessageProcessor = new LJ1200MessageProcessor();
         mTowerMessageFramer.addMessageListener(mMessageProcessor);
         mTransponderMessageFramer.addMessageListener(mMessageProcessor);
         mMessageProcessor.setMessageListener(getMessageListener());
+
+        //Message framers process each byte assembled from the symbol stream
+        mBinaryToByteBufferAssembler.addPackedBinaryProcessor(mTowerMessageFramer);
+        mBinaryToByteBufferAssembler.addPackedBinaryProcessor(mTransponderMessageFramer);
     }
 
     @Override
@@ -79,16 +85,15 @@ public class LJ1200Decoder extends AbstractAFSKDecoder implements IBinarySymbolP
     @Override
     public void process(boolean symbol)
     {
-        mTowerMessageFramer.process(symbol);
-        mTransponderMessageFramer.process(symbol);
+        mBinaryToByteBufferAssembler.process(symbol);
     }
 
-    public MessageFramer getTowerMessageFramer()
+    public PackedMessageFramer getTowerMessageFramer()
     {
         return mTowerMessageFramer;
     }
 
-    public MessageFramer getTransponderMessageFramer()
+    public PackedMessageFramer getTransponderMessageFramer()
     {
         return mTransponderMessageFramer;
     }
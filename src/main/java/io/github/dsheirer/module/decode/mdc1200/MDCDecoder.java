@@ -19,10 +19,11 @@
  */
 package io.github.dsheirer.module.decode.mdc1200;
 
-import io.github.dsheirer.bits.MessageFramer;
+import io.github.dsheirer.bits.PackedMessageFramer;
 import io.github.dsheirer.bits.SyncPattern;
 import io.github.dsheirer.dsp.NRZDecoder;
 import io.github.dsheirer.dsp.afsk.AFSK1200Decoder;
+import io.github.dsheirer.dsp.symbol.BinaryToByteBufferAssembler;
 import io.github.dsheirer.module.decode.DecoderType;
 import io.github.dsheirer.module.decode.afsk.AbstractAFSKDecoder;
 
@@ -34,7 +35,8 @@ public class MDCDecoder extends AbstractAFSKDecoder
     private static final int MESSAGE_LENGTH = 304;
 
     private NRZDecoder mNRZDecoder;
-    private MessageFramer mMessageFramer;
+    private PackedMessageFramer mMessageFramer;
+    private BinaryToByteBufferAssembler mBinaryToByteBufferAssembler = new BinaryToByteBufferAssembler(512);
     private MDCMessageProcessor mMessageProcessor;
 
     public MDCDecoder()
@@ -53,8 +55,11 @@ public class MDCDecoder extends AbstractAFSKDecoder
     {
         mNRZDecoder = new NRZDecoder(NRZDecoder.MODE_INVERTED);
         getDecoder().setSymbolProcessor(mNRZDecoder);
-        mMessageFramer = new MessageFramer(SyncPattern.MDC1200.getPattern(), MESSAGE_LENGTH);
-        mNRZDecoder.setListener(mMessageFramer);
+        mMessageFramer = new PackedMessageFramer(SyncPattern.MDC1200.getPattern(), MESSAGE_LENGTH);
+
+        //Message framer processes each byte assembled from the NRZ decoded symbol stream
+        mBinaryToByteBufferAssembler.addPackedBinaryProcessor(mMessageFramer);
+        mNRZDecoder.setListener(mBinaryToByteBufferAssembler);
         mMessageProcessor = new MDCMessageProcessor();
         mMessageFramer.addMessageListener(mMessageProcessor);
         mMessageProcessor.addMessageListener(getMessageListener());
@@ -74,7 +79,7 @@ public class MDCDecoder extends AbstractAFSKDecoder
         return DecoderType.MDC1200;
     }
 
-    public MessageFramer getMessageFramer()
+    public PackedMessageFramer getMessageFramer()
     {
         return mMessageFramer;
     }
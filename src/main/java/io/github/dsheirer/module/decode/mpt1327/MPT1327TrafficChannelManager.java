@@ -236,7 +236,21 @@ public class MPT1327TrafficChannelManager extends Module implements IDecodeEvent
     @Override
     public void start()
     {
+        //Request pre-built processing chains for the idle traffic channels so that channel grants start quickly
+        for(Channel trafficChannel : mAvailableTrafficChannelQueue)
+        {
+            broadcast(new ChannelEvent(trafficChannel, ChannelEvent.Event.REQUEST_PREPARE));
+        }
+    }
 
+    /**
+     * Returns the traffic channel to the tail of the available queue and requests a pre-built processing chain for
+     * it, so that the processing chain pool prepares chains in the same order that channels are allocated.
+     */
+    private void returnTrafficChannel(Channel channel)
+    {
+        mAvailableTrafficChannelQueue.add(channel);
+        broadcast(new ChannelEvent(channel, ChannelEvent.Event.REQUEST_PREPARE));
     }
 
     @Override
@@ -339,7 +353,7 @@ public class MPT1327TrafficChannelManager extends Module implements IDecodeEvent
                         if(toRemove != null)
                         {
                             mAllocatedTrafficChannelMap.remove(toRemove);
-                            mAvailableTrafficChannelQueue.add(channel);
+                            returnTrafficChannel(channel);
 
                             MPT1327ChannelGrantEvent event = mChannelGrantEventMap.get(toRemove);
 
@@ -365,7 +379,7 @@ public class MPT1327TrafficChannelManager extends Module implements IDecodeEvent
                         if(rejected != null)
                         {
                             mAllocatedTrafficChannelMap.remove(rejected);
-                            mAvailableTrafficChannelQueue.add(channel);
+                            returnTrafficChannel(channel);
 
                             MPT1327ChannelGrantEvent event = mChannelGrantEventMap.get(rejected);
 
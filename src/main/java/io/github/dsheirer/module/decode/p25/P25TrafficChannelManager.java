@@ -660,6 +660,11 @@ public class P25TrafficChannelManager extends Module implements IDecodeEventProv
         {
             broadcast(new ChannelEvent(trafficChannel, Event.REQUEST_DISABLE));
         }
+
+        for(Channel trafficChannel : mAvailablePhase2TrafficChannelQueue)
+        {
+            broadcast(new ChannelEvent(trafficChannel, Event.REQUEST_DISABLE));
+        }
     }
 
     /**
@@ -688,6 +693,34 @@ public class P25TrafficChannelManager extends Module implements IDecodeEventProv
     @Override
     public void start()
     {
+        //Request pre-built processing chains for the idle traffic channels so that channel grants start quickly
+        for(Channel trafficChannel : mAvailablePhase1TrafficChannelQueue)
+        {
+            broadcast(new ChannelEvent(trafficChannel, Event.REQUEST_PREPARE));
+        }
+
+        for(Channel trafficChannel : mAvailablePhase2TrafficChannelQueue)
+        {
+            broadcast(new ChannelEvent(trafficChannel, Event.REQUEST_PREPARE));
+        }
+    }
+
+    /**
+     * Returns the traffic channel to the tail of the available queue and requests a pre-built processing chain for
+     * it, so that the processing chain pool prepares chains in the same order that channels are allocated.
+     */
+    private void returnTrafficChannel(Channel channel, boolean isPhase1)
+    {
+        if(isPhase1)
+        {
+            mAvailablePhase1TrafficChannelQueue.add(channel);
+        }
+        else
+        {
+            mAvailablePhase2TrafficChannelQueue.add(channel);
+        }
+
+        broadcast(new ChannelEvent(channel, Event.REQUEST_PREPARE));
     }
 
     @Override
@@ -813,11 +846,7 @@ public class P25TrafficChannelManager extends Module implements IDecodeEventProv
                                     .ifPresent(toRemove -> {
                                         mAllocatedTrafficChannelMap.remove(toRemove);
 
-                                        if (isPhase1) {
-                                            mAvailablePhase1TrafficChannelQueue.add(channel);
-                                        } else {
-                                            mAvailablePhase2TrafficChannelQueue.add(channel);
-                                        }
+                                        returnTrafficChannel(channel, isPhase1);
                                     });
 
                             cleanupCallEvents(channel);
@@ -830,11 +859,7 @@ public class P25TrafficChannelManager extends Module implements IDecodeEventProv
                                     .ifPresent(rejected -> {
                                         mAllocatedTrafficChannelMap.remove(rejected);
 
-                                        if (isPhase1) {
-                                            mAvailablePhase1TrafficChannelQueue.add(channel);
-                                        } else {
-                                            mAvailablePhase2TrafficChannelQueue.add(channel);
-                                        }
+                                        returnTrafficChannel(channel, isPhase1);
 
                                         P25ChannelGrantEvent event = mPhase1ChannelGrantEventMap.get(rejected);
 
@@ -60,6 +60,18 @@ public abstract class P25P1Decoder extends FeedbackDecoder implements ISourceEve
         return mDibitBroadcaster;
     }
 
+    /**
+     * Assembles a block of demodulated dibits into reusable byte buffers for bitstream listeners.  Used by decoders
+     * that demodulate a block of dibits per sample buffer instead of broadcasting each dibit.
+     *
+     * @param dibits to assemble
+     * @param length number of dibits from the start of the array to assemble
+     */
+    protected void assemble(Dibit[] dibits, int length)
+    {
+        mByteBufferAssembler.receive(dibits, length);
+    }
+
     /**
      * Implements the IByteBufferProvider interface - delegates to the byte buffer assembler
      */
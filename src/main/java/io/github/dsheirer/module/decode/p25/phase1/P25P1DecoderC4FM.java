@@ -26,11 +26,11 @@ import io.github.dsheirer.dsp.filter.design.FilterDesignException;
 import io.github.dsheirer.dsp.filter.fir.FIRFilterSpecification;
 import io.github.dsheirer.dsp.filter.fir.complex.ComplexFIRFilter2;
 import io.github.dsheirer.dsp.gain.ComplexFeedForwardGainControl;
-import io.github.dsheirer.dsp.psk.DQPSKDecisionDirectedDemodulator;
-import io.github.dsheirer.dsp.psk.InterpolatingSampleBuffer;
+import io.github.dsheirer.dsp.psk.DQPSKDecisionDirectedBufferDemodulator;
 import io.github.dsheirer.dsp.psk.pll.CostasLoop;
 import io.github.dsheirer.dsp.psk.pll.FrequencyCorrectionSyncMonitor;
 import io.github.dsheirer.dsp.psk.pll.PLLBandwidth;
+import io.github.dsheirer.dsp.symbol.Dibit;
 import io.github.dsheirer.module.decode.DecoderType;
 import io.github.dsheirer.sample.buffer.ReusableComplexBuffer;
 import io.github.dsheirer.source.SourceEvent;
@@ -45,14 +45,14 @@ public class P25P1DecoderC4FM extends P25P1Decoder
     private final static Logger mLog = LoggerFactory.getLogger(P25P1DecoderC4FM.class);
 
     protected static final float SAMPLE_COUNTER_GAIN = 0.3f;
-    protected InterpolatingSampleBuffer mInterpolatingSampleBuffer;
-    protected DQPSKDecisionDirectedDemodulator mQPSKDemodulator;
+    protected DQPSKDecisionDirectedBufferDemodulator mDemodulator;
     protected CostasLoop mCostasLoop;
     protected FrequencyCorrectionSyncMonitor mFrequencyCorrectionSyncMonitor;
     protected P25P1MessageFramer mMessageFramer;
     private ComplexFeedForwardGainControl mAGC = new ComplexFeedForwardGainControl(32);
     private Map<Double,float[]> mBasebandFilters = new HashMap<>();
     private ComplexFIRFilter2 mBasebandFilter;
+    private Dibit[] mDibits = new Dibit[0];
 
     /**
      * P25 Phase 1 - standard C4FM modulation decoder.  Uses Differential QPSK decoding with a Costas PLL and a
@@ -73,9 +73,8 @@ public class P25P1DecoderC4FM extends P25P1Decoder
         mCostasLoop = new CostasLoop(getSampleRate(), getSymbolRate());
         mCostasLoop.setPLLBandwidth(PLLBandwidth.BW_300);
         mFrequencyCorrectionSyncMonitor = new FrequencyCorrectionSyncMonitor(mCostasLoop, this);
-        mInterpolatingSampleBuffer = new InterpolatingSampleBuffer(getSamplesPerSymbol(), SAMPLE_COUNTER_GAIN);
-
-        mQPSKDemodulator = new DQPSKDecisionDirectedDemodulator(mCostasLoop, mInterpolatingSampleBuffer);
+        mDemodulator = new DQPSKDecisionDirectedBufferDemodulator(mCostasLoop, getSamplesPerSymbol(),
+            SAMPLE_COUNTER_GAIN);
 
         if(mMessageFramer != null)
         {
@@ -89,8 +88,6 @@ public class P25P1DecoderC4FM extends P25P1Decoder
         mMessageFramer.setListener(getMessageProcessor());
         mMessageFramer.setSampleRate(sampleRate);
 
-        mQPSKDemodulator.setSymbolListener(getDibitBroadcaster());
-        getDibitBroadcaster().addListener(mMessageFramer);
     }
 
     /**
@@ -109,7 +106,28 @@ public class P25P1DecoderC4FM extends P25P1Decoder
         mMessageFramer.setCurrentTime(reusableComplexBuffer.getTimestamp());
 
         //User accounting of the filtered buffer is handled by the demodulator
-        mQPSKDemodulator.receive(gainApplied);
+        demodulate(gainApplied);
+    }
+
+    /**
+     * Demodulates the filtered and gain-adjusted buffer into a block of dibits and delivers the block to the message
+     * framer and the bitstream assembler.
+     *
+     * @param reusableComplexBuffer to demodulate - user accounting is handled by the demodulator
+     */
+    protected void demodulate(ReusableComplexBuffer reusableComplexBuffer)
+    {
+        int maximum = mDemodulator.getMaximumSymbolCount(reusableComplexBuffer.getSamples().length);
+
+        if(mDibits.length < maximum)
+        {
+            mDibits = new Dibit[maximum];
+        }
+
+        int count = mDemodulator.demodulate(reusableComplexBuffer, mDibits);
+
+        mMessageFramer.receive(mDibits, count);
+        assemble(mDibits, count);
     }
 
     /**
@@ -19,7 +19,9 @@
  */
 package io.github.dsheirer.module.decode.p25.phase1;
 
+import io.github.dsheirer.dsp.psk.DQPSKDecisionDirectedDemodulator;
 import io.github.dsheirer.dsp.psk.DQPSKDecisionDirectedDemodulatorInstrumented;
+import io.github.dsheirer.dsp.psk.InterpolatingSampleBuffer;
 import io.github.dsheirer.dsp.psk.InterpolatingSampleBufferInstrumented;
 import io.github.dsheirer.dsp.psk.SymbolDecisionData;
 import io.github.dsheirer.sample.Listener;
@@ -28,6 +30,8 @@ import io.github.dsheirer.sample.complex.Complex;
 
 public class P25P1DecoderC4FMInstrumented extends P25P1DecoderC4FM
 {
+    private InterpolatingSampleBuffer mInterpolatingSampleBuffer;
+    private DQPSKDecisionDirectedDemodulator mQPSKDemodulator;
     private Listener<Double> mPLLPhaseErrorListener;
     private Listener<Double> mPLLFrequencyListener;
     private Listener<Double> mSamplesPerSymbolListener;
@@ -59,6 +63,15 @@ public class P25P1DecoderC4FMInstrumented extends P25P1DecoderC4FM
         return filtered;
     }
 
+    /**
+     * Overrides the buffer demodulator so that samples are processed by the instrumented demodulator
+     */
+    @Override
+    protected void demodulate(ReusableComplexBuffer reusableComplexBuffer)
+    {
+        mQPSKDemodulator.receive(reusableComplexBuffer);
+    }
+
     /**
      * Overrides this method so we can correctly configure for instrumented operations
      */
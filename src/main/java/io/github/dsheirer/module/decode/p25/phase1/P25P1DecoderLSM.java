@@ -25,8 +25,7 @@ import io.github.dsheirer.dsp.filter.FilterFactory;
 import io.github.dsheirer.dsp.filter.Window.WindowType;
 import io.github.dsheirer.dsp.filter.fir.complex.ComplexFIRFilter2;
 import io.github.dsheirer.dsp.gain.ComplexFeedForwardGainControl;
-import io.github.dsheirer.dsp.psk.DQPSKGardnerDemodulator;
-import io.github.dsheirer.dsp.psk.InterpolatingSampleBuffer;
+import io.github.dsheirer.dsp.psk.DQPSKGardnerBufferDemodulator;
 import io.github.dsheirer.dsp.psk.pll.CostasLoop;
 import io.github.dsheirer.dsp.psk.pll.FrequencyCorrectionSyncMonitor;
 import io.github.dsheirer.dsp.psk.pll.PLLBandwidth;
@@ -54,10 +53,9 @@ public class P25P1DecoderLSM extends P25P1Decoder
     private Map<Double,float[]> mBasebandFilters = new HashMap<>();
     private ComplexFIRFilter2 mBasebandFilter;
     private ComplexFeedForwardGainControl mAGC = new ComplexFeedForwardGainControl(32);
-    protected DQPSKGardnerDemodulator mQPSKDemodulator;
+    protected DQPSKGardnerBufferDemodulator mDemodulator;
     protected P25P1MessageFramer mMessageFramer;
     protected CostasLoop mCostasLoop;
-    protected InterpolatingSampleBuffer mInterpolatingSampleBuffer;
     protected FrequencyCorrectionSyncMonitor mFrequencyCorrectionSyncMonitor;
 
     /**
@@ -85,9 +83,7 @@ public class P25P1DecoderLSM extends P25P1Decoder
         mCostasLoop.setPLLBandwidth(PLLBandwidth.BW_200);
         mFrequencyCorrectionSyncMonitor = new FrequencyCorrectionSyncMonitor(mCostasLoop, this);
 
-        mInterpolatingSampleBuffer = new InterpolatingSampleBuffer(getSamplesPerSymbol(), SAMPLE_COUNTER_GAIN);
-
-        mQPSKDemodulator = new DQPSKGardnerDemodulator(mCostasLoop, mInterpolatingSampleBuffer);
+        mDemodulator = new DQPSKGardnerBufferDemodulator(mCostasLoop, getSamplesPerSymbol(), SAMPLE_COUNTER_GAIN);
 
         //The Costas Loop receives symbol-inversion correction requests when detected.
         //The PLL gain monitor receives sync detect/loss signals from the message framer
@@ -100,7 +96,7 @@ public class P25P1DecoderLSM extends P25P1Decoder
         mMessageFramer.setSyncDetectListener(mFrequencyCorrectionSyncMonitor);
         mMessageFramer.setListener(getMessageProcessor());
         mMessageFramer.setSampleRate(sampleRate);
-        mQPSKDemodulator.setSymbolListener(getDibitBroadcaster());
+        mDemodulator.setSymbolListener(getDibitBroadcaster());
         getDibitBroadcaster().addListener(mMessageFramer);
     }
 
@@ -118,8 +114,18 @@ public class P25P1DecoderLSM extends P25P1Decoder
 
         mMessageFramer.setCurrentTime(reusableComplexBuffer.getTimestamp());
 
-        //Decoder will decrement the user count when finished
-        mQPSKDemodulator.receive(gainApplied);
+        //Demodulator will decrement the user count when finished
+        demodulate(gainApplied);
+    }
+
+    /**
+     * Demodulates the filtered and gain-adjusted buffer to produce symbols for the message framer.
+     *
+     * @param reusableComplexBuffer to demodulate - demodulator will decrement the user count when finished
+     */
+    protected void demodulate(ReusableComplexBuffer reusableComplexBuffer)
+    {
+        mDemodulator.receive(reusableComplexBuffer);
     }
 
     /**
@@ -178,8 +184,7 @@ public class P25P1DecoderLSM extends P25P1Decoder
         mAGC.dispose();
         mAGC = null;
 
-        mQPSKDemodulator.dispose();
-        mQPSKDemodulator = null;
+        mDemodulator = null;
 
         mMessageFramer = null;
     }
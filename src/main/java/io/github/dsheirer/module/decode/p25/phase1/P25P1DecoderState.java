@@ -155,6 +155,7 @@ public class P25P1DecoderState extends DecoderState implements IChannelEventList
     private P25TrafficChannelManager mTrafficChannelManager;
     private Listener<ChannelEvent> mChannelEventListener;
     private DecodeEvent mCurrentCallEvent;
+    private long mLastMessageTimestamp;
 
     /**
      * Constructs an APCO-25 decoder state with an optional traffic channel manager.
@@ -235,7 +236,8 @@ public class P25P1DecoderState extends DecoderState implements IChannelEventList
 
         if(mCurrentCallEvent != null)
         {
-            mCurrentCallEvent.end(System.currentTimeMillis());
+            //Close the call at the timestamp of the last message so that replayed recordings use the recording's time
+            mCurrentCallEvent.end(mLastMessageTimestamp);
             broadcast(mCurrentCallEvent);
             mCurrentCallEvent = null;
         }
@@ -250,6 +252,7 @@ public class P25P1DecoderState extends DecoderState implements IChannelEventList
         if(iMessage instanceof P25Message)
         {
             P25Message message = (P25Message)iMessage;
+            mLastMessageTimestamp = message.getTimestamp();
 
             getIdentifierCollection().update(message.getNAC());
 
@@ -172,6 +172,20 @@ public class P25P1MessageFramer implements Listener<Dibit>, IP25P1DataUnitDetect
         return mDataUnitDetector;
     }
 
+    /**
+     * Processes a block of decoded symbol dibits for message framing.
+     *
+     * @param dibits to process
+     * @param length number of dibits from the start of the array to process
+     */
+    public void receive(Dibit[] dibits, int length)
+    {
+        for(int x = 0; x < length; x++)
+        {
+            receive(dibits[x]);
+        }
+    }
+
     /**
      * Primary method for streaming decoded symbol dibits for message framing.
      *
@@ -26,8 +26,7 @@ import io.github.dsheirer.dsp.filter.design.FilterDesignException;
 import io.github.dsheirer.dsp.filter.fir.FIRFilterSpecification;
 import io.github.dsheirer.dsp.filter.fir.complex.ComplexFIRFilter2;
 import io.github.dsheirer.dsp.gain.ComplexFeedForwardGainControl;
-import io.github.dsheirer.dsp.psk.DQPSKGardnerDemodulator;
-import io.github.dsheirer.dsp.psk.InterpolatingSampleBuffer;
+import io.github.dsheirer.dsp.psk.DQPSKGardnerBufferDemodulator;
 import io.github.dsheirer.dsp.psk.pll.CostasLoop;
 import io.github.dsheirer.dsp.psk.pll.FrequencyCorrectionSyncMonitor;
 import io.github.dsheirer.dsp.psk.pll.PLLBandwidth;
@@ -59,8 +58,7 @@ public class P25P2DecoderHDQPSK extends P25P2Decoder implements IdentifierUpdate
 {
     private final static Logger mLog = LoggerFactory.getLogger(P25P2DecoderHDQPSK.class);
     protected static final float SYMBOL_TIMING_GAIN = 0.1f;
-    protected InterpolatingSampleBuffer mInterpolatingSampleBuffer;
-    protected DQPSKGardnerDemodulator mQPSKDemodulator;
+    protected DQPSKGardnerBufferDemodulator mDemodulator;
     protected CostasLoop mCostasLoop;
     protected P25P2MessageFramer mMessageFramer;
     private ComplexFeedForwardGainControl mAGC = new ComplexFeedForwardGainControl(32);
@@ -84,8 +82,7 @@ public class P25P2DecoderHDQPSK extends P25P2Decoder implements IdentifierUpdate
         mCostasLoop = new CostasLoop(getSampleRate(), getSymbolRate());
         mCostasLoop.setPLLBandwidth(PLLBandwidth.BW_300);
 
-        mInterpolatingSampleBuffer = new InterpolatingSampleBuffer(getSamplesPerSymbol(), SYMBOL_TIMING_GAIN);
-        mQPSKDemodulator = new DQPSKGardnerDemodulator(mCostasLoop, mInterpolatingSampleBuffer);
+        mDemodulator = new DQPSKGardnerBufferDemodulator(mCostasLoop, getSamplesPerSymbol(), SYMBOL_TIMING_GAIN);
 
         if(mMessageFramer != null)
         {
@@ -105,7 +102,7 @@ public class P25P2DecoderHDQPSK extends P25P2Decoder implements IdentifierUpdate
         mMessageFramer.setListener(getMessageProcessor());
         mMessageFramer.setSampleRate(sampleRate);
 
-        mQPSKDemodulator.setSymbolListener(getDibitBroadcaster());
+        mDemodulator.setSymbolListener(getDibitBroadcaster());
         getDibitBroadcaster().addListener(mMessageFramer);
     }
 
@@ -125,7 +122,17 @@ public class P25P2DecoderHDQPSK extends P25P2Decoder implements IdentifierUpdate
         mMessageFramer.setCurrentTime(reusableComplexBuffer.getTimestamp());
 
         //User accounting of the filtered buffer is handled by the demodulator
-        mQPSKDemodulator.receive(gainApplied);
+        demodulate(gainApplied);
+    }
+
+    /**
+     * Demodulates the filtered and gain-adjusted buffer to produce symbols for the message framer.
+     *
+     * @param reusableComplexBuffer to demodulate - user accounting is handled by the demodulator
+     */
+    protected void demodulate(ReusableComplexBuffer reusableComplexBuffer)
+    {
+        mDemodulator.receive(reusableComplexBuffer);
     }
 
     /**
@@ -21,7 +21,9 @@
  */
 package io.github.dsheirer.module.decode.p25.phase2;
 
+import io.github.dsheirer.dsp.psk.DQPSKGardnerDemodulator;
 import io.github.dsheirer.dsp.psk.DQPSKGardnerDemodulatorInstrumented;
+import io.github.dsheirer.dsp.psk.InterpolatingSampleBuffer;
 import io.github.dsheirer.dsp.psk.InterpolatingSampleBufferInstrumented;
 import io.github.dsheirer.dsp.psk.SymbolDecisionData;
 import io.github.dsheirer.sample.Listener;
@@ -30,6 +32,8 @@ import io.github.dsheirer.sample.complex.Complex;
 
 public class P25P2DecoderHDQPSKInstrumented extends P25P2DecoderHDQPSK
 {
+    private InterpolatingSampleBuffer mInterpolatingSampleBuffer;
+    private DQPSKGardnerDemodulator mQPSKDemodulator;
     private Listener<Double> mPLLPhaseErrorListener;
     private Listener<Double> mPLLFrequencyListener;
     private Listener<Double> mSamplesPerSymbolListener;
@@ -78,6 +82,15 @@ public class P25P2DecoderHDQPSKInstrumented extends P25P2DecoderHDQPSK
         return (InterpolatingSampleBufferInstrumented)mInterpolatingSampleBuffer;
     }
 
+    /**
+     * Overrides the buffer demodulator so that samples are processed by the instrumented demodulator
+     */
+    @Override
+    protected void demodulate(ReusableComplexBuffer reusableComplexBuffer)
+    {
+        mQPSKDemodulator.receive(reusableComplexBuffer);
+    }
+
     /**
      * Overrides this method so we can correctly configure for instrumented operations
      */
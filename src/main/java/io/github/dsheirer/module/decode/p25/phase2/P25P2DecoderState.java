@@ -105,6 +105,7 @@ public class P25P2DecoderState extends TimeslotDecoderState implements Identifie
     private P25P2NetworkConfigurationMonitor mNetworkConfigurationMonitor = new P25P2NetworkConfigurationMonitor();
     private DecodeEvent mCurrentCallEvent;
     private int mEndPttOnFacchCounter = 0;
+    private long mLastMessageTimestamp;
 
     /**
      * Constructs an APCO-25 decoder state for a traffic channel.
@@ -141,7 +142,8 @@ public class P25P2DecoderState extends TimeslotDecoderState implements Identifie
     protected void resetState()
     {
         super.resetState();
-        closeCurrentCallEvent(System.currentTimeMillis(), true, MacPduType.MAC_3_IDLE);
+        //Close the call at the timestamp of the last message so that replayed recordings use the recording's time
+        closeCurrentCallEvent(mLastMessageTimestamp, true, MacPduType.MAC_3_IDLE);
         mEndPttOnFacchCounter = 0;
     }
 
@@ -153,6 +155,8 @@ public class P25P2DecoderState extends TimeslotDecoderState implements Identifie
     {
         if(message.isValid() && message.getTimeslot() == getTimeslot())
         {
+            mLastMessageTimestamp = message.getTimestamp();
+
             if(message instanceof MacMessage)
             {
                 MacMessage macMessage = (MacMessage)message;
@@ -146,6 +146,7 @@ public class P25P2MessageFramer implements Listener<Dibit>
     public void setCurrentTime(long currentTime)
     {
         mCurrentTime = currentTime;
+        mSuperFrameDetector.setTimestamp(currentTime);
     }
 
     /**
@@ -207,7 +208,6 @@ public class P25P2MessageFramer implements Listener<Dibit>
      */
     public void receive(ReusableByteBuffer buffer)
     {
-        //TODO: set timestamp in super frame detector
         setCurrentTime(buffer.getTimestamp());
 
         for(byte value : buffer.getBytes())
@@ -66,6 +66,8 @@ public class P25P2SuperFrameDetector implements Listener<Dibit>, ISyncDetectList
     private DibitDelayBuffer mSyncDetectionDelayBuffer = new DibitDelayBuffer(160);
     private DibitDelayBuffer mFragmentBuffer = new DibitDelayBuffer(720);
     private int mDibitsProcessed = 0;
+    private long mReferenceTimestamp = System.currentTimeMillis();
+    private long mDibitsSinceReference = 0;
     private boolean mSynchronized = false;
     private ISyncDetectListener mSyncDetectListener;
 
@@ -108,6 +110,18 @@ public class P25P2SuperFrameDetector implements Listener<Dibit>, ISyncDetectList
     {
     }
 
+    /**
+     * Updates the reference timestamp from an incoming sample buffer.  Message timestamps are calculated from this
+     * reference timestamp and the number of dibits processed since the reference timestamp was updated.
+     *
+     * @param timestamp of the incoming sample buffer
+     */
+    public void setTimestamp(long timestamp)
+    {
+        mReferenceTimestamp = timestamp;
+        mDibitsSinceReference = 0;
+    }
+
     @Override
     public void syncDetected(int bitErrors)
     {
@@ -130,17 +144,21 @@ public class P25P2SuperFrameDetector implements Listener<Dibit>, ISyncDetectList
         }
     }
 
+    /**
+     * Current timestamp calculated from the reference timestamp of the most recent sample buffer and the number of
+     * dibits processed since that buffer arrived.
+     */
     private long getCurrentTimestamp()
     {
-        //TODO: implement a dibit counter and timestamp calculator.  We should receive a timestamp update with each
-        //TODO: buffer that arrives.  Use the timestamp dibit counter to calculate the exact timestamp of where we're at.
-        return System.currentTimeMillis();
+        return mReferenceTimestamp +
+            (long)(mDibitsSinceReference / P25P2SyncDetector.DEFAULT_SYMBOL_RATE * 1000.0);
     }
 
     @Override
     public void receive(Dibit dibit)
     {
         mDibitsProcessed++;
+        mDibitsSinceReference++;
 
         mFragmentBuffer.put(dibit);
 
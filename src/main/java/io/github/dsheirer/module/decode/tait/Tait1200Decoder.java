@@ -20,9 +20,10 @@
 package io.github.dsheirer.module.decode.tait;
 
 import io.github.dsheirer.bits.IBinarySymbolProcessor;
-import io.github.dsheirer.bits.MessageFramer;
+import io.github.dsheirer.bits.PackedMessageFramer;
 import io.github.dsheirer.bits.SyncPattern;
 import io.github.dsheirer.dsp.afsk.AFSK1200Decoder;
+import io.github.dsheirer.dsp.symbol.BinaryToByteBufferAssembler;
 import io.github.dsheirer.module.decode.DecoderType;
 import io.github.dsheirer.module.decode.afsk.AbstractAFSKDecoder;
 
@@ -33,8 +34,9 @@ public class Tait1200Decoder extends AbstractAFSKDecoder implements IBinarySymbo
 {
     private static final int MESSAGE_LENGTH = 440;
 
-    private MessageFramer mMessageFramerGPS;
-    private MessageFramer mMessageFramerANI;
+    private PackedMessageFramer mMessageFramerGPS;
+    private PackedMessageFramer mMessageFramerANI;
+    private BinaryToByteBufferAssembler mBinaryToByteBufferAssembler = new BinaryToByteBufferAssembler(512);
     private Tait1200GPSMessageProcessor mMessageAProcessor;
     private Tait1200ANIMessageProcessor mMessageBProcessor;
 
@@ -54,8 +56,8 @@ public class Tait1200Decoder extends AbstractAFSKDecoder implements IBinarySymbo
     {
         getDecoder().setSymbolProcessor(this);
 
-        mMessageFramerGPS = new MessageFramer(SyncPattern.TAIT_CCDI_GPS_MESSAGE.getPattern(), MESSAGE_LENGTH);
-        mMessageFramerANI = new MessageFramer(SyncPattern.TAIT_SELCAL_MESSAGE.getPattern(), MESSAGE_LENGTH);
+        mMessageFramerGPS = new PackedMessageFramer(SyncPattern.TAIT_CCDI_GPS_MESSAGE.getPattern(), MESSAGE_LENGTH);
+        mMessageFramerANI = new PackedMessageFramer(SyncPattern.TAIT_SELCAL_MESSAGE.getPattern(), MESSAGE_LENGTH);
 
         mMessageAProcessor = new Tait1200GPSMessageProcessor();
         mMessageBProcessor = new Tait1200ANIMessageProcessor();
@@ -63,6 +65,10 @@ public class Tait1200Decoder extends AbstractAFSKDecoder implements IBinarySymbo
         mMessageFramerGPS.addMessageListener(mMessageAProcessor);
         mMessageFramerANI.addMessageListener(mMessageBProcessor);
 
+        //Message framers process each byte assembled from the symbol stream
+        mBinaryToByteBufferAssembler.addPackedBinaryProcessor(mMessageFramerANI);
+        mBinaryToByteBufferAssembler.addPackedBinaryProcessor(mMessageFramerGPS);
+
         mMessageAProcessor.setMessageListener(getMessageListener());
         mMessageBProcessor.setMessageListener(getMessageListener());
     }
@@ -85,16 +91,15 @@ public class Tait1200Decoder extends AbstractAFSKDecoder implements IBinarySymbo
     @Override
     public void process(boolean symbol)
     {
-        mMessageFramerANI.process(symbol);
-        mMessageFramerGPS.process(symbol);
+        mBinaryToByteBufferAssembler.process(symbol);
     }
 
-    public MessageFramer getANIMessageFramer()
+    public PackedMessageFramer getANIMessageFramer()
     {
         return mMessageFramerANI;
     }
 
-    public MessageFramer getGPSMessageFramer()
+    public PackedMessageFramer getGPSMessageFramer()
     {
         return mMessageFramerGPS;
     }
@@ -34,10 +34,12 @@ import java.util.prefs.Preferences;
 public class RecordPreference extends Preference
 {
     private static final String PREFERENCE_KEY_AUDIO_RECORD_FORMAT = "audio.record.format";
+    private static final String PREFERENCE_KEY_AUDIO_RECORD_CONTAINER = "audio.record.container";
     private static final RecordFormat DEFAULT_RECORD_FORMAT = RecordFormat.MP3;
     private final static Logger mLog = LoggerFactory.getLogger(RecordPreference.class);
     private Preferences mPreferences = Preferences.userNodeForPackage(RecordPreference.class);
     private RecordFormat mAudioRecordFormat;
+    private Boolean mAudioRecordContainer;
 
     /**
      * Constructs this preference with an update listener
@@ -90,4 +92,27 @@ public class RecordPreference extends Preference
         mPreferences.put(PREFERENCE_KEY_AUDIO_RECORD_FORMAT, audioRecordFormat.name());
         notifyPreferenceUpdated();
     }
+
+    /**
+     * Indicates if calls are recorded to hourly call container files instead of an individual file for each call.
+     */
+    public boolean isAudioRecordContainer()
+    {
+        if(mAudioRecordContainer == null)
+        {
+            mAudioRecordContainer = mPreferences.getBoolean(PREFERENCE_KEY_AUDIO_RECORD_CONTAINER, false);
+        }
+
+        return mAudioRecordContainer;
+    }
+
+    /**
+     * Sets the preference for recording calls to hourly call container files
+     */
+    public void setAudioRecordContainer(boolean container)
+    {
+        mAudioRecordContainer = container;
+        mPreferences.putBoolean(PREFERENCE_KEY_AUDIO_RECORD_CONTAINER, container);
+        notifyPreferenceUpdated();
+    }
 }
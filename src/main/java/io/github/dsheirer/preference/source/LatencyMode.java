@@ -0,0 +1,45 @@
+/*
+ * ******************************************************************************
+ * sdrtrunk
+ * Copyright (C) 2014-2019 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * *****************************************************************************
+ */
+
+package io.github.dsheirer.preference.source;
+
+/**
+ * Latency Mode - identifies how the tuners trade sample delivery latency against processing throughput when sizing
+ * USB transfer buffers, channelizer batching and sample queue depths.
+ */
+public enum LatencyMode
+{
+    LOW_LATENCY("Low Latency"),
+    BALANCED("Balanced"),
+    HIGH_THROUGHPUT("High Throughput"),
+    AUTO("Auto-Tune");
+
+    private String mLabel;
+
+    LatencyMode(String label)
+    {
+        mLabel = label;
+    }
+
+    public String toString()
+    {
+        return mLabel;
+    }
+}
@@ -36,8 +36,10 @@ public class TunerPreference extends Preference
     private final static Logger mLog = LoggerFactory.getLogger(TunerPreference.class);
     private Preferences mPreferences = Preferences.userNodeForPackage(TunerPreference.class);
     private static final String PREFERENCE_KEY_CHANNELIZER_TYPE = "channelizer.type";
+    private static final String PREFERENCE_KEY_LATENCY_MODE = "latency.mode";
 
     private ChannelizerType mChannelizerType;
+    private LatencyMode mLatencyMode;
 
     /**
      * Constructs a tuner preference with the update listener
@@ -95,4 +97,36 @@ public class TunerPreference extends Preference
         mPreferences.put(PREFERENCE_KEY_CHANNELIZER_TYPE, mChannelizerType.name());
         notifyPreferenceUpdated();
     }
+
+    /**
+     * Latency mode used by the tuners to size sample buffers and queues
+     */
+    public LatencyMode getLatencyMode()
+    {
+        if(mLatencyMode == null)
+        {
+            String mode = mPreferences.get(PREFERENCE_KEY_LATENCY_MODE, LatencyMode.BALANCED.name());
+
+            try
+            {
+                mLatencyMode = LatencyMode.valueOf(mode);
+            }
+            catch(Exception e)
+            {
+                mLatencyMode = LatencyMode.BALANCED;
+            }
+        }
+
+        return mLatencyMode;
+    }
+
+    /**
+     * Sets the latency mode used by the tuners to size sample buffers and queues
+     */
+    public void setLatencyMode(LatencyMode mode)
+    {
+        mLatencyMode = mode;
+        mPreferences.put(PREFERENCE_KEY_LATENCY_MODE, mLatencyMode.name());
+        notifyPreferenceUpdated();
+    }
 }
@@ -20,6 +20,7 @@
 package io.github.dsheirer.record;
 
 import io.github.dsheirer.audio.AudioSegment;
+import io.github.dsheirer.controller.NamingThreadFactory;
 import io.github.dsheirer.identifier.Form;
 import io.github.dsheirer.identifier.Identifier;
 import io.github.dsheirer.identifier.IdentifierClass;
@@ -28,9 +29,12 @@ import io.github.dsheirer.identifier.Role;
 import io.github.dsheirer.identifier.integer.IntegerIdentifier;
 import io.github.dsheirer.identifier.string.StringIdentifier;
 import io.github.dsheirer.preference.UserPreferences;
+import io.github.dsheirer.properties.SystemProperties;
+import io.github.dsheirer.record.catalog.RecordingCatalog;
+import io.github.dsheirer.record.catalog.RecordingCatalogEntry;
+import io.github.dsheirer.record.container.CallContainerManager;
 import io.github.dsheirer.sample.Listener;
 import io.github.dsheirer.util.StringUtils;
-import io.github.dsheirer.util.ThreadPool;
 import io.github.dsheirer.util.TimeStamp;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -38,24 +42,50 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.concurrent.LinkedTransferQueue;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Monitors audio segments and upon completion records any audio segments that have been flagged as recordable
+ * Monitors audio segments and upon completion records any audio segments that have been flagged as recordable.
+ *
+ * Each recording is added to the recording catalog in the recording directory, so that recorded calls can be found
+ * by identifier, alias and time without scanning the recording directory.
+ *
+ * Calls are recorded to an individual file for each call, or to hourly call container files when the record
+ * container preference is enabled.
+ *
+ * Completed audio segments are dispatched from a dedicated thread to the recording writer, which encodes and writes
+ * the recordings on its own pool of worker threads, off of the shared thread pool.  Completed audio segments wait for
+ * the dispatcher in a bounded queue (recording.dispatch.queue.size).  When the writer falls behind, the dispatcher
+ * encodes on its own thread and the queue fills, and the thread that completes an audio segment waits for space in
+ * the queue.  A segment that can't be queued within the timeout is not recorded and is counted as dropped.  The queue
+ * depth and dropped count are included in the recording writer metrics.
  */
 public class AudioRecordingManager implements Listener<AudioSegment>
 {
     private final static Logger mLog = LoggerFactory.getLogger(AudioRecordingManager.class);
-    private LinkedTransferQueue<AudioSegment> mCompletedAudioSegmentQueue = new LinkedTransferQueue<>();
-    private ScheduledFuture<?> mQueueProcessorHandle;
+    public static final String PROPERTY_CATALOG_ENABLED = "recording.catalog.enabled";
+    public static final String PROPERTY_DISPATCH_QUEUE_SIZE = "recording.dispatch.queue.size";
+    private static final int DEFAULT_DISPATCH_QUEUE_SIZE = 256;
+    private static final long DISPATCH_QUEUE_TIMEOUT_MILLISECONDS = 1000;
+    private BlockingQueue<AudioSegment> mCompletedAudioSegmentQueue = new ArrayBlockingQueue<>(Math.max(1,
+        SystemProperties.getInstance().get(PROPERTY_DISPATCH_QUEUE_SIZE, DEFAULT_DISPATCH_QUEUE_SIZE)));
+    private AtomicLong mDroppedAudioSegmentCount = new AtomicLong();
+    private Thread mDispatcherThread;
+    private volatile boolean mRunning;
+    private RecordingWriter mRecordingWriter;
     private UserPreferences mUserPreferences;
     private int mUnknownAudioRecordingIndex = 1;
     private int mDuplicateAudioRecordingSuffix = 1;
     private String mPreviousRecordingPath = null;
+    private boolean mCatalogEnabled = SystemProperties.getInstance().get(PROPERTY_CATALOG_ENABLED, true);
+    private RecordingCatalog mRecordingCatalog;
+    private CallContainerManager mCallContainerManager;
 
     /**
      * Constructs an instance
@@ -71,10 +101,14 @@ public class AudioRecordingManager implements Listener<AudioSegment>
      */
     public void start()
     {
-        if(mQueueProcessorHandle == null)
+        if(mDispatcherThread == null)
         {
-            mQueueProcessorHandle = ThreadPool.SCHEDULED.scheduleAtFixedRate(new QueueProcessor(),
-                0, 1, TimeUnit.SECONDS);
+            mRecordingWriter = new RecordingWriter();
+            mRecordingWriter.addSyncTask(this::syncCallContainers);
+            mRecordingWriter.addSyncTask(this::syncRecordingCatalog);
+            mRunning = true;
+            mDispatcherThread = new NamingThreadFactory("sdrtrunk recording dispatcher").newThread(new QueueProcessor());
+            mDispatcherThread.start();
         }
     }
 
@@ -83,14 +117,59 @@ public class AudioRecordingManager implements Listener<AudioSegment>
      */
     public void stop()
     {
-        if(mQueueProcessorHandle != null)
+        if(mDispatcherThread != null)
         {
-            mQueueProcessorHandle.cancel(true);
+            mRunning = false;
+
+            try
+            {
+                mDispatcherThread.join();
+            }
+            catch(InterruptedException ie)
+            {
+                mLog.warn("Interrupted while waiting for the recording dispatcher to stop");
+            }
+
+            mDispatcherThread = null;
+
+            //Dispatch any segments that arrived after the dispatcher stopped and wait for all recordings to complete
             processAudioSegments();
-            mQueueProcessorHandle = null;
+            mRecordingWriter.stop();
+            mRecordingWriter = null;
+        }
+
+        synchronized(this)
+        {
+            if(mCallContainerManager != null)
+            {
+                mCallContainerManager.close();
+                mCallContainerManager = null;
+            }
+
+            if(mRecordingCatalog != null)
+            {
+                mRecordingCatalog.close();
+                mRecordingCatalog = null;
+            }
         }
     }
 
+    /**
+     * Recording writer metrics, including the dispatch queue depth, or null if the manager is not started
+     */
+    public String getRecordingWriterMetrics()
+    {
+        RecordingWriter writer = mRecordingWriter;
+
+        if(writer != null)
+        {
+            return writer.getMetrics() + " dispatch queue depth [" + mCompletedAudioSegmentQueue.size() +
+                "] dropped [" + mDroppedAudioSegmentCount.get() + "]";
+        }
+
+        return null;
+    }
+
     /**
      * Primary receive method for incoming audio segments to be recorded
      */
@@ -121,7 +200,25 @@ public class AudioRecordingManager implements Listener<AudioSegment>
 
         if(audioSegment.recordAudioProperty().get())
         {
-            mCompletedAudioSegmentQueue.add(audioSegment);
+            boolean queued = false;
+
+            try
+            {
+                //Wait for space in the queue to apply back-pressure when the recording writer can't keep up
+                queued = mCompletedAudioSegmentQueue.offer(audioSegment, DISPATCH_QUEUE_TIMEOUT_MILLISECONDS,
+                    TimeUnit.MILLISECONDS);
+            }
+            catch(InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            if(!queued)
+            {
+                mLog.error("Recording dispatch queue is full - audio segment not recorded - dropped [" +
+                    mDroppedAudioSegmentCount.incrementAndGet() + "]");
+                audioSegment.decrementConsumerCount();
+            }
         }
         else
         {
@@ -130,33 +227,246 @@ public class AudioRecordingManager implements Listener<AudioSegment>
     }
 
     /**
-     * Processes any queued audio segments
+     * Dispatches any queued audio segments to the recording writer
      */
     private void processAudioSegments()
     {
-        RecordFormat recordFormat = mUserPreferences.getRecordPreference().getAudioRecordFormat();
         AudioSegment audioSegment = mCompletedAudioSegmentQueue.poll();
 
         while(audioSegment != null)
+        {
+            dispatch(audioSegment);
+
+            //Grab the next one to record
+            audioSegment = mCompletedAudioSegmentQueue.poll();
+        }
+    }
+
+    /**
+     * Submits the audio segment to the recording writer for encoding and writing.  Recording file names are
+     * assigned on the dispatching thread, since duplicate file name detection depends on the recording order.
+     */
+    private void dispatch(AudioSegment audioSegment)
+    {
+        RecordFormat recordFormat = mUserPreferences.getRecordPreference().getAudioRecordFormat();
+
+        if(mUserPreferences.getRecordPreference().isAudioRecordContainer())
+        {
+            mRecordingWriter.submit(() -> {
+                try
+                {
+                    recordToContainer(audioSegment, recordFormat);
+                }
+                finally
+                {
+                    audioSegment.decrementConsumerCount();
+                }
+            });
+        }
+        else
         {
             Path path = getAudioRecordingPath(audioSegment.getIdentifierCollection(), recordFormat);
 
+            mRecordingWriter.submit(() -> {
+                try
+                {
+                    record(audioSegment, path, recordFormat);
+                }
+                finally
+                {
+                    audioSegment.decrementConsumerCount();
+                }
+            });
+        }
+    }
+
+    /**
+     * Encodes and writes the audio segment to a recording file and adds the recording to the recording catalog
+     */
+    private void record(AudioSegment audioSegment, Path path, RecordFormat recordFormat)
+    {
+        try
+        {
+            ByteBuffer recording = AudioSegmentRecorder.encode(audioSegment, recordFormat);
+
+            if(recording != null)
+            {
+                long length = recording.remaining();
+                mRecordingWriter.write(path, recording);
+                catalog(audioSegment, path, length);
+            }
+        }
+        catch(IOException ioe)
+        {
+            mLog.error("Error recording audio segment to [" + path.toString() + "]", ioe);
+        }
+    }
+
+    /**
+     * Writes the buffered container calls and forces the containers to disk.  Invoked by the recording writer with
+     * each sync batch.
+     */
+    private void syncCallContainers()
+    {
+        CallContainerManager callContainerManager;
+
+        synchronized(this)
+        {
+            callContainerManager = mCallContainerManager;
+        }
+
+        if(callContainerManager != null)
+        {
+            callContainerManager.sync();
+        }
+    }
+
+    /**
+     * Forces the recording catalog writes to disk.  Invoked by the recording writer with each sync batch, after the
+     * call containers are synced so that the catalog entries for the synced container calls are included.
+     */
+    private void syncRecordingCatalog()
+    {
+        RecordingCatalog recordingCatalog;
+
+        synchronized(this)
+        {
+            recordingCatalog = mRecordingCatalog;
+        }
+
+        if(recordingCatalog != null)
+        {
             try
             {
-                AudioSegmentRecorder.record(audioSegment, path, recordFormat);
+                recordingCatalog.sync();
             }
             catch(IOException ioe)
             {
-                mLog.error("Error recording audio segment to [" + path.toString() + "]");
+                mLog.error("Error syncing the recording catalog", ioe);
             }
+        }
+    }
 
-            audioSegment.decrementConsumerCount();
+    /**
+     * Records the audio segment to the hourly call container for the segment's system.  The call container manager
+     * adds the call to the recording catalog once the call is written to the container.
+     */
+    private void recordToContainer(AudioSegment audioSegment, RecordFormat recordFormat)
+    {
+        try
+        {
+            getCallContainerManager().record(audioSegment, recordFormat);
+        }
+        catch(IOException ioe)
+        {
+            mLog.error("Error recording audio segment to call container", ioe);
+        }
+    }
 
-            //Grab the next one to record
-            audioSegment = mCompletedAudioSegmentQueue.poll();
+    /**
+     * Call container manager for the current recording directory.  Closes the open containers and creates a new
+     * manager when the recording directory preference changes.
+     */
+    private synchronized CallContainerManager getCallContainerManager() throws IOException
+    {
+        Path recordingDirectory = getRecordingBasePath();
+
+        if(mCallContainerManager != null && !mCallContainerManager.getRecordingDirectory().equals(recordingDirectory))
+        {
+            mCallContainerManager.close();
+            mCallContainerManager = null;
+        }
+
+        if(mCallContainerManager == null)
+        {
+            mCallContainerManager = new CallContainerManager(recordingDirectory,
+                entry -> catalog(recordingDirectory, entry));
+        }
+
+        return mCallContainerManager;
+    }
+
+    /**
+     * Adds the recording to the recording catalog
+     *
+     * @param audioSegment that was recorded
+     * @param path of the recording
+     * @param length of the recording file
+     */
+    private void catalog(AudioSegment audioSegment, Path path, long length)
+    {
+        if(!mCatalogEnabled)
+        {
+            return;
+        }
+
+        try
+        {
+            RecordingCatalog catalog = getRecordingCatalog();
+            catalog.add(RecordingCatalogEntry.create(audioSegment, catalog.getRelativeName(path), 0, length));
+        }
+        catch(IOException ioe)
+        {
+            mLog.error("Error adding recording [" + path.toString() + "] to the recording catalog", ioe);
         }
     }
 
+    /**
+     * Adds a call that was written to a call container to the recording catalog
+     *
+     * @param recordingDirectory of the call container
+     * @param entry for the call, with the container file name relative to the recording directory
+     */
+    private void catalog(Path recordingDirectory, RecordingCatalogEntry entry)
+    {
+        if(!mCatalogEnabled)
+        {
+            return;
+        }
+
+        try
+        {
+            RecordingCatalog catalog = getRecordingCatalog();
+
+            //Containers from a previous recording directory are closed after the recording directory changes
+            if(catalog.getRecordingDirectory().equals(recordingDirectory))
+            {
+                catalog.add(entry);
+            }
+            else
+            {
+                mLog.warn("Recording directory changed - call not added to the recording catalog [" +
+                    entry.getFile() + "]");
+            }
+        }
+        catch(IOException ioe)
+        {
+            mLog.error("Error adding call [" + entry.getFile() + "] to the recording catalog", ioe);
+        }
+    }
+
+    /**
+     * Recording catalog for the current recording directory.  Reopens the catalog when the recording directory
+     * preference changes.
+     */
+    private synchronized RecordingCatalog getRecordingCatalog() throws IOException
+    {
+        Path recordingDirectory = getRecordingBasePath();
+
+        if(mRecordingCatalog != null && !mRecordingCatalog.getRecordingDirectory().equals(recordingDirectory))
+        {
+            mRecordingCatalog.close();
+            mRecordingCatalog = null;
+        }
+
+        if(mRecordingCatalog == null)
+        {
+            mRecordingCatalog = new RecordingCatalog(recordingDirectory);
+        }
+
+        return mRecordingCatalog;
+    }
+
     /**
      * Base path to recordings folder
      * @return
@@ -300,20 +610,32 @@ public class AudioRecordingManager implements Listener<AudioSegment>
     }
 
     /**
-     * Threaded queue processor to process/record each recordable audio segment
+     * Dispatcher thread queue processor to dispatch each recordable audio segment to the recording writer
      */
     public class QueueProcessor implements Runnable
     {
         @Override
         public void run()
         {
-            try
+            while(mRunning)
             {
-                processAudioSegments();
-            }
-            catch(Throwable t)
-            {
-                mLog.error("Error while processing queued audio segments to recordings", t);
+                try
+                {
+                    AudioSegment audioSegment = mCompletedAudioSegmentQueue.poll(250, TimeUnit.MILLISECONDS);
+
+                    if(audioSegment != null)
+                    {
+                        dispatch(audioSegment);
+                    }
+                }
+                catch(InterruptedException ie)
+                {
+                    return;
+                }
+                catch(Throwable t)
+                {
+                    mLog.error("Error while dispatching queued audio segments to recordings", t);
+                }
             }
         }
     }
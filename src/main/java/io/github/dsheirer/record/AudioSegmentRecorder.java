@@ -25,7 +25,6 @@ import io.github.dsheirer.audio.convert.MP3AudioConverter;
 import io.github.dsheirer.record.wave.AudioMetadata;
 import io.github.dsheirer.record.wave.AudioMetadataUtils;
 import io.github.dsheirer.record.wave.WaveWriter;
-import io.github.dsheirer.sample.ConversionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +32,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Path;
 import java.util.Map;
 
@@ -76,59 +76,147 @@ public class AudioSegmentRecorder
      */
     public static void recordMP3(AudioSegment audioSegment, Path path) throws IOException
     {
-        if(audioSegment.hasAudio())
+        write(encodeMP3(audioSegment), path);
+    }
+
+    /**
+     * Records the audio segment as a WAVe file to the specified path.
+     * @param audioSegment to record
+     * @param path for the recording
+     * @throws IOException on any errors
+     */
+    public static void recordWAVE(AudioSegment audioSegment, Path path) throws IOException
+    {
+        write(encodeWAVE(audioSegment), path);
+    }
+
+    /**
+     * Writes the encoded recording to the path
+     */
+    private static void write(ByteBuffer recording, Path path) throws IOException
+    {
+        if(recording != null)
         {
-            OutputStream outputStream = new FileOutputStream(path.toFile());
+            try(OutputStream outputStream = new FileOutputStream(path.toFile()))
+            {
+                outputStream.write(recording.array(), 0, recording.limit());
+            }
+        }
+    }
 
-            //Write ID3 metadata
-            Map<AudioMetadata,String> metadataMap = AudioMetadataUtils.getMetadataMap(audioSegment.getIdentifierCollection(),
-                audioSegment.getAliasList());
+    /**
+     * Encodes the audio segment in memory as a complete recording file using the specified recording format, so that
+     * the recording can be written to the file with a single write.
+     *
+     * @param audioSegment to encode
+     * @param recordFormat to use (WAVE, MP3)
+     * @return recording file contents or null if the audio segment has no audio
+     */
+    public static ByteBuffer encode(AudioSegment audioSegment, RecordFormat recordFormat)
+    {
+        switch(recordFormat)
+        {
+            case MP3:
+                return encodeMP3(audioSegment);
+            case WAVE:
+                return encodeWAVE(audioSegment);
+            default:
+                throw new IllegalArgumentException("Unrecognized recording format [" + recordFormat.name() + "]");
+        }
+    }
 
-            byte[] id3Bytes = AudioMetadataUtils.getMP3ID3(metadataMap);
-            outputStream.write(id3Bytes);
+    /**
+     * Encodes the audio segment as an MP3 file with ID3 metadata
+     *
+     * @return file contents or null if the audio segment has no audio
+     */
+    public static ByteBuffer encodeMP3(AudioSegment audioSegment)
+    {
+        if(!audioSegment.hasAudio())
+        {
+            return null;
+        }
 
-            //Convert audio to MP3 and write to file
-            MP3AudioConverter converter = new MP3AudioConverter(MP3_BIT_RATE, CONSTANT_BIT_RATE);
-            byte[] mp3 = converter.convertAudio(audioSegment.getAudioBuffers());
-            outputStream.write(mp3);
+        Map<AudioMetadata,String> metadataMap = AudioMetadataUtils.getMetadataMap(audioSegment.getIdentifierCollection(),
+            audioSegment.getAliasList());
+        byte[] id3Bytes = AudioMetadataUtils.getMP3ID3(metadataMap);
 
-            byte[] lastFrame = converter.flush();
+        MP3AudioConverter converter = new MP3AudioConverter(MP3_BIT_RATE, CONSTANT_BIT_RATE);
+        byte[] mp3 = converter.convertAudio(audioSegment.getAudioBuffers());
+        byte[] lastFrame = converter.flush();
+        int lastFrameLength = lastFrame != null ? lastFrame.length : 0;
 
-            if(lastFrame != null && lastFrame.length > 0)
-            {
-                outputStream.write(lastFrame);
-            }
+        ByteBuffer recording = ByteBuffer.allocate(id3Bytes.length + mp3.length + lastFrameLength);
+        recording.put(id3Bytes);
+        recording.put(mp3);
 
-            outputStream.flush();
-            outputStream.close();
+        if(lastFrameLength > 0)
+        {
+            recording.put(lastFrame);
         }
+
+        recording.flip();
+        return recording;
     }
 
     /**
-     * Records the audio segment as a WAVe file to the specified path.
-     * @param audioSegment to record
-     * @param path for the recording
-     * @throws IOException on any errors
+     * Encodes the audio segment as a 16-bit PCM wave file with LIST and ID3 metadata chunks.  Samples are converted
+     * directly into the file buffer.
+     *
+     * @return file contents or null if the audio segment has no audio
      */
-    public static void recordWAVE(AudioSegment audioSegment, Path path) throws IOException
+    public static ByteBuffer encodeWAVE(AudioSegment audioSegment)
     {
-        if(audioSegment.hasAudio())
+        if(!audioSegment.hasAudio())
         {
-            WaveWriter writer = new WaveWriter(AudioFormats.PCM_SIGNED_8KHZ_16BITS_MONO, path);
+            return null;
+        }
+
+        int sampleCount = 0;
+
+        for(float[] audioBuffer: audioSegment.getAudioBuffers())
+        {
+            sampleCount += audioBuffer.length;
+        }
+
+        Map<AudioMetadata,String> metadataMap = AudioMetadataUtils.getMetadataMap(audioSegment.getIdentifierCollection(),
+            audioSegment.getAliasList());
+        ByteBuffer listChunk = AudioMetadataUtils.getLISTChunk(metadataMap);
+        ByteBuffer id3Chunk = AudioMetadataUtils.getID3Chunk(AudioMetadataUtils.getMP3ID3(metadataMap));
 
-            for(float[] audioBuffer: audioSegment.getAudioBuffers())
+        ByteBuffer waveHeader = WaveWriter.getWaveHeader(AudioFormats.PCM_SIGNED_8KHZ_16BITS_MONO);
+        ByteBuffer formatChunk = WaveWriter.getFormatChunk(AudioFormats.PCM_SIGNED_8KHZ_16BITS_MONO);
+        ByteBuffer dataHeader = WaveWriter.getDataHeader();
+        int dataOffset = waveHeader.capacity() + formatChunk.capacity() + dataHeader.capacity();
+
+        ByteBuffer recording = ByteBuffer.allocate(dataOffset + (sampleCount * 2) + listChunk.capacity() +
+            id3Chunk.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+
+        waveHeader.position(0);
+        recording.put(waveHeader);
+        formatChunk.position(0);
+        recording.put(formatChunk);
+        dataHeader.position(0);
+        recording.put(dataHeader);
+
+        for(float[] audioBuffer: audioSegment.getAudioBuffers())
+        {
+            for(float sample: audioBuffer)
             {
-                writer.writeData(ConversionUtils.convertToSigned16BitSamples(audioBuffer));
+                recording.putShort((short)(sample * Short.MAX_VALUE));
             }
+        }
 
-            Map<AudioMetadata,String> metadataMap = AudioMetadataUtils.getMetadataMap(audioSegment.getIdentifierCollection(),
-                audioSegment.getAliasList());
+        listChunk.position(0);
+        recording.put(listChunk);
+        id3Chunk.position(0);
+        recording.put(id3Chunk);
 
-            ByteBuffer listChunk = AudioMetadataUtils.getLISTChunk(metadataMap);
-            byte[] id3Bytes = AudioMetadataUtils.getMP3ID3(metadataMap);
-            ByteBuffer id3Chunk = AudioMetadataUtils.getID3Chunk(id3Bytes);
-            writer.writeMetadata(listChunk, id3Chunk);
-            writer.close();
-        }
+        //Overall RIFF length (total size - 8 bytes) and data chunk length
+        recording.putInt(4, recording.capacity() - 8);
+        recording.putInt(dataOffset - 4, sampleCount * 2);
+
+        recording.flip();
+        return recording;
     }
 }
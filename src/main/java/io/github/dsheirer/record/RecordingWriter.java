@@ -0,0 +1,423 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.record;
+
+import io.github.dsheirer.controller.NamingThreadFactory;
+import io.github.dsheirer.properties.SystemProperties;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dedicated recording writer pipeline.  Recording tasks are queued to a bounded queue and executed by a pool of
+ * encoding worker threads, so that recording encoding and file I/O don't compete with DSP processing for the shared
+ * thread pool and multiple recordings are encoded in parallel.  When the queue is full, the submitting thread
+ * executes the task itself, which applies back-pressure to the submitter instead of growing the queue.
+ *
+ * Recordings are encoded in memory and the encoded buffer is written directly to the file, in bounded slices so that
+ * the temporary direct buffer that the JDK uses for each heap buffer write stays small.  Written files are forced to disk (fsync) in batches by a dedicated sync thread once a second, instead of on each encoding
+ * worker after every file.  Sync tasks (e.g. call containers) are executed with each batch.
+ *
+ * Queue latency, encoding time and write throughput metrics are logged periodically and are available for
+ * diagnostics.
+ *
+ * Configurable via system properties: recording.writer.threads, recording.writer.queue.size and
+ * recording.writer.fsync.
+ */
+public class RecordingWriter
+{
+    private final static Logger mLog = LoggerFactory.getLogger(RecordingWriter.class);
+    public static final String PROPERTY_THREADS = "recording.writer.threads";
+    public static final String PROPERTY_QUEUE_SIZE = "recording.writer.queue.size";
+    public static final String PROPERTY_FSYNC = "recording.writer.fsync";
+    private static final int DEFAULT_QUEUE_SIZE = 256;
+    private static final int MAXIMUM_WRITE_LENGTH = 1024 * 1024;
+    private static final long SYNC_INTERVAL_MILLISECONDS = 1000;
+    private static final long METRICS_LOG_INTERVAL_MILLISECONDS = 60000;
+    private static final int MAXIMUM_PENDING_SYNC = 512;
+
+    private ThreadPoolExecutor mEncoders;
+    private ScheduledExecutorService mSyncExecutor;
+    private boolean mFsync;
+    private List<FileChannel> mPendingSync = new ArrayList<>();
+    private List<Runnable> mSyncTasks = new CopyOnWriteArrayList<>();
+
+    private Metrics mMetrics = new Metrics();
+    private Metrics mLoggedMetrics = new Metrics();
+    private AtomicLong mIntervalMaximumQueueLatency = new AtomicLong();
+    private long mLastMetricsLog = System.currentTimeMillis();
+
+    /**
+     * Constructs and starts the recording writer with the thread count, queue size and fsync settings from the
+     * system properties
+     */
+    public RecordingWriter()
+    {
+        int defaultThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        int threads = Math.max(1, SystemProperties.getInstance().get(PROPERTY_THREADS, defaultThreads));
+        int queueSize = Math.max(1, SystemProperties.getInstance().get(PROPERTY_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+        mFsync = SystemProperties.getInstance().get(PROPERTY_FSYNC, true);
+
+        mEncoders = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize), new NamingThreadFactory("sdrtrunk recording writer"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+        mSyncExecutor = Executors.newSingleThreadScheduledExecutor(new NamingThreadFactory("sdrtrunk recording sync"));
+        mSyncExecutor.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MILLISECONDS, SYNC_INTERVAL_MILLISECONDS,
+            TimeUnit.MILLISECONDS);
+
+        mLog.info("Recording writer started with [" + threads + "] encoding threads, queue size [" + queueSize +
+            "] fsync [" + mFsync + "]");
+    }
+
+    /**
+     * Adds a task that is executed with each sync batch on the sync thread
+     */
+    public void addSyncTask(Runnable task)
+    {
+        mSyncTasks.add(task);
+    }
+
+    /**
+     * Submits a recording task for execution on an encoding worker thread.  When the queue is full, the task is
+     * executed on the calling thread.
+     *
+     * @param task to encode and write a recording
+     */
+    public void submit(Runnable task)
+    {
+        long queued = System.nanoTime();
+
+        mEncoders.execute(() -> {
+            long started = System.nanoTime();
+
+            try
+            {
+                task.run();
+            }
+            catch(Throwable t)
+            {
+                mLog.error("Error while executing recording task", t);
+            }
+            finally
+            {
+                long queueLatency = started - queued;
+                mMetrics.update(queueLatency, System.nanoTime() - started);
+                mIntervalMaximumQueueLatency.accumulateAndGet(queueLatency, Math::max);
+            }
+        });
+    }
+
+    /**
+     * Number of recording tasks waiting in the queue
+     */
+    public int getQueueDepth()
+    {
+        return mEncoders.getQueue().size();
+    }
+
+    /**
+     * Writes the recording to the file.  The file is forced to disk with the next sync batch.
+     *
+     * @param path for the recording
+     * @param recording file contents from position to limit
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path path, ByteBuffer recording) throws IOException
+    {
+        int length = recording.remaining();
+        int limit = recording.limit();
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+
+        try
+        {
+            while(recording.position() < limit)
+            {
+                recording.limit(Math.min(limit, recording.position() + MAXIMUM_WRITE_LENGTH));
+                channel.write(recording);
+            }
+        }
+        catch(IOException ioe)
+        {
+            channel.close();
+            throw ioe;
+        }
+        finally
+        {
+            recording.limit(limit);
+        }
+
+        mMetrics.mBytes.addAndGet(length);
+
+        if(mFsync)
+        {
+            boolean syncNow;
+
+            synchronized(mPendingSync)
+            {
+                mPendingSync.add(channel);
+                syncNow = mPendingSync.size() >= MAXIMUM_PENDING_SYNC;
+            }
+
+            //Limit the number of open files waiting for the next sync batch
+            if(syncNow)
+            {
+                mSyncExecutor.execute(this::syncFiles);
+            }
+        }
+        else
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Sync batch: forces written files to disk, executes the sync tasks and periodically logs the metrics
+     */
+    private void sync()
+    {
+        try
+        {
+            syncFiles();
+
+            for(Runnable task : mSyncTasks)
+            {
+                task.run();
+            }
+
+            long now = System.currentTimeMillis();
+
+            if(now - mLastMetricsLog >= METRICS_LOG_INTERVAL_MILLISECONDS)
+            {
+                logMetrics(now);
+            }
+        }
+        catch(Throwable t)
+        {
+            mLog.error("Error while syncing recordings", t);
+        }
+    }
+
+    /**
+     * Forces the files written since the last sync batch to disk and closes them
+     */
+    private void syncFiles()
+    {
+        List<FileChannel> channels;
+
+        synchronized(mPendingSync)
+        {
+            if(mPendingSync.isEmpty())
+            {
+                return;
+            }
+
+            channels = new ArrayList<>(mPendingSync);
+            mPendingSync.clear();
+        }
+
+        long start = System.nanoTime();
+
+        for(FileChannel channel : channels)
+        {
+            try
+            {
+                channel.force(true);
+            }
+            catch(IOException ioe)
+            {
+                mLog.error("Error syncing recording to disk", ioe);
+            }
+
+            try
+            {
+                channel.close();
+            }
+            catch(IOException ioe)
+            {
+                mLog.error("Error closing recording", ioe);
+            }
+        }
+
+        mMetrics.mSyncs.addAndGet(channels.size());
+        mMetrics.mSyncTime.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * Logs the metrics for the interval since the last log, when there was recording activity
+     */
+    private void logMetrics(long now)
+    {
+        long elapsed = now - mLastMetricsLog;
+        mLastMetricsLog = now;
+
+        Metrics interval = mMetrics.since(mLoggedMetrics, mIntervalMaximumQueueLatency.getAndSet(0));
+        mLoggedMetrics = mMetrics.copy();
+
+        if(interval.mCount.get() > 0)
+        {
+            mLog.info("Recording writer " + interval.format(elapsed) + " queue depth [" + getQueueDepth() + "]");
+        }
+    }
+
+    /**
+     * Recording writer metrics since the writer was started
+     */
+    public String getMetrics()
+    {
+        return mMetrics.format(System.currentTimeMillis() - mMetrics.mStart) + " queue depth [" + getQueueDepth() +
+            "]";
+    }
+
+    /**
+     * Stops the writer.  Completes all queued recording tasks, forces all written files to disk and executes the
+     * sync tasks.
+     */
+    public void stop()
+    {
+        mEncoders.shutdown();
+
+        try
+        {
+            if(!mEncoders.awaitTermination(1, TimeUnit.MINUTES))
+            {
+                mLog.warn("Timeout waiting for queued recordings to complete - [" + getQueueDepth() + "] recordings " +
+                    "not written");
+                mEncoders.shutdownNow();
+            }
+        }
+        catch(InterruptedException ie)
+        {
+            mLog.warn("Interrupted while waiting for queued recordings to complete");
+            mEncoders.shutdownNow();
+        }
+
+        mSyncExecutor.shutdown();
+
+        try
+        {
+            mSyncExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException ie)
+        {
+            //Continue with the final sync
+        }
+
+        sync();
+        mLog.info("Recording writer stopped - " + getMetrics());
+    }
+
+    /**
+     * Recording writer counters
+     */
+    private static class Metrics
+    {
+        private long mStart = System.currentTimeMillis();
+        private AtomicLong mCount = new AtomicLong();
+        private AtomicLong mQueueLatency = new AtomicLong();
+        private AtomicLong mMaximumQueueLatency = new AtomicLong();
+        private AtomicLong mEncodeTime = new AtomicLong();
+        private AtomicLong mBytes = new AtomicLong();
+        private AtomicLong mSyncs = new AtomicLong();
+        private AtomicLong mSyncTime = new AtomicLong();
+
+        /**
+         * Updates the counters for a completed recording task
+         *
+         * @param queueLatency nanoseconds that the task waited in the queue
+         * @param encodeTime nanoseconds that the task took to encode and write the recording
+         */
+        public void update(long queueLatency, long encodeTime)
+        {
+            mCount.incrementAndGet();
+            mQueueLatency.addAndGet(queueLatency);
+            mEncodeTime.addAndGet(encodeTime);
+            mMaximumQueueLatency.accumulateAndGet(queueLatency, Math::max);
+        }
+
+        /**
+         * Copy of the current counters
+         */
+        public Metrics copy()
+        {
+            Metrics copy = new Metrics();
+            copy.mCount.set(mCount.get());
+            copy.mQueueLatency.set(mQueueLatency.get());
+            copy.mMaximumQueueLatency.set(mMaximumQueueLatency.get());
+            copy.mEncodeTime.set(mEncodeTime.get());
+            copy.mBytes.set(mBytes.get());
+            copy.mSyncs.set(mSyncs.get());
+            copy.mSyncTime.set(mSyncTime.get());
+            return copy;
+        }
+
+        /**
+         * Counters accumulated since the previous counters
+         *
+         * @param previous counters
+         * @param maximumQueueLatency maximum queue latency since the previous counters
+         */
+        public Metrics since(Metrics previous, long maximumQueueLatency)
+        {
+            Metrics interval = new Metrics();
+            interval.mCount.set(mCount.get() - previous.mCount.get());
+            interval.mQueueLatency.set(mQueueLatency.get() - previous.mQueueLatency.get());
+            interval.mMaximumQueueLatency.set(maximumQueueLatency);
+            interval.mEncodeTime.set(mEncodeTime.get() - previous.mEncodeTime.get());
+            interval.mBytes.set(mBytes.get() - previous.mBytes.get());
+            interval.mSyncs.set(mSyncs.get() - previous.mSyncs.get());
+            interval.mSyncTime.set(mSyncTime.get() - previous.mSyncTime.get());
+            return interval;
+        }
+
+        /**
+         * Formats the counters as rates and averages over the elapsed period
+         */
+        public String format(long elapsedMilliseconds)
+        {
+            long count = Math.max(mCount.get(), 1);
+            long syncs = Math.max(mSyncs.get(), 1);
+            long bytesPerSecond = mBytes.get() * 1000 / Math.max(elapsedMilliseconds, 1);
+
+            return "recordings [" + mCount.get() + "] queue latency avg [" +
+                (mQueueLatency.get() / count / 1000000) + "] max [" + (mMaximumQueueLatency.get() / 1000000) +
+                "] ms encode avg [" + (mEncodeTime.get() / count / 1000000) + "] ms written [" +
+                FileUtils.byteCountToDisplaySize(mBytes.get()) + "] rate [" +
+                FileUtils.byteCountToDisplaySize(bytesPerSecond) + "/s] fsync [" + mSyncs.get() + "] avg [" +
+                (mSyncTime.get() / syncs / 1000) + "] us";
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.record.catalog;
+
+import io.github.dsheirer.util.store.DailySegments;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Recording catalog.  Each recorded call is cataloged with the call start/end times, identifiers, aliases, channel
+ * and the recording file so that calls can be found without scanning the recording directory.
+ *
+ * The catalog is stored in the catalog folder of the recording directory with one segment per day.  Each segment is
+ * a tab separated catalog file and an index of the time range of the calls in the segment and the catalog lines for
+ * each identifier value and alias name.  A lookup only reads the indexes of the segments that overlap the time range
+ * and then only the matching catalog lines.
+ */
+public class RecordingCatalog
+{
+    private final static Logger mLog = LoggerFactory.getLogger(RecordingCatalog.class);
+    public static final String CATALOG_DIRECTORY = "catalog";
+    private static final String SEGMENT_PREFIX = "recordings_";
+
+    private Path mRecordingDirectory;
+    private Path mCatalogDirectory;
+    private DailySegments<RecordingCatalogSegment> mSegments;
+
+    /**
+     * Opens the recording catalog for the recording directory, creating the catalog folder if necessary
+     *
+     * @param recordingDirectory that contains the recordings
+     * @throws IOException if the catalog folder can't be created
+     */
+    public RecordingCatalog(Path recordingDirectory) throws IOException
+    {
+        mRecordingDirectory = recordingDirectory;
+        mCatalogDirectory = recordingDirectory.resolve(CATALOG_DIRECTORY);
+        Files.createDirectories(mCatalogDirectory);
+        mSegments = new DailySegments<>(mCatalogDirectory, SEGMENT_PREFIX, RecordingCatalogSegment.CATALOG_SUFFIX,
+            RecordingCatalogSegment::openForRead, RecordingCatalogSegment::openForWrite);
+        loadSegments();
+    }
+
+    /**
+     * Recording directory for this catalog
+     */
+    public Path getRecordingDirectory()
+    {
+        return mRecordingDirectory;
+    }
+
+    /**
+     * Opens the existing segments in the catalog folder
+     */
+    private synchronized void loadSegments()
+    {
+        mLog.info("Recording catalog opened with [" + mSegments.load() + "] segments");
+    }
+
+    /**
+     * File name of the recording relative to the recording directory, or the absolute path when the recording is
+     * outside of the recording directory
+     */
+    public String getRelativeName(Path recording)
+    {
+        if(recording.startsWith(mRecordingDirectory))
+        {
+            return mRecordingDirectory.relativize(recording).toString();
+        }
+
+        return recording.toAbsolutePath().toString();
+    }
+
+    /**
+     * Resolves the recording file for a catalog entry
+     */
+    public Path getRecordingPath(RecordingCatalogEntry entry)
+    {
+        return mRecordingDirectory.resolve(entry.getFile());
+    }
+
+    /**
+     * Adds the entry to the catalog
+     *
+     * @param entry to add
+     * @throws IOException if the entry can't be written
+     */
+    public synchronized void add(RecordingCatalogEntry entry) throws IOException
+    {
+        mSegments.getWriteSegment(System.currentTimeMillis()).append(entry);
+    }
+
+    /**
+     * Forces catalog writes to disk
+     */
+    public synchronized void sync() throws IOException
+    {
+        RecordingCatalogSegment segment = mSegments.getWriteSegment();
+
+        if(segment != null)
+        {
+            segment.sync();
+        }
+    }
+
+    /**
+     * Finds calls that started within the time range.
+     *
+     * @param key TO/FROM identifier value or alias name, or null for all calls
+     * @param start time in milliseconds (inclusive)
+     * @param end time in milliseconds (inclusive)
+     * @param maxResults maximum number of entries to return
+     * @return matching entries ordered by call start time
+     * @throws IOException if there is an error reading the catalog
+     */
+    public synchronized List<RecordingCatalogEntry> find(String key, long start, long end, int maxResults)
+        throws IOException
+    {
+        List<RecordingCatalogEntry> entries = new ArrayList<>();
+
+        for(RecordingCatalogSegment segment : mSegments.getSegments(start, end))
+        {
+            segment.find(key, start, end, entries::add);
+            trackLoadedIndex(key, segment);
+        }
+
+        entries.sort(Comparator.comparingLong(RecordingCatalogEntry::getStart));
+
+        if(entries.size() > maxResults)
+        {
+            return new ArrayList<>(entries.subList(0, maxResults));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Exports the catalog entries for calls that started within the time range as tab separated lines with a header
+     * line.  Entries are streamed to the writer segment by segment so that large exports don't accumulate in memory.
+     *
+     * @param key TO/FROM identifier value or alias name, or null for all calls
+     * @param start time in milliseconds (inclusive)
+     * @param end time in milliseconds (inclusive)
+     * @param writer to receive the export
+     * @return number of entries exported
+     * @throws IOException if there is an error reading the catalog or writing the export
+     */
+    public synchronized long export(String key, long start, long end, Writer writer) throws IOException
+    {
+        long[] count = new long[1];
+        IOException[] error = new IOException[1];
+
+        writer.write(RecordingCatalogEntry.HEADER);
+        writer.write('\n');
+
+        for(RecordingCatalogSegment segment : mSegments.getSegments(start, end))
+        {
+            segment.find(key, start, end, entry -> {
+                if(error[0] == null)
+                {
+                    try
+                    {
+                        writer.write(entry.toLine());
+                        writer.write('\n');
+                        count[0]++;
+                    }
+                    catch(IOException ioe)
+                    {
+                        error[0] = ioe;
+                    }
+                }
+            });
+
+            trackLoadedIndex(key, segment);
+
+            if(error[0] != null)
+            {
+                throw error[0];
+            }
+        }
+
+        writer.flush();
+        return count[0];
+    }
+
+    /**
+     * Tracks segments with a loaded lookup index after a key lookup
+     */
+    private void trackLoadedIndex(String key, RecordingCatalogSegment segment)
+    {
+        if(key != null)
+        {
+            mSegments.trackLoadedIndex(segment);
+        }
+    }
+
+    /**
+     * Closes the catalog
+     */
+    public synchronized void close()
+    {
+        mSegments.closeWriteSegment();
+    }
+
+    /**
+     * Command line lookup and export of a recording catalog.
+     *
+     * Arguments: recording_directory find|export key|* start(yyyyMMddHHmm) end(yyyyMMddHHmm)
+     *
+     * Export writes the matching catalog entries to standard out.
+     */
+    public static void main(String[] args) throws IOException, ParseException
+    {
+        if(args.length != 5 || !(args[1].equals("find") || args[1].equals("export")))
+        {
+            System.out.println("Usage: RecordingCatalog recording_directory find|export key|* start(yyyyMMddHHmm) " +
+                "end(yyyyMMddHHmm)");
+            return;
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmm");
+        String key = args[2].equals("*") ? null : args[2];
+        long start = format.parse(args[3]).getTime();
+        long end = format.parse(args[4]).getTime();
+
+        RecordingCatalog catalog = new RecordingCatalog(Paths.get(args[0]));
+
+        if(args[1].equals("export"))
+        {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 65536);
+            catalog.export(key, start, end, writer);
+        }
+        else
+        {
+            long lookupStart = System.nanoTime();
+            List<RecordingCatalogEntry> entries = catalog.find(key, start, end, Integer.MAX_VALUE);
+            long elapsed = (System.nanoTime() - lookupStart) / 1000000;
+
+            for(RecordingCatalogEntry entry : entries)
+            {
+                System.out.println(catalog.getRecordingPath(entry) + "\t" + entry);
+            }
+
+            System.out.println("Found [" + entries.size() + "] recordings in [" + elapsed + "] ms");
+        }
+
+        catalog.close();
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.record.catalog;
+
+import io.github.dsheirer.alias.Alias;
+import io.github.dsheirer.alias.AliasList;
+import io.github.dsheirer.audio.AudioSegment;
+import io.github.dsheirer.identifier.Form;
+import io.github.dsheirer.identifier.Identifier;
+import io.github.dsheirer.identifier.IdentifierClass;
+import io.github.dsheirer.identifier.IdentifierCollection;
+import io.github.dsheirer.identifier.Role;
+import io.github.dsheirer.identifier.configuration.ChannelNameConfigurationIdentifier;
+import io.github.dsheirer.identifier.configuration.FrequencyConfigurationIdentifier;
+import io.github.dsheirer.identifier.configuration.SiteConfigurationIdentifier;
+import io.github.dsheirer.identifier.configuration.SystemConfigurationIdentifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalog entry for a recorded call.  Entries are stored as tab separated lines in the recording catalog so that a
+ * catalog can be exported or inspected with standard text tools.
+ *
+ * The file is relative to the recording directory and the offset and length identify the call audio within the file,
+ * which is the full file for individual call recordings.
+ */
+public class RecordingCatalogEntry
+{
+    /**
+     * Column header line for catalog and export files
+     */
+    public static final String HEADER = "#START\tEND\tDURATION_MS\tTO\tFROM\tTO_ALIAS\tFROM_ALIAS\tSYSTEM\tSITE\t" +
+        "CHANNEL\tFREQUENCY\tFILE\tOFFSET\tLENGTH";
+    private static final int FIELD_COUNT = 14;
+    private static final int AUDIO_SAMPLE_RATE = 8000;
+
+    private long mStart;
+    private long mEnd;
+    private String mTo;
+    private String mFrom;
+    private String mToAlias;
+    private String mFromAlias;
+    private String mSystem;
+    private String mSite;
+    private String mChannel;
+    private long mFrequency;
+    private String mFile;
+    private long mOffset;
+    private long mLength;
+
+    /**
+     * Constructs an entry
+     */
+    public RecordingCatalogEntry(long start, long end, String to, String from, String toAlias, String fromAlias,
+                                 String system, String site, String channel, long frequency, String file,
+                                 long offset, long length)
+    {
+        mStart = start;
+        mEnd = end;
+        mTo = clean(to);
+        mFrom = clean(from);
+        mToAlias = clean(toAlias);
+        mFromAlias = clean(fromAlias);
+        mSystem = clean(system);
+        mSite = clean(site);
+        mChannel = clean(channel);
+        mFrequency = frequency;
+        mFile = clean(file);
+        mOffset = offset;
+        mLength = length;
+    }
+
+    /**
+     * Creates a catalog entry for an audio segment that was recorded to a file.
+     *
+     * @param audioSegment that was recorded
+     * @param file name of the recording, relative to the recording directory
+     * @param offset of the call audio within the file
+     * @param length of the call audio within the file
+     * @return entry
+     */
+    public static RecordingCatalogEntry create(AudioSegment audioSegment, String file, long offset, long length)
+    {
+        long samples = 0;
+
+        for(float[] buffer : audioSegment.getAudioBuffers())
+        {
+            samples += buffer.length;
+        }
+
+        long start = audioSegment.getStartTimestamp();
+        long end = start + (samples * 1000 / AUDIO_SAMPLE_RATE);
+
+        String to = null;
+        String from = null;
+        String toAlias = null;
+        String fromAlias = null;
+        String system = null;
+        String site = null;
+        String channel = null;
+        long frequency = 0;
+
+        IdentifierCollection identifiers = audioSegment.getIdentifierCollection();
+        AliasList aliasList = audioSegment.getAliasList();
+
+        if(identifiers != null)
+        {
+            Identifier toIdentifier = getFirst(identifiers.getIdentifiers(Role.TO));
+
+            if(toIdentifier != null)
+            {
+                to = String.valueOf(toIdentifier.getValue());
+                toAlias = getAliases(aliasList, toIdentifier);
+            }
+
+            Identifier fromIdentifier = getFirst(identifiers.getIdentifiers(Role.FROM));
+
+            if(fromIdentifier != null)
+            {
+                from = String.valueOf(fromIdentifier.getValue());
+                fromAlias = getAliases(aliasList, fromIdentifier);
+            }
+
+            Identifier systemIdentifier = identifiers.getIdentifier(IdentifierClass.CONFIGURATION, Form.SYSTEM,
+                Role.ANY);
+
+            if(systemIdentifier instanceof SystemConfigurationIdentifier)
+            {
+                system = ((SystemConfigurationIdentifier)systemIdentifier).getValue();
+            }
+
+            Identifier siteIdentifier = identifiers.getIdentifier(IdentifierClass.CONFIGURATION, Form.SITE, Role.ANY);
+
+            if(siteIdentifier instanceof SiteConfigurationIdentifier)
+            {
+                site = ((SiteConfigurationIdentifier)siteIdentifier).getValue();
+            }
+
+            Identifier channelIdentifier = identifiers.getIdentifier(IdentifierClass.CONFIGURATION, Form.CHANNEL,
+                Role.ANY);
+
+            if(channelIdentifier instanceof ChannelNameConfigurationIdentifier)
+            {
+                channel = ((ChannelNameConfigurationIdentifier)channelIdentifier).getValue();
+            }
+
+            Identifier frequencyIdentifier = identifiers.getIdentifier(IdentifierClass.CONFIGURATION,
+                Form.CHANNEL_FREQUENCY, Role.ANY);
+
+            if(frequencyIdentifier instanceof FrequencyConfigurationIdentifier)
+            {
+                frequency = ((FrequencyConfigurationIdentifier)frequencyIdentifier).getValue();
+            }
+        }
+
+        return new RecordingCatalogEntry(start, end, to, from, toAlias, fromAlias, system, site, channel, frequency,
+            file, offset, length);
+    }
+
+    /**
+     * First identifier from the list, excluding tone identifiers, or null
+     */
+    private static Identifier getFirst(List<Identifier> identifiers)
+    {
+        for(Identifier identifier : identifiers)
+        {
+            if(identifier.getForm() != Form.TONE && identifier.getValue() != null)
+            {
+                return identifier;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Comma separated alias names for the identifier, or null
+     */
+    private static String getAliases(AliasList aliasList, Identifier identifier)
+    {
+        if(aliasList == null)
+        {
+            return null;
+        }
+
+        List<Alias> aliases = aliasList.getAliases(identifier);
+
+        if(aliases.isEmpty())
+        {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        for(Alias alias : aliases)
+        {
+            if(sb.length() > 0)
+            {
+                sb.append(",");
+            }
+
+            sb.append(alias.getName());
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Call start timestamp
+     */
+    public long getStart()
+    {
+        return mStart;
+    }
+
+    /**
+     * Call end timestamp
+     */
+    public long getEnd()
+    {
+        return mEnd;
+    }
+
+    /**
+     * Call duration in milliseconds
+     */
+    public long getDuration()
+    {
+        return mEnd - mStart;
+    }
+
+    /**
+     * Value of the TO identifier or null
+     */
+    public String getTo()
+    {
+        return mTo;
+    }
+
+    /**
+     * Value of the FROM identifier or null
+     */
+    public String getFrom()
+    {
+        return mFrom;
+    }
+
+    /**
+     * Alias name(s) for the TO identifier or null
+     */
+    public String getToAlias()
+    {
+        return mToAlias;
+    }
+
+    /**
+     * Alias name(s) for the FROM identifier or null
+     */
+    public String getFromAlias()
+    {
+        return mFromAlias;
+    }
+
+    public String getSystem()
+    {
+        return mSystem;
+    }
+
+    public String getSite()
+    {
+        return mSite;
+    }
+
+    public String getChannel()
+    {
+        return mChannel;
+    }
+
+    /**
+     * Channel frequency or 0 if unknown
+     */
+    public long getFrequency()
+    {
+        return mFrequency;
+    }
+
+    /**
+     * Recording file name, relative to the recording directory
+     */
+    public String getFile()
+    {
+        return mFile;
+    }
+
+    /**
+     * Offset of the call audio within the recording file
+     */
+    public long getOffset()
+    {
+        return mOffset;
+    }
+
+    /**
+     * Length of the call audio within the recording file
+     */
+    public long getLength()
+    {
+        return mLength;
+    }
+
+    /**
+     * Creates a copy of this entry with the recording file and the location of the call audio within the file
+     *
+     * @param file name of the recording, relative to the recording directory
+     * @param offset of the call audio within the file
+     * @param length of the call audio within the file
+     * @return entry
+     */
+    public RecordingCatalogEntry withLocation(String file, long offset, long length)
+    {
+        return new RecordingCatalogEntry(mStart, mEnd, mTo, mFrom, mToAlias, mFromAlias, mSystem, mSite, mChannel,
+            mFrequency, file, offset, length);
+    }
+
+    /**
+     * Values that are indexed for lookup: TO and FROM identifier values and alias names
+     */
+    List<String> getIndexKeys()
+    {
+        List<String> keys = new ArrayList<>(4);
+        addKey(keys, mTo);
+        addKey(keys, mFrom);
+        addAliasKeys(keys, mToAlias);
+        addAliasKeys(keys, mFromAlias);
+        return keys;
+    }
+
+    private static void addKey(List<String> keys, String key)
+    {
+        if(key != null && !key.isEmpty() && !keys.contains(key))
+        {
+            keys.add(key);
+        }
+    }
+
+    private static void addAliasKeys(List<String> keys, String aliases)
+    {
+        if(aliases != null)
+        {
+            for(String alias : aliases.split(","))
+            {
+                addKey(keys, alias);
+            }
+        }
+    }
+
+    /**
+     * Formats the entry as a tab separated catalog line, without a line terminator
+     */
+    public String toLine()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(mStart).append('\t');
+        sb.append(mEnd).append('\t');
+        sb.append(getDuration()).append('\t');
+        append(sb, mTo);
+        append(sb, mFrom);
+        append(sb, mToAlias);
+        append(sb, mFromAlias);
+        append(sb, mSystem);
+        append(sb, mSite);
+        append(sb, mChannel);
+        sb.append(mFrequency).append('\t');
+        append(sb, mFile);
+        sb.append(mOffset).append('\t');
+        sb.append(mLength);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the value and a tab separator
+     */
+    private static void append(StringBuilder sb, String value)
+    {
+        if(value != null)
+        {
+            sb.append(value);
+        }
+
+        sb.append('\t');
+    }
+
+    /**
+     * Replaces tabs and line breaks in the value with spaces so that the value can be stored in a catalog line
+     */
+    private static String clean(String value)
+    {
+        if(value == null || value.isEmpty())
+        {
+            return null;
+        }
+
+        StringBuilder sb = null;
+
+        for(int x = 0; x < value.length(); x++)
+        {
+            char c = value.charAt(x);
+
+            if(c == '\t' || c == '\n' || c == '\r')
+            {
+                if(sb == null)
+                {
+                    sb = new StringBuilder(value);
+                }
+
+                sb.setCharAt(x, ' ');
+            }
+        }
+
+        return sb != null ? sb.toString() : value;
+    }
+
+    /**
+     * Parses a catalog line
+     *
+     * @param line to parse
+     * @return entry or null if the line is a comment/header line or is not a valid entry
+     */
+    public static RecordingCatalogEntry parse(String line)
+    {
+        if(line == null || line.isEmpty() || line.charAt(0) == '#')
+        {
+            return null;
+        }
+
+        String[] fields = line.split("\t", -1);
+
+        if(fields.length != FIELD_COUNT)
+        {
+            return null;
+        }
+
+        try
+        {
+            return new RecordingCatalogEntry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), value(fields[3]),
+                value(fields[4]), value(fields[5]), value(fields[6]), value(fields[7]), value(fields[8]),
+                value(fields[9]), Long.parseLong(fields[10]), value(fields[11]), Long.parseLong(fields[12]),
+                Long.parseLong(fields[13]));
+        }
+        catch(NumberFormatException nfe)
+        {
+            return null;
+        }
+    }
+
+    private static String value(String field)
+    {
+        return field.isEmpty() ? null : field;
+    }
+
+    @Override
+    public String toString()
+    {
+        return toLine();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.record.catalog;
+
+import io.github.dsheirer.util.store.AppendOnlySegment;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Append-only segment of the recording catalog.  Each segment is a tab separated catalog file with one line per
+ * recorded call and an index file that holds the time range of the calls in the segment and a lookup index that maps
+ * each identifier value and alias name to the file offsets of the catalog lines that contain it.
+ */
+public class RecordingCatalogSegment extends AppendOnlySegment<RecordingCatalogEntry>
+{
+    public static final String CATALOG_SUFFIX = ".tsv";
+    private static final int INDEX_VERSION = 1;
+
+    private ByteBuffer mReadBuffer = ByteBuffer.allocate(1024);
+    private ByteArrayOutputStream mLine = new ByteArrayOutputStream(256);
+
+    /**
+     * Constructs a segment
+     *
+     * @param catalogPath of the segment catalog file
+     */
+    private RecordingCatalogSegment(Path catalogPath)
+    {
+        super(catalogPath, CATALOG_SUFFIX, INDEX_VERSION);
+    }
+
+    /**
+     * Opens an existing segment for reading.  Loads the segment time range from the index file, or re-indexes the
+     * catalog file when the index is missing or stale.  The lookup index is loaded on demand.
+     *
+     * @param catalogPath of the segment catalog file
+     * @return segment
+     * @throws IOException if the segment cannot be read
+     */
+    public static RecordingCatalogSegment openForRead(Path catalogPath) throws IOException
+    {
+        RecordingCatalogSegment segment = new RecordingCatalogSegment(catalogPath);
+        segment.openForRead();
+        return segment;
+    }
+
+    /**
+     * Opens a segment for appending, creating the catalog file with a header line if it doesn't exist
+     *
+     * @param catalogPath of the segment catalog file
+     * @return segment
+     * @throws IOException if the segment cannot be opened
+     */
+    public static RecordingCatalogSegment openForWrite(Path catalogPath) throws IOException
+    {
+        RecordingCatalogSegment segment = new RecordingCatalogSegment(catalogPath);
+        segment.openForWrite();
+
+        if(segment.getLength() == 0)
+        {
+            segment.write(toBytes(RecordingCatalogEntry.HEADER));
+        }
+
+        return segment;
+    }
+
+    /**
+     * Line and line terminator bytes
+     */
+    private static ByteBuffer toBytes(String line)
+    {
+        return ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected ByteBuffer encode(RecordingCatalogEntry entry)
+    {
+        return toBytes(entry.toLine());
+    }
+
+    /**
+     * Reads and parses the line at the offset
+     */
+    @Override
+    protected RecordingCatalogEntry read(FileChannel channel, long offset) throws IOException
+    {
+        mLine.reset();
+        long position = offset;
+
+        while(true)
+        {
+            mReadBuffer.clear();
+            int read = channel.read(mReadBuffer, position);
+
+            if(read <= 0)
+            {
+                break;
+            }
+
+            byte[] bytes = mReadBuffer.array();
+
+            for(int x = 0; x < read; x++)
+            {
+                if(bytes[x] == '\n')
+                {
+                    mLine.write(bytes, 0, x);
+                    return RecordingCatalogEntry.parse(new String(mLine.toByteArray(), StandardCharsets.UTF_8));
+                }
+            }
+
+            mLine.write(bytes, 0, read);
+            position += read;
+        }
+
+        return RecordingCatalogEntry.parse(new String(mLine.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected long scan(long length, RecordConsumer<RecordingCatalogEntry> consumer) throws IOException
+    {
+        try(InputStream input = new BufferedInputStream(Files.newInputStream(getDataPath()), 65536))
+        {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            long offset = 0;
+            long position = 0;
+            int value;
+
+            while(position < length && (value = input.read()) >= 0)
+            {
+                position++;
+
+                if(value == '\n')
+                {
+                    RecordingCatalogEntry entry = RecordingCatalogEntry.parse(new String(line.toByteArray(),
+                        StandardCharsets.UTF_8));
+
+                    if(entry != null)
+                    {
+                        consumer.accept(entry, offset);
+                    }
+
+                    line.reset();
+                    offset = position;
+                }
+                else
+                {
+                    line.write(value);
+                }
+            }
+
+            return offset;
+        }
+    }
+
+    @Override
+    protected long getTime(RecordingCatalogEntry entry)
+    {
+        return entry.getStart();
+    }
+
+    @Override
+    protected Collection<String> getKeys(RecordingCatalogEntry entry)
+    {
+        return entry.getIndexKeys();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.record.container;
+
+import io.github.dsheirer.record.RecordFormat;
+
+/**
+ * Call audio container file format.  A call container holds the audio and metadata for many recorded calls in a
+ * single file, so that recording servers don't create an individual file for every call.
+ *
+ * Layout (all values big-endian):
+ *
+ * Header: magic 'SDRC' (int), version (int), codec (int)
+ *
+ * Call record, repeated: magic 'CALL' (int), metadata length (int), audio length (int), metadata (UTF-8 recording
+ * catalog line), audio (MP3 frames or 16-bit little-endian 8 kHz mono PCM samples)
+ *
+ * Index, written when the container is closed: magic 'INDX' (int), call count (int), then for each call the length
+ * (int) and UTF-8 bytes of the recording catalog line with the container file name and audio offset and length.
+ *
+ * Footer, written when the container is closed: index offset (long), magic 'CEND' (int)
+ *
+ * Each call record is self-describing, so a container that was not closed (e.g. after an unclean shutdown) is
+ * recovered by scanning the call records.
+ */
+public class CallContainer
+{
+    public static final String FILE_SUFFIX = ".calls";
+    public static final int FILE_MAGIC = 0x53445243; //SDRC
+    public static final int VERSION = 1;
+    public static final int HEADER_LENGTH = 12;
+    public static final int RECORD_MAGIC = 0x43414C4C; //CALL
+    public static final int RECORD_HEADER_LENGTH = 12;
+    public static final int INDEX_MAGIC = 0x494E4458; //INDX
+    public static final int FOOTER_MAGIC = 0x43454E44; //CEND
+    public static final int FOOTER_LENGTH = 12;
+
+    /**
+     * Audio codec for the calls in a container
+     */
+    public enum Codec
+    {
+        PCM(0, RecordFormat.WAVE),
+        MP3(1, RecordFormat.MP3);
+
+        private int mValue;
+        private RecordFormat mRecordFormat;
+
+        Codec(int value, RecordFormat recordFormat)
+        {
+            mValue = value;
+            mRecordFormat = recordFormat;
+        }
+
+        /**
+         * Value stored in the container header
+         */
+        public int getValue()
+        {
+            return mValue;
+        }
+
+        /**
+         * Recording format that the codec audio can be extracted to without conversion
+         */
+        public RecordFormat getRecordFormat()
+        {
+            return mRecordFormat;
+        }
+
+        /**
+         * Codec for the container header value
+         *
+         * @return codec or null if the value is not recognized
+         */
+        public static Codec fromValue(int value)
+        {
+            for(Codec codec : values())
+            {
+                if(codec.mValue == value)
+                {
+                    return codec;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Codec used to record calls for the recording format
+         */
+        public static Codec fromRecordFormat(RecordFormat recordFormat)
+        {
+            return recordFormat == RecordFormat.WAVE ? PCM : MP3;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.record.container;
+
+import io.github.dsheirer.audio.AudioSegment;
+import io.github.dsheirer.audio.convert.MP3AudioConverter;
+import io.github.dsheirer.record.AudioSegmentRecorder;
+import io.github.dsheirer.record.RecordFormat;
+import io.github.dsheirer.record.catalog.RecordingCatalogEntry;
+import io.github.dsheirer.sample.ConversionUtils;
+import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records calls to hourly call containers for each system, instead of an individual recording file for each call.
+ *
+ * Containers are created in the container folder of the recording directory and are named with the system, the
+ * hour and the audio codec.  Containers from previous hours are closed, which writes the container index.
+ *
+ * Calls are buffered by the container writers, so the recording catalog entry for each call is held until the call
+ * has been written to the container file by a flush, sync or close.  A catalog entry is never released for a call
+ * that could be lost from the container after an unclean shutdown.
+ */
+public class CallContainerManager
+{
+    private final static Logger mLog = LoggerFactory.getLogger(CallContainerManager.class);
+    public static final String CONTAINER_DIRECTORY = "container";
+    private static final String UNKNOWN_SYSTEM = "UNKNOWN";
+
+    private Path mRecordingDirectory;
+    private Path mContainerDirectory;
+    private Map<String,CallContainerWriter> mWriters = new HashMap<>();
+    private Map<CallContainerWriter,List<RecordingCatalogEntry>> mPendingEntries = new HashMap<>();
+    private List<RecordingCatalogEntry> mCompletedEntries = new ArrayList<>();
+    private Listener<RecordingCatalogEntry> mCatalogListener;
+    private SimpleDateFormat mHourFormat = new SimpleDateFormat("yyyyMMdd_HH");
+    private String mHour;
+
+    /**
+     * Constructs an instance for the recording directory, creating the container folder if necessary
+     *
+     * @param recordingDirectory that contains the recordings
+     * @param catalogListener to receive the recording catalog entry for each call once the call is written to the
+     * container file, or null
+     * @throws IOException if the container folder can't be created
+     */
+    public CallContainerManager(Path recordingDirectory, Listener<RecordingCatalogEntry> catalogListener)
+        throws IOException
+    {
+        mRecordingDirectory = recordingDirectory;
+        mCatalogListener = catalogListener;
+        mContainerDirectory = recordingDirectory.resolve(CONTAINER_DIRECTORY);
+        Files.createDirectories(mContainerDirectory);
+    }
+
+    /**
+     * Recording directory for the containers
+     */
+    public Path getRecordingDirectory()
+    {
+        return mRecordingDirectory;
+    }
+
+    /**
+     * Records the audio segment to the container for the segment's system and the current hour.  The catalog entry
+     * for the call, with the container file name relative to the recording directory and the location of the call
+     * audio in the container, is sent to the catalog listener once the call is written to the container file.
+     *
+     * @param audioSegment to record
+     * @param recordFormat that determines the container audio codec
+     * @throws IOException if the call can't be recorded
+     */
+    public void record(AudioSegment audioSegment, RecordFormat recordFormat) throws IOException
+    {
+        if(!audioSegment.hasAudio())
+        {
+            return;
+        }
+
+        CallContainer.Codec codec = CallContainer.Codec.fromRecordFormat(recordFormat);
+        RecordingCatalogEntry entry = RecordingCatalogEntry.create(audioSegment, null, 0, 0);
+
+        //Encode outside of the lock so that calls can be encoded in parallel
+        byte[] audio = encode(audioSegment, codec);
+
+        append(entry, codec, audio);
+
+        //Containers from the previous hour may have been closed while appending
+        releaseCompletedEntries();
+    }
+
+    /**
+     * Appends the encoded call to the container for the call's system and the current hour and holds the catalog
+     * entry for the call until the container is written
+     */
+    private synchronized void append(RecordingCatalogEntry entry, CallContainer.Codec codec, byte[] audio)
+        throws IOException
+    {
+        CallContainerWriter writer = getWriter(entry.getSystem(), codec, System.currentTimeMillis());
+        RecordingCatalogEntry located = writer.append(entry, audio);
+
+        mPendingEntries.computeIfAbsent(writer, w -> new ArrayList<>()).add(located.withLocation(
+            mRecordingDirectory.relativize(writer.getPath()).toString(), located.getOffset(), located.getLength()));
+    }
+
+    /**
+     * Moves the catalog entries for the calls held by the writer to the completed entries, after the writer has
+     * written the calls to the container file
+     */
+    private void complete(CallContainerWriter writer)
+    {
+        List<RecordingCatalogEntry> entries = mPendingEntries.remove(writer);
+
+        if(entries != null)
+        {
+            mCompletedEntries.addAll(entries);
+        }
+    }
+
+    /**
+     * Discards the catalog entries for the calls held by a writer that failed to write the calls to the container
+     */
+    private void discard(CallContainerWriter writer)
+    {
+        List<RecordingCatalogEntry> entries = mPendingEntries.remove(writer);
+
+        if(entries != null)
+        {
+            mLog.warn("Discarding [" + entries.size() + "] recording catalog entries for calls that were not " +
+                "written to call container: " + writer.getPath());
+        }
+    }
+
+    /**
+     * Sends the catalog entries for the calls that have been written to the containers to the catalog listener.
+     * Entries are sent outside of the lock so that the listener can't deadlock with a caller that closes this
+     * manager.
+     */
+    private void releaseCompletedEntries()
+    {
+        List<RecordingCatalogEntry> entries;
+
+        synchronized(this)
+        {
+            if(mCompletedEntries.isEmpty())
+            {
+                return;
+            }
+
+            entries = mCompletedEntries;
+            mCompletedEntries = new ArrayList<>();
+        }
+
+        if(mCatalogListener != null)
+        {
+            for(RecordingCatalogEntry entry : entries)
+            {
+                mCatalogListener.receive(entry);
+            }
+        }
+    }
+
+    /**
+     * Encodes the audio segment audio for the codec
+     */
+    private static byte[] encode(AudioSegment audioSegment, CallContainer.Codec codec) throws IOException
+    {
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+
+        switch(codec)
+        {
+            case MP3:
+                MP3AudioConverter converter = new MP3AudioConverter(AudioSegmentRecorder.MP3_BIT_RATE,
+                    AudioSegmentRecorder.CONSTANT_BIT_RATE);
+                audio.write(converter.convertAudio(audioSegment.getAudioBuffers()));
+
+                byte[] lastFrame = converter.flush();
+
+                if(lastFrame != null && lastFrame.length > 0)
+                {
+                    audio.write(lastFrame);
+                }
+                break;
+            case PCM:
+                for(float[] audioBuffer : audioSegment.getAudioBuffers())
+                {
+                    ByteBuffer samples = ConversionUtils.convertToSigned16BitSamples(audioBuffer);
+                    audio.write(samples.array(), 0, samples.capacity());
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unrecognized call container codec [" + codec + "]");
+        }
+
+        return audio.toByteArray();
+    }
+
+    /**
+     * Container writer for the system, codec and hour
+     */
+    private CallContainerWriter getWriter(String system, CallContainer.Codec codec, long timestamp) throws IOException
+    {
+        String hour = mHourFormat.format(new Date(timestamp));
+
+        if(!hour.equals(mHour))
+        {
+            closeWriters();
+            mHour = hour;
+        }
+
+        String name = StringUtils.replaceIllegalCharacters((system != null ? system : UNKNOWN_SYSTEM) + "_" + hour +
+            "_" + codec.name()).replace(" ", "_") + CallContainer.FILE_SUFFIX;
+
+        CallContainerWriter writer = mWriters.get(name);
+
+        if(writer == null)
+        {
+            writer = new CallContainerWriter(mContainerDirectory.resolve(name), codec);
+            mWriters.put(name, writer);
+        }
+
+        return writer;
+    }
+
+    /**
+     * Writes buffered calls to the containers, or closes the containers at the end of the hour
+     */
+    public void flush()
+    {
+        synchronized(this)
+        {
+            sync(false);
+        }
+
+        releaseCompletedEntries();
+    }
+
+    /**
+     * Writes buffered calls to the containers and forces the container contents to disk, or closes the containers
+     * at the end of the hour
+     */
+    public void sync()
+    {
+        synchronized(this)
+        {
+            sync(true);
+        }
+
+        releaseCompletedEntries();
+    }
+
+    /**
+     * Writes buffered calls to the containers, or closes the containers at the end of the hour
+     *
+     * @param force to force the container contents to disk
+     */
+    private void sync(boolean force)
+    {
+        if(mHour != null && !mHour.equals(mHourFormat.format(new Date(System.currentTimeMillis()))))
+        {
+            closeWriters();
+            return;
+        }
+
+        for(Map.Entry<String,CallContainerWriter> entry : mWriters.entrySet())
+        {
+            try
+            {
+                entry.getValue().flush();
+
+                if(force)
+                {
+                    entry.getValue().force();
+                }
+
+                complete(entry.getValue());
+            }
+            catch(IOException ioe)
+            {
+                mLog.error("Error writing call container: " + entry.getKey(), ioe);
+                discard(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Closes all containers and sends the catalog entries for the written calls to the catalog listener
+     */
+    public void close()
+    {
+        synchronized(this)
+        {
+            closeWriters();
+        }
+
+        releaseCompletedEntries();
+    }
+
+    /**
+     * Closes all containers
+     */
+    private void closeWriters()
+    {
+        for(Map.Entry<String,CallContainerWriter> entry : mWriters.entrySet())
+        {
+            try
+            {
+                entry.getValue().close();
+                complete(entry.getValue());
+            }
+            catch(IOException ioe)
+            {
+                mLog.error("Error closing call container: " + entry.getKey(), ioe);
+                discard(entry.getValue());
+            }
+        }
+
+        mWriters.clear();
+        mHour = null;
+    }
+}
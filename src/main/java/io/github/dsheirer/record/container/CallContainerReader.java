@@ -0,0 +1,275 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.record.container;
+
+import io.github.dsheirer.record.catalog.RecordingCatalogEntry;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the calls in a call container.  The calls are loaded from the container index, or by scanning the call
+ * records when the container was not closed.
+ */
+public class CallContainerReader implements AutoCloseable
+{
+    private Path mPath;
+    private FileChannel mChannel;
+    private CallContainer.Codec mCodec;
+    private List<RecordingCatalogEntry> mEntries = new ArrayList<>();
+    private long mDataEnd;
+    private boolean mIndexed;
+
+    /**
+     * Opens the container and loads the calls
+     *
+     * @param path of the container
+     * @throws IOException if the container can't be read or is not a call container
+     */
+    public CallContainerReader(Path path) throws IOException
+    {
+        mPath = path;
+        mChannel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try
+        {
+            ByteBuffer header = read(0, CallContainer.HEADER_LENGTH);
+
+            if(header.getInt() != CallContainer.FILE_MAGIC || header.getInt() != CallContainer.VERSION)
+            {
+                throw new IOException("Unsupported call container format: " + path.getFileName());
+            }
+
+            mCodec = CallContainer.Codec.fromValue(header.getInt());
+
+            if(mCodec == null)
+            {
+                throw new IOException("Unsupported call container codec: " + path.getFileName());
+            }
+
+            if(!readIndex())
+            {
+                scan();
+            }
+        }
+        catch(IOException ioe)
+        {
+            mChannel.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Container file
+     */
+    public Path getPath()
+    {
+        return mPath;
+    }
+
+    /**
+     * Audio codec of the calls in this container
+     */
+    public CallContainer.Codec getCodec()
+    {
+        return mCodec;
+    }
+
+    /**
+     * Calls in this container, in the order that they were recorded.  The file of each entry is the container file
+     * name and the offset and length locate the call audio in the container.
+     */
+    public List<RecordingCatalogEntry> getEntries()
+    {
+        return Collections.unmodifiableList(mEntries);
+    }
+
+    /**
+     * Offset of the end of the last complete call record
+     */
+    long getDataEnd()
+    {
+        return mDataEnd;
+    }
+
+    /**
+     * Indicates if the calls were loaded from the container index.  False when the container was not closed and
+     * the calls were recovered by scanning the call records.
+     */
+    public boolean isIndexed()
+    {
+        return mIndexed;
+    }
+
+    /**
+     * Reads the audio for the call
+     *
+     * @param entry for a call in this container
+     * @return call audio bytes
+     * @throws IOException if the audio can't be read
+     */
+    public byte[] readAudio(RecordingCatalogEntry entry) throws IOException
+    {
+        if(entry.getOffset() < CallContainer.HEADER_LENGTH || entry.getOffset() + entry.getLength() > mDataEnd ||
+            entry.getLength() > Integer.MAX_VALUE)
+        {
+            throw new IOException("Call audio location is outside of the call container: " + mPath.getFileName());
+        }
+
+        return read(entry.getOffset(), (int)entry.getLength()).array();
+    }
+
+    /**
+     * Loads the calls from the index at the end of a closed container
+     *
+     * @return true if the index was loaded
+     */
+    private boolean readIndex() throws IOException
+    {
+        long size = mChannel.size();
+
+        if(size < CallContainer.HEADER_LENGTH + CallContainer.FOOTER_LENGTH)
+        {
+            return false;
+        }
+
+        ByteBuffer footer = read(size - CallContainer.FOOTER_LENGTH, CallContainer.FOOTER_LENGTH);
+        long indexOffset = footer.getLong();
+
+        if(footer.getInt() != CallContainer.FOOTER_MAGIC || indexOffset < CallContainer.HEADER_LENGTH ||
+            indexOffset > size - CallContainer.FOOTER_LENGTH - 8)
+        {
+            return false;
+        }
+
+        ByteBuffer index = read(indexOffset, (int)(size - CallContainer.FOOTER_LENGTH - indexOffset));
+
+        if(index.getInt() != CallContainer.INDEX_MAGIC)
+        {
+            return false;
+        }
+
+        int count = index.getInt();
+        List<RecordingCatalogEntry> entries = new ArrayList<>(Math.max(count, 0));
+
+        for(int x = 0; x < count; x++)
+        {
+            if(index.remaining() < 4)
+            {
+                return false;
+            }
+
+            int length = index.getInt();
+
+            if(length < 0 || length > index.remaining())
+            {
+                return false;
+            }
+
+            byte[] line = new byte[length];
+            index.get(line);
+            RecordingCatalogEntry entry = RecordingCatalogEntry.parse(new String(line, StandardCharsets.UTF_8));
+
+            if(entry == null)
+            {
+                return false;
+            }
+
+            entries.add(entry);
+        }
+
+        mEntries = entries;
+        mDataEnd = indexOffset;
+        mIndexed = true;
+        return true;
+    }
+
+    /**
+     * Recovers the calls by scanning the call records, stopping at the first incomplete record
+     */
+    private void scan() throws IOException
+    {
+        long size = mChannel.size();
+        long position = CallContainer.HEADER_LENGTH;
+        String fileName = mPath.getFileName().toString();
+        mEntries.clear();
+
+        while(position + CallContainer.RECORD_HEADER_LENGTH <= size)
+        {
+            ByteBuffer header = read(position, CallContainer.RECORD_HEADER_LENGTH);
+            int magic = header.getInt();
+            int metadataLength = header.getInt();
+            int audioLength = header.getInt();
+            long audioOffset = position + CallContainer.RECORD_HEADER_LENGTH + metadataLength;
+
+            if(magic != CallContainer.RECORD_MAGIC || metadataLength < 0 || audioLength < 0 ||
+                audioOffset + audioLength > size)
+            {
+                break;
+            }
+
+            ByteBuffer metadata = read(position + CallContainer.RECORD_HEADER_LENGTH, metadataLength);
+            RecordingCatalogEntry entry = RecordingCatalogEntry.parse(new String(metadata.array(),
+                StandardCharsets.UTF_8));
+
+            if(entry == null)
+            {
+                break;
+            }
+
+            mEntries.add(entry.withLocation(fileName, audioOffset, audioLength));
+            position = audioOffset + audioLength;
+        }
+
+        mDataEnd = position;
+    }
+
+    /**
+     * Reads bytes from the container
+     */
+    private ByteBuffer read(long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while(buffer.hasRemaining())
+        {
+            if(mChannel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new EOFException("Unexpected end of call container: " + mPath.getFileName());
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        mChannel.close();
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.record.container;
+
+import io.github.dsheirer.record.catalog.RecordingCatalogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes calls sequentially to a call container.  Call records are accumulated in a large write buffer that is
+ * written to the container when it fills or when the writer is flushed, so that many calls are written with a
+ * single write operation.  The container index is written when the writer is closed.
+ *
+ * Opening an existing container (e.g. after a restart within the same container period) recovers the calls in the
+ * container, removes the index and any incomplete call record, and continues appending.
+ */
+public class CallContainerWriter implements AutoCloseable
+{
+    private final static Logger mLog = LoggerFactory.getLogger(CallContainerWriter.class);
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private Path mPath;
+    private String mFileName;
+    private CallContainer.Codec mCodec;
+    private FileChannel mChannel;
+    private ByteBuffer mBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long mPosition;
+    private List<RecordingCatalogEntry> mEntries = new ArrayList<>();
+
+    /**
+     * Opens the container for writing, creating the container if it doesn't exist
+     *
+     * @param path of the container
+     * @param codec of the call audio
+     * @throws IOException if the container can't be opened or is an existing container with a different codec
+     */
+    public CallContainerWriter(Path path, CallContainer.Codec codec) throws IOException
+    {
+        mPath = path;
+        mFileName = path.getFileName().toString();
+        mCodec = codec;
+
+        if(Files.exists(path) && Files.size(path) > 0)
+        {
+            long dataEnd;
+
+            try(CallContainerReader reader = new CallContainerReader(path))
+            {
+                if(reader.getCodec() != codec)
+                {
+                    throw new IOException("Existing call container codec [" + reader.getCodec() +
+                        "] does not match [" + codec + "]: " + mFileName);
+                }
+
+                mEntries.addAll(reader.getEntries());
+                dataEnd = reader.getDataEnd();
+
+                if(!reader.isIndexed())
+                {
+                    mLog.info("Recovered [" + mEntries.size() + "] calls from call container: " + mFileName);
+                }
+            }
+
+            mChannel = FileChannel.open(path, StandardOpenOption.WRITE);
+            mChannel.truncate(dataEnd);
+            mPosition = dataEnd;
+        }
+        else
+        {
+            mChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            mBuffer.putInt(CallContainer.FILE_MAGIC);
+            mBuffer.putInt(CallContainer.VERSION);
+            mBuffer.putInt(codec.getValue());
+            mPosition = CallContainer.HEADER_LENGTH;
+        }
+    }
+
+    /**
+     * Container file
+     */
+    public Path getPath()
+    {
+        return mPath;
+    }
+
+    /**
+     * Audio codec of the calls in this container
+     */
+    public CallContainer.Codec getCodec()
+    {
+        return mCodec;
+    }
+
+    /**
+     * Number of calls in this container
+     */
+    public int getCallCount()
+    {
+        return mEntries.size();
+    }
+
+    /**
+     * Appends a call to the container
+     *
+     * @param entry with the call metadata
+     * @param audio for the call, encoded with the container codec
+     * @return entry with the container file name and the location of the call audio in the container
+     * @throws IOException if the call can't be written
+     */
+    public RecordingCatalogEntry append(RecordingCatalogEntry entry, byte[] audio) throws IOException
+    {
+        byte[] metadata = entry.withLocation(null, 0, 0).toLine().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer header = ByteBuffer.allocate(CallContainer.RECORD_HEADER_LENGTH);
+        header.putInt(CallContainer.RECORD_MAGIC);
+        header.putInt(metadata.length);
+        header.putInt(audio.length);
+        header.flip();
+
+        long audioOffset = mPosition + CallContainer.RECORD_HEADER_LENGTH + metadata.length;
+
+        write(header);
+        write(ByteBuffer.wrap(metadata));
+        write(ByteBuffer.wrap(audio));
+
+        RecordingCatalogEntry located = entry.withLocation(mFileName, audioOffset, audio.length);
+        mEntries.add(located);
+        return located;
+    }
+
+    /**
+     * Writes the bytes to the write buffer, or directly to the container when they are larger than the buffer
+     */
+    private void write(ByteBuffer bytes) throws IOException
+    {
+        int length = bytes.remaining();
+
+        if(length > mBuffer.remaining())
+        {
+            flush();
+        }
+
+        if(length > mBuffer.capacity())
+        {
+            writeFully(bytes);
+        }
+        else
+        {
+            mBuffer.put(bytes);
+        }
+
+        mPosition += length;
+    }
+
+    /**
+     * Writes all bytes to the container at the current end of the container
+     */
+    private void writeFully(ByteBuffer bytes) throws IOException
+    {
+        long position = mPosition - mBuffer.position();
+
+        while(bytes.hasRemaining())
+        {
+            position += mChannel.write(bytes, position);
+        }
+    }
+
+    /**
+     * Writes the buffered call records to the container
+     */
+    public void flush() throws IOException
+    {
+        if(mBuffer.position() > 0)
+        {
+            mBuffer.flip();
+            long position = mPosition - mBuffer.remaining();
+
+            while(mBuffer.hasRemaining())
+            {
+                position += mChannel.write(mBuffer, position);
+            }
+
+            mBuffer.clear();
+        }
+    }
+
+    /**
+     * Forces the written call records to disk
+     */
+    public void force() throws IOException
+    {
+        mChannel.force(false);
+    }
+
+    /**
+     * Flushes the buffered call records, writes the container index and footer and closes the container
+     */
+    @Override
+    public void close() throws IOException
+    {
+        long indexOffset = mPosition;
+
+        List<byte[]> lines = new ArrayList<>(mEntries.size());
+        int length = 8;
+
+        for(RecordingCatalogEntry entry : mEntries)
+        {
+            byte[] line = entry.toLine().getBytes(StandardCharsets.UTF_8);
+            lines.add(line);
+            length += 4 + line.length;
+        }
+
+        ByteBuffer index = ByteBuffer.allocate(length + CallContainer.FOOTER_LENGTH);
+        index.putInt(CallContainer.INDEX_MAGIC);
+        index.putInt(lines.size());
+
+        for(byte[] line : lines)
+        {
+            index.putInt(line.length);
+            index.put(line);
+        }
+
+        index.putLong(indexOffset);
+        index.putInt(CallContainer.FOOTER_MAGIC);
+        index.flip();
+
+        write(index);
+        flush();
+        mChannel.force(false);
+        mChannel.close();
+    }
+}
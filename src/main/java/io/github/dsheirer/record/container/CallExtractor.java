@@ -0,0 +1,287 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.record.container;
+
+import io.github.dsheirer.audio.AudioFormats;
+import io.github.dsheirer.audio.convert.MP3AudioConverter;
+import io.github.dsheirer.record.AudioSegmentRecorder;
+import io.github.dsheirer.record.RecordFormat;
+import io.github.dsheirer.record.catalog.RecordingCatalog;
+import io.github.dsheirer.record.catalog.RecordingCatalogEntry;
+import io.github.dsheirer.record.wave.AudioMetadata;
+import io.github.dsheirer.record.wave.AudioMetadataUtils;
+import io.github.dsheirer.record.wave.WaveWriter;
+import io.github.dsheirer.sample.ConversionUtils;
+import io.github.dsheirer.util.StringUtils;
+import io.github.dsheirer.util.TimeStamp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts calls from call containers to individual WAVE or MP3 recordings.
+ *
+ * Calls are extracted in the container codec format without conversion, and calls from PCM containers can also be
+ * extracted as MP3.  Extracting WAVE audio from an MP3 container is not supported.
+ */
+public class CallExtractor
+{
+    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * Extracts a cataloged call from its call container
+     *
+     * @param catalog containing the entry
+     * @param entry for a call that was recorded to a call container
+     * @param output file for the recording
+     * @param recordFormat of the recording
+     * @throws IOException if the call can't be extracted
+     */
+    public static void extract(RecordingCatalog catalog, RecordingCatalogEntry entry, Path output,
+                               RecordFormat recordFormat) throws IOException
+    {
+        try(CallContainerReader reader = new CallContainerReader(catalog.getRecordingPath(entry)))
+        {
+            extract(reader, entry, output, recordFormat);
+        }
+    }
+
+    /**
+     * Extracts a call from the call container
+     *
+     * @param reader for the call container
+     * @param entry for a call in the container
+     * @param output file for the recording
+     * @param recordFormat of the recording
+     * @throws IOException if the call can't be extracted
+     */
+    public static void extract(CallContainerReader reader, RecordingCatalogEntry entry, Path output,
+                               RecordFormat recordFormat) throws IOException
+    {
+        byte[] audio = reader.readAudio(entry);
+        Map<AudioMetadata,String> metadata = getMetadataMap(entry);
+
+        switch(recordFormat)
+        {
+            case MP3:
+                if(reader.getCodec() == CallContainer.Codec.PCM)
+                {
+                    audio = toMP3(audio);
+                }
+
+                try(OutputStream outputStream = Files.newOutputStream(output))
+                {
+                    outputStream.write(AudioMetadataUtils.getMP3ID3(metadata));
+                    outputStream.write(audio);
+                }
+                break;
+            case WAVE:
+                if(reader.getCodec() != CallContainer.Codec.PCM)
+                {
+                    throw new IOException("Extracting WAVE recordings from " + reader.getCodec() +
+                        " call containers is not supported");
+                }
+
+                WaveWriter writer = new WaveWriter(AudioFormats.PCM_SIGNED_8KHZ_16BITS_MONO, output);
+                writer.writeData(ByteBuffer.wrap(audio));
+
+                byte[] id3Bytes = AudioMetadataUtils.getMP3ID3(metadata);
+                writer.writeMetadata(AudioMetadataUtils.getLISTChunk(metadata),
+                    AudioMetadataUtils.getID3Chunk(id3Bytes));
+                writer.close();
+                break;
+            default:
+                throw new IllegalArgumentException("Unrecognized recording format [" + recordFormat.name() + "]");
+        }
+    }
+
+    /**
+     * Converts 16-bit PCM audio to MP3
+     */
+    private static byte[] toMP3(byte[] pcm)
+    {
+        List<float[]> buffers = Collections.singletonList(ConversionUtils.convertFromSigned16BitSamples(pcm));
+        MP3AudioConverter converter = new MP3AudioConverter(AudioSegmentRecorder.MP3_BIT_RATE,
+            AudioSegmentRecorder.CONSTANT_BIT_RATE);
+        byte[] mp3 = converter.convertAudio(buffers);
+        byte[] lastFrame = converter.flush();
+
+        if(lastFrame == null || lastFrame.length == 0)
+        {
+            return mp3;
+        }
+
+        byte[] combined = new byte[mp3.length + lastFrame.length];
+        System.arraycopy(mp3, 0, combined, 0, mp3.length);
+        System.arraycopy(lastFrame, 0, combined, mp3.length, lastFrame.length);
+        return combined;
+    }
+
+    /**
+     * Recording metadata tags for the call
+     */
+    private static Map<AudioMetadata,String> getMetadataMap(RecordingCatalogEntry entry)
+    {
+        Map<AudioMetadata,String> metadata = new EnumMap<>(AudioMetadata.class);
+        String dateCreated;
+
+        synchronized(DATE_FORMAT)
+        {
+            dateCreated = DATE_FORMAT.format(new Date(entry.getStart()));
+        }
+
+        metadata.put(AudioMetadata.DATE_CREATED, dateCreated);
+        metadata.put(AudioMetadata.GENRE, "Scanner Audio");
+
+        if(entry.getTo() != null)
+        {
+            metadata.put(AudioMetadata.TRACK_TITLE, entry.getTo() +
+                (entry.getToAlias() != null ? " \"" + entry.getToAlias() + "\"" : ""));
+        }
+
+        if(entry.getFrom() != null)
+        {
+            metadata.put(AudioMetadata.ARTIST_NAME, entry.getFrom() +
+                (entry.getFromAlias() != null ? " " + entry.getFromAlias() : ""));
+        }
+
+        if(entry.getSystem() != null)
+        {
+            metadata.put(AudioMetadata.GROUPING, entry.getSystem());
+        }
+
+        if(entry.getChannel() != null)
+        {
+            metadata.put(AudioMetadata.ALBUM_TITLE, entry.getChannel());
+        }
+
+        StringBuilder comments = new StringBuilder();
+        comments.append("Date:").append(dateCreated).append(";");
+
+        if(entry.getSite() != null)
+        {
+            comments.append("Site:").append(entry.getSite()).append(";");
+        }
+
+        if(entry.getFrequency() > 0)
+        {
+            comments.append("Frequency:").append(entry.getFrequency()).append(";");
+        }
+
+        metadata.put(AudioMetadata.COMMENTS, comments.toString());
+
+        return metadata;
+    }
+
+    /**
+     * Recording file name for the call, using the same naming as individual call recordings
+     */
+    public static String getFileName(RecordingCatalogEntry entry, RecordFormat recordFormat)
+    {
+        StringBuilder sb = new StringBuilder();
+
+        if(entry.getSystem() != null)
+        {
+            sb.append(entry.getSystem()).append("_");
+        }
+
+        if(entry.getSite() != null)
+        {
+            sb.append(entry.getSite()).append("_");
+        }
+
+        if(entry.getChannel() != null)
+        {
+            sb.append(entry.getChannel()).append("_");
+        }
+
+        if(entry.getTo() != null)
+        {
+            sb.append("_TO_").append(entry.getTo().replace(":", ""));
+        }
+
+        if(entry.getFrom() != null)
+        {
+            sb.append("_FROM_").append(entry.getFrom().replace(":", ""));
+        }
+
+        return TimeStamp.getTimeStamp(entry.getStart(), "_") + StringUtils.replaceIllegalCharacters(sb.toString()) +
+            recordFormat.getExtension();
+    }
+
+    /**
+     * Command line call extractor.  Lists the calls in a container, or extracts the calls to individual recordings.
+     *
+     * Arguments: container_file [output_directory [WAVE|MP3]]
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 1 || args.length > 3)
+        {
+            System.out.println("Usage: CallExtractor container_file [output_directory [WAVE|MP3]]");
+            return;
+        }
+
+        try(CallContainerReader reader = new CallContainerReader(Paths.get(args[0])))
+        {
+            if(args.length == 1)
+            {
+                for(RecordingCatalogEntry entry : reader.getEntries())
+                {
+                    System.out.println(entry);
+                }
+
+                System.out.println("Container [" + reader.getCodec() + "] holds [" + reader.getEntries().size() +
+                    "] calls" + (reader.isIndexed() ? "" : " (recovered - container was not closed)"));
+                return;
+            }
+
+            Path outputDirectory = Paths.get(args[1]);
+            Files.createDirectories(outputDirectory);
+            RecordFormat recordFormat = args.length == 3 ? RecordFormat.valueOf(args[2].toUpperCase()) :
+                reader.getCodec().getRecordFormat();
+
+            for(RecordingCatalogEntry entry : reader.getEntries())
+            {
+                Path output = outputDirectory.resolve(getFileName(entry, recordFormat));
+                int version = 2;
+
+                while(Files.exists(output))
+                {
+                    output = outputDirectory.resolve(getFileName(entry, recordFormat)
+                        .replace(recordFormat.getExtension(), "_V" + version++ + recordFormat.getExtension()));
+                }
+
+                extract(reader, entry, output, recordFormat);
+            }
+
+            System.out.println("Extracted [" + reader.getEntries().size() + "] calls to " + outputDirectory);
+        }
+    }
+}
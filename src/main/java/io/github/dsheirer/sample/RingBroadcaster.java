@@ -0,0 +1,595 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.sample;
+
+import io.github.dsheirer.source.Source;
+import io.github.dsheirer.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ring broadcaster.  Broadcasts items to multiple listeners through a fixed size ring where each listener (consumer)
+ * has its own sequence cursor, similar to a disruptor.
+ *
+ * The producer places each item in the next ring slot and advances the published sequence.  Fan-out cost for the
+ * producer is constant per item, plus a wake-up signal for each idle listener when draining on publish, and
+ * listeners are never invoked on the producer's thread.  Each listener is serviced by its own drain task that
+ * delivers the items published since its cursor, in order.  The drain task either runs at a fixed period, or is
+ * signalled by the producer when items are published (DRAIN_ON_PUBLISH) to avoid adding delivery latency.
+ *
+ * The producer never waits for a listener.  When a slow listener falls more than a full ring behind, the items it
+ * missed are dropped for that listener only, so slow listeners (recorders, spectral display) cannot stall fast
+ * listeners (decoders).  The lapped listener is placed in an overflow state until it catches back up.  Listeners that
+ * implement IOverflowListener are notified directly and Source listeners broadcast the overflow state to their own
+ * overflow listener, the same as with an OverflowableTransferQueue.
+ *
+ * Use flush() to synchronously deliver all published items before broadcasting a control event (ie frequency or
+ * sample rate change) so that listeners receive the event after the items that were produced before the change.
+ *
+ * Each ring slot tracks the sequence of the item in the slot together with the number of listeners that have not yet
+ * taken the item, in a single atomic value.  Listeners take an item by atomically decrementing the pending count for
+ * the expected sequence, so an item is never delivered after the producer reclaims its slot.  Any pending shares for
+ * items that are overwritten or belong to a removed listener are released through the release() method so that
+ * subclasses can manage reference counts for reusable items.
+ *
+ * Producers are serialized with listener registration changes, which is uncontended for the usual single producer.
+ */
+public class RingBroadcaster<T> extends Broadcaster<T>
+{
+    private final static Logger mLog = LoggerFactory.getLogger(RingBroadcaster.class);
+
+    public static final long DEFAULT_DRAIN_PERIOD_MILLISECONDS = 5;
+    public static final long DRAIN_ON_PUBLISH = 0;
+    private static final long FLUSH_TIMEOUT_MILLISECONDS = 250;
+
+    //Slot state packs the item sequence (plus one, so that zero indicates an empty slot) with the pending count
+    private static final int PENDING_BITS = 16;
+    private static final long PENDING_MASK = (1l << PENDING_BITS) - 1;
+
+    private Object[] mItems;
+    private AtomicLongArray mSlotStates;
+    private int mMask;
+    private AtomicLong mPublished = new AtomicLong();
+    private AtomicLong mDroppedCount = new AtomicLong();
+    private Map<Listener<T>,Consumer> mConsumers = new ConcurrentHashMap<>();
+    private long mDrainPeriod;
+
+    /**
+     * Constructs an instance
+     *
+     * @param capacity of the ring, rounded up to the next power of two
+     * @param drainPeriod in milliseconds between deliveries to each listener, or DRAIN_ON_PUBLISH to deliver as soon
+     * as items are published
+     */
+    public RingBroadcaster(int capacity, long drainPeriod)
+    {
+        if(capacity < 2 || capacity > (1 << 30))
+        {
+            throw new IllegalArgumentException("Ring capacity must be in the range 2 - 2^30");
+        }
+
+        if(drainPeriod < 0)
+        {
+            throw new IllegalArgumentException("Drain period cannot be negative");
+        }
+
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        mItems = new Object[size];
+        mSlotStates = new AtomicLongArray(size);
+        mMask = size - 1;
+        mDrainPeriod = drainPeriod;
+    }
+
+    /**
+     * Constructs an instance with the default drain period
+     *
+     * @param capacity of the ring, rounded up to the next power of two
+     */
+    public RingBroadcaster(int capacity)
+    {
+        this(capacity, DEFAULT_DRAIN_PERIOD_MILLISECONDS);
+    }
+
+    /**
+     * Capacity of the ring
+     */
+    public int getCapacity()
+    {
+        return mItems.length;
+    }
+
+    /**
+     * Total number of item deliveries that were dropped because a listener fell more than a full ring behind
+     */
+    public long getDroppedCount()
+    {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * Number of published items that the listener has not yet received, or 0 if the listener is not registered
+     */
+    public long getLag(Listener<T> listener)
+    {
+        Consumer consumer = mConsumers.get(listener);
+        return consumer != null ? Math.min(mPublished.get() - consumer.mCursor, mItems.length) : 0;
+    }
+
+    /**
+     * Invoked by the producer prior to publishing an item that will be delivered to the specified number of
+     * listeners.  Override to increment reference counts for reusable items.
+     */
+    protected void retain(T item, int count)
+    {
+        //No-op
+    }
+
+    /**
+     * Invoked when the specified number of listener shares for an item will never be delivered, because the item
+     * was overwritten before a slow listener took it or because the listener was removed.  Override to decrement
+     * reference counts for reusable items.
+     */
+    protected void release(T item, int count)
+    {
+        //No-op
+    }
+
+    /**
+     * Publishes the item to the ring for delivery to each registered listener
+     */
+    @Override
+    public synchronized void broadcast(T item)
+    {
+        int consumers = mConsumers.size();
+
+        if(consumers == 0)
+        {
+            return;
+        }
+
+        long sequence = mPublished.get();
+        int index = (int)(sequence & mMask);
+
+        //Invalidate the slot before replacing the item, so that a lagging listener can't take the old item
+        long previous = mSlotStates.getAndSet(index, state(sequence, 0));
+        int leftover = (int)(previous & PENDING_MASK);
+
+        if(leftover > 0)
+        {
+            mDroppedCount.addAndGet(leftover);
+            release((T)mItems[index], leftover);
+        }
+
+        retain(item, consumers);
+        mItems[index] = item;
+        mSlotStates.set(index, state(sequence, consumers));
+        mPublished.set(sequence + 1);
+
+        if(mDrainPeriod == DRAIN_ON_PUBLISH)
+        {
+            for(Consumer consumer : mConsumers.values())
+            {
+                consumer.signal();
+            }
+        }
+    }
+
+    /**
+     * Delivers all items published up to this point to each listener, on the calling thread.  Invoke prior to
+     * broadcasting a control event that must be received by the listeners after the items published before it.
+     *
+     * Waits for any in-progress delivery to a listener to complete.  If the delivery does not complete within the
+     * flush timeout, the listener is skipped and receives the remaining items on its drain task.
+     */
+    public void flush()
+    {
+        for(Consumer consumer : mConsumers.values())
+        {
+            consumer.flush();
+        }
+    }
+
+    /**
+     * Registers the listener to receive items published after this point, on a separate scheduled drain task.
+     */
+    @Override
+    public synchronized void addListener(Listener<T> listener)
+    {
+        if(listener != null && !mConsumers.containsKey(listener))
+        {
+            Consumer consumer = new Consumer(listener, mPublished.get());
+            mConsumers.put(listener, consumer);
+            super.addListener(listener);
+            consumer.start();
+        }
+    }
+
+    /**
+     * Deregisters the listener and releases any items that were published to the listener but not yet delivered
+     */
+    @Override
+    public void removeListener(Listener<T> listener)
+    {
+        Consumer consumer;
+
+        synchronized(this)
+        {
+            consumer = listener != null ? mConsumers.remove(listener) : null;
+            super.removeListener(listener);
+        }
+
+        if(consumer != null)
+        {
+            consumer.stop();
+        }
+    }
+
+    /**
+     * Deregisters all listeners
+     */
+    @Override
+    public void clear()
+    {
+        List<Listener<T>> listeners = new ArrayList<>(mConsumers.keySet());
+
+        for(Listener<T> listener : listeners)
+        {
+            removeListener(listener);
+        }
+    }
+
+    /**
+     * Deregisters all listeners and releases any items remaining in the ring
+     */
+    @Override
+    public void dispose()
+    {
+        clear();
+
+        synchronized(this)
+        {
+            for(int x = 0; x < mItems.length; x++)
+            {
+                long previous = mSlotStates.getAndSet(x, 0);
+                int leftover = (int)(previous & PENDING_MASK);
+
+                if(leftover > 0)
+                {
+                    release((T)mItems[x], leftover);
+                }
+
+                mItems[x] = null;
+            }
+        }
+    }
+
+    /**
+     * Creates a slot state value for the sequence and pending count
+     */
+    private static long state(long sequence, int pending)
+    {
+        return ((sequence + 1) << PENDING_BITS) | pending;
+    }
+
+    /**
+     * Takes one listener share of the item with the sequence.
+     *
+     * @return the item or null if the item was overwritten or has no remaining shares
+     */
+    private T take(long sequence)
+    {
+        int index = (int)(sequence & mMask);
+        long expectedSequence = sequence + 1;
+
+        while(true)
+        {
+            long state = mSlotStates.get(index);
+
+            if((state >>> PENDING_BITS) != expectedSequence || (state & PENDING_MASK) == 0)
+            {
+                return null;
+            }
+
+            T item = (T)mItems[index];
+
+            //The sequence is packed into the state so that this fails if the slot was reclaimed after we read it
+            if(mSlotStates.compareAndSet(index, state, state - 1))
+            {
+                return item;
+            }
+        }
+    }
+
+    /**
+     * Listener with its own sequence cursor and drain task
+     */
+    private class Consumer implements Runnable
+    {
+        private Listener<T> mListener;
+        private ReentrantLock mDrainLock = new ReentrantLock();
+        private AtomicInteger mSignalCount = new AtomicInteger();
+        private volatile long mCursor;
+        private volatile boolean mStopped;
+        private boolean mOverflow;
+        private ScheduledFuture<?> mDrainFuture;
+
+        public Consumer(Listener<T> listener, long cursor)
+        {
+            mListener = listener;
+            mCursor = cursor;
+        }
+
+        public void start()
+        {
+            if(mDrainPeriod != DRAIN_ON_PUBLISH)
+            {
+                mDrainFuture = ThreadPool.SCHEDULED.scheduleAtFixedRate(this, mDrainPeriod, mDrainPeriod,
+                    TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Signals that items were published.  Submits the drain task unless it is already pending or running.
+         */
+        public void signal()
+        {
+            if(!mStopped && mSignalCount.getAndIncrement() == 0)
+            {
+                ThreadPool.SCHEDULED.execute(this);
+            }
+        }
+
+        /**
+         * Stops the drain task and releases this listener's share of any undelivered items.  Does not wait for an
+         * in-progress delivery - the drain task releases the remaining items when it completes.
+         */
+        public void stop()
+        {
+            mStopped = true;
+
+            ScheduledFuture<?> future = mDrainFuture;
+
+            if(future != null)
+            {
+                future.cancel(false);
+            }
+
+            releaseRemaining();
+        }
+
+        /**
+         * Delivers all published items on the calling thread
+         */
+        public void flush()
+        {
+            boolean locked = false;
+
+            try
+            {
+                locked = mDrainLock.tryLock(FLUSH_TIMEOUT_MILLISECONDS, TimeUnit.MILLISECONDS);
+            }
+            catch(InterruptedException ie)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            if(locked)
+            {
+                try
+                {
+                    drain();
+                }
+                finally
+                {
+                    mDrainLock.unlock();
+                }
+
+                if(mStopped)
+                {
+                    releaseRemaining();
+                }
+            }
+            else
+            {
+                mLog.warn("Timeout while flushing items to listener [" + mListener.getClass() + "]");
+            }
+        }
+
+        /**
+         * Releases this listener's share of any undelivered items, unless a delivery is in progress on another thread
+         */
+        private void releaseRemaining()
+        {
+            if(mDrainLock.tryLock())
+            {
+                try
+                {
+                    long published = mPublished.get();
+
+                    for(long sequence = Math.max(mCursor, published - mItems.length); sequence < published; sequence++)
+                    {
+                        T item = take(sequence);
+
+                        if(item != null)
+                        {
+                            release(item, 1);
+                        }
+                    }
+
+                    mCursor = published;
+                }
+                finally
+                {
+                    mDrainLock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Drain task.  Delivers all items published since the cursor to the listener.
+         */
+        @Override
+        public void run()
+        {
+            if(mDrainPeriod != DRAIN_ON_PUBLISH)
+            {
+                if(mDrainLock.tryLock())
+                {
+                    try
+                    {
+                        drain();
+                    }
+                    finally
+                    {
+                        mDrainLock.unlock();
+                    }
+                }
+            }
+            else
+            {
+                //Repeat until no further signals arrive during delivery so that only one drain task is active and
+                //no signal is lost.  Waits for the drain lock in case a flush is in progress on another thread.
+                int signals = mSignalCount.get();
+
+                while(signals != 0)
+                {
+                    mDrainLock.lock();
+
+                    try
+                    {
+                        drain();
+                    }
+                    finally
+                    {
+                        mDrainLock.unlock();
+                    }
+
+                    signals = mSignalCount.addAndGet(-signals);
+                }
+            }
+
+            //Complete the release for a stop() that occurred during delivery
+            if(mStopped)
+            {
+                releaseRemaining();
+            }
+        }
+
+        /**
+         * Delivers all items published since the cursor to the listener and updates the overflow state.  The drain
+         * lock must be held by the calling thread.
+         */
+        private void drain()
+        {
+            long published = mPublished.get();
+            long cursor = mCursor;
+            long dropped = 0;
+
+            while(cursor < published && !mStopped)
+            {
+                //Skip items that have already been overwritten in the ring
+                long oldest = mPublished.get() - mItems.length;
+
+                if(cursor < oldest)
+                {
+                    dropped += oldest - cursor;
+                    cursor = oldest;
+                }
+
+                T item = take(cursor);
+                mCursor = cursor + 1;
+
+                if(item != null)
+                {
+                    try
+                    {
+                        mListener.receive(item);
+                    }
+                    catch(Throwable t)
+                    {
+                        mLog.error("Error while delivering item to listener [" + mListener.getClass() + "]", t);
+                    }
+                }
+                else
+                {
+                    dropped++;
+                }
+
+                //Reload the cursor since the listener can flush (and advance the cursor) from within receive()
+                cursor = mCursor;
+            }
+
+            if(dropped > 0)
+            {
+                setOverflow(true, dropped);
+            }
+            else if(mOverflow && mPublished.get() - mCursor <= mItems.length / 2)
+            {
+                setOverflow(false, 0);
+            }
+        }
+
+        /**
+         * Updates the overflow state and notifies the listener when the state changes
+         *
+         * @param overflow true if the listener was lapped by the producer
+         * @param dropped number of items that the listener missed
+         */
+        private void setOverflow(boolean overflow, long dropped)
+        {
+            if(mOverflow != overflow)
+            {
+                mOverflow = overflow;
+
+                if(overflow)
+                {
+                    mLog.info("Listener [" + mListener.getClass() + "] fell more than a full ring behind - [" +
+                        dropped + "] items dropped");
+                }
+
+                try
+                {
+                    if(mListener instanceof IOverflowListener)
+                    {
+                        ((IOverflowListener)mListener).sourceOverflow(overflow);
+                    }
+                    else if(mListener instanceof Source)
+                    {
+                        ((Source)mListener).broadcastOverflowState(overflow);
+                    }
+                }
+                catch(Throwable t)
+                {
+                    mLog.error("Error while notifying listener [" + mListener.getClass() + "] of overflow state", t);
+                }
+            }
+        }
+    }
+}
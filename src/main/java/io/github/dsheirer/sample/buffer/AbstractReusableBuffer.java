@@ -28,6 +28,7 @@ public abstract class AbstractReusableBuffer
     protected long mTimestamp;
     protected AtomicInteger mUserCount = new AtomicInteger();
     private String mDebugName;
+    private long mAccountedMemory;
 
     public AbstractReusableBuffer(IReusableBufferDisposedListener bufferDisposedListener, long timestamp)
     {
@@ -45,6 +46,36 @@ public abstract class AbstractReusableBuffer
         mBufferDisposedListener = null;
     }
 
+    /**
+     * Size in bytes of the sample arrays held by this buffer, for sample memory accounting.  Sub-classes that hold
+     * sample arrays should override this method.
+     */
+    protected long getMemorySize()
+    {
+        return 0;
+    }
+
+    /**
+     * Memory size of this buffer as of the last accounting update
+     */
+    long getAccountedMemory()
+    {
+        return mAccountedMemory;
+    }
+
+    /**
+     * Updates the accounted memory size of this buffer to reflect any resizing of the sample arrays.
+     *
+     * @return change in bytes since the previous update
+     */
+    long updateAccountedMemory()
+    {
+        long size = getMemorySize();
+        long delta = size - mAccountedMemory;
+        mAccountedMemory = size;
+        return delta;
+    }
+
     public void setDebugName(String debugName)
     {
         mDebugName = debugName;
@@ -18,16 +18,22 @@ package io.github.dsheirer.sample.buffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Queue;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class AbstractReusableBufferQueue<T extends AbstractReusableBuffer>
         implements IReusableBufferDisposedListener<T>
 {
     private final static Logger mLog = LoggerFactory.getLogger(AbstractReusableBufferQueue.class);
 
-    private Queue<T> mReusableBufferQueue = new LinkedTransferQueue<>();
-    private int mBufferCount = 0;
+    private LinkedTransferQueue<T> mReusableBufferQueue = new LinkedTransferQueue<>();
+    private AtomicInteger mBufferCount = new AtomicInteger();
+    private AtomicInteger mIdleCount = new AtomicInteger();
+    private AtomicInteger mMinimumIdleCount = new AtomicInteger();
+    private AtomicLong mAllocatedBytes = new AtomicLong();
+    private volatile boolean mDisposed;
     private String mDebugName;
 
     //Set to true to log when reusable buffers are created to monitor proper user count management
@@ -41,6 +47,7 @@ public abstract class AbstractReusableBufferQueue<T extends AbstractReusableBuff
     public AbstractReusableBufferQueue(String debugName)
     {
         mDebugName = debugName;
+        SampleMemoryManager.getInstance().register(this);
     }
 
     /**
@@ -48,22 +55,18 @@ public abstract class AbstractReusableBufferQueue<T extends AbstractReusableBuff
      */
     public AbstractReusableBufferQueue()
     {
+        SampleMemoryManager.getInstance().register(this);
     }
 
     /**
-     * Disposes of any reclaimed buffers to prepare this queue for disposal.
+     * Disposes of any reclaimed buffers to prepare this queue for disposal.  Buffers that are still in use are
+     * released when they are returned to this queue.
      */
     public void dispose()
     {
-        T buffer = mReusableBufferQueue.poll();
-
-        while(buffer != null)
-        {
-            buffer.dispose();
-            buffer = mReusableBufferQueue.poll();
-        }
-
-        mBufferCount = 0;
+        mDisposed = true;
+        trimIdle();
+        SampleMemoryManager.getInstance().unregister(this);
     }
 
     /**
@@ -75,37 +78,196 @@ public abstract class AbstractReusableBufferQueue<T extends AbstractReusableBuff
     @Override
     public void disposed(T reusableBuffer)
     {
-        mReusableBufferQueue.offer(reusableBuffer);
+        //Account for any change in buffer size since the buffer was last accounted
+        account(reusableBuffer.updateAccountedMemory());
+
+        if(mDisposed)
+        {
+            release(reusableBuffer);
+        }
+        else
+        {
+            mReusableBufferQueue.offer(reusableBuffer);
+            mIdleCount.incrementAndGet();
+        }
     }
 
     /**
-     * Get a recycled buffer from the queue
+     * Get a recycled buffer from the queue.  When there are no recycled buffers and the global sample memory budget
+     * is exceeded, this may wait briefly for a buffer to be recycled, according to the sample memory overflow policy.
+     *
+     * @return a recycled buffer or null if the subclass should create a new buffer
      */
     protected T getRecycledBuffer()
     {
-        return mReusableBufferQueue.poll();
+        T buffer = mReusableBufferQueue.poll();
+
+        if(buffer == null)
+        {
+            long wait = SampleMemoryManager.getInstance().getAllocationWait();
+
+            if(wait > 0)
+            {
+                try
+                {
+                    buffer = mReusableBufferQueue.poll(wait, TimeUnit.MILLISECONDS);
+                }
+                catch(InterruptedException ie)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        if(buffer != null)
+        {
+            int idle = mIdleCount.decrementAndGet();
+            mMinimumIdleCount.accumulateAndGet(idle, Math::min);
+        }
+
+        return buffer;
     }
 
     /**
-     * Increments the count of buffers managed by this queue.  Note: this method is NOT thread safe
+     * Accounts for a newly created buffer that is managed by this queue.  Note: subclasses must invoke this method
+     * for each new buffer that they create.
      */
-    protected void incrementBufferCount()
+    protected void created(T buffer)
     {
-        mBufferCount++;
+        int count = mBufferCount.incrementAndGet();
+        account(buffer.updateAccountedMemory());
+
+        if(SampleMemoryManager.getInstance().isOverBudget())
+        {
+            SampleMemoryManager.getInstance().overflow(this);
+        }
 
         if(mBufferCreationLoggingEnabled)
         {
-            mLog.debug("Buffer Created - count:" + mBufferCount +
+            mLog.debug("Buffer Created - count:" + count +
                 " debug:" + (mDebugName != null ? mDebugName : "null") + " class:" + this.getClass());
         }
     }
 
     /**
-     * Current count of buffers created by this queue
+     * Adjusts the memory accounted to this queue and to the global sample memory manager
+     */
+    private void account(long bytes)
+    {
+        if(bytes != 0)
+        {
+            mAllocatedBytes.addAndGet(bytes);
+            SampleMemoryManager.getInstance().adjust(bytes);
+        }
+    }
+
+    /**
+     * Releases the buffer for garbage collection and removes it from memory accounting
+     */
+    private long release(T buffer)
+    {
+        long bytes = buffer.getAccountedMemory();
+        mBufferCount.decrementAndGet();
+        account(-bytes);
+        buffer.dispose();
+        return bytes;
+    }
+
+    /**
+     * Releases idle buffers from this queue
+     *
+     * @param count of buffers to release
+     * @return bytes released
+     */
+    private long releaseIdle(int count)
+    {
+        long bytes = 0;
+
+        for(int x = 0; x < count; x++)
+        {
+            T buffer = mReusableBufferQueue.poll();
+
+            if(buffer == null)
+            {
+                break;
+            }
+
+            mIdleCount.decrementAndGet();
+            bytes += release(buffer);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Releases the buffers that remained idle since the previous invocation of this method, since they weren't
+     * needed to meet demand, and starts a new measurement interval.
+     *
+     * @return bytes released
+     */
+    long trimUnused()
+    {
+        int unused = mMinimumIdleCount.getAndSet(Integer.MAX_VALUE);
+        long bytes = unused != Integer.MAX_VALUE ? releaseIdle(Math.min(unused, mIdleCount.get())) : 0;
+        mMinimumIdleCount.accumulateAndGet(mIdleCount.get(), Math::min);
+        return bytes;
+    }
+
+    /**
+     * Releases all idle buffers from this queue
+     *
+     * @return bytes released
+     */
+    long trimIdle()
+    {
+        return releaseIdle(mIdleCount.get());
+    }
+
+    /**
+     * Current count of buffers created by this queue and not yet released
      */
     protected int getBufferCount()
     {
-        return mBufferCount;
+        return mBufferCount.get();
+    }
+
+    /**
+     * Current count of idle (recycled) buffers in this queue
+     */
+    int getIdleBufferCount()
+    {
+        return mIdleCount.get();
+    }
+
+    /**
+     * Memory held by the buffers created by this queue
+     */
+    long getAllocatedBytes()
+    {
+        return mAllocatedBytes.get();
+    }
+
+    /**
+     * Memory held by the idle (recycled) buffers in this queue
+     */
+    long getIdleBytes()
+    {
+        long bytes = 0;
+
+        for(T buffer : mReusableBufferQueue)
+        {
+            bytes += buffer.getAccountedMemory();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Owner name for memory accounting diagnostics
+     */
+    String getOwnerName()
+    {
+        return mDebugName != null ? mDebugName : getClass().getSimpleName();
     }
 
     /**
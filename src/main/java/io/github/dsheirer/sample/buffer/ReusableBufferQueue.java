@@ -46,7 +46,7 @@ public class ReusableBufferQueue extends AbstractReusableBufferQueue<ReusableFlo
         {
             buffer = new ReusableFloatBuffer(this, new float[size]);
             buffer.setDebugName("Owner:" + getDebugName());
-            incrementBufferCount();
+            created(buffer);
         }
 
         buffer.resize(size);
@@ -69,7 +69,7 @@ public class ReusableBufferQueue extends AbstractReusableBufferQueue<ReusableFlo
         {
             buffer = new ReusableFloatBuffer(this, new float[samples.length]);
             buffer.setDebugName("Owner:" + getDebugName());
-            incrementBufferCount();
+            created(buffer);
         }
 
         buffer.reloadFrom(samples, timestamp);
@@ -0,0 +1,68 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.sample.buffer;
+
+import io.github.dsheirer.sample.RingBroadcaster;
+
+/**
+ * Ring broadcaster for reusable buffers.  The buffer user count is incremented once for all listeners when the
+ * buffer is published, and each listener decrements the user count when finished, the same as with the
+ * ReusableBufferBroadcaster.  Shares that are never delivered (slow or removed listeners) are released by this
+ * broadcaster so that the buffer can be reclaimed.
+ */
+public class ReusableBufferRingBroadcaster<T extends AbstractReusableBuffer> extends RingBroadcaster<T>
+{
+    /**
+     * Constructs an instance
+     *
+     * @param capacity of the ring, rounded up to the next power of two
+     * @param drainPeriod in milliseconds between deliveries to each listener
+     */
+    public ReusableBufferRingBroadcaster(int capacity, long drainPeriod)
+    {
+        super(capacity, drainPeriod);
+    }
+
+    /**
+     * Publishes the buffer to all registered listeners and decrements the user count for this broadcaster
+     */
+    @Override
+    public void broadcast(T reusableBuffer)
+    {
+        super.broadcast(reusableBuffer);
+
+        //Decrement user counter for this broadcaster
+        reusableBuffer.decrementUserCount();
+    }
+
+    @Override
+    protected void retain(T reusableBuffer, int count)
+    {
+        reusableBuffer.incrementUserCount(count);
+    }
+
+    @Override
+    protected void release(T reusableBuffer, int count)
+    {
+        for(int x = 0; x < count; x++)
+        {
+            reusableBuffer.decrementUserCount();
+        }
+    }
+}
@@ -82,6 +82,12 @@ public class ReusableByteBuffer extends AbstractReusableBuffer
         return getBytes().length;
     }
 
+    @Override
+    protected long getMemorySize()
+    {
+        return mSamples.length;
+    }
+
     /**
      * Resizes the internal array to the size argument
      *
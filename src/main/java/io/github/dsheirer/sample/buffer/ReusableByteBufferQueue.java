@@ -43,7 +43,7 @@ public class ReusableByteBufferQueue extends AbstractReusableBufferQueue<Reusabl
         {
             buffer = new ReusableByteBuffer(this, new byte[size]);
             buffer.setDebugName("Owner:" + getDebugName());
-            incrementBufferCount();
+            created(buffer);
         }
 
         buffer.resize(size);
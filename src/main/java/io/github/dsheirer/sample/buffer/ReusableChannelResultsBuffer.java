@@ -52,6 +52,35 @@ public class ReusableChannelResultsBuffer extends AbstractReusableBuffer
         mLength = null;
     }
 
+    @Override
+    protected long getMemorySize()
+    {
+        long size = 0;
+
+        for(float[] buffer: mEmptyBuffers)
+        {
+            size += buffer.length * 4L;
+        }
+
+        for(float[] buffer: mFilledBuffers)
+        {
+            size += buffer.length * 4L;
+        }
+
+        return size;
+    }
+
+    /**
+     * Releases the empty channel results arrays and the channel buffer queue
+     */
+    @Override
+    public void dispose()
+    {
+        super.dispose();
+        mEmptyBuffers.clear();
+        mReusableComplexBufferQueue.dispose();
+    }
+
     /**
      * Gets an empty channel results array correctly sized to the requested length.  This method should be used to
      * obtain all empty channel results buffers to fill with information and add back to this buffer so that the results
@@ -53,7 +53,7 @@ public class ReusableComplexBufferQueue extends AbstractReusableBufferQueue<Reus
         {
             buffer = new ReusableComplexBuffer(this, new float[size]);
             buffer.setDebugName("Owner:" + getDebugName());
-            incrementBufferCount();
+            created(buffer);
         }
 
         buffer.resize(size);
@@ -15,7 +15,9 @@
  ******************************************************************************/
 package io.github.dsheirer.sample.buffer;
 
+import io.github.dsheirer.sample.IOverflowListener;
 import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.source.Source;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,7 +41,7 @@ import java.util.concurrent.LinkedTransferQueue;
  * so as not to delay the stream of sample buffers.  Channel listeners are expected to implement buffer queue processing
  * on another thread.
  */
-public class ReusableComplexDelayBuffer implements Listener<ReusableComplexBuffer>
+public class ReusableComplexDelayBuffer implements Listener<ReusableComplexBuffer>, IOverflowListener
 {
     private final static Logger mLog = LoggerFactory.getLogger(ReusableComplexDelayBuffer.class);
 
@@ -139,6 +141,22 @@ public class ReusableComplexDelayBuffer implements Listener<ReusableComplexBuffe
         }
     }
 
+    /**
+     * Relays the overflow state of the incoming sample buffer stream (ie when this delay buffer is lapped by the
+     * tuner's sample buffer ring) to each of the channel sources receiving buffers from this delay buffer.
+     */
+    @Override
+    public void sourceOverflow(boolean overflow)
+    {
+        for(Listener<ReusableComplexBuffer> listener : mBroadcaster.getListeners())
+        {
+            if(listener instanceof Source)
+            {
+                ((Source)listener).broadcastOverflowState(overflow);
+            }
+        }
+    }
+
     /**
      * Indicates if any listeners are registered with this delay buffer
      */
@@ -125,10 +125,17 @@ public class ReusableFloatBuffer extends AbstractReusableBuffer
         mTimestamp = timestamp;
     }
 
+    @Override
+    protected long getMemorySize()
+    {
+        return mSamples.length * 4L;
+    }
+
     /**
      * Resizes the internal array to the size argument
      * @param size for the internal array
      */
+
     protected void resize(int size)
     {
         if(mSamples.length != size)
@@ -0,0 +1,336 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.sample.buffer;
+
+import io.github.dsheirer.properties.SystemProperties;
+import io.github.dsheirer.util.ThreadPool;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global sample buffer memory manager.  Accounts for the memory held by every reusable buffer queue (owner) and
+ * enforces a global sample memory budget.
+ *
+ * Buffer queues grow to meet peak demand and previously held on to their peak buffer count forever.  This manager
+ * periodically trims idle buffers from each queue: any buffers that stayed idle in a queue for the entire trim
+ * interval were not needed to meet demand and are released for garbage collection.
+ *
+ * When a queue needs to create a new buffer while the total sample memory exceeds the budget, idle buffers are
+ * trimmed across all queues immediately and the overflow policy is applied:
+ *
+ * ALLOCATE - allocate the buffer anyway and count (and periodically log) the overflow
+ * WAIT - wait briefly for a buffer to be recycled to the queue (back-pressure) before allocating
+ *
+ * Budget and policy are configurable via system properties.  A per-owner summary of pool occupancy is available
+ * for diagnostics.
+ */
+public class SampleMemoryManager
+{
+    private final static Logger mLog = LoggerFactory.getLogger(SampleMemoryManager.class);
+    public static final String PROPERTY_BUDGET_MEGABYTES = "sample.memory.budget.mb";
+    public static final String PROPERTY_OVERFLOW_POLICY = "sample.memory.overflow.policy";
+    private static final long TRIM_INTERVAL_SECONDS = 30;
+    private static final long OVERFLOW_LOG_INTERVAL_MILLISECONDS = 60000;
+    private static final long WAIT_FOR_RECYCLE_MILLISECONDS = 10;
+    private static final long FORCED_TRIM_INTERVAL_MILLISECONDS = 1000;
+
+    private static SampleMemoryManager sInstance;
+
+    //Owners are weakly referenced so that queues abandoned without disposal don't leak
+    private Map<AbstractReusableBufferQueue<?>,Boolean> mOwners = Collections.synchronizedMap(new WeakHashMap<>());
+    private AtomicLong mAllocatedBytes = new AtomicLong();
+    private AtomicLong mOverflowCount = new AtomicLong();
+    private AtomicLong mTrimmedBytes = new AtomicLong();
+    private long mBudgetBytes;
+    private OverflowPolicy mOverflowPolicy;
+    private volatile long mLastOverflowLog;
+    private volatile long mLastForcedTrim;
+
+    /**
+     * Use getInstance() to access the singleton instance
+     */
+    private SampleMemoryManager()
+    {
+        long defaultBudget = Runtime.getRuntime().maxMemory() / 2 / (1024 * 1024);
+        mBudgetBytes = SystemProperties.getInstance().get(PROPERTY_BUDGET_MEGABYTES, (int)defaultBudget) *
+            1024l * 1024l;
+
+        String policy = SystemProperties.getInstance().get(PROPERTY_OVERFLOW_POLICY, OverflowPolicy.ALLOCATE.name());
+
+        try
+        {
+            mOverflowPolicy = OverflowPolicy.valueOf(policy.toUpperCase());
+        }
+        catch(Exception e)
+        {
+            mLog.warn("Unrecognized sample memory overflow policy [" + policy + "] - using " + OverflowPolicy.ALLOCATE);
+            mOverflowPolicy = OverflowPolicy.ALLOCATE;
+        }
+
+        ThreadPool.SCHEDULED.scheduleAtFixedRate(this::trim, TRIM_INTERVAL_SECONDS, TRIM_INTERVAL_SECONDS,
+            TimeUnit.SECONDS);
+    }
+
+    /**
+     * Singleton instance of the sample memory manager
+     */
+    public static synchronized SampleMemoryManager getInstance()
+    {
+        if(sInstance == null)
+        {
+            sInstance = new SampleMemoryManager();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Registers a buffer queue for memory accounting and idle buffer trimming
+     */
+    void register(AbstractReusableBufferQueue<?> owner)
+    {
+        mOwners.put(owner, Boolean.TRUE);
+    }
+
+    /**
+     * Removes a disposed buffer queue from memory accounting
+     */
+    void unregister(AbstractReusableBufferQueue<?> owner)
+    {
+        mOwners.remove(owner);
+    }
+
+    /**
+     * Adjusts the total sample memory allocated across all buffer queues
+     *
+     * @param bytes to add (positive) or remove (negative)
+     */
+    void adjust(long bytes)
+    {
+        if(bytes != 0)
+        {
+            mAllocatedBytes.addAndGet(bytes);
+        }
+    }
+
+    /**
+     * Indicates if the total sample memory exceeds the budget
+     */
+    public boolean isOverBudget()
+    {
+        return mAllocatedBytes.get() > mBudgetBytes;
+    }
+
+    /**
+     * Invoked by a buffer queue that has no recycled buffers and needs to create a new buffer.  When over budget,
+     * trims idle buffers across all queues and, for the WAIT policy, returns the time that the queue should wait for
+     * a buffer to be recycled before creating a new buffer.
+     *
+     * @return milliseconds to wait for a recycled buffer, or zero to allocate immediately
+     */
+    long getAllocationWait()
+    {
+        if(!isOverBudget())
+        {
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+
+        //Limit forced trims so that a sustained over-budget condition doesn't churn the idle buffers of every queue
+        if(now - mLastForcedTrim > FORCED_TRIM_INTERVAL_MILLISECONDS)
+        {
+            mLastForcedTrim = now;
+            trimIdle();
+        }
+
+        if(!isOverBudget())
+        {
+            return 0;
+        }
+
+        return mOverflowPolicy == OverflowPolicy.WAIT ? WAIT_FOR_RECYCLE_MILLISECONDS : 0;
+    }
+
+    /**
+     * Invoked when a buffer is created while the total sample memory exceeds the budget
+     */
+    void overflow(AbstractReusableBufferQueue<?> owner)
+    {
+        mOverflowCount.incrementAndGet();
+
+        long now = System.currentTimeMillis();
+
+        if(now - mLastOverflowLog > OVERFLOW_LOG_INTERVAL_MILLISECONDS)
+        {
+            mLastOverflowLog = now;
+            mLog.warn("Sample memory budget [" + FileUtils.byteCountToDisplaySize(mBudgetBytes) +
+                "] exceeded while allocating a buffer for [" + owner.getOwnerName() + "] - allocated [" +
+                FileUtils.byteCountToDisplaySize(mAllocatedBytes.get()) + "] overflow count [" +
+                mOverflowCount.get() + "]");
+        }
+    }
+
+    /**
+     * Total sample memory allocated across all buffer queues
+     */
+    public long getAllocatedBytes()
+    {
+        return mAllocatedBytes.get();
+    }
+
+    /**
+     * Sample memory budget
+     */
+    public long getBudgetBytes()
+    {
+        return mBudgetBytes;
+    }
+
+    /**
+     * Number of buffers created while over budget
+     */
+    public long getOverflowCount()
+    {
+        return mOverflowCount.get();
+    }
+
+    /**
+     * Total memory released by trimming idle buffers
+     */
+    public long getTrimmedBytes()
+    {
+        return mTrimmedBytes.get();
+    }
+
+    /**
+     * Snapshot of the registered buffer queues
+     */
+    private List<AbstractReusableBufferQueue<?>> getOwners()
+    {
+        synchronized(mOwners)
+        {
+            return new ArrayList<>(mOwners.keySet());
+        }
+    }
+
+    /**
+     * Scheduled trim of buffers that were idle for the full trim interval
+     */
+    private void trim()
+    {
+        try
+        {
+            long trimmed = 0;
+            long allocated = 0;
+
+            for(AbstractReusableBufferQueue<?> owner : getOwners())
+            {
+                trimmed += owner.trimUnused();
+                allocated += owner.getAllocatedBytes();
+            }
+
+            //Reconcile the running total with the live queues, since queues that were garbage collected without
+            //being disposed never removed their memory from the total
+            mAllocatedBytes.set(allocated);
+
+            if(trimmed > 0)
+            {
+                mTrimmedBytes.addAndGet(trimmed);
+                mLog.debug("Released [" + FileUtils.byteCountToDisplaySize(trimmed) + "] of idle sample buffers - " +
+                    "allocated [" + FileUtils.byteCountToDisplaySize(mAllocatedBytes.get()) + "]");
+            }
+        }
+        catch(Throwable t)
+        {
+            mLog.error("Error while trimming idle sample buffers", t);
+        }
+    }
+
+    /**
+     * Immediately releases all idle buffers across all queues
+     */
+    private void trimIdle()
+    {
+        long trimmed = 0;
+
+        for(AbstractReusableBufferQueue<?> owner : getOwners())
+        {
+            trimmed += owner.trimIdle();
+        }
+
+        mTrimmedBytes.addAndGet(trimmed);
+    }
+
+    /**
+     * Diagnostic summary of sample buffer pool occupancy, aggregated by owner name
+     */
+    public String getSummary()
+    {
+        Map<String,long[]> owners = new TreeMap<>();
+
+        for(AbstractReusableBufferQueue<?> owner : getOwners())
+        {
+            long[] totals = owners.computeIfAbsent(owner.getOwnerName(), name -> new long[5]);
+            totals[0]++;
+            totals[1] += owner.getBufferCount();
+            totals[2] += owner.getIdleBufferCount();
+            totals[3] += owner.getAllocatedBytes();
+            totals[4] += owner.getIdleBytes();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Sample Buffer Memory\n");
+        sb.append("Allocated: ").append(FileUtils.byteCountToDisplaySize(mAllocatedBytes.get()));
+        sb.append("  Budget: ").append(FileUtils.byteCountToDisplaySize(mBudgetBytes));
+        sb.append("  Policy: ").append(mOverflowPolicy);
+        sb.append("  Overflows: ").append(mOverflowCount.get());
+        sb.append("  Trimmed: ").append(FileUtils.byteCountToDisplaySize(mTrimmedBytes.get())).append("\n\n");
+        sb.append(String.format("%-45s %7s %9s %9s %12s %12s\n", "OWNER", "QUEUES", "BUFFERS", "IDLE",
+            "ALLOCATED", "IDLE MEMORY"));
+
+        for(Map.Entry<String,long[]> entry : owners.entrySet())
+        {
+            long[] totals = entry.getValue();
+            sb.append(String.format("%-45s %7d %9d %9d %12s %12s\n", entry.getKey(), totals[0], totals[1],
+                totals[2], FileUtils.byteCountToDisplaySize(totals[3]), FileUtils.byteCountToDisplaySize(totals[4])));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Policy applied when a buffer is needed while the sample memory budget is exceeded
+     */
+    public enum OverflowPolicy
+    {
+        ALLOCATE,
+        WAIT;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.source.tuner;
+
+/**
+ * Buffer sizing profile for tuner sample delivery.  Each profile adjusts the USB transfer buffer size and count, the
+ * channelizer processing interval (block batching) and queue depth, and the tuner channel source queue depth together.
+ *
+ * Smaller buffers and shallower queues reduce the delay between a signal arriving at the tuner and audio output, at
+ * the cost of more frequent (less efficient) processing passes.  Larger buffers and deeper queues favor throughput
+ * and tolerate longer processing stalls without dropping samples, at the cost of latency.
+ */
+public enum BufferProfile
+{
+    LOW_LATENCY("Low Latency", 0.5, 32, 2, 1, 100),
+    BALANCED("Balanced", 1.0, 40, 5, 5, 300),
+    HIGH_THROUGHPUT("High Throughput", 2.0, 64, 20, 10, 600);
+
+    //USB bulk transfers must be a multiple of the maximum (high speed) packet size
+    private static final int USB_TRANSFER_SIZE_MULTIPLE = 512;
+
+    //Channelizer results buffers produced per second (approximate) by the polyphase channelizer
+    private static final int CHANNELIZER_BUFFERS_PER_SECOND = 152;
+
+    private String mLabel;
+    private double mUSBTransferSizeScale;
+    private int mUSBTransferCount;
+    private long mChannelizerProcessingPeriod;
+    private int mChannelizerQueueSeconds;
+    private int mChannelQueueCapacity;
+
+    /**
+     * Constructs an instance
+     *
+     * @param label for display
+     * @param usbTransferSizeScale applied to the tuner's default USB transfer buffer size
+     * @param usbTransferCount number of USB transfer buffers to allocate
+     * @param channelizerProcessingPeriod in milliseconds between channelizer processing passes
+     * @param channelizerQueueSeconds of channelizer results buffers to queue before overflow
+     * @param channelQueueCapacity number of sample buffers to queue for each tuner channel source before overflow
+     */
+    BufferProfile(String label, double usbTransferSizeScale, int usbTransferCount, long channelizerProcessingPeriod,
+                  int channelizerQueueSeconds, int channelQueueCapacity)
+    {
+        mLabel = label;
+        mUSBTransferSizeScale = usbTransferSizeScale;
+        mUSBTransferCount = usbTransferCount;
+        mChannelizerProcessingPeriod = channelizerProcessingPeriod;
+        mChannelizerQueueSeconds = channelizerQueueSeconds;
+        mChannelQueueCapacity = channelQueueCapacity;
+    }
+
+    /**
+     * USB transfer buffer size for this profile.
+     *
+     * @param defaultSize in bytes specified by the tuner for its current sample rate
+     * @return scaled size in bytes, a multiple of the USB packet size
+     */
+    public int getUSBTransferSize(int defaultSize)
+    {
+        int size = (int)(defaultSize * mUSBTransferSizeScale);
+        size -= size % USB_TRANSFER_SIZE_MULTIPLE;
+        return Math.max(size, USB_TRANSFER_SIZE_MULTIPLE);
+    }
+
+    /**
+     * Number of USB transfer buffers to allocate
+     */
+    public int getUSBTransferCount()
+    {
+        return mUSBTransferCount;
+    }
+
+    /**
+     * Interval in milliseconds between channelizer processing passes.  Longer intervals process more queued buffers
+     * in each pass.
+     */
+    public long getChannelizerProcessingPeriod()
+    {
+        return mChannelizerProcessingPeriod;
+    }
+
+    /**
+     * Maximum number of channelizer results buffers to queue before overflow
+     */
+    public int getChannelizerQueueSize()
+    {
+        return mChannelizerQueueSeconds * CHANNELIZER_BUFFERS_PER_SECOND;
+    }
+
+    /**
+     * Channelizer queue size at or below which an overflow condition is reset
+     */
+    public int getChannelizerQueueResetThreshold()
+    {
+        return getChannelizerQueueSize() * 2 / 5;
+    }
+
+    /**
+     * Maximum number of sample buffers to queue for each tuner channel source before overflow
+     */
+    public int getChannelQueueCapacity()
+    {
+        return mChannelQueueCapacity;
+    }
+
+    @Override
+    public String toString()
+    {
+        return mLabel;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.source.tuner;
+
+import com.google.common.eventbus.Subscribe;
+import io.github.dsheirer.eventbus.MyEventBus;
+import io.github.dsheirer.preference.PreferenceType;
+import io.github.dsheirer.preference.source.LatencyMode;
+import io.github.dsheirer.preference.source.TunerPreference;
+import io.github.dsheirer.sample.Broadcaster;
+import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.source.tuner.channel.DSPLoadScheduler;
+import io.github.dsheirer.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages the active buffer profile used to size tuner sample delivery buffers and queues, according to the latency
+ * mode specified in the tuner preferences.
+ *
+ * In auto-tune mode, the processing load is measured periodically and the profile is selected from the available CPU
+ * headroom: low latency while there is plenty of headroom, high throughput when the host is heavily loaded.  A new
+ * profile must be selected for several consecutive measurements before it is applied, to avoid oscillating between
+ * profiles.
+ *
+ * Components that size their buffers on construction or start (channelizers, tuner channel sources and USB transfer
+ * processors) pick up the current profile the next time they are created or started.  Components that can resize
+ * while running register a listener to be notified when the user changes the latency mode.  Auto-tune profile
+ * changes are not broadcast, since resizing a running tuner's buffers restarts the sample stream and drops samples.
+ */
+public class BufferProfileManager
+{
+    private final static Logger mLog = LoggerFactory.getLogger(BufferProfileManager.class);
+    private static final long AUTO_TUNE_INTERVAL_SECONDS = 10;
+    private static final int AUTO_TUNE_CONFIRMATION_COUNT = 3;
+    private static final double LOW_LATENCY_MAXIMUM_LOAD = 0.35;
+    private static final double BALANCED_MAXIMUM_LOAD = 0.70;
+
+    private static BufferProfileManager sInstance;
+
+    private Broadcaster<BufferProfile> mProfileBroadcaster = new Broadcaster<>();
+    private TunerPreference mTunerPreference;
+    private LatencyMode mLatencyMode = LatencyMode.BALANCED;
+    private volatile BufferProfile mBufferProfile = BufferProfile.BALANCED;
+    private BufferProfile mCandidateProfile;
+    private int mCandidateCount;
+    private ScheduledFuture<?> mAutoTuneFuture;
+
+    /**
+     * Use getInstance() to access the singleton instance
+     */
+    private BufferProfileManager()
+    {
+    }
+
+    /**
+     * Singleton instance of the buffer profile manager
+     */
+    public static synchronized BufferProfileManager getInstance()
+    {
+        if(sInstance == null)
+        {
+            sInstance = new BufferProfileManager();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Configures this manager from the tuner preferences and registers to receive preference updates.  Subsequent
+     * invocations are ignored.
+     *
+     * @param tunerPreference providing the latency mode
+     */
+    public synchronized void setTunerPreference(TunerPreference tunerPreference)
+    {
+        if(mTunerPreference == null && tunerPreference != null)
+        {
+            mTunerPreference = tunerPreference;
+            MyEventBus.getEventBus().register(this);
+            setLatencyMode(mTunerPreference.getLatencyMode());
+        }
+    }
+
+    /**
+     * Receives preference update notifications via the event bus
+     * @param preferenceType that was updated
+     */
+    @Subscribe
+    public void preferenceUpdated(PreferenceType preferenceType)
+    {
+        if(preferenceType == PreferenceType.TUNER && mTunerPreference != null)
+        {
+            setLatencyMode(mTunerPreference.getLatencyMode());
+        }
+    }
+
+    /**
+     * Current latency mode
+     */
+    public LatencyMode getLatencyMode()
+    {
+        return mLatencyMode;
+    }
+
+    /**
+     * Sets the latency mode and applies the corresponding buffer profile.  Auto-tune mode starts with the balanced
+     * profile and adjusts the profile from the measured processing load.
+     */
+    public synchronized void setLatencyMode(LatencyMode latencyMode)
+    {
+        if(latencyMode == null || latencyMode == mLatencyMode)
+        {
+            return;
+        }
+
+        mLatencyMode = latencyMode;
+        mLog.info("Tuner latency mode [" + latencyMode + "]");
+
+        if(mAutoTuneFuture != null)
+        {
+            mAutoTuneFuture.cancel(false);
+            mAutoTuneFuture = null;
+        }
+
+        switch(latencyMode)
+        {
+            case LOW_LATENCY:
+                setBufferProfile(BufferProfile.LOW_LATENCY, true);
+                break;
+            case HIGH_THROUGHPUT:
+                setBufferProfile(BufferProfile.HIGH_THROUGHPUT, true);
+                break;
+            case AUTO:
+                mCandidateProfile = null;
+                mCandidateCount = 0;
+                mAutoTuneFuture = ThreadPool.SCHEDULED.scheduleAtFixedRate(this::autoTune, AUTO_TUNE_INTERVAL_SECONDS,
+                    AUTO_TUNE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                break;
+            case BALANCED:
+            default:
+                setBufferProfile(BufferProfile.BALANCED, true);
+                break;
+        }
+    }
+
+    /**
+     * Current buffer profile
+     */
+    public BufferProfile getBufferProfile()
+    {
+        return mBufferProfile;
+    }
+
+    /**
+     * Registers the listener to be notified when the buffer profile changes for a latency mode change
+     */
+    public void addListener(Listener<BufferProfile> listener)
+    {
+        mProfileBroadcaster.addListener(listener);
+    }
+
+    /**
+     * Removes the listener from being notified of buffer profile changes
+     */
+    public void removeListener(Listener<BufferProfile> listener)
+    {
+        mProfileBroadcaster.removeListener(listener);
+    }
+
+    /**
+     * Applies the buffer profile
+     *
+     * @param bufferProfile to apply
+     * @param notifyListeners true to notify listeners so that running components resize immediately, or false to let
+     * components pick up the profile the next time they start
+     */
+    private void setBufferProfile(BufferProfile bufferProfile, boolean notifyListeners)
+    {
+        if(mBufferProfile != bufferProfile)
+        {
+            mLog.info("Tuner buffer profile changed from [" + mBufferProfile + "] to [" + bufferProfile + "]");
+            mBufferProfile = bufferProfile;
+
+            if(notifyListeners)
+            {
+                mProfileBroadcaster.broadcast(bufferProfile);
+            }
+        }
+    }
+
+    /**
+     * Measures the current processing load and selects the profile that fits the available CPU headroom.  Load is
+     * the greater of the DSP channel processing utilization and the system load average per processor.
+     */
+    private synchronized void autoTune()
+    {
+        try
+        {
+            double load = DSPLoadScheduler.getInstance().getUtilization();
+
+            double loadAverage = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+
+            if(loadAverage >= 0)
+            {
+                load = Math.max(load, loadAverage / Runtime.getRuntime().availableProcessors());
+            }
+
+            BufferProfile profile;
+
+            if(load < LOW_LATENCY_MAXIMUM_LOAD)
+            {
+                profile = BufferProfile.LOW_LATENCY;
+            }
+            else if(load < BALANCED_MAXIMUM_LOAD)
+            {
+                profile = BufferProfile.BALANCED;
+            }
+            else
+            {
+                profile = BufferProfile.HIGH_THROUGHPUT;
+            }
+
+            if(profile == mBufferProfile)
+            {
+                mCandidateProfile = null;
+                mCandidateCount = 0;
+            }
+            else if(profile == mCandidateProfile)
+            {
+                mCandidateCount++;
+
+                if(mCandidateCount >= AUTO_TUNE_CONFIRMATION_COUNT)
+                {
+                    mCandidateProfile = null;
+                    mCandidateCount = 0;
+                    //Don't restart running tuners - they pick up the profile the next time they start
+                    setBufferProfile(profile, false);
+                }
+            }
+            else
+            {
+                mCandidateProfile = profile;
+                mCandidateCount = 1;
+            }
+        }
+        catch(Throwable t)
+        {
+            mLog.error("Error while auto-tuning tuner buffer profile", t);
+        }
+    }
+}
@@ -64,12 +64,14 @@ public abstract class Tuner implements ISourceEventProcessor, ITunerErrorListene
      * Abstract tuner class.
      * @param name of the tuner
      * @param tunerController for the tuner
-     * @param userPreferences to discover preferred channelizer type
+     * @param userPreferences to discover preferred channelizer type and latency mode
      */
     public Tuner(String name, TunerController tunerController, UserPreferences userPreferences)
     {
         this(name, tunerController);
 
+        BufferProfileManager.getInstance().setTunerPreference(userPreferences.getTunerPreference());
+
         ChannelizerType channelizerType = userPreferences.getTunerPreference().getChannelizerType();
         if(channelizerType == ChannelizerType.POLYPHASE)
         {
@@ -193,6 +195,7 @@ public abstract class Tuner implements ISourceEventProcessor, ITunerErrorListene
      */
     public void dispose()
     {
+        getTunerController().stopActivityDetector();
         getTunerController().dispose();
     }
 
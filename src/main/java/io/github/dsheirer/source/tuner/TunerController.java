@@ -22,8 +22,9 @@ import io.github.dsheirer.preference.UserPreferences;
 import io.github.dsheirer.record.RecorderFactory;
 import io.github.dsheirer.record.wave.ComplexBufferWaveRecorder;
 import io.github.dsheirer.sample.Listener;
+import io.github.dsheirer.sample.RingBroadcaster;
 import io.github.dsheirer.sample.buffer.IReusableComplexBufferProvider;
-import io.github.dsheirer.sample.buffer.ReusableBufferBroadcaster;
+import io.github.dsheirer.sample.buffer.ReusableBufferRingBroadcaster;
 import io.github.dsheirer.sample.buffer.ReusableComplexBuffer;
 import io.github.dsheirer.source.ISourceEventListener;
 import io.github.dsheirer.source.ISourceEventProcessor;
@@ -34,6 +35,9 @@ import io.github.dsheirer.source.tuner.channel.TunerChannel;
 import io.github.dsheirer.source.tuner.configuration.TunerConfiguration;
 import io.github.dsheirer.source.tuner.frequency.FrequencyController;
 import io.github.dsheirer.source.tuner.frequency.FrequencyController.Tunable;
+import io.github.dsheirer.spectrum.SpectralAnalysisService;
+import io.github.dsheirer.spectrum.census.ActivityDetector;
+import io.github.dsheirer.spectrum.census.SignalCensus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,7 +47,10 @@ public abstract class TunerController implements Tunable, ISourceEventProcessor,
     IReusableComplexBufferProvider, Listener<ReusableComplexBuffer>, ITunerErrorListener
 {
     private final static Logger mLog = LoggerFactory.getLogger(TunerController.class);
-    protected ReusableBufferBroadcaster mReusableBufferBroadcaster = new ReusableBufferBroadcaster();
+    //Sample buffer ring sized for several seconds of USB transfer buffers at the highest tuner sample rates
+    private static final int BUFFER_RING_CAPACITY = 256;
+    protected ReusableBufferRingBroadcaster<ReusableComplexBuffer> mReusableBufferBroadcaster =
+        new ReusableBufferRingBroadcaster<>(BUFFER_RING_CAPACITY, RingBroadcaster.DRAIN_ON_PUBLISH);
     protected FrequencyController mFrequencyController;
     private int mMiddleUnusableHalfBandwidth;
     private double mUsableBandwidthPercentage;
@@ -51,6 +58,8 @@ public abstract class TunerController implements Tunable, ISourceEventProcessor,
     private int mMeasuredFrequencyError;
     private ComplexBufferWaveRecorder mRecorder;
     private ITunerErrorListener mTunerErrorListener;
+    private SpectralAnalysisService mSpectralAnalysisService;
+    private ActivityDetector mActivityDetector;
 
     /**
      * Abstract tuner controller class.  The tuner controller manages frequency bandwidth and currently tuned channels
@@ -66,6 +75,10 @@ public abstract class TunerController implements Tunable, ISourceEventProcessor,
     public TunerController(long minimumFrequency, long maximumFrequency, int middleUnusableHalfBandwidth, double usableBandwidth)
     {
         mFrequencyController = new FrequencyController(this, minimumFrequency, maximumFrequency, 0.0d);
+
+        //Registered first so that buffers produced before a frequency or sample rate change are delivered to the
+        //buffer listeners before the change notification is broadcast to the source event listeners
+        mFrequencyController.addListener(sourceEvent -> mReusableBufferBroadcaster.flush());
         mMiddleUnusableHalfBandwidth = middleUnusableHalfBandwidth;
         mUsableBandwidthPercentage = usableBandwidth;
         mSourceEventListener = new SourceEventListenerToProcessorAdapter(this);
@@ -372,6 +385,59 @@ public abstract class TunerController implements Tunable, ISourceEventProcessor,
         return mReusableBufferBroadcaster.hasListeners();
     }
 
+    /**
+     * Shared spectral analysis (DFT) service for this tuner.  The service is created on first access and only
+     * consumes samples while it has subscribers.
+     */
+    public synchronized SpectralAnalysisService getSpectralAnalysisService()
+    {
+        if(mSpectralAnalysisService == null || mSpectralAnalysisService.isDisposed())
+        {
+            mSpectralAnalysisService = new SpectralAnalysisService(this);
+        }
+
+        return mSpectralAnalysisService;
+    }
+
+    /**
+     * Disposes the spectral analysis service once its last subscriber is removed.  A new service is created on the
+     * next access.
+     *
+     * @param service that no longer has subscribers
+     */
+    public synchronized void releaseSpectralAnalysisService(SpectralAnalysisService service)
+    {
+        if(mSpectralAnalysisService == service && service.disposeIfUnused())
+        {
+            mSpectralAnalysisService = null;
+        }
+    }
+
+    /**
+     * Wideband activity detector and signal census for this tuner.  The detector is created on first access and only
+     * subscribes to the spectral analysis service while it is running.
+     */
+    public synchronized ActivityDetector getActivityDetector()
+    {
+        if(mActivityDetector == null)
+        {
+            mActivityDetector = new ActivityDetector(this, new SignalCensus());
+        }
+
+        return mActivityDetector;
+    }
+
+    /**
+     * Stops the activity detector, if it was created
+     */
+    public synchronized void stopActivityDetector()
+    {
+        if(mActivityDetector != null)
+        {
+            mActivityDetector.stop();
+        }
+    }
+
     /**
      * Broadcasts the buffer to any registered listeners
      */
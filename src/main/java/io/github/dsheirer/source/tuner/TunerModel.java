@@ -437,6 +437,7 @@ public class TunerModel extends AbstractTableModel implements Listener<TunerEven
 
                         if(source != null)
                         {
+                            source.setTuner(tuner);
                             return source;
                         }
                     }
@@ -461,6 +462,11 @@ public class TunerModel extends AbstractTableModel implements Listener<TunerEven
                     try
                     {
                         source = tuner.getChannelSourceManager().getSource(tunerChannel, channelSpecification);
+
+                        if(source != null)
+                        {
+                            source.setTuner(tuner);
+                        }
                     }
                     catch(Exception e)
                     {
@@ -26,6 +26,7 @@ import io.github.dsheirer.sample.buffer.ReusableComplexBuffer;
 import io.github.dsheirer.sample.buffer.ReusableComplexBufferQueue;
 import io.github.dsheirer.sample.complex.Complex;
 import io.github.dsheirer.source.SourceEvent;
+import io.github.dsheirer.source.tuner.BufferProfileManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -39,12 +40,6 @@ public class CICTunerChannelSource extends TunerChannelSource implements Listene
 {
 //    private final static Logger mLog = LoggerFactory.getLogger(CICTunerChannelSource.class);
 
-    //Maximum number of filled buffers for the blocking queue
-    private static final int BUFFER_MAX_CAPACITY = 300;
-
-    //Threshold for resetting buffer overflow condition
-    private static final int BUFFER_OVERFLOW_RESET_THRESHOLD = 100;
-
     private OverflowableReusableBufferTransferQueue<ReusableComplexBuffer> mBuffer;
     private ReusableComplexBufferQueue mReusableComplexBufferQueue = new ReusableComplexBufferQueue("CICTunerChannelSource");
     private IOscillator mFrequencyCorrectionMixer;
@@ -74,7 +69,10 @@ public class CICTunerChannelSource extends TunerChannelSource implements Listene
         mDecimationFilter = new ComplexPrimeCICDecimate(sampleRate, decimation, channelSpecification.getPassFrequency(),
             channelSpecification.getStopFrequency());
 
-        mBuffer = new OverflowableReusableBufferTransferQueue<>(BUFFER_MAX_CAPACITY, BUFFER_OVERFLOW_RESET_THRESHOLD);
+        //Maximum number of filled buffers for the blocking queue and threshold for resetting overflow condition are
+        //sized from the current tuner buffer profile
+        int capacity = BufferProfileManager.getInstance().getBufferProfile().getChannelQueueCapacity();
+        mBuffer = new OverflowableReusableBufferTransferQueue<>(capacity, capacity / 3);
 
         //Setup the frequency mixer to the current source frequency
         mChannelSampleRate = sampleRate / (double)decimation;
@@ -93,6 +91,8 @@ public class CICTunerChannelSource extends TunerChannelSource implements Listene
     @Override
     public void setOverflowListener(IOverflowListener listener)
     {
+        //Also register with the parent so that upstream overflow states (ie delay buffer) reach the listener
+        super.setOverflowListener(listener);
         mBuffer.setOverflowListener(listener);
     }
 
@@ -212,6 +212,15 @@ public class CICTunerChannelSource extends TunerChannelSource implements Listene
         return mChannelSampleRate;
     }
 
+    /**
+     * Discards any queued complex buffers without processing them
+     */
+    @Override
+    protected void discardSamples()
+    {
+        mBuffer.clear();
+    }
+
     /**
      * Primary processing method that is invoked on a recurring basis to process any queued complex buffers.
      *
@@ -226,6 +235,7 @@ public class CICTunerChannelSource extends TunerChannelSource implements Listene
             float[] samples = complexBuffer.getSamples();
 
             ReusableComplexBuffer translatedComplexBuffer = mReusableComplexBufferQueue.getBuffer(samples.length);
+            translatedComplexBuffer.setTimestamp(complexBuffer.getTimestamp());
             float[] translatedSamples = translatedComplexBuffer.getSamples();
 
             /* Perform frequency translation */
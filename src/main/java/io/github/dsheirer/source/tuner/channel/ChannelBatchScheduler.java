@@ -0,0 +1,377 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.source.tuner.channel;
+
+import io.github.dsheirer.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Batch scheduler for tuner channel source interval processors.  Tuner channel sources that are assigned to the same
+ * batch group (e.g. all channels using the same decoder type) on the same tuner are processed together in a single
+ * scheduled pass, one after the other on the same thread, instead of each channel waking up its own scheduled task.
+ * This keeps the same decoder code hot in the instruction cache across channels and reduces thread wake-ups.
+ *
+ * Batch groups are kept separate for each tuner so that a stalled or overloaded tuner only delays the channels that
+ * it feeds, and so that the batched channels in a pass are fed from the same sample stream.
+ *
+ * When a batch group contains a single channel, that channel is scheduled on its own, the same as per-channel
+ * processing.  Scheduling changes for a batch group are serialized on the group, but the channels are processed
+ * outside of the group monitor.  Each channel has its own run lock, so a channel is never processed by two threads
+ * at the same time while the group changes between single and batched scheduling.
+ *
+ * Each batched pass is timed and a timing summary for each group is logged periodically.
+ */
+public class ChannelBatchScheduler
+{
+    private final static Logger mLog = LoggerFactory.getLogger(ChannelBatchScheduler.class);
+    private static final long TIMING_LOG_INTERVAL_MILLISECONDS = 60000;
+
+    private Map<GroupKey,BatchGroup> mBatchGroups = new ConcurrentHashMap<>();
+    private long mIntervalMilliseconds;
+
+    /**
+     * Constructs an instance
+     *
+     * @param intervalMilliseconds between processing passes
+     */
+    public ChannelBatchScheduler(long intervalMilliseconds)
+    {
+        mIntervalMilliseconds = intervalMilliseconds;
+    }
+
+    /**
+     * Adds the processor to the tuner's batch group and starts periodic processing.
+     *
+     * @param tuner that feeds the processor, or null if the source is not associated with a tuner
+     * @param group identifying the batch group (e.g. decoder type)
+     * @param processor to run at each interval
+     */
+    public void add(Object tuner, Object group, Runnable processor)
+    {
+        //Add within compute() so that the group can't be removed as empty between lookup and add
+        mBatchGroups.compute(new GroupKey(tuner, group), (key, batchGroup) -> {
+            if(batchGroup == null)
+            {
+                batchGroup = new BatchGroup(key);
+            }
+
+            batchGroup.add(processor);
+            return batchGroup;
+        });
+    }
+
+    /**
+     * Removes the processor from the tuner's batch group.  The group is removed once it is empty, and its scheduled
+     * task is cancelled.  Safe to invoke from within the processor's run() method.
+     *
+     * @param tuner that feeds the processor, or null
+     * @param group identifying the batch group
+     * @param processor to remove
+     */
+    public void remove(Object tuner, Object group, Runnable processor)
+    {
+        mBatchGroups.computeIfPresent(new GroupKey(tuner, group), (key, batchGroup) -> {
+            batchGroup.remove(processor);
+            return batchGroup.isEmpty() ? null : batchGroup;
+        });
+    }
+
+    /**
+     * Timing summaries for each of the current batch groups
+     */
+    public List<String> getTimings()
+    {
+        List<String> timings = new ArrayList<>();
+
+        for(BatchGroup batchGroup : mBatchGroups.values())
+        {
+            timings.add(batchGroup.getTiming());
+        }
+
+        return timings;
+    }
+
+    /**
+     * Group of processors that are processed together in a single scheduled pass.
+     *
+     * Scheduling changes are synchronized on the group, but processors are never run while holding the group
+     * monitor, since a processor can start or stop other channels (and therefore add or remove processors in other
+     * groups) from within its run() method.
+     */
+    public class BatchGroup implements Runnable
+    {
+        private final DecimalFormat mDecimalFormat = new DecimalFormat("0.000");
+        private GroupKey mKey;
+        private List<Member> mMembers = new CopyOnWriteArrayList<>();
+        private ScheduledFuture<?> mScheduledFuture;
+        private long mPassCount;
+        private long mPassNanosTotal;
+        private long mPassNanosMaximum;
+        private long mPassProcessorCount;
+        private long mTimingLogged = System.currentTimeMillis();
+
+        private BatchGroup(GroupKey key)
+        {
+            mKey = key;
+        }
+
+        /**
+         * Adds a processor and updates the group scheduling
+         */
+        public synchronized void add(Runnable processor)
+        {
+            mMembers.add(new Member(processor));
+            reschedule();
+        }
+
+        /**
+         * Removes a processor and updates the group scheduling
+         */
+        public synchronized void remove(Runnable processor)
+        {
+            for(Member member : mMembers)
+            {
+                if(member.getProcessor() == processor)
+                {
+                    mMembers.remove(member);
+                    reschedule();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Indicates if the group has no processors.  An empty group has no scheduled task.
+         */
+        public synchronized boolean isEmpty()
+        {
+            return mMembers.isEmpty();
+        }
+
+        /**
+         * Cancels the current scheduled task and schedules either a single processor directly or the batched group,
+         * according to the number of processors.
+         */
+        private void reschedule()
+        {
+            if(mScheduledFuture != null)
+            {
+                //Set may-interrupt to false so that a pass in progress can complete
+                mScheduledFuture.cancel(false);
+                mScheduledFuture = null;
+            }
+
+            if(mMembers.size() == 1)
+            {
+                mScheduledFuture = ThreadPool.SCHEDULED.scheduleAtFixedRate(mMembers.get(0), 0,
+                    mIntervalMilliseconds, TimeUnit.MILLISECONDS);
+            }
+            else if(mMembers.size() > 1)
+            {
+                mScheduledFuture = ThreadPool.SCHEDULED.scheduleAtFixedRate(this, 0, mIntervalMilliseconds,
+                    TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Processes each of the processors in a single pass and updates the batch timing
+         */
+        @Override
+        public void run()
+        {
+            long start = System.nanoTime();
+            int count = 0;
+
+            for(Member member : mMembers)
+            {
+                if(member.process())
+                {
+                    count++;
+                }
+            }
+
+            updateTiming(System.nanoTime() - start, count);
+        }
+
+        /**
+         * Updates the batch timing statistics and periodically logs the timing summary
+         */
+        private synchronized void updateTiming(long elapsed, int count)
+        {
+            mPassCount++;
+            mPassNanosTotal += elapsed;
+            mPassProcessorCount += count;
+
+            if(elapsed > mPassNanosMaximum)
+            {
+                mPassNanosMaximum = elapsed;
+            }
+
+            long now = System.currentTimeMillis();
+
+            if(now - mTimingLogged > TIMING_LOG_INTERVAL_MILLISECONDS)
+            {
+                mLog.debug(getTiming());
+                mTimingLogged = now;
+                mPassCount = 0;
+                mPassNanosTotal = 0;
+                mPassNanosMaximum = 0;
+                mPassProcessorCount = 0;
+            }
+        }
+
+        /**
+         * Timing summary for batched passes since the last timing log
+         */
+        public synchronized String getTiming()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Channel batch [").append(mKey).append("] channels [").append(mMembers.size()).append("]");
+
+            if(mPassCount > 0)
+            {
+                sb.append(" passes [").append(mPassCount).append("]");
+                sb.append(" average channels per pass [")
+                    .append(mDecimalFormat.format((double)mPassProcessorCount / mPassCount)).append("]");
+                sb.append(" average pass [")
+                    .append(mDecimalFormat.format(mPassNanosTotal / (double)mPassCount / 1e6)).append(" ms]");
+                sb.append(" maximum pass [").append(mDecimalFormat.format(mPassNanosMaximum / 1e6)).append(" ms]");
+            }
+            else
+            {
+                sb.append(" not batched");
+            }
+
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Batch group key composed of the tuner and the group (e.g. decoder type)
+     */
+    private static class GroupKey
+    {
+        private Object mTuner;
+        private Object mGroup;
+
+        private GroupKey(Object tuner, Object group)
+        {
+            mTuner = tuner;
+            mGroup = group;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if(this == o)
+            {
+                return true;
+            }
+
+            if(!(o instanceof GroupKey))
+            {
+                return false;
+            }
+
+            GroupKey other = (GroupKey)o;
+            return Objects.equals(mTuner, other.mTuner) && Objects.equals(mGroup, other.mGroup);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(mTuner, mGroup);
+        }
+
+        @Override
+        public String toString()
+        {
+            return (mTuner != null ? mTuner + " " : "") + mGroup;
+        }
+    }
+
+    /**
+     * Batch group member.  Ensures that a processor is never run by two threads at the same time when the group
+     * switches between single and batched scheduling.  A pass that finds the processor already running skips it
+     * rather than waiting, and the processor picks up any queued samples on its next pass.
+     */
+    private class Member implements Runnable
+    {
+        private Runnable mProcessor;
+        private ReentrantLock mRunLock = new ReentrantLock();
+
+        private Member(Runnable processor)
+        {
+            mProcessor = processor;
+        }
+
+        private Runnable getProcessor()
+        {
+            return mProcessor;
+        }
+
+        /**
+         * Runs the processor when scheduled on its own
+         */
+        @Override
+        public void run()
+        {
+            process();
+        }
+
+        /**
+         * Runs the processor if it is not already running
+         *
+         * @return true if the processor was run
+         */
+        public boolean process()
+        {
+            if(mRunLock.tryLock())
+            {
+                try
+                {
+                    mProcessor.run();
+                    return true;
+                }
+                catch(Throwable t)
+                {
+                    mLog.error("Error while processing channel batch", t);
+                }
+                finally
+                {
+                    mRunLock.unlock();
+                }
+            }
+
+            return false;
+        }
+    }
+}
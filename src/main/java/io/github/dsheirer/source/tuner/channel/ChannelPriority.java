@@ -0,0 +1,51 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.source.tuner.channel;
+
+/**
+ * Processing priority for a tuner channel source, ordered from highest to lowest priority.  The DSP load scheduler
+ * sheds the lowest priority channels first when the host can't keep up with the sample processing load.
+ */
+public enum ChannelPriority
+{
+    CONTROL("Control Channel"),
+    TRAFFIC("Traffic Channel"),
+    CONVENTIONAL("Conventional Channel");
+
+    private String mLabel;
+
+    ChannelPriority(String label)
+    {
+        mLabel = label;
+    }
+
+    /**
+     * Indicates if this priority is the same or lower than the other priority
+     */
+    public boolean isSameOrLowerThan(ChannelPriority other)
+    {
+        return ordinal() >= other.ordinal();
+    }
+
+    @Override
+    public String toString()
+    {
+        return mLabel;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.source.tuner.channel;
+
+import java.text.DecimalFormat;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Load shedding decision produced by the DSP load scheduler when it changes the shed level, either to shed
+ * processing load or to restore previously shed processing.
+ */
+public class DSPLoadEvent
+{
+    private static final DecimalFormat PERCENT_FORMAT = new DecimalFormat("0.0");
+
+    private DSPLoadScheduler.ShedLevel mPreviousLevel;
+    private DSPLoadScheduler.ShedLevel mLevel;
+    private List<Long> mAffectedFrequencies;
+    private double mUtilization;
+    private int mDeadlineMisses;
+    private long mTimestamp = System.currentTimeMillis();
+
+    /**
+     * Constructs an instance
+     *
+     * @param previousLevel shed level prior to this decision
+     * @param level shed level after this decision
+     * @param affectedFrequencies of the channels that were shed or restored by this decision
+     * @param utilization of the processors for the evaluation window that triggered this decision (0.0 - 1.0)
+     * @param deadlineMisses during the evaluation window that triggered this decision
+     */
+    public DSPLoadEvent(DSPLoadScheduler.ShedLevel previousLevel, DSPLoadScheduler.ShedLevel level,
+                        List<Long> affectedFrequencies, double utilization, int deadlineMisses)
+    {
+        mPreviousLevel = previousLevel;
+        mLevel = level;
+        mAffectedFrequencies = affectedFrequencies;
+        mUtilization = utilization;
+        mDeadlineMisses = deadlineMisses;
+    }
+
+    /**
+     * Shed level prior to this decision
+     */
+    public DSPLoadScheduler.ShedLevel getPreviousLevel()
+    {
+        return mPreviousLevel;
+    }
+
+    /**
+     * Shed level after this decision
+     */
+    public DSPLoadScheduler.ShedLevel getLevel()
+    {
+        return mLevel;
+    }
+
+    /**
+     * Indicates if this decision sheds load (true) or restores previously shed processing (false)
+     */
+    public boolean isShedding()
+    {
+        return mLevel.ordinal() > mPreviousLevel.ordinal();
+    }
+
+    /**
+     * Frequencies of the channels that were shed or restored by this decision.
+     */
+    public List<Long> getAffectedFrequencies()
+    {
+        return Collections.unmodifiableList(mAffectedFrequencies);
+    }
+
+    /**
+     * Processor utilization for the evaluation window that triggered this decision (0.0 - 1.0)
+     */
+    public double getUtilization()
+    {
+        return mUtilization;
+    }
+
+    /**
+     * Number of missed processing deadlines during the evaluation window that triggered this decision
+     */
+    public int getDeadlineMisses()
+    {
+        return mDeadlineMisses;
+    }
+
+    /**
+     * Timestamp of this decision
+     */
+    public long getTimestamp()
+    {
+        return mTimestamp;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(isShedding() ? "SHED" : "RESTORE");
+        sb.append(" [").append(mPreviousLevel).append("] to [").append(mLevel).append("]");
+        sb.append(" utilization:").append(PERCENT_FORMAT.format(mUtilization * 100.0)).append("%");
+        sb.append(" deadline misses:").append(mDeadlineMisses);
+        sb.append(" channels:").append(mAffectedFrequencies.size());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.source.tuner.channel;
+
+import io.github.dsheirer.properties.SystemProperties;
+import io.github.dsheirer.spectrum.SpectralAnalysisService;
+import io.github.dsheirer.util.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DSP load scheduler.  Monitors the processing time and real-time deadline of each running tuner channel source and
+ * deliberately sheds processing load when the host can't keep up, instead of letting the sample buffer queues
+ * overflow and drop samples for whichever channel loses the race.
+ *
+ * Each tuner channel source has a processing priority (control > traffic > conventional) and a real-time deadline
+ * equal to its processing interval.  A deadline is missed when processing takes longer than the interval or when a
+ * processing pass starts more than one interval late.  Once per second, the scheduler calculates the processor
+ * utilization and deadline misses for the preceding window.  A window is overloaded when the utilization is too high
+ * or when control or traffic channels miss their deadlines.  The scheduler escalates the shed level one step after
+ * several consecutive overloaded windows, so that a single stall (e.g. a garbage collection pause) doesn't shed load:
+ *
+ * 1. Reduce the spectral display (DFT) frame rate
+ * 2. Pause conventional channels
+ * 3. Pause traffic channels, only while control channels continue to miss their deadlines
+ *
+ * Control channels are never shed.  Shed channels discard their queued samples at each interval so that the buffer
+ * queues don't overflow.  After several consecutive healthy windows, the shed level is restored one step at a time.
+ *
+ * Each shed level change is logged and the most recent shed level changes are retained with the scheduler metrics
+ * in the summary that is shown from the View menu.
+ *
+ * Load shedding is disabled by default, so the scheduler only measures the load.  Set the dsp.load.shedding.enabled
+ * system property to true to enable load shedding.
+ */
+public class DSPLoadScheduler
+{
+    private final static Logger mLog = LoggerFactory.getLogger(DSPLoadScheduler.class);
+    public static final String PROPERTY_LOAD_SHEDDING_ENABLED = "dsp.load.shedding.enabled";
+    private static final long EVALUATION_INTERVAL_MILLISECONDS = 1000;
+    private static final double OVERLOAD_UTILIZATION = 0.85;
+    private static final double HEALTHY_UTILIZATION = 0.60;
+    private static final int HEALTHY_WINDOWS_BEFORE_RESTORE = 5;
+    private static final int OVERLOADED_WINDOWS_BEFORE_SHED = 3;
+    private static final int RECENT_EVENT_COUNT = 10;
+    private static final int SHED_SPECTRAL_FRAME_RATE = 5;
+    private static final DecimalFormat PERCENT_FORMAT = new DecimalFormat("0.0");
+
+    private static DSPLoadScheduler sInstance;
+
+    private Map<TunerChannelSource,SourceLoad> mSources = new ConcurrentHashMap<>();
+    private LinkedList<DSPLoadEvent> mRecentEvents = new LinkedList<>();
+    private ScheduledFuture<?> mEvaluationFuture;
+    private boolean mSheddingEnabled;
+    private long mDeadlineNanos;
+    private long mLastEvaluation;
+    private int mHealthyWindows;
+    private int mOverloadedWindows;
+    private volatile ShedLevel mShedLevel = ShedLevel.NONE;
+    private volatile double mUtilization;
+    private AtomicLong mDeadlineMissCount = new AtomicLong();
+    private AtomicLong mShedEventCount = new AtomicLong();
+
+    /**
+     * Use getInstance() to access the singleton instance
+     */
+    private DSPLoadScheduler()
+    {
+        mSheddingEnabled = SystemProperties.getInstance().get(PROPERTY_LOAD_SHEDDING_ENABLED, false);
+        mDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(TunerChannelSource.getProcessingInterval());
+    }
+
+    /**
+     * Singleton instance of the DSP load scheduler
+     */
+    public static synchronized DSPLoadScheduler getInstance()
+    {
+        if(sInstance == null)
+        {
+            sInstance = new DSPLoadScheduler();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Registers a running tuner channel source for load monitoring.  The source is immediately shed when its priority
+     * is shed at the current shed level.
+     */
+    public synchronized void register(TunerChannelSource source)
+    {
+        mSources.put(source, new SourceLoad());
+        source.setShed(mShedLevel.sheds(source.getPriority()));
+
+        if(mEvaluationFuture == null)
+        {
+            mLastEvaluation = System.nanoTime();
+            mEvaluationFuture = ThreadPool.SCHEDULED.scheduleAtFixedRate(this::evaluate,
+                EVALUATION_INTERVAL_MILLISECONDS, EVALUATION_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Removes the tuner channel source from load monitoring
+     */
+    public synchronized void unregister(TunerChannelSource source)
+    {
+        mSources.remove(source);
+        source.setShed(false);
+    }
+
+    /**
+     * Records the timing of a single processing pass for a tuner channel source.
+     *
+     * @param source that was processed
+     * @param elapsedNanos spent processing
+     * @param latenessNanos that the processing pass started after the scheduled interval
+     */
+    void record(TunerChannelSource source, long elapsedNanos, long latenessNanos)
+    {
+        SourceLoad load = mSources.get(source);
+
+        if(load != null)
+        {
+            load.record(elapsedNanos, elapsedNanos > mDeadlineNanos || latenessNanos > mDeadlineNanos);
+        }
+    }
+
+    /**
+     * Evaluates the processing load for the preceding window and adjusts the shed level.
+     */
+    private synchronized void evaluate()
+    {
+        try
+        {
+            long now = System.nanoTime();
+            long window = now - mLastEvaluation;
+            mLastEvaluation = now;
+
+            if(mSources.isEmpty())
+            {
+                mUtilization = 0.0;
+
+                if(mShedLevel != ShedLevel.NONE)
+                {
+                    changeLevel(ShedLevel.NONE, 0);
+                }
+
+                if(mEvaluationFuture != null)
+                {
+                    mEvaluationFuture.cancel(false);
+                    mEvaluationFuture = null;
+                }
+
+                return;
+            }
+
+            long busy = 0;
+            int misses = 0;
+            int controlMisses = 0;
+            int highPriorityMisses = 0;
+
+            for(Map.Entry<TunerChannelSource,SourceLoad> entry : mSources.entrySet())
+            {
+                SourceLoad load = entry.getValue();
+                busy += load.getAndResetBusyNanos();
+                int sourceMisses = load.getAndResetDeadlineMisses();
+                misses += sourceMisses;
+
+                ChannelPriority priority = entry.getKey().getPriority();
+
+                if(priority == ChannelPriority.CONTROL)
+                {
+                    controlMisses += sourceMisses;
+                }
+
+                if(priority != ChannelPriority.CONVENTIONAL)
+                {
+                    highPriorityMisses += sourceMisses;
+                }
+            }
+
+            mDeadlineMissCount.addAndGet(misses);
+            mUtilization = window > 0 ?
+                (double)busy / ((double)window * Runtime.getRuntime().availableProcessors()) : 0.0;
+
+            if(!mSheddingEnabled)
+            {
+                return;
+            }
+
+            if(mUtilization > OVERLOAD_UTILIZATION || highPriorityMisses > 0)
+            {
+                mHealthyWindows = 0;
+                mOverloadedWindows++;
+
+                //Only shed when the overload persists, so that a single stall doesn't shed load
+                if(mOverloadedWindows >= OVERLOADED_WINDOWS_BEFORE_SHED)
+                {
+                    ShedLevel next = mShedLevel.next();
+
+                    //Traffic channels are only shed to protect control channels that are missing deadlines
+                    if(next != mShedLevel && (next != ShedLevel.TRAFFIC || controlMisses > 0))
+                    {
+                        mOverloadedWindows = 0;
+                        changeLevel(next, misses);
+                    }
+                }
+            }
+            else if(mUtilization < HEALTHY_UTILIZATION && misses == 0)
+            {
+                mOverloadedWindows = 0;
+                mHealthyWindows++;
+
+                if(mHealthyWindows >= HEALTHY_WINDOWS_BEFORE_RESTORE && mShedLevel != ShedLevel.NONE)
+                {
+                    mHealthyWindows = 0;
+                    changeLevel(mShedLevel.previous(), misses);
+                }
+            }
+            else
+            {
+                mOverloadedWindows = 0;
+                mHealthyWindows = 0;
+            }
+        }
+        catch(Throwable t)
+        {
+            mLog.error("Error while evaluating DSP processing load", t);
+        }
+    }
+
+    /**
+     * Changes the shed level, applies the change to the spectral display and the registered channel sources and
+     * logs the decision.
+     */
+    private void changeLevel(ShedLevel level, int misses)
+    {
+        ShedLevel previous = mShedLevel;
+        mShedLevel = level;
+
+        SpectralAnalysisService.setFrameRateLimit(level.ordinal() >= ShedLevel.SPECTRAL_DISPLAY.ordinal() ?
+            SHED_SPECTRAL_FRAME_RATE : SpectralAnalysisService.NO_FRAME_RATE_LIMIT);
+
+        List<Long> affected = new ArrayList<>();
+
+        for(TunerChannelSource source : mSources.keySet())
+        {
+            boolean shed = level.sheds(source.getPriority());
+
+            if(source.isShed() != shed)
+            {
+                source.setShed(shed);
+                affected.add(source.getFrequency());
+            }
+        }
+
+        if(level.ordinal() > previous.ordinal())
+        {
+            mShedEventCount.incrementAndGet();
+        }
+
+        DSPLoadEvent event = new DSPLoadEvent(previous, level, affected, mUtilization, misses);
+        mLog.info("DSP load " + event);
+
+        synchronized(mRecentEvents)
+        {
+            mRecentEvents.addFirst(event);
+
+            while(mRecentEvents.size() > RECENT_EVENT_COUNT)
+            {
+                mRecentEvents.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Current shed level
+     */
+    public ShedLevel getShedLevel()
+    {
+        return mShedLevel;
+    }
+
+    /**
+     * Processor utilization for the most recent evaluation window (0.0 - 1.0)
+     */
+    public double getUtilization()
+    {
+        return mUtilization;
+    }
+
+    /**
+     * Total number of missed processing deadlines across all channel sources
+     */
+    public long getDeadlineMissCount()
+    {
+        return mDeadlineMissCount.get();
+    }
+
+    /**
+     * Total number of decisions that increased the shed level
+     */
+    public long getShedEventCount()
+    {
+        return mShedEventCount.get();
+    }
+
+    /**
+     * Number of registered channel sources
+     */
+    public int getChannelCount()
+    {
+        return mSources.size();
+    }
+
+    /**
+     * Number of registered channel sources that are currently shed
+     */
+    public int getShedChannelCount()
+    {
+        int count = 0;
+
+        for(TunerChannelSource source : mSources.keySet())
+        {
+            if(source.isShed())
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Summary of the current scheduler metrics
+     */
+    public String getSummary()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("DSP Load Scheduler - shed level [").append(mShedLevel).append("]");
+        sb.append(" utilization:").append(PERCENT_FORMAT.format(mUtilization * 100.0)).append("%");
+        sb.append(" channels:").append(getChannelCount());
+        sb.append(" shed channels:").append(getShedChannelCount());
+        sb.append(" shed events:").append(getShedEventCount());
+        sb.append(" deadline misses:").append(getDeadlineMissCount());
+
+        synchronized(mRecentEvents)
+        {
+            if(!mRecentEvents.isEmpty())
+            {
+                sb.append("\n\nRecent shed level changes:");
+
+                for(DSPLoadEvent event : mRecentEvents)
+                {
+                    sb.append("\n").append(new Date(event.getTimestamp())).append(" ").append(event);
+                }
+            }
+        }
+
+        List<String> batchTimings = TunerChannelSource.getBatchTimings();
+
+        if(!batchTimings.isEmpty())
+        {
+            sb.append("\n\nChannel batches:");
+
+            for(String timing : batchTimings)
+            {
+                sb.append("\n").append(timing);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Load shedding levels, ordered from no shedding to the most aggressive shedding
+     */
+    public enum ShedLevel
+    {
+        NONE("None", null),
+        SPECTRAL_DISPLAY("Reduced Spectral Display Rate", null),
+        CONVENTIONAL("Conventional Channels Paused", ChannelPriority.CONVENTIONAL),
+        TRAFFIC("Traffic Channels Paused", ChannelPriority.TRAFFIC);
+
+        private String mLabel;
+        private ChannelPriority mShedPriority;
+
+        ShedLevel(String label, ChannelPriority shedPriority)
+        {
+            mLabel = label;
+            mShedPriority = shedPriority;
+        }
+
+        /**
+         * Indicates if channels with the priority are shed at this level
+         */
+        public boolean sheds(ChannelPriority priority)
+        {
+            return mShedPriority != null && priority.isSameOrLowerThan(mShedPriority);
+        }
+
+        /**
+         * Next (more aggressive) shed level, or this level if this is the most aggressive level
+         */
+        public ShedLevel next()
+        {
+            return ordinal() < values().length - 1 ? values()[ordinal() + 1] : this;
+        }
+
+        /**
+         * Previous (less aggressive) shed level, or this level if this is the least aggressive level
+         */
+        public ShedLevel previous()
+        {
+            return ordinal() > 0 ? values()[ordinal() - 1] : this;
+        }
+
+        @Override
+        public String toString()
+        {
+            return mLabel;
+        }
+    }
+
+    /**
+     * Processing load accumulated for a single channel source during the current evaluation window
+     */
+    private static class SourceLoad
+    {
+        private AtomicLong mBusyNanos = new AtomicLong();
+        private AtomicInteger mDeadlineMisses = new AtomicInteger();
+
+        void record(long elapsedNanos, boolean missed)
+        {
+            mBusyNanos.addAndGet(elapsedNanos);
+
+            if(missed)
+            {
+                mDeadlineMisses.incrementAndGet();
+            }
+        }
+
+        long getAndResetBusyNanos()
+        {
+            return mBusyNanos.getAndSet(0);
+        }
+
+        int getAndResetDeadlineMisses()
+        {
+            return mDeadlineMisses.getAndSet(0);
+        }
+    }
+}
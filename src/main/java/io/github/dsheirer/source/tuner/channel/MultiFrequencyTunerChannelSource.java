@@ -52,6 +52,8 @@ public class MultiFrequencyTunerChannelSource extends TunerChannelSource
     private Listener<ReusableComplexBuffer> mReusableComplexBufferListener;
     private Listener<Heartbeat> mHeartbeatListener;
     private String mPreferredTuner;
+    private Object mBatchGroup;
+    private ChannelPriority mPriority = ChannelPriority.CONVENTIONAL;
     private AtomicBoolean mChangingChannels = new AtomicBoolean();
     private boolean mStarted;
     private ConsumerSourceEventAdapter mConsumerSourceEventAdapter = new ConsumerSourceEventAdapter();
@@ -116,6 +118,8 @@ public class MultiFrequencyTunerChannelSource extends TunerChannelSource
                 mTunerChannelSource.setSourceEventListener(mConsumerSourceEventAdapter);
                 mTunerChannelSource.setListener(mReusableComplexBufferListener);
                 mTunerChannelSource.addHeartbeatListener(mHeartbeatListener);
+                mTunerChannelSource.setBatchGroup(mBatchGroup);
+                mTunerChannelSource.setPriority(mPriority);
                 mTunerChannelSource.start();
                 mChangingChannels.set(false);
                 getSourceEventListener().receive(SourceEvent.frequencyRotationSuccessNotification(this, nextChannel.getFrequency()));
@@ -131,6 +135,41 @@ public class MultiFrequencyTunerChannelSource extends TunerChannelSource
         }
     }
 
+    /**
+     * Assigns the enclosed tuner channel source(s) to the batch group, since the enclosed source performs the sample
+     * processing.
+     */
+    @Override
+    public void setBatchGroup(Object batchGroup)
+    {
+        mBatchGroup = batchGroup;
+
+        if(mTunerChannelSource != null)
+        {
+            mTunerChannelSource.setBatchGroup(batchGroup);
+        }
+    }
+
+    /**
+     * Assigns the processing priority to the enclosed tuner channel source(s)
+     */
+    @Override
+    public void setPriority(ChannelPriority priority)
+    {
+        mPriority = priority;
+
+        if(mTunerChannelSource != null)
+        {
+            mTunerChannelSource.setPriority(priority);
+        }
+    }
+
+    @Override
+    public ChannelPriority getPriority()
+    {
+        return mPriority;
+    }
+
     @Override
     public void start()
     {
@@ -246,6 +285,15 @@ public class MultiFrequencyTunerChannelSource extends TunerChannelSource
         }
     }
 
+    @Override
+    protected void discardSamples()
+    {
+        if(mTunerChannelSource != null)
+        {
+            mTunerChannelSource.discardSamples();
+        }
+    }
+
     @Override
     public void setListener(Listener<ReusableComplexBuffer> complexBufferListener)
     {
@@ -92,6 +92,12 @@ public class PassThroughChannelSource extends TunerChannelSource implements ISou
         mComplexBufferListener = null;
     }
 
+    @Override
+    protected void discardSamples()
+    {
+        mBufferQueue.clear();
+    }
+
     @Override
     protected void processSamples()
     {
@@ -28,10 +28,12 @@ import io.github.dsheirer.source.ISourceEventProcessor;
 import io.github.dsheirer.source.SourceEvent;
 import io.github.dsheirer.source.SourceEventListenerToProcessorAdapter;
 import io.github.dsheirer.source.SourceException;
+import io.github.dsheirer.source.tuner.Tuner;
 import io.github.dsheirer.util.ThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -39,11 +41,15 @@ public abstract class TunerChannelSource extends ComplexSource implements ISourc
 {
     private final static Logger mLog = LoggerFactory.getLogger(TunerChannelSource.class);
     private static final long BUFFER_PROCESSOR_RUN_INTERVAL_MILLISECONDS = 50;
+    private static final ChannelBatchScheduler BATCH_SCHEDULER =
+        new ChannelBatchScheduler(BUFFER_PROCESSOR_RUN_INTERVAL_MILLISECONDS);
     private SourceEventListenerToProcessorAdapter mConsumerSourceEventListenerAdapter;
     private TunerChannel mTunerChannel;
     private Listener<SourceEvent> mProducerSourceEventListener;
     private Listener<SourceEvent> mConsumerSourceEventListener;
     private ScheduledIntervalProcessor mScheduledIntervalProcessor = new ScheduledIntervalProcessor();
+    private ChannelPriority mPriority = ChannelPriority.CONVENTIONAL;
+    private volatile boolean mShed = false;
 
     /**
      * Tuner Channel Source is a Digital Drop Channel (DDC) abstract class that defines the minimum functionality
@@ -109,6 +115,85 @@ public abstract class TunerChannelSource extends ComplexSource implements ISourc
      */
     protected abstract void processSamples();
 
+    /**
+     * Commands sub-class to discard any queued samples without processing them.  This method is invoked by the interval
+     * timer instead of processSamples() while this source is shed by the DSP load scheduler.
+     */
+    protected abstract void discardSamples();
+
+    /**
+     * Processing priority for this channel source, used by the DSP load scheduler to decide which channels to shed
+     * when the host is overloaded.
+     */
+    public ChannelPriority getPriority()
+    {
+        return mPriority;
+    }
+
+    /**
+     * Sets the processing priority for this channel source
+     */
+    public void setPriority(ChannelPriority priority)
+    {
+        mPriority = priority;
+    }
+
+    /**
+     * Indicates if this source is currently shed (paused) by the DSP load scheduler
+     */
+    public boolean isShed()
+    {
+        return mShed;
+    }
+
+    /**
+     * Sheds (pauses) or restores processing for this source.  While shed, queued samples are discarded at each
+     * processing interval instead of being sent to the consumer.
+     */
+    void setShed(boolean shed)
+    {
+        mShed = shed;
+    }
+
+    /**
+     * Processing interval for tuner channel sources in milliseconds.  This is the real-time deadline for processing
+     * the samples that arrive during each interval.
+     */
+    public static long getProcessingInterval()
+    {
+        return BUFFER_PROCESSOR_RUN_INTERVAL_MILLISECONDS;
+    }
+
+    /**
+     * Assigns this source to a batch group so that it is processed in the same scheduled pass as the other tuner
+     * channel sources in the group, instead of on its own scheduled task.  Must be invoked before start().
+     *
+     * @param batchGroup key identifying the batch group (e.g. decoder type) or null for per-channel processing
+     */
+    public void setBatchGroup(Object batchGroup)
+    {
+        mScheduledIntervalProcessor.setBatchGroup(batchGroup);
+    }
+
+    /**
+     * Sets the tuner that provides samples for this source.  Batch groups are separated by tuner.  Must be invoked
+     * before start().
+     *
+     * @param tuner that feeds this source
+     */
+    public void setTuner(Tuner tuner)
+    {
+        mScheduledIntervalProcessor.setTuner(tuner);
+    }
+
+    /**
+     * Timing summaries for each of the tuner channel source batch groups
+     */
+    public static List<String> getBatchTimings()
+    {
+        return BATCH_SCHEDULER.getTimings();
+    }
+
     /**
      * Tuner channel for this tuner channel source
      */
@@ -131,6 +216,7 @@ public abstract class TunerChannelSource extends ComplexSource implements ISourc
         //Broadcast current frequency and sample rate so consumer can configure correctly
         broadcastConsumerSourceEvent(SourceEvent.frequencyChange(this, getFrequency(), "Startup"));
         broadcastProducerSourceEvent(SourceEvent.startSampleStreamRequest(this));
+        DSPLoadScheduler.getInstance().register(this);
         mScheduledIntervalProcessor.start();
     }
 
@@ -157,6 +243,7 @@ public abstract class TunerChannelSource extends ComplexSource implements ISourc
      */
     protected void performDisposal()
     {
+        DSPLoadScheduler.getInstance().unregister(this);
         mProducerSourceEventListener = null;
         mConsumerSourceEventListener = null;
         mConsumerSourceEventListenerAdapter.dispose();
@@ -271,7 +358,29 @@ public abstract class TunerChannelSource extends ComplexSource implements ISourc
     public class ScheduledIntervalProcessor implements Runnable
     {
         private ScheduledFuture<?> mScheduledFuture;
+        private Tuner mTuner;
+        private Object mBatchGroup;
+        private boolean mBatched = false;
+        private boolean mDisposed = false;
         private boolean mStopped = false;
+        private long mLastRun;
+
+        /**
+         * Sets the batch group for this processor, or null for per-channel processing.  Takes effect on start.
+         */
+        public void setBatchGroup(Object batchGroup)
+        {
+            mBatchGroup = batchGroup;
+        }
+
+        /**
+         * Sets the tuner that feeds this processor so that it is batched with other channels from the same tuner.
+         * Takes effect on start.
+         */
+        public void setTuner(Tuner tuner)
+        {
+            mTuner = tuner;
+        }
 
         /**
          * Commands this processor to do a shutdown at the end of this or the next iteration.  Once successfully
@@ -287,7 +396,15 @@ public abstract class TunerChannelSource extends ComplexSource implements ISourc
          */
         public void start()
         {
-            if(mScheduledFuture == null)
+            if(mBatchGroup != null)
+            {
+                if(!mBatched)
+                {
+                    mBatched = true;
+                    BATCH_SCHEDULER.add(mTuner, mBatchGroup, this);
+                }
+            }
+            else if(mScheduledFuture == null)
             {
                 mScheduledFuture = ThreadPool.SCHEDULED.scheduleAtFixedRate(this, 0,
                     BUFFER_PROCESSOR_RUN_INTERVAL_MILLISECONDS, TimeUnit.MILLISECONDS);
@@ -316,18 +433,38 @@ public abstract class TunerChannelSource extends ComplexSource implements ISourc
 
                 if(!mStopped)
                 {
+                    long start = System.nanoTime();
+
                     try
                     {
-                        processSamples();
+                        if(mShed)
+                        {
+                            discardSamples();
+                        }
+                        else
+                        {
+                            processSamples();
+                        }
                     }
                     catch(Throwable t)
                     {
                         mLog.error("Error while processing samples", t);
                     }
+
+                    long end = System.nanoTime();
+
+                    //Lateness is how far past the scheduled interval this run started
+                    long lateness = mLastRun > 0 ?
+                        (start - mLastRun) - TimeUnit.MILLISECONDS.toNanos(BUFFER_PROCESSOR_RUN_INTERVAL_MILLISECONDS) : 0;
+                    mLastRun = start;
+
+                    DSPLoadScheduler.getInstance().record(TunerChannelSource.this, end - start, lateness);
                 }
 
-                if(mStopped)
+                if(mStopped && !mDisposed)
                 {
+                    mDisposed = true;
+
                     if(mScheduledFuture != null)
                     {
                         //Set may-interrupt to false so that we can complete this iteration
@@ -336,6 +473,12 @@ public abstract class TunerChannelSource extends ComplexSource implements ISourc
 
                     mScheduledFuture = null;
 
+                    if(mBatched)
+                    {
+                        BATCH_SCHEDULER.remove(mTuner, mBatchGroup, this);
+                        mBatched = false;
+                    }
+
                     try
                     {
                         getHeartbeatManager().broadcast();
@@ -52,7 +52,7 @@ public class HeterodyneChannelSourceManager extends ChannelSourceManager
     private SortedSet<TunerChannel> mTunerChannels = new TreeSet<>();
     private TunerController mTunerController;
     private ChannelSourceEventProcessor mChannelSourceEventProcessor = new ChannelSourceEventProcessor();
-    private ReusableComplexDelayBuffer mSampleDelayBuffer;
+    private volatile ReusableComplexDelayBuffer mSampleDelayBuffer;
 
     public HeterodyneChannelSourceManager(TunerController tunerController)
     {
@@ -72,8 +72,13 @@ public class HeterodyneChannelSourceManager extends ChannelSourceManager
         return mTunerChannels.size();
     }
 
+    /**
+     * Allocates a tuner channel source.  Allocation is synchronized with channel source disposal, since sources
+     * for different channels are allocated and released concurrently and both update the tuner channel set.
+     */
     @Override
-    public TunerChannelSource getSource(TunerChannel tunerChannel, ChannelSpecification channelSpecification)
+    public synchronized TunerChannelSource getSource(TunerChannel tunerChannel,
+                                                     ChannelSpecification channelSpecification)
     {
         if(CenterFrequencyCalculator.canTune(tunerChannel, mTunerController, mTunerChannels))
         {
@@ -157,9 +162,11 @@ public class HeterodyneChannelSourceManager extends ChannelSourceManager
                 updateTunerFrequency(tunerSourceEvent.getValue().longValue());
 
                 //Clear the delay buffer since any delayed samples will be centered on the previous frequency
-                if(mSampleDelayBuffer != null)
+                ReusableComplexDelayBuffer sampleDelayBuffer = mSampleDelayBuffer;
+
+                if(sampleDelayBuffer != null)
                 {
-                    mSampleDelayBuffer.clear();
+                    sampleDelayBuffer.clear();
                 }
                 break;
             case NOTIFICATION_FREQUENCY_CORRECTION_CHANGE:
@@ -253,36 +260,52 @@ public class HeterodyneChannelSourceManager extends ChannelSourceManager
                 case REQUEST_START_SAMPLE_STREAM:
                     if(sourceEvent.getSource() instanceof CICTunerChannelSource)
                     {
-                        startDelayBuffer();
+                        synchronized(HeterodyneChannelSourceManager.this)
+                        {
+                            startDelayBuffer();
 
-                        //The start sample stream request contains a start timestamp and the delay buffer
-                        //will preload the channel with delayed sample buffers that either contain the
-                        //timestamp or occur later/newer than the timestamp.
-                        mSampleDelayBuffer.addListener((CICTunerChannelSource)sourceEvent.getSource(),
-                            sourceEvent.getValue().longValue());
+                            //The start sample stream request contains a start timestamp and the delay buffer
+                            //will preload the channel with delayed sample buffers that either contain the
+                            //timestamp or occur later/newer than the timestamp.
+                            mSampleDelayBuffer.addListener((CICTunerChannelSource)sourceEvent.getSource(),
+                                sourceEvent.getValue().longValue());
+                        }
                     }
                     break;
                 case REQUEST_STOP_SAMPLE_STREAM:
                     if(sourceEvent.getSource() instanceof CICTunerChannelSource)
                     {
-                        mSampleDelayBuffer.removeListener((CICTunerChannelSource)sourceEvent.getSource());
-                        stopDelayBuffer();
+                        synchronized(HeterodyneChannelSourceManager.this)
+                        {
+                            if(mSampleDelayBuffer != null)
+                            {
+                                mSampleDelayBuffer.removeListener((CICTunerChannelSource)sourceEvent.getSource());
+                                stopDelayBuffer();
+                            }
+                        }
                     }
                     break;
                 case REQUEST_SOURCE_DISPOSE:
                     if(sourceEvent.getSource() instanceof CICTunerChannelSource)
                     {
                         CICTunerChannelSource channelSource = (CICTunerChannelSource)sourceEvent.getSource();
-                        mChannelSources.remove(channelSource);
-                        mTunerChannels.remove(channelSource.getTunerChannel());
-                        channelSource.dispose();
+                        int channelCount;
 
-                        //Unlock the tuner controller if there are no more channels
-                        if(getTunerChannelCount() == 0)
+                        synchronized(HeterodyneChannelSourceManager.this)
                         {
-                            mTunerController.setLocked(false);
+                            mChannelSources.remove(channelSource);
+                            mTunerChannels.remove(channelSource.getTunerChannel());
+                            channelCount = getTunerChannelCount();
+
+                            //Unlock the tuner controller if there are no more channels
+                            if(channelCount == 0)
+                            {
+                                mTunerController.setLocked(false);
+                            }
                         }
-                        broadcast(SourceEvent.channelCountChange(getTunerChannelCount()));
+
+                        channelSource.dispose();
+                        broadcast(SourceEvent.channelCountChange(channelCount));
                     }
                     break;
                 case NOTIFICATION_MEASURED_FREQUENCY_ERROR_SYNC_LOCKED:
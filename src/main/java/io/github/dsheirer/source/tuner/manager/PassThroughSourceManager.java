@@ -61,13 +61,18 @@ public class PassThroughSourceManager extends ChannelSourceManager
     }
 
     @Override
-    public int getTunerChannelCount()
+    public synchronized int getTunerChannelCount()
     {
         return mTunerChannels.size();
     }
 
+    /**
+     * Allocates a tuner channel source.  Allocation is synchronized with channel source release, since sources
+     * for different channels are allocated and released concurrently and both update the tuner channel set.
+     */
     @Override
-    public TunerChannelSource getSource(TunerChannel tunerChannel, ChannelSpecification channelSpecification)
+    public synchronized TunerChannelSource getSource(TunerChannel tunerChannel,
+                                                     ChannelSpecification channelSpecification)
     {
         PassThroughChannelSource channelSource = new PassThroughChannelSource(new SourceEventProxy(),
                 mTunerController, tunerChannel);
@@ -87,7 +92,7 @@ public class PassThroughSourceManager extends ChannelSourceManager
                 if(event.hasSource() && event.getSource() instanceof PassThroughChannelSource)
                 {
                     mTunerController.addBufferListener((PassThroughChannelSource)event.getSource());
-                    broadcast(SourceEvent.channelCountChange(mTunerChannels.size()));
+                    broadcast(SourceEvent.channelCountChange(getTunerChannelCount()));
                 }
                 break;
             case REQUEST_STOP_SAMPLE_STREAM:
@@ -95,9 +100,16 @@ public class PassThroughSourceManager extends ChannelSourceManager
                 {
                     PassThroughChannelSource source = (PassThroughChannelSource)event.getSource();
                     mTunerController.removeBufferListener(source);
-                    mTunerChannels.remove(source.getTunerChannel());
-                    mTunerChannelSources.remove(source);
-                    broadcast(SourceEvent.channelCountChange(mTunerChannels.size()));
+                    int channelCount;
+
+                    synchronized(this)
+                    {
+                        mTunerChannels.remove(source.getTunerChannel());
+                        mTunerChannelSources.remove(source);
+                        channelCount = mTunerChannels.size();
+                    }
+
+                    broadcast(SourceEvent.channelCountChange(channelCount));
                 }
                 break;
         }
@@ -32,6 +32,7 @@ import io.github.dsheirer.source.tuner.configuration.TunerConfiguration;
 public class RecordingTunerConfiguration extends TunerConfiguration
 {
     private String mPath;
+    private ReplaySpeed mReplaySpeed = ReplaySpeed.REAL_TIME;
 
     public RecordingTunerConfiguration()
     {
@@ -60,4 +61,19 @@ public class RecordingTunerConfiguration extends TunerConfiguration
     {
         mPath = path;
     }
+
+    /**
+     * Replay speed for the recording.  Real time replay loops continuously, other speeds replay the recording once,
+     * offline, for (re)processing recordings faster than real time.
+     */
+    @JacksonXmlProperty(isAttribute = true, localName = "replay_speed")
+    public ReplaySpeed getReplaySpeed()
+    {
+        return mReplaySpeed;
+    }
+
+    public void setReplaySpeed(ReplaySpeed replaySpeed)
+    {
+        mReplaySpeed = replaySpeed != null ? replaySpeed : ReplaySpeed.REAL_TIME;
+    }
 }
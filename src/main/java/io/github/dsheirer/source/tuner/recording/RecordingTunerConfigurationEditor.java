@@ -30,6 +30,7 @@ import net.miginfocom.swing.MigLayout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JTextField;
 import java.awt.event.FocusEvent;
@@ -43,6 +44,7 @@ public class RecordingTunerConfigurationEditor extends TunerConfigurationEditor
 
     private JTextField mConfigurationName;
     private JLabel mRecordingPath;
+    private JComboBox<ReplaySpeed> mReplaySpeedCombo;
     private boolean mLoading;
 
     private RecordingTunerController mController;
@@ -100,7 +102,15 @@ public class RecordingTunerConfigurationEditor extends TunerConfigurationEditor
 
         add(new JLabel("File:"));
         mRecordingPath = new JLabel();
-        add(mRecordingPath);
+        add(mRecordingPath, "span, wrap");
+
+        mReplaySpeedCombo = new JComboBox<>(ReplaySpeed.values());
+        mReplaySpeedCombo.setEnabled(false);
+        mReplaySpeedCombo.setToolTipText("Real time replay loops the recording.  Faster speeds replay the recording " +
+            "once for offline processing.");
+        mReplaySpeedCombo.addActionListener(e -> save());
+        add(new JLabel("Replay:"));
+        add(mReplaySpeedCombo);
     }
 
     /**
@@ -112,6 +122,11 @@ public class RecordingTunerConfigurationEditor extends TunerConfigurationEditor
         {
             mConfigurationName.setEnabled(enabled);
         }
+
+        if(mReplaySpeedCombo.isEnabled() != enabled)
+        {
+            mReplaySpeedCombo.setEnabled(enabled);
+        }
     }
 
     @Override
@@ -129,6 +144,7 @@ public class RecordingTunerConfigurationEditor extends TunerConfigurationEditor
             setControlsEnabled(tunerConfiguration.isAssigned());
             mConfigurationName.setText(config.getName());
             mRecordingPath.setText(config.getPath());
+            mReplaySpeedCombo.setSelectedItem(config.getReplaySpeed());
         }
         else
         {
@@ -148,6 +164,7 @@ public class RecordingTunerConfigurationEditor extends TunerConfigurationEditor
             RecordingTunerConfiguration config = getConfiguration();
 
             config.setName(mConfigurationName.getText());
+            config.setReplaySpeed((ReplaySpeed)mReplaySpeedCombo.getSelectedItem());
 
             String path = mRecordingPath.getText();
 
@@ -57,9 +57,10 @@ public class RecordingTunerController extends TunerController
      * Sets the recording file and center frequency for this controller
      * @param recordingPath to play
      * @param centerFrequency of the recording
+     * @param replaySpeed for real time or offline replay
      * @throws IOException if there are any errors
      */
-    private void setRecording(String recordingPath, long centerFrequency) throws IOException
+    private void setRecording(String recordingPath, long centerFrequency, ReplaySpeed replaySpeed) throws IOException
     {
         if(mComplexWaveSource != null)
         {
@@ -73,6 +74,7 @@ public class RecordingTunerController extends TunerController
         }
 
         mComplexWaveSource = new ComplexWaveSource(new File(recordingPath), true);
+        mComplexWaveSource.setReplaySpeed(replaySpeed.getSpeed());
         mComplexWaveSource.setListener(new Listener<ReusableComplexBuffer>()
         {
             @Override
@@ -173,7 +175,7 @@ public class RecordingTunerController extends TunerController
 
             try
             {
-                setRecording(rtc.getPath(), rtc.getFrequency());
+                setRecording(rtc.getPath(), rtc.getFrequency(), rtc.getReplaySpeed());
             }
             catch(IOException ioe)
             {
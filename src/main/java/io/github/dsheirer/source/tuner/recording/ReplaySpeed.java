@@ -0,0 +1,77 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.source.tuner.recording;
+
+import io.github.dsheirer.source.wave.ComplexWaveSource;
+
+/**
+ * Recording tuner replay speed options.  Real time replay loops the recording continuously.  All other options
+ * replay the recording once, offline, at a multiple of real time or as fast as possible.
+ */
+public enum ReplaySpeed
+{
+    REAL_TIME(ComplexWaveSource.REPLAY_SPEED_REAL_TIME, "Real Time"),
+    X2(2.0, "2x Real Time"),
+    X5(5.0, "5x Real Time"),
+    X10(10.0, "10x Real Time"),
+    X50(50.0, "50x Real Time"),
+    MAXIMUM(ComplexWaveSource.REPLAY_SPEED_MAXIMUM, "Maximum");
+
+    private double mSpeed;
+    private String mLabel;
+
+    ReplaySpeed(double speed, String label)
+    {
+        mSpeed = speed;
+        mLabel = label;
+    }
+
+    /**
+     * Replay speed multiplier
+     */
+    public double getSpeed()
+    {
+        return mSpeed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return mLabel;
+    }
+
+    /**
+     * Lookup the replay speed matching the speed multiplier value
+     *
+     * @param speed multiplier
+     * @return matching entry or REAL_TIME
+     */
+    public static ReplaySpeed fromSpeed(double speed)
+    {
+        for(ReplaySpeed replaySpeed : values())
+        {
+            if(replaySpeed.getSpeed() == speed)
+            {
+                return replaySpeed;
+            }
+        }
+
+        return REAL_TIME;
+    }
+}
@@ -23,6 +23,8 @@ package io.github.dsheirer.source.tuner.usb;
 
 import io.github.dsheirer.sample.Listener;
 import io.github.dsheirer.sample.buffer.ReusableComplexBuffer;
+import io.github.dsheirer.source.tuner.BufferProfile;
+import io.github.dsheirer.source.tuner.BufferProfileManager;
 import io.github.dsheirer.source.tuner.ITunerErrorListener;
 import io.github.dsheirer.source.tuner.TunerManager;
 import io.github.dsheirer.source.tuner.usb.converter.NativeBufferConverter;
@@ -50,9 +52,6 @@ public class USBTransferProcessor implements TransferCallback
     private static final byte USB_BULK_TRANSFER_ENDPOINT = (byte) 0x81;
     private static final long USB_TIMEOUT_MS = 2000l; //milliseconds
 
-    //Number of native byte buffers to allocate for transferring data from the USB device
-    private static final int TRANSFER_BUFFER_POOL_SIZE = 40;
-
     private LinkedTransferQueue<Transfer> mAvailableTransfers = new LinkedTransferQueue<>();
     private LinkedTransferQueue<Transfer> mInProgressTransfers = new LinkedTransferQueue<>();
     private LinkedTransferQueue<Transfer> mCompletedTransfers = new LinkedTransferQueue<>();
@@ -62,9 +61,13 @@ public class USBTransferProcessor implements TransferCallback
     //Tuner format-specific byte buffer to IQ float sample converter
     private NativeBufferConverter mNativeBufferConverter;
 
-    //Byte array transfer buffers size in bytes
+    //Byte array transfer buffers size in bytes, as specified by the tuner, prior to buffer profile scaling
     private int mBufferSize;
 
+    //Number of native byte buffers to allocate for transferring data from the USB device, from the buffer profile
+    private int mTransferBufferCount;
+    private Listener<BufferProfile> mBufferProfileListener = this::bufferProfileChanged;
+
     private Listener<ReusableComplexBuffer> mComplexBufferListener;
 
     //Handle to the USB bulk transfer device
@@ -104,12 +107,11 @@ public class USBTransferProcessor implements TransferCallback
      * the transfer to stop momentarily while the existing buffers are destroyed and new buffers
      * with the correct size are recreated.
      *
-     * Note: this method is not thread safe.  Ensure that no other threads invoke stop() or start()
-     * while a buffer size change is in progress.
+     * Start, stop, restart and buffer size changes are serialized on this processor.
      *
      * @param bufferSize to use for native usb buffer transfers
      */
-    public void setBufferSize(int bufferSize)
+    public synchronized void setBufferSize(int bufferSize)
     {
         if(bufferSize % 2 == 1)
         {
@@ -129,12 +131,13 @@ public class USBTransferProcessor implements TransferCallback
      *
      * @return true if start successful with no errors or is already running.  returns false if errors on startup.
      */
-    private boolean start()
+    private synchronized boolean start()
     {
         boolean success = false;
 
         if(mRunning.compareAndSet(false, true))
         {
+            BufferProfileManager.getInstance().addListener(mBufferProfileListener);
             prepareDeviceStart();
             prepareTransfers();
 
@@ -156,10 +159,12 @@ public class USBTransferProcessor implements TransferCallback
     /**
      * Stop USB transfer buffer processing.  Subsequent calls to this method after stopped will be ignored.
      */
-    private void stop()
+    private synchronized void stop()
     {
         if(mRunning.compareAndSet(true, false))
         {
+            BufferProfileManager.getInstance().removeListener(mBufferProfileListener);
+
             if(mBufferDispatcherFuture != null)
             {
                 mBufferDispatcherFuture.cancel(true);
@@ -206,11 +211,38 @@ public class USBTransferProcessor implements TransferCallback
         }
     }
 
+    /**
+     * Resizes the transfer buffers for a changed buffer profile.  Transfer buffers are sized on start, so the
+     * transfer is stopped momentarily and restarted on a separate thread, the same as changing the buffer size.
+     */
+    private void bufferProfileChanged(BufferProfile bufferProfile)
+    {
+        ThreadPool.SCHEDULED.execute(() -> resize(bufferProfile));
+    }
+
+    /**
+     * Stops and restarts a running transfer so that the transfer buffers are reallocated using the buffer profile
+     */
+    private synchronized void resize(BufferProfile bufferProfile)
+    {
+        if(mRunning.get() && mComplexBufferListener != null)
+        {
+            mLog.info("[" + mDeviceName + "] - resizing USB transfer buffers for buffer profile [" +
+                bufferProfile + "]");
+            stop();
+
+            if(!start())
+            {
+                restart();
+            }
+        }
+    }
+
     /**
      * Restarts the device after there is an error.  Initially stops the device and then schedules a start() to
      * occur in 10 milliseconds.
      */
-    private void restart()
+    private synchronized void restart()
     {
         if(mRestarting.compareAndSet(false, true))
         {
@@ -238,14 +270,17 @@ public class USBTransferProcessor implements TransferCallback
 
             Runnable runnable = () ->
             {
-                mRestarting.set(false);
+                synchronized(USBTransferProcessor.this)
+                {
+                    mRestarting.set(false);
 
-                boolean success = start();
+                    boolean success = start();
 
-                if(!success)
-                {
-                    mLog.warn("[" + mDeviceName + "] - restart attempt [" + mRestartCount + "] failed - retrying");
-                    restart();
+                    if(!success)
+                    {
+                        mLog.warn("[" + mDeviceName + "] - restart attempt [" + mRestartCount + "] failed - retrying");
+                        restart();
+                    }
                 }
             };
 
@@ -324,10 +359,10 @@ public class USBTransferProcessor implements TransferCallback
     {
         mAvailableTransfers.drainTo(mTransfersToDispose);
 
-        if(mTransfersToDispose.size() != TRANSFER_BUFFER_POOL_SIZE)
+        if(mTransfersToDispose.size() != mTransferBufferCount)
         {
             mLog.warn("[" + mDeviceName + "] - potential memory leak [" +
-                mTransfersToDispose.size() + " of " + TRANSFER_BUFFER_POOL_SIZE +
+                mTransfersToDispose.size() + " of " + mTransferBufferCount +
                 "] USB transfer buffers will be disposed during shutdown");
         }
 
@@ -358,7 +393,7 @@ public class USBTransferProcessor implements TransferCallback
     /**
      * Sets the listener and auto-starts the buffer processor
      */
-    public void setListener(Listener<ReusableComplexBuffer> listener)
+    public synchronized void setListener(Listener<ReusableComplexBuffer> listener)
     {
         if(mComplexBufferListener == null || !mComplexBufferListener.equals(listener))
         {
@@ -376,7 +411,7 @@ public class USBTransferProcessor implements TransferCallback
     /**
      * Auto-stops the buffer processor and removes the listener
      */
-    public void removeListener()
+    public synchronized void removeListener()
     {
         if(mComplexBufferListener != null)
         {
@@ -392,7 +427,11 @@ public class USBTransferProcessor implements TransferCallback
      */
     private void prepareTransfers() throws LibUsbException
     {
-        while(mAvailableTransfers.size() < TRANSFER_BUFFER_POOL_SIZE)
+        BufferProfile bufferProfile = BufferProfileManager.getInstance().getBufferProfile();
+        mTransferBufferCount = bufferProfile.getUSBTransferCount();
+        int transferSize = bufferProfile.getUSBTransferSize(mBufferSize);
+
+        while(mAvailableTransfers.size() < mTransferBufferCount)
         {
             Transfer transfer = LibUsb.allocTransfer();
 
@@ -401,7 +440,7 @@ public class USBTransferProcessor implements TransferCallback
                 throw new LibUsbException("Couldn't allocate USB transfer buffer", LibUsb.ERROR_NO_MEM);
             }
 
-            final ByteBuffer buffer = ByteBuffer.allocateDirect(mBufferSize);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(transferSize);
 
             LibUsb.fillBulkTransfer(transfer, mUsbBulkTransferDeviceHandle, USB_BULK_TRANSFER_ENDPOINT, buffer, this,
                 "Buffer", USB_TIMEOUT_MS);
@@ -469,7 +508,9 @@ public class USBTransferProcessor implements TransferCallback
                     "] transferred actual: " + transfer.actualLength());
                 transfer.buffer().rewind();
                 mAvailableTransfers.add(transfer);
-                restart();
+
+                //Restart on another thread since stopping waits for this (USB event) thread to complete transfers
+                ThreadPool.SCHEDULED.submit(() -> restart());
                 return;
         }
     }
@@ -42,12 +42,23 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 public class ComplexWaveSource extends ComplexSource implements IControllableFileSource, AutoCloseable
 {
     private final static Logger mLog = LoggerFactory.getLogger(ComplexWaveSource.class);
 
+    /**
+     * Replay speed multiplier values.  Any positive value replays at that multiple of real time.  Maximum replays the
+     * recording as fast as downstream consumers are able to process the sample buffers.
+     */
+    public static final double REPLAY_SPEED_REAL_TIME = 1.0;
+    public static final double REPLAY_SPEED_MAXIMUM = 0.0;
+
+    //Maximum number of sample buffers that can be in use by downstream consumers during offline replay
+    private static final int OFFLINE_MAX_IN_FLIGHT_BUFFERS = 20;
+
     private IFrameLocationListener mFrameLocationListener;
     private int mBytesPerFrame;
     private int mFrameCounter = 0;
@@ -58,6 +69,8 @@ public class ComplexWaveSource extends ComplexSource implements IControllableFil
     private ReusableComplexBufferQueue mReusableComplexBufferQueue = new ReusableComplexBufferQueue("ComplexWaveSource");
     private boolean mAutoReplay;
     private ScheduledFuture<?> mReplayController;
+    private double mReplaySpeed = REPLAY_SPEED_REAL_TIME;
+    private OfflineReplayController mOfflineReplayController;
 
     /**
      * Constructs an instance with optional auto-replay at near real time.
@@ -99,6 +112,40 @@ public class ComplexWaveSource extends ComplexSource implements IControllableFil
         return null;
     }
 
+    /**
+     * Sets the auto-replay speed.  Real time (1.0) uses the scheduled thread pool to replay at the recording's sample
+     * rate and loops continuously.  Any other value uses a dedicated offline replay thread that reads the memory-mapped
+     * recording once, at the speed multiple (e.g. 10.0 = ten times real time) or as fast as possible for
+     * REPLAY_SPEED_MAXIMUM, and assigns buffer timestamps derived from the sample count.
+     *
+     * @param replaySpeed multiplier or REPLAY_SPEED_MAXIMUM
+     */
+    public void setReplaySpeed(double replaySpeed)
+    {
+        if(replaySpeed < 0.0)
+        {
+            throw new IllegalArgumentException("Replay speed cannot be negative");
+        }
+
+        mReplaySpeed = replaySpeed;
+    }
+
+    /**
+     * Current replay speed multiplier
+     */
+    public double getReplaySpeed()
+    {
+        return mReplaySpeed;
+    }
+
+    /**
+     * Indicates if this source replays using the offline (faster than real time) replay controller
+     */
+    public boolean isOfflineReplay()
+    {
+        return mReplaySpeed != REPLAY_SPEED_REAL_TIME;
+    }
+
     @Override
     public void reset()
     {
@@ -130,7 +177,15 @@ public class ComplexWaveSource extends ComplexSource implements IControllableFil
             }
         }
 
-        if(mAutoReplay)
+        if(mAutoReplay && isOfflineReplay())
+        {
+            if(mOfflineReplayController == null)
+            {
+                mOfflineReplayController = new OfflineReplayController();
+                mOfflineReplayController.start();
+            }
+        }
+        else if(mAutoReplay)
         {
             long intervalMilliseconds = 50; //20 intervals per second
             double framesPerInterval = getSampleRate() / 20.0d;
@@ -141,6 +196,19 @@ public class ComplexWaveSource extends ComplexSource implements IControllableFil
         }
     }
 
+    /**
+     * Replays the recording once on the calling thread at the current replay speed and returns when the full
+     * recording has been delivered to the listener or when the source is stopped.  This allows a caller to process
+     * several recordings in parallel from its own thread pool.  Use this method with auto-replay disabled.
+     */
+    public void replay()
+    {
+        OfflineReplayController controller = new OfflineReplayController();
+        mOfflineReplayController = controller;
+        controller.replay();
+        mOfflineReplayController = null;
+    }
+
     @Override
     public void stop()
     {
@@ -151,6 +219,12 @@ public class ComplexWaveSource extends ComplexSource implements IControllableFil
                 mReplayController.cancel(true);
             }
 
+            if(mOfflineReplayController != null)
+            {
+                mOfflineReplayController.stop();
+                mOfflineReplayController = null;
+            }
+
             close();
         }
         catch(IOException e)
@@ -382,4 +456,171 @@ public class ComplexWaveSource extends ComplexSource implements IControllableFil
             }
         }
     }
+
+    /**
+     * Offline replay controller.  Reads the memory-mapped recording on a dedicated thread and dispatches sample
+     * buffers as fast as the downstream consumers can process them, optionally limited to a multiple of real time.
+     *
+     * Back-pressure is provided by limiting the number of sample buffers that are in use by downstream consumers.  A
+     * buffer is returned to this controller once every consumer has decremented the user count, so the replay rate
+     * automatically adjusts to the processing rate of the first consumer stage (e.g. the channelizer).
+     *
+     * Buffer timestamps are simulated from the recording start time plus the number of samples read so that
+     * timestamps reflect recording time rather than processing time.
+     */
+    public class OfflineReplayController implements Runnable
+    {
+        private Semaphore mInFlightBuffers = new Semaphore(OFFLINE_MAX_IN_FLIGHT_BUFFERS);
+        private ReusableComplexBufferQueue mBufferQueue = new ReusableComplexBufferQueue("ComplexWaveSource Offline")
+        {
+            @Override
+            public void disposed(ReusableComplexBuffer reusableBuffer)
+            {
+                super.disposed(reusableBuffer);
+                mInFlightBuffers.release();
+            }
+        };
+        private volatile boolean mRunning;
+        private Thread mThread;
+
+        /**
+         * Starts the offline replay thread
+         */
+        public void start()
+        {
+            mRunning = true;
+            mThread = new Thread(this);
+            mThread.setName("sdrtrunk offline replay - " + mFile.getName());
+            mThread.setDaemon(true);
+            mThread.start();
+        }
+
+        /**
+         * Runs the offline replay on the calling thread and returns when the replay is complete or stopped
+         */
+        public void replay()
+        {
+            mRunning = true;
+            mThread = Thread.currentThread();
+            run();
+            mThread = null;
+
+            //Clear any interrupt from a stop request so that it doesn't leak into the caller's thread
+            Thread.interrupted();
+        }
+
+        /**
+         * Stops the offline replay thread
+         */
+        public void stop()
+        {
+            mRunning = false;
+
+            if(mThread != null)
+            {
+                mThread.interrupt();
+                mThread = null;
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try(MappedWaveReader reader = new MappedWaveReader(mFile))
+            {
+                if(reader.getChannels() != 2)
+                {
+                    throw new IOException("Unsupported Wave Format - EXPECTED: 2 channels FOUND: " +
+                        reader.getChannels());
+                }
+
+                double sampleRate = reader.getSampleRate();
+                int bufferLength = (int)(sampleRate / 20.0d) * 2;
+                double durationMilliseconds = reader.getFrameCount() / sampleRate * 1000.0;
+
+                //Recordings are closed when the last sample is written, so the start time is estimated from the
+                //last modified time of the file less the recording duration
+                long recordingStart = mFile.lastModified() - (long)durationMilliseconds;
+                long processingStart = System.currentTimeMillis();
+                long framesRead = 0;
+
+                mLog.info("Starting offline replay of [" + mFile.getName() + "] speed [" +
+                    (mReplaySpeed == REPLAY_SPEED_MAXIMUM ? "maximum" : mReplaySpeed + "x") + "]");
+
+                while(mRunning && reader.hasRemaining())
+                {
+                    mInFlightBuffers.acquire();
+
+                    ReusableComplexBuffer buffer = mBufferQueue.getBuffer(bufferLength);
+                    int samplesRead = reader.read(buffer.getSamples());
+
+                    if(samplesRead <= 0)
+                    {
+                        //Nothing left to dispatch when the recording length is a multiple of the buffer length
+                        buffer.decrementUserCount();
+                        break;
+                    }
+
+                    if(samplesRead < bufferLength)
+                    {
+                        //Final partial buffer - copy to a correctly sized buffer
+                        float[] samples = Arrays.copyOf(buffer.getSamples(), samplesRead);
+                        buffer.decrementUserCount();
+                        mInFlightBuffers.acquire();
+                        buffer = mBufferQueue.getBuffer(samples.length);
+                        System.arraycopy(samples, 0, buffer.getSamples(), 0, samples.length);
+                    }
+
+                    long mediaMilliseconds = (long)(framesRead / sampleRate * 1000.0);
+                    buffer.setTimestamp(recordingStart + mediaMilliseconds);
+                    framesRead += samplesRead / 2;
+
+                    Listener<ReusableComplexBuffer> listener = mListener;
+
+                    if(listener != null)
+                    {
+                        listener.receive(buffer);
+                    }
+                    else
+                    {
+                        buffer.decrementUserCount();
+                    }
+
+                    if(mReplaySpeed > 0.0)
+                    {
+                        long target = processingStart + (long)(mediaMilliseconds / mReplaySpeed);
+                        long delay = target - System.currentTimeMillis();
+
+                        if(delay > 0)
+                        {
+                            Thread.sleep(delay);
+                        }
+                    }
+                }
+
+                if(mRunning)
+                {
+                    double elapsed = (System.currentTimeMillis() - processingStart) / 1000.0;
+                    double recorded = framesRead / sampleRate;
+
+                    mLog.info("Offline replay complete [" + mFile.getName() + "] - processed [" +
+                        String.format("%.1f", recorded) + "] seconds of recording in [" +
+                        String.format("%.1f", elapsed) + "] seconds (" +
+                        String.format("%.1f", elapsed > 0 ? recorded / elapsed : 0.0) + "x real time)");
+                }
+            }
+            catch(InterruptedException ie)
+            {
+                //Normal during stop
+            }
+            catch(IOException ioe)
+            {
+                mLog.error("Error during offline replay of recording [" + mFile.getName() + "]", ioe);
+            }
+            finally
+            {
+                mRunning = false;
+            }
+        }
+    }
 }
@@ -0,0 +1,274 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.source.wave;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped reader for 16-bit PCM wave files.  The data chunk is mapped into memory in fixed size windows so
+ * that recordings larger than the 2 GB mapping limit can be read sequentially without copying the file contents
+ * through an input stream.
+ *
+ * Samples are converted to floats in the range -1.0 to 1.0 using the same scaling as ConversionUtils.
+ */
+public class MappedWaveReader implements AutoCloseable
+{
+    private static final long MAPPING_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private File mFile;
+    private FileChannel mFileChannel;
+    private int mChannels;
+    private int mSampleRate;
+    private int mBitsPerSample;
+    private long mDataOffset;
+    private long mDataLength;
+    private long mDataPosition;
+    private long mWindowStart = -1;
+    private ShortBuffer mWindow;
+
+    /**
+     * Opens the wave file and parses the RIFF header
+     *
+     * @param file to read
+     * @throws IOException if the file can't be read or is not a 16-bit PCM wave file
+     */
+    public MappedWaveReader(File file) throws IOException
+    {
+        mFile = file;
+        mFileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try
+        {
+            parseHeader();
+        }
+        catch(IOException ioe)
+        {
+            mFileChannel.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Parses the RIFF/WAVE header to locate the format and data chunks
+     */
+    private void parseHeader() throws IOException
+    {
+        ByteBuffer riff = read(0, 12);
+
+        if(riff.getInt() != 0x46464952 || riff.getInt(8) != 0x45564157) //'RIFF' and 'WAVE' (little-endian)
+        {
+            throw new IOException("Unsupported file format - expected RIFF/WAVE: " + mFile.getName());
+        }
+
+        long position = 12;
+        boolean formatFound = false;
+
+        while(position + 8 <= mFileChannel.size())
+        {
+            ByteBuffer chunkHeader = read(position, 8);
+            int chunkId = chunkHeader.getInt();
+            long chunkSize = chunkHeader.getInt() & 0xFFFFFFFFL;
+
+            if(chunkId == 0x20746D66) //'fmt '
+            {
+                ByteBuffer format = read(position + 8, 16);
+                int audioFormat = format.getShort() & 0xFFFF;
+                mChannels = format.getShort() & 0xFFFF;
+                mSampleRate = format.getInt();
+                format.getInt(); //byte rate
+                format.getShort(); //block align
+                mBitsPerSample = format.getShort() & 0xFFFF;
+
+                if(audioFormat != 1 || mBitsPerSample != 16 || mChannels < 1)
+                {
+                    throw new IOException("Unsupported wave format - expected 16-bit PCM samples: " +
+                        mFile.getName());
+                }
+
+                formatFound = true;
+            }
+            else if(chunkId == 0x61746164) //'data'
+            {
+                if(!formatFound)
+                {
+                    throw new IOException("Wave file data chunk precedes format chunk: " + mFile.getName());
+                }
+
+                mDataOffset = position + 8;
+
+                //Recordings that were not closed cleanly may have an unset or oversized data chunk length
+                mDataLength = Math.min(chunkSize, mFileChannel.size() - mDataOffset);
+
+                if(chunkSize == 0)
+                {
+                    mDataLength = mFileChannel.size() - mDataOffset;
+                }
+
+                //Truncated recordings may end with a partial frame - limit the data to whole frames
+                mDataLength -= mDataLength % (2 * mChannels);
+
+                return;
+            }
+
+            //Chunks are word aligned
+            position += 8 + chunkSize + (chunkSize & 1);
+        }
+
+        throw new IOException("Wave file data chunk not found: " + mFile.getName());
+    }
+
+    /**
+     * Reads bytes from the file channel into a little-endian buffer
+     */
+    private ByteBuffer read(long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        while(buffer.hasRemaining())
+        {
+            if(mFileChannel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("Unexpected end of file while reading wave header: " + mFile.getName());
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Number of audio channels (2 for complex I/Q recordings)
+     */
+    public int getChannels()
+    {
+        return mChannels;
+    }
+
+    /**
+     * Sample rate in samples (frames) per second
+     */
+    public int getSampleRate()
+    {
+        return mSampleRate;
+    }
+
+    /**
+     * Total number of frames in the file
+     */
+    public long getFrameCount()
+    {
+        return mDataLength / (2 * mChannels);
+    }
+
+    /**
+     * Current frame position
+     */
+    public long getFramePosition()
+    {
+        return mDataPosition / (2 * mChannels);
+    }
+
+    /**
+     * Indicates if there are more samples to read
+     */
+    public boolean hasRemaining()
+    {
+        return mDataPosition < mDataLength;
+    }
+
+    /**
+     * Repositions the reader to the start of the sample data
+     */
+    public void rewind()
+    {
+        mDataPosition = 0;
+    }
+
+    /**
+     * Reads samples into the array, converting each 16-bit sample to a float.  For multi-channel files, samples are
+     * interleaved in the array in the same order as the file.
+     *
+     * @param samples array to fill
+     * @return number of samples read, which is less than the array length at the end of the file, or -1 when there
+     * are no more samples
+     * @throws IOException if there is an error mapping the file
+     */
+    public int read(float[] samples) throws IOException
+    {
+        if(!hasRemaining())
+        {
+            return -1;
+        }
+
+        int offset = 0;
+
+        while(offset < samples.length && hasRemaining())
+        {
+            ShortBuffer window = getWindow();
+            int count = Math.min(samples.length - offset, window.remaining());
+
+            for(int x = 0; x < count; x++)
+            {
+                samples[offset + x] = (float)window.get() / (float)Short.MAX_VALUE;
+            }
+
+            offset += count;
+            mDataPosition += count * 2;
+        }
+
+        return offset;
+    }
+
+    /**
+     * Current mapped window, positioned at the current data position.  Maps the next window when the current
+     * position is outside of the mapped region.
+     */
+    private ShortBuffer getWindow() throws IOException
+    {
+        if(mWindow == null || mDataPosition < mWindowStart || mDataPosition >= mWindowStart + (mWindow.limit() * 2))
+        {
+            //Align the window to the sample size so that samples never straddle window boundaries
+            mWindowStart = mDataPosition - (mDataPosition % 2);
+            long length = Math.min(MAPPING_WINDOW_SIZE, mDataLength - mWindowStart);
+            length -= length % 2;
+
+            MappedByteBuffer mapped = mFileChannel.map(FileChannel.MapMode.READ_ONLY, mDataOffset + mWindowStart,
+                length);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            mWindow = mapped.asShortBuffer();
+        }
+
+        mWindow.position((int)((mDataPosition - mWindowStart) / 2));
+        return mWindow;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        mWindow = null;
+        mFileChannel.close();
+    }
+}
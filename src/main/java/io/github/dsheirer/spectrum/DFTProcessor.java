@@ -45,12 +45,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * Processes both complex samples or float samples and dispatches a float array of DFT results, using configurable fft
  * size and output dispatch timelines.
  */
-public class DFTProcessor implements Listener<ReusableComplexBuffer>, ISourceEventProcessor, IDFTWidthChangeProcessor
+public class DFTProcessor implements Listener<ReusableComplexBuffer>, ISourceEventProcessor, IDFTWidthChangeProcessor,
+    IDFTFrameRateProcessor, IDFTWindowTypeProcessor
 {
     private static final Logger mLog = LoggerFactory.getLogger(DFTProcessor.class);
     private static final int BUFFER_QUEUE_MAX_SIZE = 20;
     private static final int BUFFER_QUEUE_OVERFLOW_RESET_THRESHOLD = 6;
-    private static final String FRAME_RATE_PROPERTY = "spectral.display.frame.rate";
+    public static final String FRAME_RATE_PROPERTY = "spectral.display.frame.rate";
 
     //The Cosine and Hann windows seem to offer the best spectral display with minimal bin leakage/smearing
     private WindowType mWindowType = WindowType.HANN;
@@ -150,7 +151,22 @@ public class DFTProcessor implements Listener<ReusableComplexBuffer>, ISourceEve
         return mFrameRate;
     }
 
+    /**
+     * Sets the frame rate and saves it as the user's spectral display frame rate
+     */
     public void setFrameRate(int framesPerSecond)
+    {
+        setFrameRate(framesPerSecond, true);
+    }
+
+    /**
+     * Sets the frame rate
+     *
+     * @param framesPerSecond frame rate
+     * @param save to save the frame rate as the user's spectral display frame rate.  Frame rates that are derived
+     * from subscriber requests or load shedding limits should not be saved.
+     */
+    public void setFrameRate(int framesPerSecond, boolean save)
     {
         if(framesPerSecond < 1 || framesPerSecond > 1000)
         {
@@ -160,7 +176,10 @@ public class DFTProcessor implements Listener<ReusableComplexBuffer>, ISourceEve
 
         mFrameRate = framesPerSecond;
 
-        SystemProperties.getInstance().set(FRAME_RATE_PROPERTY, mFrameRate);
+        if(save)
+        {
+            SystemProperties.getInstance().set(FRAME_RATE_PROPERTY, mFrameRate);
+        }
 
         calculateConsumptionRate();
 
@@ -0,0 +1,7 @@
+package io.github.dsheirer.spectrum;
+
+public interface IDFTFrameRateProcessor
+{
+	public void setFrameRate( int framesPerSecond );
+	public int getFrameRate();
+}
@@ -0,0 +1,9 @@
+package io.github.dsheirer.spectrum;
+
+import io.github.dsheirer.dsp.filter.Window.WindowType;
+
+public interface IDFTWindowTypeProcessor
+{
+	public void setWindowType( WindowType windowType );
+	public WindowType getWindowType();
+}
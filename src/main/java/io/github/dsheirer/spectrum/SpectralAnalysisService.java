@@ -0,0 +1,373 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.spectrum;
+
+import io.github.dsheirer.dsp.filter.Window.WindowType;
+import io.github.dsheirer.sample.SampleType;
+import io.github.dsheirer.source.ISourceEventProcessor;
+import io.github.dsheirer.source.SourceEvent;
+import io.github.dsheirer.source.tuner.TunerController;
+import io.github.dsheirer.spectrum.converter.ComplexDecibelConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shared spectral analysis service for a single tuner sample source.
+ *
+ * Computes each windowed DFT and decibel conversion once per frame and distributes the results to any number of
+ * subscribers.  Each subscriber can request its own DFT resolution and frame rate.  The service runs the DFT at the
+ * highest resolution and frame rate requested by any subscriber and each subscription delivers a (peak) decimated
+ * and/or frame rate divided view of the shared results.
+ *
+ * The window type is a property of the shared DFT and is therefore shared by all subscribers.  Changing the window
+ * type for one subscriber changes it for every subscriber of the same tuner.
+ *
+ * The service only registers for samples from the tuner and schedules DFT calculations while at least one subscriber
+ * is registered.  When the last subscriber is removed, the tuner controller disposes the service and creates a new
+ * service on next access.
+ */
+public class SpectralAnalysisService implements DFTResultsListener, ISourceEventProcessor, IDFTWindowTypeProcessor
+{
+    private final static Logger mLog = LoggerFactory.getLogger(SpectralAnalysisService.class);
+
+    public static final int NO_FRAME_RATE_LIMIT = 0;
+    private static CopyOnWriteArrayList<SpectralAnalysisService> sRunningServices = new CopyOnWriteArrayList<>();
+    private static volatile int sFrameRateLimit = NO_FRAME_RATE_LIMIT;
+
+    private TunerController mTunerController;
+    private DFTProcessor mDFTProcessor;
+    private ComplexDecibelConverter mDecibelConverter;
+    private CopyOnWriteArrayList<SpectralSubscription> mSubscriptions = new CopyOnWriteArrayList<>();
+    private float[] mLatestResults;
+    private long mFrameCounter;
+    private boolean mRunning;
+    private boolean mDisposed;
+
+    /**
+     * Constructs an instance
+     *
+     * @param tunerController that provides complex sample buffers
+     */
+    public SpectralAnalysisService(TunerController tunerController)
+    {
+        mTunerController = tunerController;
+        mDFTProcessor = new DFTProcessor(SampleType.COMPLEX);
+
+        //The DFT processor auto-starts on construction - don't run it until we have a subscriber
+        mDFTProcessor.stop();
+
+        mDecibelConverter = new ComplexDecibelConverter();
+        mDecibelConverter.addListener(this);
+        mDFTProcessor.addConverter(mDecibelConverter);
+    }
+
+    /**
+     * Creates a subscription to receive DFT results in decibels at the requested resolution and frame rate.
+     *
+     * @param listener to receive DFT results
+     * @param dftSize requested resolution
+     * @param frameRate requested frames per second
+     * @return subscription that can be used to adjust settings or unsubscribe
+     */
+    public SpectralSubscription subscribe(DFTResultsListener listener, DFTSize dftSize, int frameRate)
+    {
+        synchronized(this)
+        {
+            if(!mDisposed)
+            {
+                SpectralSubscription subscription = new SpectralSubscription(this, listener, dftSize, frameRate);
+                mSubscriptions.add(subscription);
+                updateConfiguration();
+                return subscription;
+            }
+        }
+
+        //This service was disposed when its last subscriber was removed - subscribe to the tuner's current service
+        return mTunerController.getSpectralAnalysisService().subscribe(listener, dftSize, frameRate);
+    }
+
+    /**
+     * Creates a subscription that receives DFT results at the current shared resolution and frame rate.
+     */
+    public SpectralSubscription subscribe(DFTResultsListener listener)
+    {
+        return subscribe(listener, mDFTProcessor.getDFTSize(), mDFTProcessor.getFrameRate());
+    }
+
+    /**
+     * Removes the subscription.  When no subscriptions remain, DFT processing is stopped and the service is released
+     * to the tuner controller for disposal.
+     */
+    public void unsubscribe(SpectralSubscription subscription)
+    {
+        if(subscription != null && mSubscriptions.remove(subscription))
+        {
+            updateConfiguration();
+
+            if(mSubscriptions.isEmpty())
+            {
+                mTunerController.releaseSpectralAnalysisService(this);
+            }
+        }
+    }
+
+    /**
+     * Indicates if there are any subscribers registered with this service
+     */
+    public boolean hasSubscribers()
+    {
+        return !mSubscriptions.isEmpty();
+    }
+
+    /**
+     * Most recently calculated DFT results in decibels, at the shared (maximum) resolution, or null if no results
+     * have been calculated since the service was started.  The returned array should not be modified.
+     */
+    public float[] getLatestResults()
+    {
+        return mLatestResults;
+    }
+
+    /**
+     * Current shared DFT resolution
+     */
+    public DFTSize getDFTSize()
+    {
+        return mDFTProcessor.getDFTSize();
+    }
+
+    /**
+     * Current shared DFT frame rate
+     */
+    public int getFrameRate()
+    {
+        return mDFTProcessor.getFrameRate();
+    }
+
+    /**
+     * Limits the frame rate of all spectral analysis services, regardless of the frame rate requested by the
+     * subscribers.  Used by the DSP load scheduler to reduce the spectral display processing load when the host is
+     * overloaded.  Subscriptions continue to receive results at the reduced rate.
+     *
+     * @param frameRateLimit maximum frames per second or NO_FRAME_RATE_LIMIT to remove the limit
+     */
+    public static void setFrameRateLimit(int frameRateLimit)
+    {
+        sFrameRateLimit = frameRateLimit;
+
+        for(SpectralAnalysisService service : sRunningServices)
+        {
+            service.updateConfiguration();
+        }
+    }
+
+    /**
+     * Current frame rate limit applied to all services or NO_FRAME_RATE_LIMIT
+     */
+    public static int getFrameRateLimit()
+    {
+        return sFrameRateLimit;
+    }
+
+    /**
+     * Current shared window type
+     */
+    @Override
+    public WindowType getWindowType()
+    {
+        return mDFTProcessor.getWindowType();
+    }
+
+    /**
+     * Sets the window type applied to samples prior to the DFT calculation.  The window type is shared by all
+     * subscribers of this service.
+     */
+    @Override
+    public void setWindowType(WindowType windowType)
+    {
+        mDFTProcessor.setWindowType(windowType);
+    }
+
+    /**
+     * Recalculates the shared DFT resolution and frame rate from the current subscriptions and starts or stops
+     * the DFT processing according to the presence of subscribers.
+     */
+    synchronized void updateConfiguration()
+    {
+        if(mDisposed || mSubscriptions.isEmpty())
+        {
+            stop();
+            return;
+        }
+
+        DFTSize maxSize = null;
+        int maxFrameRate = 0;
+
+        for(SpectralSubscription subscription : mSubscriptions)
+        {
+            if(maxSize == null || subscription.getDFTSize().getSize() > maxSize.getSize())
+            {
+                maxSize = subscription.getDFTSize();
+            }
+
+            if(subscription.getFrameRate() > maxFrameRate)
+            {
+                maxFrameRate = subscription.getFrameRate();
+            }
+        }
+
+        int frameRateLimit = sFrameRateLimit;
+
+        if(frameRateLimit > NO_FRAME_RATE_LIMIT && maxFrameRate > frameRateLimit)
+        {
+            maxFrameRate = frameRateLimit;
+        }
+
+        if(maxSize != mDFTProcessor.getDFTSize())
+        {
+            mDFTProcessor.setDFTSize(maxSize);
+        }
+
+        if(maxFrameRate != mDFTProcessor.getFrameRate())
+        {
+            mDFTProcessor.setFrameRate(maxFrameRate, false);
+
+            //Setting the frame rate restarts the processor - stop it if we're not yet running
+            if(!mRunning)
+            {
+                mDFTProcessor.stop();
+            }
+        }
+
+        for(SpectralSubscription subscription : mSubscriptions)
+        {
+            subscription.setServiceFrameRate(mDFTProcessor.getFrameRate());
+        }
+
+        start();
+    }
+
+    /**
+     * Registers with the tuner for samples and starts the DFT processing
+     */
+    private void start()
+    {
+        if(!mRunning)
+        {
+            mRunning = true;
+            mLatestResults = null;
+            mDFTProcessor.clearBuffer();
+            mTunerController.addListener(this);
+            mDFTProcessor.process(SourceEvent.sampleRateChange(mTunerController.getSampleRate()));
+            mTunerController.addBufferListener(mDFTProcessor);
+            mDFTProcessor.start();
+            sRunningServices.add(this);
+        }
+    }
+
+    /**
+     * Deregisters from the tuner and stops the DFT processing
+     */
+    private void stop()
+    {
+        if(mRunning)
+        {
+            mRunning = false;
+            sRunningServices.remove(this);
+            mTunerController.removeBufferListener(mDFTProcessor);
+            mTunerController.removeListener(this);
+            mDFTProcessor.stop();
+            mDFTProcessor.clearBuffer();
+            mLatestResults = null;
+        }
+    }
+
+    /**
+     * Disposes this service if it has no subscribers.  Subscribe requests received after disposal are forwarded to
+     * the tuner controller's current service.
+     *
+     * @return true if the service was disposed
+     */
+    public synchronized boolean disposeIfUnused()
+    {
+        if(mSubscriptions.isEmpty())
+        {
+            dispose();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates if this service has been disposed
+     */
+    public synchronized boolean isDisposed()
+    {
+        return mDisposed;
+    }
+
+    /**
+     * Stops processing, removes all subscriptions and prepares this service for disposal
+     */
+    public synchronized void dispose()
+    {
+        if(!mDisposed)
+        {
+            mDisposed = true;
+            mSubscriptions.clear();
+            stop();
+            mDFTProcessor.dispose();
+            mDecibelConverter.dispose();
+        }
+    }
+
+    /**
+     * Receives decibel results from the converter, caches them and distributes them to each subscription.
+     */
+    @Override
+    public void receive(float[] results)
+    {
+        mLatestResults = results;
+        mFrameCounter++;
+
+        for(SpectralSubscription subscription : mSubscriptions)
+        {
+            try
+            {
+                subscription.receive(results, mFrameCounter);
+            }
+            catch(Exception e)
+            {
+                mLog.error("Error dispatching DFT results to spectral subscriber", e);
+            }
+        }
+    }
+
+    /**
+     * Receives sample rate change notifications from the tuner
+     */
+    @Override
+    public void process(SourceEvent event)
+    {
+        mDFTProcessor.process(event);
+    }
+}
@@ -30,9 +30,6 @@ import io.github.dsheirer.dsp.filter.Window.WindowType;
 import io.github.dsheirer.dsp.filter.smoothing.SmoothingFilter.SmoothingType;
 import io.github.dsheirer.playlist.PlaylistManager;
 import io.github.dsheirer.properties.SystemProperties;
-import io.github.dsheirer.sample.Listener;
-import io.github.dsheirer.sample.SampleType;
-import io.github.dsheirer.sample.buffer.ReusableComplexBuffer;
 import io.github.dsheirer.settings.ColorSetting.ColorSettingName;
 import io.github.dsheirer.settings.ColorSettingMenuItem;
 import io.github.dsheirer.settings.SettingsManager;
@@ -41,12 +38,11 @@ import io.github.dsheirer.source.SourceEvent;
 import io.github.dsheirer.source.tuner.Tuner;
 import io.github.dsheirer.source.tuner.TunerModel;
 import io.github.dsheirer.spectrum.OverlayPanel.ChannelDisplay;
-import io.github.dsheirer.spectrum.converter.ComplexDecibelConverter;
-import io.github.dsheirer.spectrum.converter.DFTResultsConverter;
 import io.github.dsheirer.spectrum.menu.AveragingItem;
 import io.github.dsheirer.spectrum.menu.DFTSizeItem;
 import io.github.dsheirer.spectrum.menu.FFTWindowTypeItem;
 import io.github.dsheirer.spectrum.menu.FrameRateItem;
+import io.github.dsheirer.spectrum.menu.SignalCensusMenu;
 import io.github.dsheirer.spectrum.menu.SmoothingItem;
 import io.github.dsheirer.spectrum.menu.SmoothingTypeItem;
 import net.miginfocom.swing.MigLayout;
@@ -82,8 +78,8 @@ import java.awt.event.MouseWheelEvent;
 import java.util.ArrayList;
 import java.util.Hashtable;
 
-public class SpectralDisplayPanel extends JPanel implements Listener<ReusableComplexBuffer>, ISourceEventProcessor,
-    IDFTWidthChangeProcessor
+public class SpectralDisplayPanel extends JPanel implements ISourceEventProcessor, IDFTWidthChangeProcessor,
+    IDFTFrameRateProcessor, IDFTWindowTypeProcessor
 {
     private static final long serialVersionUID = 1L;
 
@@ -95,6 +91,8 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
     public static final int MAX_ZOOM = 6;
 
     private DFTSize mDFTSize = DFTSize.FFT04096;
+    private int mFrameRate;
+    private WindowType mWindowType = WindowType.HANN;
     private int mZoom = 0;
     private int mDFTZoomWindowOffset = 0;
 
@@ -103,8 +101,8 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
     private SpectrumPanel mSpectrumPanel;
     private WaterfallPanel mWaterfallPanel;
     private OverlayPanel mOverlayPanel;
-    private DFTProcessor mDFTProcessor;
-    private DFTResultsConverter mDFTConverter;
+    private SpectralAnalysisService mSpectralAnalysisService;
+    private SpectralSubscription mSpectralSubscription;
     private ChannelModel mChannelModel;
     private ChannelProcessingManager mChannelProcessingManager;
     private SettingsManager mSettingsManager;
@@ -119,9 +117,9 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
      * Mouse scrolling and zooming are supported and the waterfall display can
      * be paused.
      *
-     * Complex sample buffers are processed by a DFTProcessor and the output of
-     * the DFT is translated to decibels for display in the spectrum and
-     * waterfall components.
+     * Complex sample buffers are processed by the tuner's shared spectral
+     * analysis service and the decibel results are delivered to the spectrum
+     * and waterfall components through a subscription.
      */
     public SpectralDisplayPanel(PlaylistManager playlistManager, SettingsManager settingsManager, TunerModel tunerModel)
     {
@@ -143,6 +141,8 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
     {
         SystemProperties properties = SystemProperties.getInstance();
 
+        mFrameRate = properties.get(DFTProcessor.FRAME_RATE_PROPERTY, 20);
+
         String rawSize = properties.get(FFT_SIZE_PROPERTY, DFTSize.FFT04096.name());
 
         DFTSize size = null;
@@ -174,12 +174,6 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
 
         mSettingsManager = null;
 
-        mDFTProcessor.dispose();
-        mDFTProcessor = null;
-
-        mDFTConverter.dispose();
-        mDFTConverter = null;
-
         mSpectrumPanel.dispose();
         mSpectrumPanel = null;
 
@@ -199,7 +193,11 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
      */
     public void setDFTSize(DFTSize size, boolean save)
     {
-        mDFTProcessor.setDFTSize(size);
+        if(mSpectralSubscription != null)
+        {
+            mSpectralSubscription.setDFTSize(size);
+        }
+
         mOverlayPanel.setDFTSize(size);
         mDFTSize = size;
 
@@ -222,6 +220,64 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
         return mDFTSize;
     }
 
+    /**
+     * Sets the display frame rate
+     */
+    @Override
+    public void setFrameRate(int framesPerSecond)
+    {
+        if(framesPerSecond < 1 || framesPerSecond > 1000)
+        {
+            throw new IllegalArgumentException("Spectral display frame rate must be in range 1 - 1000 -- requested " +
+                "setting:" + framesPerSecond);
+        }
+
+        mFrameRate = framesPerSecond;
+
+        SystemProperties.getInstance().set(DFTProcessor.FRAME_RATE_PROPERTY, mFrameRate);
+
+        if(mSpectralSubscription != null)
+        {
+            mSpectralSubscription.setFrameRate(mFrameRate);
+        }
+    }
+
+    @Override
+    public int getFrameRate()
+    {
+        return mFrameRate;
+    }
+
+    /**
+     * Sets the window type applied to samples by the tuner's shared spectral analysis service.  The window type is
+     * shared, so this changes the window type for every spectral display of the same tuner.
+     */
+    @Override
+    public void setWindowType(WindowType windowType)
+    {
+        mWindowType = windowType;
+
+        if(mSpectralAnalysisService != null)
+        {
+            mSpectralAnalysisService.setWindowType(windowType);
+        }
+    }
+
+    /**
+     * Current window type of the tuner's shared spectral analysis service, or the window type to apply when this
+     * display next subscribes to a tuner.
+     */
+    @Override
+    public WindowType getWindowType()
+    {
+        if(mSpectralAnalysisService != null)
+        {
+            return mSpectralAnalysisService.getWindowType();
+        }
+
+        return mWindowType;
+    }
+
     public int getZoom()
     {
         return mZoom;
@@ -393,35 +449,31 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
         mScrollPane = new JScrollPane(splitPane);
 
         add(mScrollPane, "grow");
-
-        /**
-         * Setup DFTProcessor to process samples and register the waterfall and
-         * spectrum panel to receive the processed dft results
-         */
-        mDFTProcessor = new DFTProcessor(SampleType.COMPLEX);
-        mDFTConverter = new ComplexDecibelConverter();
-        mDFTProcessor.addConverter(mDFTConverter);
-
-        mDFTConverter.addListener((DFTResultsListener)mSpectrumPanel);
-        mDFTConverter.addListener((DFTResultsListener)mWaterfallPanel);
     }
 
     /**
-     * Receives frequency change events -- primarily from tuner components.
+     * Receives DFT results from the spectral analysis subscription and distributes them to the spectrum and
+     * waterfall panels.
      */
-    public void process(SourceEvent event)
+    private void receive(float[] results)
     {
-        mOverlayPanel.process(event);
-        mDFTProcessor.process(event);
+        SpectrumPanel spectrumPanel = mSpectrumPanel;
+        WaterfallPanel waterfallPanel = mWaterfallPanel;
+
+        if(spectrumPanel != null && waterfallPanel != null)
+        {
+            //The spectrum panel retains and modifies the results array for averaging, so it is updated last
+            waterfallPanel.receive(results);
+            spectrumPanel.receive(results);
+        }
     }
 
     /**
-     * Complex sample buffer receive method
+     * Receives frequency change events -- primarily from tuner components.
      */
-    @Override
-    public void receive(ReusableComplexBuffer reusableComplexBuffer)
+    public void process(SourceEvent event)
     {
-        mDFTProcessor.receive(reusableComplexBuffer);
+        mOverlayPanel.process(event);
     }
 
     /**
@@ -432,10 +484,6 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
     {
         clearTuner();
 
-        mDFTProcessor.clearBuffer();
-
-        mDFTProcessor.start();
-
         mTuner = tuner;
 
         if(mTuner != null)
@@ -443,8 +491,21 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
             //Register to receive frequency change events
             mTuner.getTunerController().addListener(this);
 
-            //Register the dft processor to receive samples from the tuner
-            mTuner.getTunerController().addBufferListener(mDFTProcessor);
+            //Subscribe to the tuner's shared spectral analysis service to receive DFT results.  The window type is
+            //shared by all displays of the tuner, so adopt the current window type when other subscribers exist.
+            SpectralAnalysisService service = mTuner.getTunerController().getSpectralAnalysisService();
+            boolean shared = service.hasSubscribers();
+            mSpectralSubscription = service.subscribe(this::receive, mDFTSize, mFrameRate);
+            mSpectralAnalysisService = mSpectralSubscription.getService();
+
+            if(shared)
+            {
+                mWindowType = mSpectralAnalysisService.getWindowType();
+            }
+            else
+            {
+                mSpectralAnalysisService.setWindowType(mWindowType);
+            }
 
             mSpectrumPanel.setSampleSize(mTuner.getSampleSize());
 
@@ -466,13 +527,17 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
             //Deregister for frequency change events from the tuner
             mTuner.getTunerController().removeListener(this);
 
-            //Deregister the dft processor from receiving samples
-            mTuner.getTunerController().removeBufferListener(mDFTProcessor);
+            //Unsubscribe from the shared spectral analysis service
+            if(mSpectralSubscription != null)
+            {
+                mSpectralSubscription.unsubscribe();
+                mSpectralSubscription = null;
+            }
+
+            mSpectralAnalysisService = null;
             mTuner = null;
         }
 
-        mDFTProcessor.stop();
-        mDFTProcessor.clearBuffer();
         mSpectrumPanel.clearSpectrum();
         mWaterfallPanel.clearWaterfall();
     }
@@ -737,14 +802,14 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
                 JMenu frameRateMenu = new JMenu("Frame Rate");
                 displayMenu.add(frameRateMenu);
 
-                frameRateMenu.add(new FrameRateItem(mDFTProcessor, 14));
-                frameRateMenu.add(new FrameRateItem(mDFTProcessor, 16));
-                frameRateMenu.add(new FrameRateItem(mDFTProcessor, 18));
-                frameRateMenu.add(new FrameRateItem(mDFTProcessor, 20));
-                frameRateMenu.add(new FrameRateItem(mDFTProcessor, 25));
-                frameRateMenu.add(new FrameRateItem(mDFTProcessor, 30));
-                frameRateMenu.add(new FrameRateItem(mDFTProcessor, 40));
-                frameRateMenu.add(new FrameRateItem(mDFTProcessor, 50));
+                frameRateMenu.add(new FrameRateItem(SpectralDisplayPanel.this, 14));
+                frameRateMenu.add(new FrameRateItem(SpectralDisplayPanel.this, 16));
+                frameRateMenu.add(new FrameRateItem(SpectralDisplayPanel.this, 18));
+                frameRateMenu.add(new FrameRateItem(SpectralDisplayPanel.this, 20));
+                frameRateMenu.add(new FrameRateItem(SpectralDisplayPanel.this, 25));
+                frameRateMenu.add(new FrameRateItem(SpectralDisplayPanel.this, 30));
+                frameRateMenu.add(new FrameRateItem(SpectralDisplayPanel.this, 40));
+                frameRateMenu.add(new FrameRateItem(SpectralDisplayPanel.this, 50));
 
                 /**
                  * FFT Window Type
@@ -755,7 +820,7 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
                 for(WindowType type : WindowType.values())
                 {
                     fftWindowType.add(
-                        new FFTWindowTypeItem(mDFTProcessor, type));
+                        new FFTWindowTypeItem(SpectralDisplayPanel.this, type));
                 }
 
                 if(event.getComponent() != mWaterfallPanel)
@@ -791,6 +856,8 @@ public class SpectralDisplayPanel extends JPanel implements Listener<ReusableCom
 
                 if(mTuner != null)
                 {
+                    contextMenu.add(new SignalCensusMenu(mTuner.getTunerController().getActivityDetector(),
+                        mTuner.getName(), SpectralDisplayPanel.this));
                     contextMenu.add(new JSeparator());
                     contextMenu.add(new ClearTunerMenuItem(SpectralDisplayPanel.this));
                 }
@@ -0,0 +1,217 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.spectrum;
+
+/**
+ * Subscription to a shared spectral analysis service.  Delivers a view of the shared DFT results to the listener at
+ * the requested resolution and frame rate.
+ *
+ * When the shared results have more bins than the requested resolution, the results are decimated by taking the peak
+ * (maximum decibel) value of each group of bins so that narrow signals remain visible.  An optional band window can
+ * be specified to deliver a zoomed view covering only a portion of the full bandwidth.
+ *
+ * Each delivered results array is a new array that the listener is free to retain or modify.
+ */
+public class SpectralSubscription implements IDFTWidthChangeProcessor, IDFTFrameRateProcessor
+{
+    private SpectralAnalysisService mService;
+    private DFTResultsListener mListener;
+    private DFTSize mDFTSize;
+    private int mFrameRate;
+    private int mFrameDivisor = 1;
+    private double mBandWindowStart = 0.0;
+    private double mBandWindowEnd = 1.0;
+
+    /**
+     * Constructs an instance.  Use the spectral analysis service subscribe() methods to create a subscription.
+     *
+     * @param service that produces the shared DFT results
+     * @param listener to receive DFT results
+     * @param dftSize requested resolution
+     * @param frameRate requested frames per second
+     */
+    SpectralSubscription(SpectralAnalysisService service, DFTResultsListener listener, DFTSize dftSize, int frameRate)
+    {
+        if(frameRate < 1 || frameRate > 1000)
+        {
+            throw new IllegalArgumentException("Spectral subscription frame rate must be in range 1 - 1000 -- " +
+                "requested: " + frameRate);
+        }
+
+        mService = service;
+        mListener = listener;
+        mDFTSize = dftSize;
+        mFrameRate = frameRate;
+    }
+
+    /**
+     * Spectral analysis service that provides the results for this subscription
+     */
+    public SpectralAnalysisService getService()
+    {
+        return mService;
+    }
+
+    /**
+     * Removes this subscription from the service
+     */
+    public void unsubscribe()
+    {
+        mService.unsubscribe(this);
+    }
+
+    /**
+     * Requested DFT resolution for this subscription
+     */
+    @Override
+    public DFTSize getDFTSize()
+    {
+        return mDFTSize;
+    }
+
+    /**
+     * Changes the requested DFT resolution.  The shared service resolution is adjusted when this subscription
+     * requires a higher resolution than the other subscribers.
+     */
+    @Override
+    public void setDFTSize(DFTSize size)
+    {
+        mDFTSize = size;
+        mService.updateConfiguration();
+    }
+
+    /**
+     * Requested frame rate for this subscription
+     */
+    @Override
+    public int getFrameRate()
+    {
+        return mFrameRate;
+    }
+
+    /**
+     * Changes the requested frame rate
+     *
+     * @param frameRate in frames per second (1 - 1000)
+     */
+    @Override
+    public void setFrameRate(int frameRate)
+    {
+        if(frameRate < 1 || frameRate > 1000)
+        {
+            throw new IllegalArgumentException("Spectral subscription frame rate must be in range 1 - 1000 -- " +
+                "requested: " + frameRate);
+        }
+
+        mFrameRate = frameRate;
+        mService.updateConfiguration();
+    }
+
+    /**
+     * Sets a band window to deliver a zoomed view of a portion of the overall bandwidth.  The window is specified as
+     * a fraction of the full DFT bandwidth where 0.0 is the lowest frequency and 1.0 is the highest frequency.  The
+     * requested resolution applies to the window.
+     *
+     * @param start of the window (0.0 - 1.0)
+     * @param end of the window (0.0 - 1.0) which must be greater than start
+     */
+    public void setBandWindow(double start, double end)
+    {
+        if(start < 0.0 || end > 1.0 || start >= end)
+        {
+            throw new IllegalArgumentException("Invalid band window start [" + start + "] end [" + end + "]");
+        }
+
+        mBandWindowStart = start;
+        mBandWindowEnd = end;
+    }
+
+    /**
+     * Removes the band window so that the full bandwidth is delivered
+     */
+    public void clearBandWindow()
+    {
+        mBandWindowStart = 0.0;
+        mBandWindowEnd = 1.0;
+    }
+
+    /**
+     * Updates the frame divisor for this subscription from the shared service frame rate
+     */
+    void setServiceFrameRate(int serviceFrameRate)
+    {
+        int divisor = (int)Math.round((double)serviceFrameRate / (double)mFrameRate);
+        mFrameDivisor = divisor < 1 ? 1 : divisor;
+    }
+
+    /**
+     * Receives the shared DFT results, and when this subscription is due for a frame, produces the view and
+     * delivers it to the listener.
+     *
+     * @param results shared results - must not be modified
+     * @param frameCounter sequence number of the frame
+     */
+    void receive(float[] results, long frameCounter)
+    {
+        if(frameCounter % mFrameDivisor == 0)
+        {
+            mListener.receive(getView(results));
+        }
+    }
+
+    /**
+     * Creates the view of the shared results for the requested band window and resolution.
+     */
+    private float[] getView(float[] results)
+    {
+        int start = (int)(mBandWindowStart * results.length);
+        int end = (int)(mBandWindowEnd * results.length);
+        int length = end - start;
+        int requested = mDFTSize.getSize();
+
+        if(length <= requested)
+        {
+            float[] view = new float[length];
+            System.arraycopy(results, start, view, 0, length);
+            return view;
+        }
+
+        float[] view = new float[requested];
+
+        for(int x = 0; x < requested; x++)
+        {
+            int binStart = start + (int)(((long)x * length) / requested);
+            int binEnd = start + (int)(((long)(x + 1) * length) / requested);
+
+            float peak = results[binStart];
+
+            for(int y = binStart + 1; y < binEnd; y++)
+            {
+                if(results[y] > peak)
+                {
+                    peak = results[y];
+                }
+            }
+
+            view[x] = peak;
+        }
+
+        return view;
+    }
+}
@@ -82,7 +82,17 @@ public class SpectrumPanel extends JPanel implements DFTResultsListener, Setting
 
     private int mZoom = 0;
     private int mZoomWindowOffset = 0;
-    ;
+
+    //Reusable spectrum path
+    private GeneralPath mSpectrumShape = new GeneralPath();
+
+    //Bin-to-pixel decimation cache.  Holds the starting bin index for each pixel column (plus an end index) and is
+    //only recalculated when the panel width, bin count or zoom window changes.
+    private int[] mPixelBinIndices;
+    private int mCacheWidth = -1;
+    private int mCacheBinCount = -1;
+    private int mCacheZoom = -1;
+    private int mCacheOffset = -1;
 
     private SettingsManager mSettingsManager;
 
@@ -193,7 +203,8 @@ public class SpectrumPanel extends JPanel implements DFTResultsListener, Setting
 
         graphics.setBackground(mColorSpectrumBackground);
 
-        GeneralPath spectrumShape = new GeneralPath();
+        GeneralPath spectrumShape = mSpectrumShape;
+        spectrumShape.reset();
 
         //Start at the lower right inset point
         spectrumShape.moveTo(size.getWidth(),
@@ -202,7 +213,7 @@ public class SpectrumPanel extends JPanel implements DFTResultsListener, Setting
         //Draw to the lower left
         spectrumShape.lineTo(0, size.getHeight() - mSpectrumInset);
 
-        float[] bins = getBins();
+        float[] bins = mDisplayFFTBins;
 
         //If we have FFT data to display ...
         if(bins != null)
@@ -211,29 +222,44 @@ public class SpectrumPanel extends JPanel implements DFTResultsListener, Setting
 
             float scalor = insideHeight / -mDBScale;
 
-    		/* Calculate based on bin size - 1, since bin 0 is rendered at zero
-             * and the last bin is rendered at the width */
-            float binSize = (float)size.width / ((float)(bins.length));
+            int length = getZoomedBinCount(bins);
+            int offset = getZoomedBinOffset(bins, length);
 
-            for(int x = 0; x < bins.length; x++)
+            if(length <= size.width)
             {
-                float height;
+                /* Calculate based on bin size - 1, since bin 0 is rendered at zero
+                 * and the last bin is rendered at the width */
+                float binSize = (float)size.width / ((float)(length));
 
-                height = bins[x] * scalor;
-
-                if(height > insideHeight)
+                for(int x = 0; x < length; x++)
                 {
-                    height = insideHeight;
+                    float xAxis = (float)x * binSize;
+
+                    spectrumShape.lineTo(xAxis, getHeight(bins[offset + x], scalor, insideHeight));
                 }
+            }
+            else
+            {
+                //More bins than pixels - render one point per pixel column using the peak bin value for the column
+                int[] indices = getPixelBinIndices(size.width, bins.length, offset, length);
 
-                if(height < 0)
+                for(int x = 0; x < size.width; x++)
                 {
-                    height = 0;
-                }
+                    int start = indices[x];
+                    int end = indices[x + 1];
 
-                float xAxis = (float)x * binSize;
+                    float peak = bins[start];
 
-                spectrumShape.lineTo(xAxis, height);
+                    for(int y = start + 1; y < end; y++)
+                    {
+                        if(bins[y] > peak)
+                        {
+                            peak = bins[y];
+                        }
+                    }
+
+                    spectrumShape.lineTo(x, getHeight(peak, scalor, insideHeight));
+                }
             }
         }
         //Otherwise show an empty spectrum
@@ -264,6 +290,58 @@ public class SpectrumPanel extends JPanel implements DFTResultsListener, Setting
             size.height - mSpectrumInset));
     }
 
+    /**
+     * Converts the decibel value to a pixel height constrained to the inside height of the panel
+     */
+    private static float getHeight(float value, float scalor, float insideHeight)
+    {
+        float height = value * scalor;
+
+        if(height > insideHeight)
+        {
+            return insideHeight;
+        }
+
+        if(height < 0)
+        {
+            return 0;
+        }
+
+        return height;
+    }
+
+    /**
+     * Returns the cached bin-to-pixel decimation indices, recalculating them when the width, bin count or zoom
+     * window has changed.  Each pixel column x covers bins from index[x] (inclusive) to index[x + 1] (exclusive).
+     *
+     * @param width of the panel in pixels
+     * @param binCount total number of DFT bins
+     * @param offset of the first displayed bin
+     * @param length of displayed bins
+     * @return indices array with width + 1 entries
+     */
+    private int[] getPixelBinIndices(int width, int binCount, int offset, int length)
+    {
+        if(mPixelBinIndices == null || mCacheWidth != width || mCacheBinCount != binCount || mCacheZoom != mZoom ||
+            mCacheOffset != offset)
+        {
+            int[] indices = new int[width + 1];
+
+            for(int x = 0; x <= width; x++)
+            {
+                indices[x] = offset + (int)(((long)x * length) / width);
+            }
+
+            mPixelBinIndices = indices;
+            mCacheWidth = width;
+            mCacheBinCount = binCount;
+            mCacheZoom = mZoom;
+            mCacheOffset = offset;
+        }
+
+        return mPixelBinIndices;
+    }
+
     /**
      * Sets the current zoom level
      *
@@ -392,33 +470,41 @@ public class SpectrumPanel extends JPanel implements DFTResultsListener, Setting
     }
 
     /**
-     * Returns the DFT result bins, or a zoomed and offset version of the bins
-     * when the display is zoomed.
+     * Number of DFT result bins to display for the current zoom level
      */
-    private float[] getBins()
+    private int getZoomedBinCount(float[] bins)
     {
         if(mZoom == 0)
         {
-            return mDisplayFFTBins;
+            return bins.length;
         }
-        else
-        {
-            int length = mDisplayFFTBins.length / getZoomMultiplier();
 
-            int offset = mZoomWindowOffset;
+        return bins.length / getZoomMultiplier();
+    }
 
-            if((offset + length) >= mDisplayFFTBins.length)
-            {
-                offset = mDisplayFFTBins.length - length;
-            }
+    /**
+     * Offset of the first DFT result bin to display for the current zoom level and zoom window offset.
+     */
+    private int getZoomedBinOffset(float[] bins, int length)
+    {
+        if(mZoom == 0)
+        {
+            return 0;
+        }
 
-            if(offset < 0)
-            {
-                offset = 0;
-            }
+        int offset = mZoomWindowOffset;
+
+        if((offset + length) >= bins.length)
+        {
+            offset = bins.length - length;
+        }
 
-            return Arrays.copyOfRange(mDisplayFFTBins, offset, offset + length);
+        if(offset < 0)
+        {
+            offset = 0;
         }
+
+        return offset;
     }
 
     @Override
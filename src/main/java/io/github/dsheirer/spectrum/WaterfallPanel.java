@@ -52,14 +52,19 @@ public class WaterfallPanel extends JPanel implements DFTResultsListener,
     private static final String PAUSED = "PAUSED - Right Click to Unpause";
     private static final String DISABLED = "DISABLED - Right Click to Select a Tuner";
 
+    //Ring buffer of pixel rows.  Each new DFT result overwrites the oldest row and mNewestRow is advanced (upward)
+    //so that only a single row of pixels is updated per frame instead of shifting the whole array.
     private byte[] mPixels;
-    private byte[] mPausedPixels;
+    private int mNewestRow = 0;
+    private int mDisplayRow = 0;
+    private int mPausedRow = 0;
     private int mDFTSize = 4096;
     private int mImageHeight = 700;
     private MemoryImageSource mMemoryImageSource;
     private ColorModel mColorModel = WaterfallColorModel.getDefaultColorModel();
     private Color mColorSpectrumCursor;
     private Image mWaterfallImage;
+    private Image mPausedImage;
 
     private Point mCursorLocation = new Point(0, 0);
     private boolean mCursorVisible = false;
@@ -112,6 +117,8 @@ public class WaterfallPanel extends JPanel implements DFTResultsListener,
     private void reset()
     {
         mPixels = new byte[mDFTSize * mImageHeight];
+        mNewestRow = 0;
+        mDisplayRow = 0;
 
         mMemoryImageSource = new MemoryImageSource(mDFTSize,
             mImageHeight,
@@ -134,7 +141,15 @@ public class WaterfallPanel extends JPanel implements DFTResultsListener,
     {
         if(paused)
         {
-            mPausedPixels = mPixels.clone();
+            //Snapshot the ring buffer into a static image so that the waterfall continues to accumulate while paused
+            MemoryImageSource pausedSource = new MemoryImageSource(mDFTSize, mImageHeight, mColorModel,
+                mPixels.clone(), 0, mDFTSize);
+            mPausedImage = createImage(pausedSource);
+            mPausedRow = mDisplayRow;
+        }
+        else
+        {
+            mPausedImage = null;
         }
 
         mPaused = paused;
@@ -306,12 +321,16 @@ public class WaterfallPanel extends JPanel implements DFTResultsListener,
 
         int offset = (int)(getPixelOffset(multiplier) - binPixelWidth);
 
-        g.drawImage(mWaterfallImage,
-            offset,
-            0,
-            (getWidth() * multiplier) + (int)binPixelWidth,
-            mImageHeight,
-            this);
+        int width = (getWidth() * multiplier) + (int)binPixelWidth;
+
+        if(mPaused && mPausedImage != null)
+        {
+            drawRingImage(g, mPausedImage, mPausedRow, offset, width);
+        }
+        else
+        {
+            drawRingImage(g, mWaterfallImage, mDisplayRow, offset, width);
+        }
 
         Graphics2D graphics = (Graphics2D)g;
 
@@ -338,6 +357,35 @@ public class WaterfallPanel extends JPanel implements DFTResultsListener,
         graphics.dispose();
     }
 
+    /**
+     * Renders the ring buffer image with two blits.  The rows from the newest row to the end of the image are drawn
+     * at the top of the display, followed by the rows from the start of the image up to the newest row.
+     *
+     * @param g graphics to draw on
+     * @param image containing the ring buffer pixel rows
+     * @param newestRow index of the most recent row in the image
+     * @param offset x-axis pixel offset where the image should be rendered
+     * @param width of the rendered image in pixels
+     */
+    private void drawRingImage(Graphics g, Image image, int newestRow, int offset, int width)
+    {
+        if(image == null)
+        {
+            return;
+        }
+
+        int topRows = mImageHeight - newestRow;
+
+        g.drawImage(image, offset, 0, offset + width, topRows,
+            0, newestRow, mDFTSize, mImageHeight, this);
+
+        if(newestRow > 0)
+        {
+            g.drawImage(image, offset, topRows, offset + width, mImageHeight,
+                0, 0, mDFTSize, newestRow, this);
+        }
+    }
+
     /**
      * When zoom level is greater than zero, paints a small indicator at the
      * bottom center of the screen showing the location of the zoom window
@@ -390,8 +438,16 @@ public class WaterfallPanel extends JPanel implements DFTResultsListener,
             reset();
         }
 
-        //Move the pixels down a row to make room for the new results
-        System.arraycopy(mPixels, 0, mPixels, mDFTSize, mPixels.length - mDFTSize);
+        //Advance the ring buffer to overwrite the oldest row with the new results
+        mNewestRow--;
+
+        if(mNewestRow < 0)
+        {
+            mNewestRow = mImageHeight - 1;
+        }
+
+        final int row = mNewestRow;
+        int rowOffset = row * mDFTSize;
 
         /**
          * Find the average value and scale the display to it
@@ -413,34 +469,31 @@ public class WaterfallPanel extends JPanel implements DFTResultsListener,
 
             if(value < 0)
             {
-                mPixels[x] = 0;
+                mPixels[rowOffset + x] = 0;
             }
             else if(value > 255)
             {
-                mPixels[x] = (byte)255;
+                mPixels[rowOffset + x] = (byte)255;
             }
             else
             {
-                mPixels[x] = (byte)value;
+                mPixels[rowOffset + x] = (byte)value;
             }
         }
 
-        //Task the swing event thread to update the display
+        final MemoryImageSource memoryImageSource = mMemoryImageSource;
+        final int dftSize = mDFTSize;
+
+        //Task the swing event thread to send only the updated row to the image and scroll the display
         EventQueue.invokeLater(new Runnable()
         {
             @Override
             public void run()
             {
-                if(mMemoryImageSource != null)
+                if(memoryImageSource != null && memoryImageSource == mMemoryImageSource)
                 {
-                    if(mPaused)
-                    {
-                        mMemoryImageSource.newPixels(mPausedPixels, mColorModel, 0, mDFTSize);
-                    }
-                    else
-                    {
-                        mMemoryImageSource.newPixels(mPixels, mColorModel, 0, mDFTSize);
-                    }
+                    mDisplayRow = row;
+                    memoryImageSource.newPixels(0, row, dftSize, 1);
                 }
             }
         });
@@ -449,6 +502,7 @@ public class WaterfallPanel extends JPanel implements DFTResultsListener,
     public void clearWaterfall()
     {
         Arrays.fill(mPixels, (byte)0);
+        mNewestRow = 0;
         mDisabled = true;
 
         EventQueue.invokeLater(new Runnable()
@@ -458,7 +512,8 @@ public class WaterfallPanel extends JPanel implements DFTResultsListener,
             {
                 if(mMemoryImageSource != null)
                 {
-                    mMemoryImageSource.newPixels(mPixels, mColorModel, 0, mDFTSize);
+                    mDisplayRow = 0;
+                    mMemoryImageSource.newPixels();
                 }
             }
         });
@@ -0,0 +1,262 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.spectrum.census;
+
+import io.github.dsheirer.source.ISourceEventProcessor;
+import io.github.dsheirer.source.SourceEvent;
+import io.github.dsheirer.source.tuner.TunerController;
+import io.github.dsheirer.spectrum.DFTResultsListener;
+import io.github.dsheirer.spectrum.DFTSize;
+import io.github.dsheirer.spectrum.SpectralSubscription;
+
+import java.util.Arrays;
+
+/**
+ * Wideband energy/activity detector.  Subscribes to the tuner's shared spectral analysis service at a low frame rate
+ * and, for each DFT frame, compares the peak level of each census channel against the estimated noise floor.  The
+ * results are accumulated in a signal census so that busy frequencies across the full tuner bandwidth can be
+ * discovered without configuring a decoder channel for each frequency.
+ *
+ * The noise floor is estimated as the median bin level across the usable tuner bandwidth, smoothed across frames.
+ */
+public class ActivityDetector implements DFTResultsListener, ISourceEventProcessor
+{
+    public static final int DEFAULT_FRAME_RATE = 5;
+    public static final float DEFAULT_THRESHOLD_DB = 10.0f;
+    private static final float NOISE_FLOOR_SMOOTHING = 0.1f;
+
+    private TunerController mTunerController;
+    private SignalCensus mSignalCensus;
+    private SpectralSubscription mSubscription;
+    private DFTSize mDFTSize = DFTSize.FFT04096;
+    private int mFrameRate = DEFAULT_FRAME_RATE;
+    private float mThreshold = DEFAULT_THRESHOLD_DB;
+    private float mNoiseFloor = Float.NaN;
+    private float[] mSortBuffer;
+    private long mFrequency;
+    private double mSampleRate;
+
+    /**
+     * Constructs an instance
+     *
+     * @param tunerController providing the shared spectral analysis service
+     * @param signalCensus to receive the activity observations
+     */
+    public ActivityDetector(TunerController tunerController, SignalCensus signalCensus)
+    {
+        mTunerController = tunerController;
+        mSignalCensus = signalCensus;
+    }
+
+    /**
+     * Signal census that receives observations from this detector
+     */
+    public SignalCensus getSignalCensus()
+    {
+        return mSignalCensus;
+    }
+
+    /**
+     * Activity threshold in dB above the noise floor
+     */
+    public float getThreshold()
+    {
+        return mThreshold;
+    }
+
+    /**
+     * Sets the activity threshold in dB above the noise floor
+     */
+    public void setThreshold(float threshold)
+    {
+        mThreshold = threshold;
+    }
+
+    /**
+     * Current noise floor estimate in dB or NaN if no frames have been processed
+     */
+    public float getNoiseFloor()
+    {
+        return mNoiseFloor;
+    }
+
+    /**
+     * Sets the detection frame rate and DFT resolution.  Takes effect on the next start.
+     */
+    public void setResolution(DFTSize dftSize, int frameRate)
+    {
+        mDFTSize = dftSize;
+        mFrameRate = frameRate;
+    }
+
+    /**
+     * Indicates if this detector is running
+     */
+    public boolean isRunning()
+    {
+        return mSubscription != null;
+    }
+
+    /**
+     * Starts activity detection
+     */
+    public void start()
+    {
+        if(mSubscription == null)
+        {
+            mNoiseFloor = Float.NaN;
+            mFrequency = mTunerController.getFrequency();
+            mSampleRate = mTunerController.getSampleRate();
+            mTunerController.addListener(this);
+            mSubscription = mTunerController.getSpectralAnalysisService().subscribe(this, mDFTSize, mFrameRate);
+        }
+    }
+
+    /**
+     * Stops activity detection
+     */
+    public void stop()
+    {
+        if(mSubscription != null)
+        {
+            mSubscription.unsubscribe();
+            mSubscription = null;
+            mTunerController.removeListener(this);
+        }
+    }
+
+    /**
+     * Tracks tuner frequency and sample rate changes so that DFT bins can be mapped to frequencies
+     */
+    @Override
+    public void process(SourceEvent event)
+    {
+        switch(event.getEvent())
+        {
+            case NOTIFICATION_FREQUENCY_CHANGE:
+                mFrequency = event.getValue().longValue();
+                break;
+            case NOTIFICATION_SAMPLE_RATE_CHANGE:
+                mSampleRate = event.getValue().doubleValue();
+                mNoiseFloor = Float.NaN;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Processes a DFT frame of decibel bin values, ordered from lowest to highest frequency.
+     */
+    @Override
+    public void receive(float[] results)
+    {
+        if(results.length == 0 || mSampleRate <= 0 || Float.isNaN(results[0]) || Float.isInfinite(results[0]))
+        {
+            return;
+        }
+
+        long frequency = mFrequency;
+        double binWidth = mSampleRate / results.length;
+        double firstBinFrequency = frequency - (mSampleRate / 2.0);
+
+        int usableHalfBandwidth = mTunerController.getUsableBandwidth() / 2;
+        long minimum = frequency - usableHalfBandwidth;
+        long maximum = frequency + usableHalfBandwidth;
+        int dcHalfBandwidth = mTunerController.getMiddleUnusableHalfBandwidth();
+
+        int startBin = Math.max(0, (int)Math.ceil((minimum - firstBinFrequency) / binWidth));
+        int endBin = Math.min(results.length, (int)Math.floor((maximum - firstBinFrequency) / binWidth));
+
+        if(endBin <= startBin)
+        {
+            return;
+        }
+
+        updateNoiseFloor(results, startBin, endBin);
+
+        long timestamp = System.currentTimeMillis();
+        long currentChannel = Long.MIN_VALUE;
+        float channelPeak = Float.NEGATIVE_INFINITY;
+
+        for(int x = startBin; x < endBin; x++)
+        {
+            long binFrequency = (long)(firstBinFrequency + (x * binWidth));
+
+            if(Math.abs(binFrequency - frequency) <= dcHalfBandwidth)
+            {
+                continue;
+            }
+
+            long channel = mSignalCensus.getChannelFrequency(binFrequency);
+
+            if(channel != currentChannel)
+            {
+                flush(currentChannel, channelPeak, timestamp);
+                currentChannel = channel;
+                channelPeak = results[x];
+            }
+            else if(results[x] > channelPeak)
+            {
+                channelPeak = results[x];
+            }
+        }
+
+        flush(currentChannel, channelPeak, timestamp);
+    }
+
+    /**
+     * Submits the channel peak observation to the census
+     */
+    private void flush(long channel, float peak, long timestamp)
+    {
+        if(channel != Long.MIN_VALUE)
+        {
+            float signalToNoise = peak - mNoiseFloor;
+            mSignalCensus.update(channel, signalToNoise, signalToNoise >= mThreshold, timestamp);
+        }
+    }
+
+    /**
+     * Updates the noise floor estimate from the median bin value across the usable bandwidth
+     */
+    private void updateNoiseFloor(float[] results, int startBin, int endBin)
+    {
+        int length = endBin - startBin;
+
+        if(mSortBuffer == null || mSortBuffer.length != length)
+        {
+            mSortBuffer = new float[length];
+        }
+
+        System.arraycopy(results, startBin, mSortBuffer, 0, length);
+        Arrays.sort(mSortBuffer);
+
+        float median = mSortBuffer[length / 2];
+
+        if(Float.isNaN(mNoiseFloor))
+        {
+            mNoiseFloor = median;
+        }
+        else
+        {
+            mNoiseFloor += (median - mNoiseFloor) * NOISE_FLOOR_SMOOTHING;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.spectrum.census;
+
+import java.util.Calendar;
+
+/**
+ * Occupancy statistics for a single channel (frequency) in the signal census.
+ *
+ * Tracks the number of observed and active frames, peak and average signal level above the noise floor, the first
+ * and last time activity was detected and an hour-of-day histogram of active frames.
+ */
+public class ChannelOccupancy
+{
+    private long mFrequency;
+    private long mObservedFrames;
+    private long mActiveFrames;
+    private float mPeakSignalToNoise;
+    private double mActiveSignalToNoiseSum;
+    private long mFirstActive;
+    private long mLastActive;
+    private long mActivityCount;
+    private boolean mActive;
+    private long[] mHourlyActiveFrames = new long[24];
+    private Calendar mCalendar = Calendar.getInstance();
+
+    /**
+     * Constructs an instance
+     *
+     * @param frequency of the channel in hertz
+     */
+    public ChannelOccupancy(long frequency)
+    {
+        mFrequency = frequency;
+    }
+
+    /**
+     * Channel frequency in hertz
+     */
+    public long getFrequency()
+    {
+        return mFrequency;
+    }
+
+    /**
+     * Updates this channel with a single observation
+     *
+     * @param signalToNoise peak signal level above the noise floor (dB) for the channel in this frame
+     * @param active true if the signal level exceeded the activity threshold
+     * @param timestamp of the observation
+     */
+    public synchronized void update(float signalToNoise, boolean active, long timestamp)
+    {
+        mObservedFrames++;
+
+        if(active)
+        {
+            mActiveFrames++;
+            mActiveSignalToNoiseSum += signalToNoise;
+
+            if(mFirstActive == 0)
+            {
+                mFirstActive = timestamp;
+            }
+
+            mLastActive = timestamp;
+
+            if(!mActive)
+            {
+                mActivityCount++;
+            }
+
+            mCalendar.setTimeInMillis(timestamp);
+            mHourlyActiveFrames[mCalendar.get(Calendar.HOUR_OF_DAY)]++;
+        }
+
+        if(signalToNoise > mPeakSignalToNoise)
+        {
+            mPeakSignalToNoise = signalToNoise;
+        }
+
+        mActive = active;
+    }
+
+    /**
+     * Number of frames where this channel was observed
+     */
+    public synchronized long getObservedFrames()
+    {
+        return mObservedFrames;
+    }
+
+    /**
+     * Number of frames where this channel was active
+     */
+    public synchronized long getActiveFrames()
+    {
+        return mActiveFrames;
+    }
+
+    /**
+     * Occupancy as the ratio of active frames to observed frames (0.0 - 1.0)
+     */
+    public synchronized double getOccupancy()
+    {
+        if(mObservedFrames == 0)
+        {
+            return 0.0;
+        }
+
+        return (double)mActiveFrames / (double)mObservedFrames;
+    }
+
+    /**
+     * Number of distinct activity periods (transitions from inactive to active)
+     */
+    public synchronized long getActivityCount()
+    {
+        return mActivityCount;
+    }
+
+    /**
+     * Indicates if the channel was active in the most recent observation
+     */
+    public synchronized boolean isActive()
+    {
+        return mActive;
+    }
+
+    /**
+     * Peak signal level above the noise floor in dB
+     */
+    public synchronized float getPeakSignalToNoise()
+    {
+        return mPeakSignalToNoise;
+    }
+
+    /**
+     * Average signal level above the noise floor in dB while active
+     */
+    public synchronized float getAverageActiveSignalToNoise()
+    {
+        if(mActiveFrames == 0)
+        {
+            return 0.0f;
+        }
+
+        return (float)(mActiveSignalToNoiseSum / mActiveFrames);
+    }
+
+    /**
+     * Timestamp when activity was first detected or 0 if never active
+     */
+    public synchronized long getFirstActive()
+    {
+        return mFirstActive;
+    }
+
+    /**
+     * Timestamp when activity was most recently detected or 0 if never active
+     */
+    public synchronized long getLastActive()
+    {
+        return mLastActive;
+    }
+
+    /**
+     * Copy of the hour-of-day (0 - 23, local time) histogram of active frames
+     */
+    public synchronized long[] getHourlyActiveFrames()
+    {
+        return mHourlyActiveFrames.clone();
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.spectrum.census;
+
+import io.github.dsheirer.preference.TimestampFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Signal census database.  Maintains per-channel occupancy statistics keyed by channel frequency, quantized to the
+ * census channel resolution.  Provides queries for busy channels and export of the census to a CSV file.
+ */
+public class SignalCensus
+{
+    private final static Logger mLog = LoggerFactory.getLogger(SignalCensus.class);
+
+    public static final long DEFAULT_CHANNEL_RESOLUTION = 12500;
+
+    private ConcurrentSkipListMap<Long,ChannelOccupancy> mChannels = new ConcurrentSkipListMap<>();
+    private long mChannelResolution;
+    private long mCreated = System.currentTimeMillis();
+
+    /**
+     * Constructs an instance
+     *
+     * @param channelResolution channel spacing in hertz used to quantize observed frequencies
+     */
+    public SignalCensus(long channelResolution)
+    {
+        if(channelResolution <= 0)
+        {
+            throw new IllegalArgumentException("Channel resolution must be a positive value");
+        }
+
+        mChannelResolution = channelResolution;
+    }
+
+    /**
+     * Constructs an instance with the default (12.5 kHz) channel resolution
+     */
+    public SignalCensus()
+    {
+        this(DEFAULT_CHANNEL_RESOLUTION);
+    }
+
+    /**
+     * Channel spacing in hertz
+     */
+    public long getChannelResolution()
+    {
+        return mChannelResolution;
+    }
+
+    /**
+     * Quantizes the frequency to the nearest census channel frequency
+     */
+    public long getChannelFrequency(long frequency)
+    {
+        return Math.round((double)frequency / (double)mChannelResolution) * mChannelResolution;
+    }
+
+    /**
+     * Updates the occupancy for the channel containing the frequency
+     *
+     * @param frequency of the observation (quantized to the channel resolution)
+     * @param signalToNoise peak signal level above the noise floor in dB
+     * @param active true if activity was detected
+     * @param timestamp of the observation
+     */
+    public void update(long frequency, float signalToNoise, boolean active, long timestamp)
+    {
+        long channelFrequency = getChannelFrequency(frequency);
+
+        ChannelOccupancy occupancy = mChannels.get(channelFrequency);
+
+        if(occupancy == null)
+        {
+            occupancy = new ChannelOccupancy(channelFrequency);
+
+            ChannelOccupancy existing = mChannels.putIfAbsent(channelFrequency, occupancy);
+
+            if(existing != null)
+            {
+                occupancy = existing;
+            }
+        }
+
+        occupancy.update(signalToNoise, active, timestamp);
+    }
+
+    /**
+     * Occupancy statistics for the channel containing the frequency, or null if the channel has not been observed.
+     */
+    public ChannelOccupancy getChannel(long frequency)
+    {
+        return mChannels.get(getChannelFrequency(frequency));
+    }
+
+    /**
+     * All observed channels, in frequency order
+     */
+    public Collection<ChannelOccupancy> getChannels()
+    {
+        return mChannels.values();
+    }
+
+    /**
+     * Observed channels within the frequency range (inclusive), in frequency order
+     */
+    public Collection<ChannelOccupancy> getChannels(long minimumFrequency, long maximumFrequency)
+    {
+        return mChannels.subMap(minimumFrequency, true, maximumFrequency, true).values();
+    }
+
+    /**
+     * Channels within the frequency range that meet the minimum occupancy, ordered from busiest to least busy.
+     *
+     * @param minimumFrequency of the range
+     * @param maximumFrequency of the range
+     * @param minimumOccupancy ratio of active to observed frames (0.0 - 1.0)
+     * @return busy channels
+     */
+    public List<ChannelOccupancy> getBusyChannels(long minimumFrequency, long maximumFrequency,
+                                                  double minimumOccupancy)
+    {
+        List<ChannelOccupancy> busy = new ArrayList<>();
+
+        for(ChannelOccupancy channel : getChannels(minimumFrequency, maximumFrequency))
+        {
+            if(channel.getActiveFrames() > 0 && channel.getOccupancy() >= minimumOccupancy)
+            {
+                busy.add(channel);
+            }
+        }
+
+        busy.sort(Comparator.comparingDouble(ChannelOccupancy::getOccupancy).reversed());
+
+        return busy;
+    }
+
+    /**
+     * Channels that were active at or after the timestamp, in frequency order
+     */
+    public List<ChannelOccupancy> getChannelsActiveSince(long timestamp)
+    {
+        List<ChannelOccupancy> active = new ArrayList<>();
+
+        for(ChannelOccupancy channel : mChannels.values())
+        {
+            if(channel.getLastActive() >= timestamp)
+            {
+                active.add(channel);
+            }
+        }
+
+        return active;
+    }
+
+    /**
+     * Removes all census entries
+     */
+    public void clear()
+    {
+        mChannels.clear();
+        mCreated = System.currentTimeMillis();
+    }
+
+    /**
+     * Exports the census to a CSV file
+     *
+     * @param path for the file
+     * @throws IOException if there is an error writing the file
+     */
+    public void export(Path path) throws IOException
+    {
+        SimpleDateFormat timestampFormat = TimestampFormat.TIMESTAMP_COLONS.getFormatter();
+        DecimalFormat frequencyFormat = new DecimalFormat("0.000000");
+        DecimalFormat decimalFormat = new DecimalFormat("0.00");
+
+        try(BufferedWriter writer = Files.newBufferedWriter(path))
+        {
+            writer.write(getCSVHeader());
+            writer.newLine();
+
+            for(ChannelOccupancy channel : mChannels.values())
+            {
+                StringBuilder sb = new StringBuilder();
+                sb.append("\"").append(frequencyFormat.format(channel.getFrequency() / 1e6d)).append("\"");
+                sb.append(",\"").append(channel.getObservedFrames()).append("\"");
+                sb.append(",\"").append(channel.getActiveFrames()).append("\"");
+                sb.append(",\"").append(decimalFormat.format(channel.getOccupancy() * 100.0)).append("\"");
+                sb.append(",\"").append(channel.getActivityCount()).append("\"");
+                sb.append(",\"").append(decimalFormat.format(channel.getPeakSignalToNoise())).append("\"");
+                sb.append(",\"").append(decimalFormat.format(channel.getAverageActiveSignalToNoise())).append("\"");
+                sb.append(",\"").append(channel.getFirstActive() > 0 ?
+                    timestampFormat.format(new Date(channel.getFirstActive())) : "").append("\"");
+                sb.append(",\"").append(channel.getLastActive() > 0 ?
+                    timestampFormat.format(new Date(channel.getLastActive())) : "").append("\"");
+
+                for(long hourly : channel.getHourlyActiveFrames())
+                {
+                    sb.append(",\"").append(hourly).append("\"");
+                }
+
+                writer.write(sb.toString());
+                writer.newLine();
+            }
+        }
+
+        mLog.info("Exported signal census [" + mChannels.size() + " channels since " +
+            timestampFormat.format(new Date(mCreated)) + "] to " + path);
+    }
+
+    /**
+     * CSV header for the census export file
+     */
+    public static String getCSVHeader()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("FREQUENCY,OBSERVED_FRAMES,ACTIVE_FRAMES,OCCUPANCY_PERCENT,ACTIVITY_COUNT,PEAK_SNR_DB,");
+        sb.append("AVERAGE_ACTIVE_SNR_DB,FIRST_ACTIVE,LAST_ACTIVE");
+
+        for(int hour = 0; hour < 24; hour++)
+        {
+            sb.append(",HOUR_").append(hour < 10 ? "0" : "").append(hour);
+        }
+
+        return sb.toString();
+    }
+}
@@ -1,7 +1,7 @@
 package io.github.dsheirer.spectrum.menu;
 
 import io.github.dsheirer.dsp.filter.Window.WindowType;
-import io.github.dsheirer.spectrum.DFTProcessor;
+import io.github.dsheirer.spectrum.IDFTWindowTypeProcessor;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
@@ -11,10 +11,10 @@ public class FFTWindowTypeItem extends JCheckBoxMenuItem
 {
     private static final long serialVersionUID = 1L;
 
-    private DFTProcessor mDFTProcessor;
+    private IDFTWindowTypeProcessor mDFTProcessor;
     private WindowType mWindowType;
     
-    public FFTWindowTypeItem( DFTProcessor processor, WindowType windowType )
+    public FFTWindowTypeItem( IDFTWindowTypeProcessor processor, WindowType windowType )
     {
     	super( windowType.toString() );
     	
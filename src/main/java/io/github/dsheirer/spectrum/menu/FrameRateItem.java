@@ -1,6 +1,6 @@
 package io.github.dsheirer.spectrum.menu;
 
-import io.github.dsheirer.spectrum.DFTProcessor;
+import io.github.dsheirer.spectrum.IDFTFrameRateProcessor;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
@@ -10,10 +10,10 @@ public class FrameRateItem extends JCheckBoxMenuItem
 {
     private static final long serialVersionUID = 1L;
 
-    private DFTProcessor mDFTProcessor;
+    private IDFTFrameRateProcessor mDFTProcessor;
     private int mFrameRate;
     
-    public FrameRateItem( DFTProcessor processor, int frameRate )
+    public FrameRateItem( IDFTFrameRateProcessor processor, int frameRate )
     {
     	super( String.valueOf( frameRate ) );
     	
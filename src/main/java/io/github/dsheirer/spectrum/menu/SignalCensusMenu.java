@@ -0,0 +1,132 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.spectrum.menu;
+
+import io.github.dsheirer.properties.SystemProperties;
+import io.github.dsheirer.spectrum.census.ActivityDetector;
+import io.github.dsheirer.spectrum.census.ChannelOccupancy;
+import io.github.dsheirer.spectrum.census.SignalCensus;
+import io.github.dsheirer.util.TimeStamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.JCheckBoxMenuItem;
+import javax.swing.JMenu;
+import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JSeparator;
+import java.awt.Component;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.util.List;
+
+/**
+ * Context menu for controlling a tuner's wideband activity detector and accessing its signal census: start/stop
+ * detection, view the busiest channels, export the census to a CSV file and clear the census.
+ */
+public class SignalCensusMenu extends JMenu
+{
+    private final static Logger mLog = LoggerFactory.getLogger(SignalCensusMenu.class);
+    private static final int BUSIEST_CHANNEL_COUNT = 10;
+    private static final double MINIMUM_BUSY_OCCUPANCY = 0.01;
+
+    /**
+     * Constructs an instance
+     *
+     * @param activityDetector for the tuner
+     * @param tunerName used to name census export files
+     * @param parent component for export notifications
+     */
+    public SignalCensusMenu(ActivityDetector activityDetector, String tunerName, Component parent)
+    {
+        super("Signal Census");
+
+        SignalCensus census = activityDetector.getSignalCensus();
+
+        JCheckBoxMenuItem enabledItem = new JCheckBoxMenuItem("Detect Activity");
+        enabledItem.setSelected(activityDetector.isRunning());
+        enabledItem.addActionListener(e -> {
+            if(enabledItem.isSelected())
+            {
+                activityDetector.start();
+            }
+            else
+            {
+                activityDetector.stop();
+            }
+        });
+        add(enabledItem);
+
+        JMenu busiestMenu = new JMenu("Busiest Channels");
+        List<ChannelOccupancy> busiest = census.getBusyChannels(Long.MIN_VALUE, Long.MAX_VALUE,
+            MINIMUM_BUSY_OCCUPANCY);
+
+        if(busiest.isEmpty())
+        {
+            JMenuItem noneItem = new JMenuItem("No activity detected");
+            noneItem.setEnabled(false);
+            busiestMenu.add(noneItem);
+        }
+        else
+        {
+            DecimalFormat frequencyFormat = new DecimalFormat("0.00000");
+            DecimalFormat decimalFormat = new DecimalFormat("0.0");
+
+            for(int x = 0; x < busiest.size() && x < BUSIEST_CHANNEL_COUNT; x++)
+            {
+                ChannelOccupancy channel = busiest.get(x);
+                JMenuItem channelItem = new JMenuItem(frequencyFormat.format(channel.getFrequency() / 1e6d) +
+                    " MHz - " + decimalFormat.format(channel.getOccupancy() * 100.0) + "% occupied, peak " +
+                    decimalFormat.format(channel.getPeakSignalToNoise()) + " dB");
+                channelItem.setEnabled(false);
+                busiestMenu.add(channelItem);
+            }
+        }
+
+        add(busiestMenu);
+        add(new JSeparator());
+
+        JMenuItem exportItem = new JMenuItem("Export Census");
+        exportItem.setEnabled(!census.getChannels().isEmpty());
+        exportItem.addActionListener(e -> {
+            Path path = SystemProperties.getInstance().getApplicationFolder("census")
+                .resolve("census_" + tunerName.replaceAll("[^A-Za-z0-9]", "_") + "_" +
+                    TimeStamp.getTimeStamp("_") + ".csv");
+
+            try
+            {
+                census.export(path);
+                JOptionPane.showMessageDialog(parent, "Signal census exported to " + path, "Signal Census",
+                    JOptionPane.INFORMATION_MESSAGE);
+            }
+            catch(IOException ioe)
+            {
+                mLog.error("Error exporting signal census to " + path, ioe);
+                JOptionPane.showMessageDialog(parent, "Error exporting signal census: " + ioe.getMessage(),
+                    "Signal Census", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        add(exportItem);
+
+        JMenuItem clearItem = new JMenuItem("Clear Census");
+        clearItem.addActionListener(e -> census.clear());
+        add(clearItem);
+    }
+}
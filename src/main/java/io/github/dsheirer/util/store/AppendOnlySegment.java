@@ -0,0 +1,594 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.util.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Append-only data file with an offset index.  The index file holds the record count and time range of the records
+ * in the segment and a key index that maps each key value to the file offsets of the records that contain the key.
+ * Subclasses provide the record format and the time and key values of each record.
+ *
+ * The index is maintained in memory while the segment is open for writing and is written to the index file when the
+ * segment is closed.  The index file is removed while the segment is open for writing, so a segment whose index file
+ * is missing or does not match the data file (e.g. after an unclean shutdown) is re-indexed by scanning the data
+ * file, and a partial record at the end of the data file is truncated before appending.
+ *
+ * A segment that is opened read-only (e.g. by a command line query while the application is running) never writes
+ * the index file.  A missing or stale index is rebuilt in memory only.
+ *
+ * @param <T> record type
+ */
+public abstract class AppendOnlySegment<T>
+{
+    private final static Logger mLog = LoggerFactory.getLogger(AppendOnlySegment.class);
+    public static final String INDEX_SUFFIX = ".index";
+
+    private Path mDataPath;
+    private Path mIndexPath;
+    private int mIndexVersion;
+    private FileChannel mChannel;
+    private boolean mWritable;
+    private boolean mReadOnly;
+    private long mLength;
+    private int mRecordCount;
+    private long mMinimumTime = Long.MAX_VALUE;
+    private long mMaximumTime = Long.MIN_VALUE;
+    private Map<String,Offsets> mKeyIndex;
+    private boolean mIndexDirty;
+
+    /**
+     * Constructs a segment
+     *
+     * @param dataPath of the segment data file
+     * @param dataSuffix of the data file name, which is replaced with the index suffix for the index file
+     * @param indexVersion of the index file format
+     */
+    protected AppendOnlySegment(Path dataPath, String dataSuffix, int indexVersion)
+    {
+        mDataPath = dataPath;
+        mIndexVersion = indexVersion;
+        String name = dataPath.getFileName().toString();
+        mIndexPath = dataPath.resolveSibling(name.substring(0, name.length() - dataSuffix.length()) + INDEX_SUFFIX);
+    }
+
+    /**
+     * Opens an existing segment for reading.  Loads the record count and time range from the index file, or
+     * re-indexes the data file when the index is missing or stale.  The key index is loaded on demand.
+     *
+     * @throws IOException if the segment cannot be read
+     */
+    protected void openForRead() throws IOException
+    {
+        mLength = Files.size(mDataPath);
+
+        if(!readIndex(false))
+        {
+            rebuildIndex();
+
+            if(!mReadOnly)
+            {
+                writeIndex();
+            }
+
+            mKeyIndex = null;
+            releaseExtendedIndex();
+        }
+    }
+
+    /**
+     * Opens an existing segment for reading without writing to the segment files.  A missing or stale index is
+     * rebuilt in memory and is not written to the index file.
+     *
+     * @throws IOException if the segment cannot be read
+     */
+    protected void openReadOnly() throws IOException
+    {
+        mReadOnly = true;
+        openForRead();
+    }
+
+    /**
+     * Opens the segment for appending, creating the data file if it doesn't exist
+     *
+     * @throws IOException if the segment cannot be opened
+     */
+    protected void openForWrite() throws IOException
+    {
+        mWritable = true;
+        mChannel = FileChannel.open(mDataPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        mLength = mChannel.size();
+
+        //Always re-index the segment that is opened for writing, so that a partial record from an unclean shutdown is
+        //truncated before appending, even when the index was rebuilt while the segment was read-only
+        rebuildIndex();
+
+        //Remove the index file while the segment is open so that an unclean shutdown forces a re-index
+        Files.deleteIfExists(mIndexPath);
+        mIndexDirty = true;
+    }
+
+    /**
+     * Data file for this segment
+     */
+    public Path getDataPath()
+    {
+        return mDataPath;
+    }
+
+    /**
+     * Index file for this segment
+     */
+    public Path getIndexPath()
+    {
+        return mIndexPath;
+    }
+
+    /**
+     * Current length of the data file
+     */
+    protected long getLength()
+    {
+        return mLength;
+    }
+
+    /**
+     * Earliest record time in this segment
+     */
+    public long getMinimumTime()
+    {
+        return mMinimumTime;
+    }
+
+    /**
+     * Latest record time in this segment
+     */
+    public long getMaximumTime()
+    {
+        return mMaximumTime;
+    }
+
+    /**
+     * Number of records in this segment
+     */
+    public int getRecordCount()
+    {
+        return mRecordCount;
+    }
+
+    /**
+     * Indicates if any records in this segment have a time within the time range
+     */
+    public boolean overlaps(long start, long end)
+    {
+        return mRecordCount > 0 && mMinimumTime <= end && mMaximumTime >= start;
+    }
+
+    /**
+     * Appends the record to the segment and updates the index
+     *
+     * @param record to append
+     * @throws IOException if the record can't be written
+     */
+    public synchronized void append(T record) throws IOException
+    {
+        if(!mWritable)
+        {
+            throw new IOException("Segment is not open for writing: " + mDataPath);
+        }
+
+        long offset = write(encode(record));
+        index(record, offset);
+    }
+
+    /**
+     * Writes the buffer contents at the end of the data file
+     *
+     * @return offset of the written bytes
+     */
+    protected long write(ByteBuffer buffer) throws IOException
+    {
+        long offset = mLength;
+        int length = buffer.remaining();
+
+        while(buffer.hasRemaining())
+        {
+            mChannel.write(buffer, offset + length - buffer.remaining());
+        }
+
+        mLength += length;
+        return offset;
+    }
+
+    /**
+     * Adds the record at the offset to the in-memory index
+     */
+    private void index(T record, long offset)
+    {
+        long time = getTime(record);
+        mRecordCount++;
+        mMinimumTime = Math.min(mMinimumTime, time);
+        mMaximumTime = Math.max(mMaximumTime, time);
+
+        for(String key : getKeys(record))
+        {
+            mKeyIndex.computeIfAbsent(key, k -> new Offsets()).add(offset);
+        }
+
+        indexExtended(record, offset);
+        mIndexDirty = true;
+    }
+
+    /**
+     * Finds records with a time within the time range.
+     *
+     * @param key value to match, or null to match all records
+     * @param start time (inclusive)
+     * @param end time (inclusive)
+     * @param consumer to receive matching records, in the order that they were appended
+     * @throws IOException if the segment can't be read
+     */
+    public synchronized void find(String key, long start, long end, Consumer<T> consumer) throws IOException
+    {
+        if(!overlaps(start, end))
+        {
+            return;
+        }
+
+        if(key == null)
+        {
+            scan((record, offset) -> {
+                long time = getTime(record);
+
+                if(start <= time && time <= end)
+                {
+                    consumer.accept(record);
+                }
+            });
+
+            return;
+        }
+
+        loadKeyIndex();
+
+        Offsets offsets = mKeyIndex.get(key);
+
+        if(offsets == null)
+        {
+            return;
+        }
+
+        try(FileChannel channel = mWritable ? null : FileChannel.open(mDataPath, StandardOpenOption.READ))
+        {
+            FileChannel reader = mWritable ? mChannel : channel;
+
+            for(int x = 0; x < offsets.size(); x++)
+            {
+                T record = read(reader, offsets.get(x));
+
+                if(record != null && start <= getTime(record) && getTime(record) <= end)
+                {
+                    consumer.accept(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the record at the offset
+     *
+     * @param offset of the record
+     * @return record or null if the offset does not hold a valid record
+     * @throws IOException if the segment can't be read
+     */
+    protected synchronized T readAt(long offset) throws IOException
+    {
+        try(FileChannel channel = mWritable ? null : FileChannel.open(mDataPath, StandardOpenOption.READ))
+        {
+            return read(mWritable ? mChannel : channel, offset);
+        }
+    }
+
+    /**
+     * Sequentially reads each complete record and truncates a partial record at the end of a writable segment
+     */
+    private void scan(RecordConsumer<T> consumer) throws IOException
+    {
+        long length = mWritable ? mLength : Files.size(mDataPath);
+        long end = scan(length, consumer);
+
+        if(mWritable && end < length)
+        {
+            //Truncate a partial record so that subsequent records are appended at a record boundary
+            mLog.warn("Truncating partial record from segment: " + mDataPath);
+            mChannel.truncate(end);
+            mLength = end;
+        }
+    }
+
+    /**
+     * Rebuilds the index by scanning the data file
+     */
+    private void rebuildIndex() throws IOException
+    {
+        if(mLength > 0)
+        {
+            mLog.info("Indexing segment: " + mDataPath.getFileName());
+        }
+
+        mKeyIndex = new HashMap<>();
+        resetExtendedIndex();
+        mRecordCount = 0;
+        mMinimumTime = Long.MAX_VALUE;
+        mMaximumTime = Long.MIN_VALUE;
+        scan(this::index);
+    }
+
+    /**
+     * Loads the key index for a read-only segment, when it's not already loaded
+     */
+    protected void loadKeyIndex() throws IOException
+    {
+        if(mKeyIndex == null && !readIndex(true))
+        {
+            rebuildIndex();
+
+            if(!mReadOnly)
+            {
+                writeIndex();
+            }
+        }
+    }
+
+    /**
+     * Releases the key index of a read-only segment to reduce memory usage.  The index is reloaded from the index
+     * file on the next key lookup.
+     */
+    public synchronized void releaseKeyIndex()
+    {
+        if(!mWritable)
+        {
+            mKeyIndex = null;
+            releaseExtendedIndex();
+        }
+    }
+
+    /**
+     * Reads the index file
+     *
+     * @param keys to load the key index, or false to load only the record count and time range
+     * @return true if the index was read and matches the data file
+     */
+    private boolean readIndex(boolean keys)
+    {
+        if(!Files.exists(mIndexPath))
+        {
+            return false;
+        }
+
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(mIndexPath),
+            65536)))
+        {
+            if(input.readInt() != mIndexVersion || input.readLong() != mLength)
+            {
+                return false;
+            }
+
+            mRecordCount = input.readInt();
+            mMinimumTime = input.readLong();
+            mMaximumTime = input.readLong();
+
+            if(keys)
+            {
+                int count = input.readInt();
+                Map<String,Offsets> index = new HashMap<>(count * 2);
+
+                for(int x = 0; x < count; x++)
+                {
+                    String key = input.readUTF();
+                    int size = input.readInt();
+                    Offsets offsets = new Offsets(size);
+
+                    for(int y = 0; y < size; y++)
+                    {
+                        offsets.add(input.readLong());
+                    }
+
+                    index.put(key, offsets);
+                }
+
+                readExtendedIndex(input);
+                mKeyIndex = index;
+            }
+
+            return true;
+        }
+        catch(IOException ioe)
+        {
+            mLog.warn("Unable to read segment index - segment will be re-indexed: " + mIndexPath.getFileName());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the index file.  The index is written to a temporary file and moved into place, so that a partially
+     * written index is never used.
+     */
+    private void writeIndex() throws IOException
+    {
+        Path temporary = mIndexPath.resolveSibling(mIndexPath.getFileName() + ".tmp");
+
+        try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary),
+            65536)))
+        {
+            output.writeInt(mIndexVersion);
+            output.writeLong(mLength);
+            output.writeInt(mRecordCount);
+            output.writeLong(mMinimumTime);
+            output.writeLong(mMaximumTime);
+            output.writeInt(mKeyIndex.size());
+
+            for(Map.Entry<String,Offsets> entry : mKeyIndex.entrySet())
+            {
+                output.writeUTF(entry.getKey());
+                Offsets offsets = entry.getValue();
+                output.writeInt(offsets.size());
+
+                for(int x = 0; x < offsets.size(); x++)
+                {
+                    output.writeLong(offsets.get(x));
+                }
+            }
+
+            writeExtendedIndex(output);
+        }
+
+        Files.move(temporary, mIndexPath, StandardCopyOption.REPLACE_EXISTING);
+        mIndexDirty = false;
+    }
+
+    /**
+     * Forces data file writes to disk
+     */
+    public synchronized void sync() throws IOException
+    {
+        if(mWritable)
+        {
+            mChannel.force(false);
+        }
+    }
+
+    /**
+     * Closes the segment.  Writes the index file for a segment that was open for writing.
+     */
+    public synchronized void close() throws IOException
+    {
+        if(mWritable)
+        {
+            mChannel.force(false);
+            mChannel.close();
+
+            if(mIndexDirty)
+            {
+                writeIndex();
+            }
+
+            mWritable = false;
+            mKeyIndex = null;
+            releaseExtendedIndex();
+        }
+    }
+
+    /**
+     * Serializes the record for appending to the data file
+     */
+    protected abstract ByteBuffer encode(T record) throws IOException;
+
+    /**
+     * Reads the record at the offset
+     *
+     * @param channel to read from
+     * @param offset of the record
+     * @return record or null if the offset does not hold a valid record
+     */
+    protected abstract T read(FileChannel channel, long offset) throws IOException;
+
+    /**
+     * Sequentially reads each complete record in the data file
+     *
+     * @param length of the data file to read
+     * @param consumer to receive each record and its offset
+     * @return offset following the last complete record
+     */
+    protected abstract long scan(long length, RecordConsumer<T> consumer) throws IOException;
+
+    /**
+     * Time of the record, used for the segment time range and time range queries
+     */
+    protected abstract long getTime(T record);
+
+    /**
+     * Key values for the record in the key index
+     */
+    protected abstract Collection<String> getKeys(T record);
+
+    /**
+     * Adds the record at the offset to any additional subclass index.  Default implementation does nothing.
+     */
+    protected void indexExtended(T record, long offset)
+    {
+    }
+
+    /**
+     * Creates an empty additional subclass index before the segment is re-indexed.  Default implementation does
+     * nothing.
+     */
+    protected void resetExtendedIndex()
+    {
+    }
+
+    /**
+     * Releases any additional subclass index.  Default implementation does nothing.
+     */
+    protected void releaseExtendedIndex()
+    {
+    }
+
+    /**
+     * Reads any additional subclass index that follows the key index in the index file.  Default implementation
+     * does nothing.
+     */
+    protected void readExtendedIndex(DataInputStream input) throws IOException
+    {
+    }
+
+    /**
+     * Writes any additional subclass index following the key index in the index file.  Default implementation does
+     * nothing.
+     */
+    protected void writeExtendedIndex(DataOutputStream output) throws IOException
+    {
+    }
+
+    /**
+     * Receives each record and its offset while scanning
+     */
+    public interface RecordConsumer<T>
+    {
+        void accept(T record, long offset);
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.util.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Set of append-only segments in a directory with one segment per day.  Records are appended to the segment for the
+ * current day, rolling over to a new segment at the change of day, and the remaining segments are open for reading.
+ * Tracks the read-only segments that have a loaded key index and releases the least recently used indexes to bound
+ * memory usage.
+ *
+ * This class is not thread safe.  The owner synchronizes access.
+ *
+ * @param <S> segment type
+ */
+public class DailySegments<S extends AppendOnlySegment<?>>
+{
+    private final static Logger mLog = LoggerFactory.getLogger(DailySegments.class);
+    private static final int MAXIMUM_LOADED_INDEXES = 64;
+
+    private Path mDirectory;
+    private String mPrefix;
+    private String mSuffix;
+    private SegmentOpener<S> mReadOpener;
+    private SegmentOpener<S> mWriteOpener;
+    private TreeMap<String,S> mSegments = new TreeMap<>();
+    private Map<S,Boolean> mLoadedIndexes = new LinkedHashMap<>(16, 0.75f, true);
+    private S mCurrentSegment;
+    private String mCurrentSegmentName;
+    private SimpleDateFormat mSegmentDateFormat = new SimpleDateFormat("yyyyMMdd");
+
+    /**
+     * Constructs an instance
+     *
+     * @param directory for the segment files
+     * @param prefix for segment file names, followed by the segment date
+     * @param suffix of the segment data files
+     * @param readOpener to open an existing segment for reading
+     * @param writeOpener to open a segment for appending
+     */
+    public DailySegments(Path directory, String prefix, String suffix, SegmentOpener<S> readOpener,
+                         SegmentOpener<S> writeOpener)
+    {
+        mDirectory = directory;
+        mPrefix = prefix;
+        mSuffix = suffix;
+        mReadOpener = readOpener;
+        mWriteOpener = writeOpener;
+    }
+
+    /**
+     * Opens the existing segments in the directory
+     *
+     * @return number of segments opened
+     */
+    public int load()
+    {
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(mDirectory, mPrefix + "*" + mSuffix))
+        {
+            for(Path path : stream)
+            {
+                try
+                {
+                    mSegments.put(getSegmentName(path), mReadOpener.open(path));
+                }
+                catch(IOException ioe)
+                {
+                    mLog.error("Unable to open segment: " + path, ioe);
+                }
+            }
+        }
+        catch(IOException ioe)
+        {
+            mLog.error("Unable to read segment directory: " + mDirectory, ioe);
+        }
+
+        return mSegments.size();
+    }
+
+    /**
+     * Segment name from the data file path
+     */
+    private String getSegmentName(Path path)
+    {
+        String name = path.getFileName().toString();
+        return name.substring(0, name.length() - mSuffix.length());
+    }
+
+    /**
+     * Segment that is currently open for writing, or null
+     */
+    public S getWriteSegment()
+    {
+        return mCurrentSegment;
+    }
+
+    /**
+     * Segment for the current day, rolling over to a new segment at the change of day
+     *
+     * @param now current time
+     * @return segment open for writing
+     * @throws IOException if the segment can't be opened
+     */
+    public S getWriteSegment(long now) throws IOException
+    {
+        String name = mPrefix + mSegmentDateFormat.format(new Date(now));
+
+        if(mCurrentSegment == null || !name.equals(mCurrentSegmentName))
+        {
+            closeWriteSegment();
+
+            //Reopen an existing segment for the same day (e.g. after a restart) so that records are appended
+            S existing = mSegments.remove(name);
+
+            if(existing != null)
+            {
+                mLoadedIndexes.remove(existing);
+            }
+
+            mCurrentSegment = mWriteOpener.open(mDirectory.resolve(name + mSuffix));
+            mCurrentSegmentName = name;
+            mSegments.put(name, mCurrentSegment);
+        }
+
+        return mCurrentSegment;
+    }
+
+    /**
+     * Closes the current write segment, which writes the segment's index file
+     */
+    public void closeWriteSegment()
+    {
+        if(mCurrentSegment != null)
+        {
+            try
+            {
+                mCurrentSegment.close();
+            }
+            catch(IOException ioe)
+            {
+                mLog.error("Error closing segment: " + mCurrentSegment.getDataPath(), ioe);
+            }
+
+            mCurrentSegment = null;
+            mCurrentSegmentName = null;
+        }
+    }
+
+    /**
+     * Segments ordered oldest to newest
+     */
+    public List<S> getSegments()
+    {
+        return new ArrayList<>(mSegments.values());
+    }
+
+    /**
+     * Segments with records in the time range, ordered oldest to newest
+     */
+    public List<S> getSegments(long start, long end)
+    {
+        List<S> segments = new ArrayList<>();
+
+        for(S segment : mSegments.values())
+        {
+            if(segment.overlaps(start, end))
+            {
+                segments.add(segment);
+            }
+        }
+
+        return segments;
+    }
+
+    /**
+     * Tracks a read-only segment that has a loaded key index and releases the least recently used indexes
+     */
+    public void trackLoadedIndex(S segment)
+    {
+        if(segment == mCurrentSegment)
+        {
+            return;
+        }
+
+        mLoadedIndexes.put(segment, Boolean.TRUE);
+
+        Iterator<S> it = mLoadedIndexes.keySet().iterator();
+
+        while(mLoadedIndexes.size() > MAXIMUM_LOADED_INDEXES && it.hasNext())
+        {
+            it.next().releaseKeyIndex();
+            it.remove();
+        }
+    }
+
+    /**
+     * Deletes the read-only segments with records that are all older than the time
+     *
+     * @param time threshold
+     */
+    public void deleteSegmentsBefore(long time)
+    {
+        Iterator<S> it = mSegments.values().iterator();
+
+        while(it.hasNext())
+        {
+            S segment = it.next();
+
+            if(segment != mCurrentSegment && segment.getRecordCount() > 0 && segment.getMaximumTime() < time)
+            {
+                it.remove();
+                mLoadedIndexes.remove(segment);
+
+                try
+                {
+                    Files.deleteIfExists(segment.getDataPath());
+                    Files.deleteIfExists(segment.getIndexPath());
+                    mLog.info("Deleted expired segment: " + segment.getDataPath().getFileName());
+                }
+                catch(IOException ioe)
+                {
+                    mLog.error("Unable to delete expired segment: " + segment.getDataPath(), ioe);
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a segment data file
+     */
+    public interface SegmentOpener<S>
+    {
+        S open(Path path) throws IOException;
+    }
+}
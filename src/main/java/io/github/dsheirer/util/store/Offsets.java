@@ -0,0 +1,60 @@
+/*
+ * *****************************************************************************
+ *  Copyright (C) 2014-2020 Dennis Sheirer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>
+ * ****************************************************************************
+ */
+package io.github.dsheirer.util.store;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive file offsets
+ */
+public class Offsets
+{
+    private long[] mOffsets;
+    private int mSize;
+
+    public Offsets()
+    {
+        this(4);
+    }
+
+    public Offsets(int capacity)
+    {
+        mOffsets = new long[Math.max(1, capacity)];
+    }
+
+    public void add(long offset)
+    {
+        if(mSize == mOffsets.length)
+        {
+            mOffsets = Arrays.copyOf(mOffsets, mOffsets.length * 2);
+        }
+
+        mOffsets[mSize++] = offset;
+    }
+
+    public long get(int index)
+    {
+        return mOffsets[index];
+    }
+
+    public int size()
+    {
+        return mSize;
+    }
+}